@@ -3,6 +3,7 @@ package org.monarchinitiative.phenol.cli;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.ParameterException;
 import org.monarchinitiative.phenol.base.PhenolException;
+import org.monarchinitiative.phenol.cli.demo.ClosureBenchmark;
 import org.monarchinitiative.phenol.cli.demo.ComputeSimilarityDemo;
 import org.monarchinitiative.phenol.cli.demo.GoEnrichmentDemo;
 import org.monarchinitiative.phenol.cli.demo.ParsingBenchmark;
@@ -24,6 +25,7 @@ public class Main {
   private static final String GO_DEMO = "go-demo";
   private static final String BENCHMARK = "benchmark";
   private static final String HPO_SIM="hpo-sim";
+  private static final String CLOSURE_BENCHMARK = "closure-benchmark";
 
   public static void main(String[] argv) throws PhenolException {
     final PrecomputeScoresOptions precomputeScoresOptions = new PrecomputeScoresOptions();
@@ -31,6 +33,7 @@ public class Main {
     final GoEnrichmentDemo.Options godemo = new GoEnrichmentDemo.Options();
     final ParsingBenchmark.Options bench = new ParsingBenchmark.Options();
     final ComputeSimilarityDemo.Options hpo_sim = new ComputeSimilarityDemo.Options();
+    final ClosureBenchmark.Options closureBench = new ClosureBenchmark.Options();
     final JCommander jc =
         JCommander.newBuilder()
             .addCommand(PRECOMPUTE_SCORES, precomputeScoresOptions)
@@ -38,6 +41,7 @@ public class Main {
           .addCommand(GO_DEMO, godemo)
           .addCommand(BENCHMARK, bench)
           .addCommand(HPO_SIM, hpo_sim)
+          .addCommand(CLOSURE_BENCHMARK, closureBench)
             .build();
     try {
       jc.parse(argv);
@@ -67,6 +71,10 @@ public class Main {
         break;
       case HPO_SIM:
         new ComputeSimilarityDemo(hpo_sim).run();
+        break;
+      case CLOSURE_BENCHMARK:
+        new ClosureBenchmark(closureBench).run();
+        break;
     }
   }
 }
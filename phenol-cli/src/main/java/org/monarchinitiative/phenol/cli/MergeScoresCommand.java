@@ -4,11 +4,14 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +25,8 @@ import org.monarchinitiative.phenol.io.scoredist.TextFileScoreDistributionReader
 import org.monarchinitiative.phenol.io.scoredist.TextFileScoreDistributionWriter;
 import org.monarchinitiative.phenol.ontology.scoredist.ScoreDistribution;
 import org.monarchinitiative.phenol.ontology.scoredist.ScoreDistributions;
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreSamplingShard;
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreSamplingShards;
 
 /**
  * Implementation of {@code merge-scores} command.
@@ -52,6 +57,7 @@ public class MergeScoresCommand {
 
     loadDistributions();
     mergeDistributions();
+    checkManifests();
     writeResult();
 
     printFooter();
@@ -62,6 +68,13 @@ public class MergeScoresCommand {
 
     for (String inputPath : options.getInputFiles()) {
       LOGGER.info("Loading {}", inputPath);
+      if (options.isVerifyChecksums()) {
+        try {
+          ScoreSamplingShards.verifyChecksum(new File(inputPath));
+        } catch (PhenolException e) {
+          throw new PhenolRuntimeException("Checksum verification failed: " + inputPath, e);
+        }
+      }
       try (final ScoreDistributionReader reader =
           new TextFileScoreDistributionReader(new File(inputPath))) {
         Map<Integer, ScoreDistribution> distributions = reader.readAll();
@@ -89,6 +102,80 @@ public class MergeScoresCommand {
     LOGGER.info("Done merging distributions.");
   }
 
+  /**
+   * Check that the given shard manifests form a complete plan with the same sampling options, that
+   * each input was produced by one of the planned shards, and that each planned object is present
+   * in the merged distribution of every term count.
+   */
+  private void checkManifests() {
+    if (options.getManifestFiles().isEmpty()) {
+      return;
+    }
+    LOGGER.info("Checking merge result against shard manifests...");
+
+    final Map<Integer, ScoreSamplingShard> shards = new TreeMap<>();
+    final Set<Integer> plannedObjectIds = new TreeSet<>();
+    ScoreSamplingShard first = null;
+    for (String manifestPath : options.getManifestFiles()) {
+      final ScoreSamplingShard shard;
+      try {
+        shard = ScoreSamplingShard.read(new File(manifestPath));
+      } catch (PhenolException e) {
+        throw new PhenolRuntimeException("Problem reading shard manifest: " + manifestPath, e);
+      }
+      if (first == null) {
+        first = shard;
+      } else if (first.getNumShards() != shard.getNumShards()
+          || !first.getSamplingFingerprint().equals(shard.getSamplingFingerprint())) {
+        throw new PhenolRuntimeException("Shard manifests are from different plans");
+      }
+      if (shards.put(shard.getIndex(), shard) != null) {
+        throw new PhenolRuntimeException("Duplicate shard manifest: " + manifestPath);
+      }
+      for (int objectId : shard.getObjectIds()) {
+        plannedObjectIds.add(objectId);
+      }
+    }
+    if (shards.size() != first.getNumShards()) {
+      throw new PhenolRuntimeException(
+          "Got manifests for " + shards.size() + " of " + first.getNumShards() + " shards");
+    }
+
+    // Each input must come from a distinct planned shard, as recorded in its checksum file.
+    final Set<Integer> producedShards = new HashSet<>();
+    for (String inputPath : options.getInputFiles()) {
+      final ScoreSamplingShard produced;
+      try {
+        produced = ScoreSamplingShards.readShard(new File(inputPath));
+      } catch (PhenolException e) {
+        throw new PhenolRuntimeException("No shard recorded for input file: " + inputPath, e);
+      }
+      if (!produced.equals(shards.get(produced.getIndex()))) {
+        throw new PhenolRuntimeException(
+            "Input file " + inputPath + " was produced by " + produced + ", not a planned shard");
+      }
+      if (!producedShards.add(produced.getIndex())) {
+        throw new PhenolRuntimeException(
+            "Duplicate output of shard " + produced.getIndex() + ": " + inputPath);
+      }
+    }
+
+    for (Entry<Integer, ScoreDistribution> e : mergedDists.entrySet()) {
+      final Set<Integer> missing = new TreeSet<>(plannedObjectIds);
+      missing.removeAll(e.getValue().getObjectIds());
+      if (!missing.isEmpty()) {
+        throw new PhenolRuntimeException(
+            "Missing " + missing.size() + " planned objects for " + e.getKey() + " terms, e.g., "
+                + missing.iterator().next());
+      }
+    }
+
+    LOGGER.info(
+        "All {} planned objects present, sampled with {}.",
+        plannedObjectIds.size(),
+        first.getSamplingFingerprint());
+  }
+
   private void writeResult() {
     LOGGER.info("Writing result...");
     try (ScoreDistributionWriter writer = buildWriter()) {
@@ -39,6 +39,20 @@ public class MergeScoresOptions {
   )
   private int resampleToPoints = 0;
 
+  @Parameter(
+    names = "--verify-checksums",
+    description = "Verify each input file against its .sha256 checksum file before merging."
+  )
+  private boolean verifyChecksums = false;
+
+  @Parameter(
+    names = "--manifest",
+    description =
+        "Shard manifests of the plan; each input's checksum file must record one of these shards "
+            + "and all planned objects must be present in the inputs."
+  )
+  private List<String> manifestFiles = new ArrayList<>();
+
   /** @return The input files to read. */
   public List<String> getInputFiles() {
     return inputFiles;
@@ -64,6 +78,16 @@ public class MergeScoresOptions {
     return resampleToPoints;
   }
 
+  /** @return Whether to verify the checksums of the input files. */
+  public boolean isVerifyChecksums() {
+    return verifyChecksums;
+  }
+
+  /** @return The shard manifests to check the merge result against. */
+  public List<String> getManifestFiles() {
+    return manifestFiles;
+  }
+
   @Override
   public String toString() {
     return "MergeScoresOptions [inputFiles="
@@ -76,6 +100,10 @@ public class MergeScoresOptions {
         + h2TableName
         + ", resampleToPoints="
         + resampleToPoints
+        + ", verifyChecksums="
+        + verifyChecksums
+        + ", manifestFiles="
+        + manifestFiles
         + "]";
   }
 }
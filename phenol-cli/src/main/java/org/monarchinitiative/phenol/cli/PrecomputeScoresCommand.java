@@ -1,6 +1,7 @@
 package org.monarchinitiative.phenol.cli;
 
 import org.monarchinitiative.phenol.base.PhenolException;
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
 import org.monarchinitiative.phenol.formats.hpo.HpoGeneAnnotation;
 import org.monarchinitiative.phenol.formats.hpo.HpoSubOntologyRootTermIds;
 import org.monarchinitiative.phenol.io.OntologyLoader;
@@ -8,13 +9,19 @@ import org.monarchinitiative.phenol.io.scoredist.ScoreDistributionWriter;
 import org.monarchinitiative.phenol.io.scoredist.TextFileScoreDistributionWriter;
 import org.monarchinitiative.phenol.ontology.algo.InformationContentComputation;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermAnnotations;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.monarchinitiative.phenol.ontology.scoredist.ScoreDistribution;
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreDistributionCheckpoint;
 import org.monarchinitiative.phenol.ontology.scoredist.ScoreSamplingOptions;
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreSamplingShard;
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreSamplingShards;
 import org.monarchinitiative.phenol.ontology.scoredist.SimilarityScoreSampling;
 import org.monarchinitiative.phenol.ontology.similarity.ResnikSimilarity;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.Map.Entry;
 
@@ -40,6 +47,12 @@ public class PrecomputeScoresCommand {
   /** The TermId to object ID mapping. */
   private final HashMap<TermId, Collection<TermId>> termIdToObjectId = new HashMap<>();
 
+  /** The object ID to TermId mapping. */
+  private final HashMap<Integer, Collection<TermId>> objectIdToTermId = new HashMap<>();
+
+  /** The shard to sample, <code>null</code> to sample all objects. */
+  private ScoreSamplingShard shard;
+
   /** The Resnik similarity. */
   private ResnikSimilarity resnikSimilarity;
 
@@ -60,9 +73,13 @@ public class PrecomputeScoresCommand {
   public void run() {
     printHeader();
     loadOntology();
-    precomputePairwiseResnik();
-    performSampling();
-    writeDistribution();
+    if (options.getPlanShards() > 0) {
+      planShards();
+    } else {
+      precomputePairwiseResnik();
+      performSampling();
+      writeDistribution();
+    }
     printFooter();
   }
 
@@ -83,44 +100,102 @@ public class PrecomputeScoresCommand {
     LOGGER.info("Done loading ontology.");
 
     LOGGER.info("Loading gene-to-term link file...");
-    final ArrayList<HpoGeneAnnotation> termAnnotations = new ArrayList<>();
-    final File inputFile = new File(options.getGeneToTermLinkFile());
-//    try (HpoGeneAnnotationParser parser = new HpoGeneAnnotationParser(inputFile)) {
-//      while (parser.hasNext()) {
-//        final HpoGeneAnnotation anno = parser.next();
-//        if (phenotypicAbnormalitySubOntology.getNonObsoleteTermIds().contains(anno.getTermId())) {
-//          termAnnotations.add(anno);
-//        }
-//      }
-//    } catch (IOException e) {
-//      LOGGER.error(e.getMessage(), e);
-//      LOGGER.error("Problem reading from file.");
-//    } catch (TermAnnotationParserException e) {
-//      e.printStackTrace();
-//      LOGGER.error(e.getMessage(), e);
-//      LOGGER.error("Problem reading from file.");
-//    }
-
-//    TermAnnotations.constructTermLabelToAnnotationsMap(
-//            phenotypicAbnormalitySubOntology, termAnnotations)
-//        .forEach(
-//            (geneId, termIds) -> objectIdToTermId.put(geneId, termIds));
-//    //TODO we probably do not need these maps
-//    TermAnnotations.constructTermAnnotationToLabelsMap(
-//            phenotypicAbnormalitySubOntology, termAnnotations)
-//        .forEach(
-//            (termId, geneIds) -> {
-//              termIdToObjectId.put(
-//                  termId,
-//                  geneIds
-//                      .stream()
-//                      .map(termId1 -> geneIds)))
-//                      .collect(Collectors.toList()));
-//            });
+    final List<HpoGeneAnnotation> termAnnotations =
+        readGeneAnnotations(new File(options.getGeneToTermLinkFile()));
+    for (HpoGeneAnnotation anno : termAnnotations) {
+      objectIdToTermId
+          .computeIfAbsent(anno.getEntrezGeneId(), geneId -> new HashSet<>())
+          .add(anno.getTermId());
+    }
+    termIdToObjectId.putAll(
+        TermAnnotations.constructTermAnnotationToLabelsMap(
+            phenotypicAbnormalitySubOntology, termAnnotations));
+    if (objectIdToTermId.isEmpty()) {
+      throw new PhenolRuntimeException(
+          "No gene-to-term links in " + options.getGeneToTermLinkFile());
+    }
+    LOGGER.info("Loaded {} links of {} genes.", termAnnotations.size(), objectIdToTermId.size());
 
     LOGGER.info("Done loading gene-phenotype links.");
   }
 
+  /**
+   * Read gene-to-term links from a tab-separated file with the columns Entrez gene ID, gene symbol,
+   * HPO term name, and HPO term ID, e.g., <code>genes_to_phenotype.txt</code>.
+   *
+   * @param inputFile The file to read.
+   * @return The links to terms of the phenotypic abnormality sub ontology.
+   */
+  private List<HpoGeneAnnotation> readGeneAnnotations(File inputFile) {
+    final List<HpoGeneAnnotation> result = new ArrayList<>();
+    try (BufferedReader reader = Files.newBufferedReader(inputFile.toPath())) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        final String[] fields = line.split("\t");
+        if (fields.length < 4) {
+          throw new PhenolRuntimeException(
+              "Invalid gene-to-term link in " + inputFile + ": " + line);
+        }
+        final TermId termId = TermId.of(fields[3]);
+        if (phenotypicAbnormalitySubOntology.getNonObsoleteTermIds().contains(termId)) {
+          result.add(
+              new HpoGeneAnnotation(Integer.parseInt(fields[0]), fields[1], fields[2], termId));
+        }
+      }
+    } catch (IOException | NumberFormatException e) {
+      throw new PhenolRuntimeException("Problem reading from file " + inputFile, e);
+    }
+    return result;
+  }
+
+  /** @return The {@link ScoreSamplingOptions} configured on the command line. */
+  ScoreSamplingOptions buildSamplingOptions() {
+    final ScoreSamplingOptions result =
+        new ScoreSamplingOptions(
+            options.getNumThreads(),
+            options.getMinObjectId(),
+            options.getMaxObjectId(),
+            options.getMinNumTerms(),
+            options.getMaxNumTerms(),
+            options.getSeed(),
+            options.getNumIterations());
+    result.setNestedSampling(options.isNestedSampling());
+    result.setAdaptivePrecision(options.getAdaptivePrecision());
+    result.setTailProbability(options.getTailProbability());
+    result.setBatchSize(options.getBatchSize());
+    result.setFitFamily(options.getFitFamily());
+    result.setMaxKsDistance(options.getMaxKsDistance());
+    return result;
+  }
+
+  private void planShards() {
+    LOGGER.info("Planning {} shards...", options.getPlanShards());
+
+    final File shardDir = new File(options.getShardDir());
+    if (!shardDir.isDirectory() && !shardDir.mkdirs()) {
+      throw new PhenolRuntimeException("Could not create shard directory " + shardDir);
+    }
+    final List<ScoreSamplingShard> shards =
+        ScoreSamplingShards.plan(objectIdToTermId, buildSamplingOptions(), options.getPlanShards());
+    for (ScoreSamplingShard shard : shards) {
+      final File manifest =
+          new File(
+              shardDir,
+              String.format("shard-%d-of-%d.manifest", shard.getIndex(), shard.getNumShards()));
+      try {
+        shard.write(manifest);
+      } catch (PhenolException e) {
+        throw new PhenolRuntimeException("Problem writing shard manifest " + manifest, e);
+      }
+      LOGGER.info("Wrote {} to {}", shard, manifest);
+    }
+
+    LOGGER.info("Done planning shards.");
+  }
+
   private void precomputePairwiseResnik() {
     LOGGER.info("Performing information content precomputation...");
     final InformationContentComputation icPrecomputation =
@@ -139,20 +214,44 @@ public class PrecomputeScoresCommand {
   private void performSampling() {
     LOGGER.info("Performing sampling...");
 
-    final ScoreSamplingOptions samplingOptions =
-        new ScoreSamplingOptions(
-            options.getNumThreads(),
-            options.getMinObjectId(),
-            options.getMaxObjectId(),
-            options.getMinNumTerms(),
-            options.getMaxNumTerms(),
-            options.getSeed(),
-            options.getNumIterations());
+    final ScoreSamplingOptions samplingOptions = buildSamplingOptions();
+    Map<Integer, Collection<TermId>> labels = objectIdToTermId;
+    if (options.getShardManifest() != null) {
+      final File manifest = new File(options.getShardManifest());
+      try {
+        shard = ScoreSamplingShard.read(manifest);
+      } catch (PhenolException e) {
+        throw new PhenolRuntimeException("Problem reading shard manifest " + manifest, e);
+      }
+      if (!shard.getSamplingFingerprint().equals(samplingOptions.getSamplingFingerprint())) {
+        throw new PhenolRuntimeException(
+            "Shard manifest "
+                + manifest
+                + " was planned with different sampling options: "
+                + shard.getSamplingFingerprint()
+                + " instead of "
+                + samplingOptions.getSamplingFingerprint());
+      }
+      labels = shard.select(objectIdToTermId);
+      LOGGER.info("Restricting sampling to {}", shard);
+    }
 
     final SimilarityScoreSampling sampling =
         new SimilarityScoreSampling(
             phenotypicAbnormalitySubOntology, resnikSimilarity, samplingOptions);
-    scoreDistribution = null;// TODO sampling.performSampling(objectIdToTermId);
+    if (options.getCheckpointFile() == null) {
+      scoreDistribution = sampling.performSampling(labels);
+    } else {
+      // Completed distributions are appended to the checkpoint as they finish, such that an
+      // interrupted run can be continued with --resume.
+      final File checkpointFile = new File(options.getCheckpointFile());
+      try (ScoreDistributionCheckpoint checkpoint =
+          ScoreDistributionCheckpoint.open(checkpointFile, samplingOptions, options.isResume())) {
+        scoreDistribution = sampling.performSampling(labels, checkpoint);
+      } catch (IOException | PhenolException e) {
+        throw new PhenolRuntimeException("Problem with checkpoint file " + checkpointFile, e);
+      }
+    }
 
     LOGGER.info("Done with sampling.");
   }
@@ -160,15 +259,26 @@ public class PrecomputeScoresCommand {
   private void writeDistribution() {
     LOGGER.info("Writing out score distribution...");
 
+    final File outputFile = new File(options.getOutputScoreDistFile());
     final int resolution = Math.min(1000, Math.max(100, options.getNumIterations() / 100));
 
     try (final ScoreDistributionWriter writer =
-        new TextFileScoreDistributionWriter(new File(options.getOutputScoreDistFile()))) {
+        new TextFileScoreDistributionWriter(outputFile)) {
       for (Entry<Integer, ScoreDistribution> e : scoreDistribution.entrySet()) {
         writer.write(e.getKey(), e.getValue(), resolution);
       }
     } catch (IOException | PhenolException e) {
-      throw new RuntimeException("Problem writing to file", e);
+      throw new PhenolRuntimeException("Problem writing to file", e);
+    }
+
+    if (shard != null) {
+      // The checksum allows merge-scores to detect truncated or corrupted shard outputs, and the
+      // recorded shard to match the output to its manifest.
+      try {
+        ScoreSamplingShards.writeChecksum(outputFile, shard);
+      } catch (PhenolException e) {
+        throw new PhenolRuntimeException("Problem writing checksum of " + outputFile, e);
+      }
     }
 
     LOGGER.info("Done writing out distribution.");
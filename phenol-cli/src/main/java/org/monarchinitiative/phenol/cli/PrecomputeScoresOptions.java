@@ -2,6 +2,7 @@ package org.monarchinitiative.phenol.cli;
 
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreDistributionModel;
 
 /**
  * Command line options for the {@code precompute-scores} command.
@@ -53,6 +54,46 @@ public class PrecomputeScoresOptions {
   )
   private int seed = 42;
 
+  @Parameter(
+    names = {"--nested-sampling"},
+    description = "Sample all term counts in one nested pass per object."
+  )
+  private boolean nestedSampling = false;
+
+  @Parameter(
+    names = {"--adaptive-precision"},
+    description =
+        "Stop sampling an object once the confidence interval of the tail quantile is at most this "
+            + "wide, 0 to always run all iterations."
+  )
+  private double adaptivePrecision = 0.0;
+
+  @Parameter(
+    names = {"--tail-probability"},
+    description = "Tail probability of the quantile tracked with --adaptive-precision."
+  )
+  private double tailProbability = 0.01;
+
+  @Parameter(
+    names = {"--batch-size"},
+    description = "Number of iterations between precision checks with --adaptive-precision."
+  )
+  private int batchSize = 1000;
+
+  @Parameter(
+    names = {"--fit-family"},
+    description =
+        "Family of the model to fit to the sampled scores (GAMMA, GEV), if any; the empirical "
+            + "distribution is kept where the fit is rejected."
+  )
+  private ScoreDistributionModel.Family fitFamily;
+
+  @Parameter(
+    names = {"--max-ks-distance"},
+    description = "Largest Kolmogorov-Smirnov distance at which a fitted model is accepted."
+  )
+  private double maxKsDistance = 0.02;
+
   @Parameter(
     names = {"--input-obo-file"},
     description = "Path to (HPO) OBO file to load.",
@@ -74,6 +115,36 @@ public class PrecomputeScoresOptions {
   )
   private String outputScoreDistFile;
 
+  @Parameter(
+    names = {"--checkpoint-file"},
+    description = "Path to checkpoint file that completed distributions are appended to."
+  )
+  private String checkpointFile;
+
+  @Parameter(
+    names = {"--resume"},
+    description = "Resume from the checkpoint file, skipping completed distributions."
+  )
+  private boolean resume = false;
+
+  @Parameter(
+    names = {"--plan-shards"},
+    description = "Only write manifests for this number of shards to --shard-dir, do not sample."
+  )
+  private int planShards = 0;
+
+  @Parameter(
+    names = {"--shard-dir"},
+    description = "Directory to write shard manifests to with --plan-shards."
+  )
+  private String shardDir = ".";
+
+  @Parameter(
+    names = {"--shard-manifest"},
+    description = "Path to shard manifest; only the objects of the shard are sampled."
+  )
+  private String shardManifest;
+
   /** @return Return number of threads to use. */
   public int getNumThreads() {
     return numThreads;
@@ -109,6 +180,36 @@ public class PrecomputeScoresOptions {
     return seed;
   }
 
+  /** @return Whether to sample all term counts in one nested pass per object. */
+  public boolean isNestedSampling() {
+    return nestedSampling;
+  }
+
+  /** @return Tail quantile precision at which to stop sampling, {@code 0} to never stop early. */
+  public double getAdaptivePrecision() {
+    return adaptivePrecision;
+  }
+
+  /** @return Tail probability of the quantile tracked by adaptive sampling. */
+  public double getTailProbability() {
+    return tailProbability;
+  }
+
+  /** @return Number of iterations between precision checks in adaptive sampling. */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /** @return Family of the model to fit, {@code null} to keep the empirical distributions. */
+  public ScoreDistributionModel.Family getFitFamily() {
+    return fitFamily;
+  }
+
+  /** @return Largest Kolmogorov-Smirnov distance at which a fitted model is accepted. */
+  public double getMaxKsDistance() {
+    return maxKsDistance;
+  }
+
   /** @return Path to the input OBO file. */
   public String getOboFile() {
     return oboFile;
@@ -124,6 +225,31 @@ public class PrecomputeScoresOptions {
     return outputScoreDistFile;
   }
 
+  /** @return Path to the checkpoint file, {@code null} for no checkpointing. */
+  public String getCheckpointFile() {
+    return checkpointFile;
+  }
+
+  /** @return Whether to resume from the checkpoint file. */
+  public boolean isResume() {
+    return resume;
+  }
+
+  /** @return Number of shards to plan, {@code 0} to sample instead. */
+  public int getPlanShards() {
+    return planShards;
+  }
+
+  /** @return Directory to write shard manifests to. */
+  public String getShardDir() {
+    return shardDir;
+  }
+
+  /** @return Path to the shard manifest, {@code null} for sampling all objects. */
+  public String getShardManifest() {
+    return shardManifest;
+  }
+
   @Override
   public String toString() {
     return "PrecomputeScoresOptions [numThreads="
@@ -140,12 +266,34 @@ public class PrecomputeScoresOptions {
         + numIterations
         + ", seed="
         + seed
+        + ", nestedSampling="
+        + nestedSampling
+        + ", adaptivePrecision="
+        + adaptivePrecision
+        + ", tailProbability="
+        + tailProbability
+        + ", batchSize="
+        + batchSize
+        + ", fitFamily="
+        + fitFamily
+        + ", maxKsDistance="
+        + maxKsDistance
         + ", oboFile="
         + oboFile
         + ", geneToTermLinkFile="
         + geneToTermLinkFile
         + ", outputScoreDistFile="
         + outputScoreDistFile
+        + ", checkpointFile="
+        + checkpointFile
+        + ", resume="
+        + resume
+        + ", planShards="
+        + planShards
+        + ", shardDir="
+        + shardDir
+        + ", shardManifest="
+        + shardManifest
         + "]";
   }
 }
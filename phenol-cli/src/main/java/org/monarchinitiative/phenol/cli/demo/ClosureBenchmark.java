@@ -0,0 +1,116 @@
+package org.monarchinitiative.phenol.cli.demo;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.monarchinitiative.phenol.graph.IdLabeledEdge;
+import org.monarchinitiative.phenol.graph.algo.BreadthFirstSearch;
+import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.File;
+
+/**
+ * App for benchmarking the construction of the ancestor closures at ontology startup.
+ *
+ * <p>Compares the previous construction (one breadth-first search per vertex, collecting {@link
+ * ImmutableSet}s) with the level-wise construction of {@link TermClosureIndex} on each of the given
+ * ontologies.
+ */
+public class ClosureBenchmark {
+
+  /** Number of repetitions to perform. */
+  private static final int REPETITIONS = 5;
+
+  /** OBO files to load. */
+  private final File goFile, hpoFile, mpoFile;
+
+  /**
+   * Construct with options.
+   *
+   * @param options The parsed command line options.
+   */
+  public ClosureBenchmark(ClosureBenchmark.Options options) {
+    this.goFile = new File(options.getGoPath());
+    this.hpoFile = new File(options.getHpoPath());
+    this.mpoFile = new File(options.getMpoPath());
+  }
+
+  /** Run application. */
+  public void run() {
+    if (hpoFile.exists()) {
+      benchmark("HPO", OntologyLoader.loadOntology(hpoFile));
+    }
+    if (goFile.exists()) {
+      benchmark("GO", OntologyLoader.loadOntology(goFile, "GO"));
+    }
+    if (mpoFile.exists()) {
+      benchmark("MPO", OntologyLoader.loadOntology(mpoFile));
+    }
+  }
+
+  private void benchmark(String name, Ontology ontology) {
+    final DefaultDirectedGraph<TermId, IdLabeledEdge> graph = ontology.getGraph();
+    System.out.println(
+        name + ": " + graph.vertexSet().size() + " terms, " + graph.edgeSet().size() + " edges");
+    for (int i = 0; i < REPETITIONS; ++i) {
+      long startTime = System.nanoTime();
+      final int numAncestors = precomputeAncestorsByBfs(graph).size();
+      double duration = (System.nanoTime() - startTime) / 1_000_000_000.0;
+      System.out.println(
+          "  BFS per vertex took " + duration + " seconds (" + numAncestors + " entries)");
+
+      startTime = System.nanoTime();
+      final TermClosureIndex index =
+          TermClosureIndex.of(graph, ontology.getRootTermId(), ontology.getTermMap());
+      duration = (System.nanoTime() - startTime) / 1_000_000_000.0;
+      System.out.println(
+          "  TermClosureIndex took " + duration + " seconds (" + index.countTerms() + " entries)");
+    }
+  }
+
+  /** Previous ancestor precomputation of {@code ImmutableOntology}, kept for comparison. */
+  private static ImmutableMap<TermId, ImmutableSet<TermId>> precomputeAncestorsByBfs(
+      DefaultDirectedGraph<TermId, IdLabeledEdge> graph) {
+    final ImmutableMap.Builder<TermId, ImmutableSet<TermId>> mapBuilder = ImmutableMap.builder();
+    for (TermId termId : graph.vertexSet()) {
+      final ImmutableSet.Builder<TermId> setBuilder = ImmutableSet.builder();
+      BreadthFirstSearch<TermId, IdLabeledEdge> bfs = new BreadthFirstSearch<>();
+      bfs.startFromForward(
+          graph,
+          termId,
+          (g, v) -> {
+            setBuilder.add(v);
+            return true;
+          });
+      mapBuilder.put(termId, setBuilder.build());
+    }
+    return mapBuilder.build();
+  }
+
+  @Parameters(commandDescription = "Ontology closure construction benchmark")
+  public static class Options {
+    @Parameter(names = {"-g"}, description = "path to go.obo file")
+    private String goPath;
+    @Parameter(names = {"-h"}, description = "path to hp.obo file")
+    private String hpoPath;
+    @Parameter(names = {"-m"}, description = "path to mp.obo file")
+    private String mpoPath;
+
+    String getGoPath() {
+      return goPath == null ? "" : goPath;
+    }
+
+    String getHpoPath() {
+      return hpoPath == null ? "" : hpoPath;
+    }
+
+    String getMpoPath() {
+      return mpoPath == null ? "" : mpoPath;
+    }
+  }
+}
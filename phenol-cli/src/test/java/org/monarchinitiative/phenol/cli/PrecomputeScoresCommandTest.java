@@ -0,0 +1,96 @@
+package org.monarchinitiative.phenol.cli;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.beust.jcommander.JCommander;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreDistributionModel;
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreSamplingOptions;
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreSamplingShard;
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreSamplingShards;
+
+public class PrecomputeScoresCommandTest {
+
+  private static final String[] REQUIRED_ARGS = {
+    "--input-obo-file=hp.obo", "--gene-to-term-file=genes.txt", "--output-score-dist=out.txt"
+  };
+
+  private static ScoreSamplingOptions samplingOptions(String... args) {
+    final PrecomputeScoresOptions options = new PrecomputeScoresOptions();
+    final String[] argv = Arrays.copyOf(REQUIRED_ARGS, REQUIRED_ARGS.length + args.length);
+    System.arraycopy(args, 0, argv, REQUIRED_ARGS.length, args.length);
+    JCommander.newBuilder().addObject(options).build().parse(argv);
+    return new PrecomputeScoresCommand(options).buildSamplingOptions();
+  }
+
+  @Test
+  public void testDefaults() {
+    final ScoreSamplingOptions options = samplingOptions();
+    assertFalse(options.isNestedSampling());
+    assertFalse(options.isAdaptiveSampling());
+    assertNull(options.getFitFamily());
+  }
+
+  @Test
+  public void testSamplingFlags() {
+    final ScoreSamplingOptions options =
+        samplingOptions(
+            "--nested-sampling",
+            "--adaptive-precision=0.05",
+            "--tail-probability=0.001",
+            "--batch-size=500",
+            "--fit-family=GEV",
+            "--max-ks-distance=0.01");
+    assertTrue(options.isNestedSampling());
+    assertEquals(0.05, options.getAdaptivePrecision(), 1e-12);
+    assertEquals(0.001, options.getTailProbability(), 1e-12);
+    assertEquals(500, options.getBatchSize());
+    assertEquals(ScoreDistributionModel.Family.GEV, options.getFitFamily());
+    assertEquals(0.01, options.getMaxKsDistance(), 1e-12);
+
+    // Each flag changes the fingerprint that checkpoints and shard manifests are checked against.
+    final String fingerprint = samplingOptions().getSamplingFingerprint();
+    for (String flag :
+        new String[] {
+          "--nested-sampling",
+          "--adaptive-precision=0.05",
+          "--tail-probability=0.001",
+          "--batch-size=500",
+          "--fit-family=GAMMA",
+          "--max-ks-distance=0.01"
+        }) {
+      assertNotEquals(fingerprint, samplingOptions(flag).getSamplingFingerprint(), flag);
+    }
+  }
+
+  @Test
+  public void testManifestRecordsSamplingFlags() throws Exception {
+    final ScoreSamplingOptions options =
+        samplingOptions("--nested-sampling", "--adaptive-precision=0.05", "--fit-family=GEV");
+    final Map<Integer, List<TermId>> labels = new TreeMap<>();
+    labels.put(1, Arrays.asList(TermId.of("HP:0000001"), TermId.of("HP:0000002")));
+    labels.put(2, Arrays.asList(TermId.of("HP:0000003")));
+
+    final File file = File.createTempFile("phenol-shard", ".manifest");
+    try {
+      ScoreSamplingShards.plan(labels, options, 1).get(0).write(file);
+      final ScoreSamplingShard shard = ScoreSamplingShard.read(file);
+      assertEquals(options.getSamplingFingerprint(), shard.getSamplingFingerprint());
+      assertTrue(shard.getSamplingFingerprint().contains("nested=true"));
+      assertTrue(shard.getSamplingFingerprint().contains("fitFamily=GEV"));
+    } finally {
+      file.delete();
+    }
+  }
+}
@@ -5,6 +5,7 @@ import org.monarchinitiative.phenol.base.PhenolException;
 import org.monarchinitiative.phenol.base.PhenolRuntimeException;
 import org.monarchinitiative.phenol.ontology.data.TermAnnotation;
 import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.data.TermIdPool;
 import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.Ordering;
 
@@ -161,14 +162,14 @@ public final class GoGaf21Annotation implements TermAnnotation {
           + String.join("\t", arr));
     }
     if (arr[1].contains(":")) {
-      this.dbObjectTermId = TermId.of(arr[1]);
+      this.dbObjectTermId = TermIdPool.global().of(arr[1]);
     } else {
-      this.dbObjectTermId = TermId.of(arr[0], arr[1]);
+      this.dbObjectTermId = TermIdPool.global().of(arr[0], arr[1]);
     }
 
     this.dbObjectSymbol = arr[2];
     this.qualifier = arr[3];
-    this.goId = TermId.of(arr[4]);
+    this.goId = TermIdPool.global().of(arr[4]);
     this.dbReference = arr[5];
     this.evidenceCode = arr[6];
     this.with = arr[7];
@@ -0,0 +1,162 @@
+package org.monarchinitiative.phenol.ontology.algo;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermBitSet;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * Per-term ancestor arrays sorted by descending information content (IC), for computing the most
+ * informative common ancestor (MICA) with early exit.
+ *
+ * <p>The MICA of two terms <code>q</code> and <code>t</code> is the first entry of the IC-ordered
+ * ancestor array of <code>q</code> that is also contained in the ancestor {@link TermBitSet} of
+ * <code>t</code>. Typically, this is found after a handful of probes, compared to probing all
+ * ancestors of <code>q</code> against a hash set of the ancestors of <code>t</code>.
+ *
+ * <p>Term indices are those of the ontology's {@link TermClosureIndex}; each term is its own
+ * ancestor. Ties in IC are broken by term index, such that the results are deterministic. Terms
+ * without IC value are treated as having IC 0.
+ */
+public final class IcOrderedAncestors implements Serializable {
+
+  /** Serial UID for serialization. */
+  private static final long serialVersionUID = 1L;
+
+  /** The closure index used for term indices and ancestor bit sets. */
+  private final TermClosureIndex closureIndex;
+
+  /** IC value for each term index. */
+  private final double[] termIc;
+
+  /** For each term index, the term indices of its ancestors by descending IC. */
+  private final int[][] sortedAncestors;
+
+  /**
+   * Constructor.
+   *
+   * @param closureIndex The {@link TermClosureIndex} to use.
+   * @param termIc IC value for each term index.
+   */
+  public IcOrderedAncestors(TermClosureIndex closureIndex, double[] termIc) {
+    this.closureIndex = closureIndex;
+    this.termIc = termIc;
+    final int numTerms = closureIndex.countTerms();
+
+    // Rank all terms once by descending IC, then order each ancestor set by rank.
+    final int[] byIc = sortByIc(termIc);
+    final int[] rank = new int[numTerms];
+    for (int r = 0; r < numTerms; ++r) {
+      rank[byIc[r]] = r;
+    }
+    this.sortedAncestors = new int[numTerms][];
+    final long[] keys = new long[numTerms];
+    for (int i = 0; i < numTerms; ++i) {
+      final int[] ancestors = closureIndex.getAncestors(i).toArray();
+      for (int k = 0; k < ancestors.length; ++k) {
+        keys[k] = ((long) rank[ancestors[k]] << 32) | ancestors[k];
+      }
+      Arrays.sort(keys, 0, ancestors.length);
+      for (int k = 0; k < ancestors.length; ++k) {
+        ancestors[k] = (int) keys[k];
+      }
+      sortedAncestors[i] = ancestors;
+    }
+  }
+
+  /**
+   * Construct {@link IcOrderedAncestors} for the given {@link Ontology} and IC values.
+   *
+   * @param ontology The {@link Ontology} to use.
+   * @param termToIc {@link Map} from {@link TermId} to its information content.
+   * @return Newly created {@link IcOrderedAncestors}.
+   */
+  public static IcOrderedAncestors of(Ontology ontology, Map<TermId, Double> termToIc) {
+    return of(InformationContent.of(ontology, termToIc));
+  }
+
+  /**
+   * Construct {@link IcOrderedAncestors} for the given IC values.
+   *
+   * @param informationContent The {@link InformationContent} to use.
+   * @return Newly created {@link IcOrderedAncestors}.
+   */
+  public static IcOrderedAncestors of(InformationContent informationContent) {
+    return new IcOrderedAncestors(
+        informationContent.getClosureIndex(), informationContent.toArray());
+  }
+
+  /** @return Term indices ordered by descending IC, ties by ascending index. */
+  private static int[] sortByIc(double[] termIc) {
+    final Integer[] order = new Integer[termIc.length];
+    for (int i = 0; i < order.length; ++i) {
+      order[i] = i;
+    }
+    Arrays.sort(
+        order,
+        (lhs, rhs) -> {
+          final int result = Double.compare(termIc[rhs], termIc[lhs]);
+          return (result != 0) ? result : Integer.compare(lhs, rhs);
+        });
+    final int[] result = new int[order.length];
+    for (int i = 0; i < order.length; ++i) {
+      result[i] = order[i];
+    }
+    return result;
+  }
+
+  /** @return The underlying {@link TermClosureIndex}. */
+  public TermClosureIndex getClosureIndex() {
+    return closureIndex;
+  }
+
+  /**
+   * @param idx Term index.
+   * @return IC of the term.
+   */
+  public double getInformationContent(int idx) {
+    return termIc[idx];
+  }
+
+  /**
+   * @param idx Term index.
+   * @return Term indices of the ancestors of the term (including itself) by descending IC; the
+   *     array must not be modified.
+   */
+  public int[] getSortedAncestors(int idx) {
+    return sortedAncestors[idx];
+  }
+
+  /**
+   * Compute the most informative common ancestor of two terms.
+   *
+   * @param query Term index of the first term.
+   * @param target Term index of the second term.
+   * @return Term index of the MICA, <code>-1</code> if the terms have no common ancestor.
+   */
+  public int mostInformativeCommonAncestor(int query, int target) {
+    final TermBitSet targetAncestors = closureIndex.getAncestors(target);
+    for (int ancestor : sortedAncestors[query]) {
+      if (targetAncestors.contains(ancestor)) {
+        return ancestor;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Compute Resnik similarity, i.e., the IC of the MICA.
+   *
+   * @param query Term index of the first term.
+   * @param target Term index of the second term.
+   * @return IC of the MICA, <code>0</code> if there is no common ancestor.
+   */
+  public double resnikScore(int query, int target) {
+    final int mica = mostInformativeCommonAncestor(query, target);
+    return (mica == -1) ? 0.0 : Math.max(0.0, termIc[mica]);
+  }
+}
@@ -0,0 +1,238 @@
+package org.monarchinitiative.phenol.ontology.algo;
+
+import java.io.*;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ser.SerializationException;
+
+/**
+ * Information content (IC) of all terms of an ontology, stored as <code>double[]</code> by term
+ * index (see {@link TermClosureIndex}).
+ *
+ * <p>IC-based measures read the IC of a term with a single array access instead of a hash lookup
+ * and unboxing. {@link #asMap()} provides a read-only {@link Map} view for code working with {@link
+ * TermId}s. Terms without IC value have an IC of 0.
+ *
+ * <h5>File Format</h5>
+ *
+ * <p>{@link #write(File)} writes the magic bytes <code>PHNLIC</code>, the format version and the
+ * number of terms as <code>int</code>s, followed by the term ID (modified UTF-8) and IC value
+ * (<code>double</code>) of each term, all big endian. {@link #read(File, Ontology)} maps the term
+ * IDs to the term indices of the given ontology, such that the file stays valid for other builds
+ * of the same ontology version.
+ */
+public final class InformationContent {
+
+  /** Magic bytes at the beginning of the file. */
+  private static final byte[] MAGIC_BYTES = {'P', 'H', 'N', 'L', 'I', 'C'};
+
+  /** Current file format version. */
+  private static final int VERSION = 1;
+
+  /** The closure index defining the term indices. */
+  private final TermClosureIndex closureIndex;
+
+  /** IC value for each term index. */
+  private final double[] values;
+
+  /**
+   * Constructor.
+   *
+   * @param closureIndex The {@link TermClosureIndex} defining the term indices.
+   * @param values IC value for each term index, not copied.
+   */
+  public InformationContent(TermClosureIndex closureIndex, double[] values) {
+    if (values.length != closureIndex.countTerms()) {
+      throw new PhenolRuntimeException(
+          "Expected " + closureIndex.countTerms() + " values but got " + values.length);
+    }
+    this.closureIndex = closureIndex;
+    this.values = values;
+  }
+
+  /**
+   * Construct from a {@link Map}, as returned by {@link
+   * InformationContentComputation#computeInformationContent(Map)}.
+   *
+   * @param ontology The {@link Ontology} the terms come from.
+   * @param termToIc {@link Map} from {@link TermId} to its information content.
+   * @return Newly created {@link InformationContent}.
+   */
+  public static InformationContent of(Ontology ontology, Map<TermId, Double> termToIc) {
+    final TermClosureIndex closureIndex = ontology.getTermClosureIndex();
+    final double[] values = new double[closureIndex.countTerms()];
+    for (int i = 0; i < values.length; ++i) {
+      final Double ic = termToIc.get(closureIndex.getTermId(i));
+      values[i] = (ic == null) ? 0.0 : ic;
+    }
+    return new InformationContent(closureIndex, values);
+  }
+
+  /**
+   * Read IC values from a file written by {@link #write(File)}.
+   *
+   * @param file The file to read from.
+   * @param ontology The {@link Ontology} the terms come from; terms not in the ontology are
+   *     ignored.
+   * @return Newly created {@link InformationContent}.
+   * @throws SerializationException On problems reading the file or an invalid file.
+   */
+  public static InformationContent read(File file, Ontology ontology)
+      throws SerializationException {
+    final TermClosureIndex closureIndex = ontology.getTermClosureIndex();
+    final double[] values = new double[closureIndex.countTerms()];
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      final byte[] magic = new byte[MAGIC_BYTES.length];
+      in.readFully(magic);
+      if (!Arrays.equals(magic, MAGIC_BYTES)) {
+        throw new SerializationException("Invalid magic bytes in " + file);
+      }
+      final int version = in.readInt();
+      if (version != VERSION) {
+        throw new SerializationException(
+            "Unsupported information content version " + version + " in " + file);
+      }
+      final int count = in.readInt();
+      for (int i = 0; i < count; ++i) {
+        final TermId termId = TermId.of(in.readUTF());
+        final double ic = in.readDouble();
+        final int idx = closureIndex.getIndex(termId);
+        if (idx != -1) {
+          values[idx] = ic;
+        }
+      }
+    } catch (IOException e) {
+      throw new SerializationException("Problem reading information content from " + file, e);
+    }
+    return new InformationContent(closureIndex, values);
+  }
+
+  /**
+   * Write IC values to a file.
+   *
+   * @param file The file to write to.
+   * @throws SerializationException On problems writing the file.
+   */
+  public void write(File file) throws SerializationException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.write(MAGIC_BYTES);
+      out.writeInt(VERSION);
+      out.writeInt(values.length);
+      for (int i = 0; i < values.length; ++i) {
+        out.writeUTF(closureIndex.getTermId(i).getValue());
+        out.writeDouble(values[i]);
+      }
+    } catch (IOException e) {
+      throw new SerializationException("Problem writing information content to " + file, e);
+    }
+  }
+
+  /** @return The {@link TermClosureIndex} defining the term indices. */
+  public TermClosureIndex getClosureIndex() {
+    return closureIndex;
+  }
+
+  /** @return Number of terms. */
+  public int size() {
+    return values.length;
+  }
+
+  /**
+   * @param idx Term index.
+   * @return IC of the term.
+   */
+  public double get(int idx) {
+    return values[idx];
+  }
+
+  /**
+   * @param termId Primary or alternative {@link TermId}.
+   * @return IC of the term, <code>0</code> if it is not known.
+   */
+  public double get(TermId termId) {
+    final int idx = closureIndex.getIndex(termId);
+    return (idx == -1) ? 0.0 : values[idx];
+  }
+
+  /** @return Copy of the IC values by term index. */
+  public double[] toArray() {
+    return values.clone();
+  }
+
+  /**
+   * @return Read-only {@link Map} view from primary {@link TermId} to IC. Like the {@link Map}
+   *     returned by {@link InformationContentComputation#computeInformationContent(Map)}, it has no
+   *     entries for alternative IDs; use {@link #get(TermId)} to look these up.
+   */
+  public Map<TermId, Double> asMap() {
+    return new AbstractMap<TermId, Double>() {
+      @Override
+      public Double get(Object key) {
+        final int idx = primaryIndex(key);
+        return (idx == -1) ? null : values[idx];
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return primaryIndex(key) != -1;
+      }
+
+      @Override
+      public int size() {
+        return values.length;
+      }
+
+      @Override
+      public Set<Entry<TermId, Double>> entrySet() {
+        return new AbstractSet<Entry<TermId, Double>>() {
+          @Override
+          public Iterator<Entry<TermId, Double>> iterator() {
+            return new Iterator<Entry<TermId, Double>>() {
+              private int idx = 0;
+
+              @Override
+              public boolean hasNext() {
+                return idx < values.length;
+              }
+
+              @Override
+              public Entry<TermId, Double> next() {
+                if (!hasNext()) {
+                  throw new NoSuchElementException();
+                }
+                final int i = idx++;
+                return new SimpleImmutableEntry<>(closureIndex.getTermId(i), values[i]);
+              }
+            };
+          }
+
+          @Override
+          public int size() {
+            return values.length;
+          }
+        };
+      }
+    };
+  }
+
+  /** @return Term index of {@code key} if it is a primary {@link TermId}, <code>-1</code> else. */
+  private int primaryIndex(Object key) {
+    if (!(key instanceof TermId)) {
+      return -1;
+    }
+    final int idx = closureIndex.getIndex((TermId) key);
+    return (idx != -1 && closureIndex.getTermId(idx).equals(key)) ? idx : -1;
+  }
+}
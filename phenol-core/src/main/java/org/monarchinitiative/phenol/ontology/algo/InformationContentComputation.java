@@ -3,7 +3,6 @@ package org.monarchinitiative.phenol.ontology.algo;
 import java.util.*;
 import java.util.Map.Entry;
 
-import com.google.common.collect.Sets;
 import org.monarchinitiative.phenol.ontology.data.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,6 +88,18 @@ public final class InformationContentComputation {
     return termToInformationContent;
   }
 
+  /**
+   * Perform the computation as {@link #computeInformationContent(Map)} but return the result as
+   * {@link InformationContent}, backed by an array.
+   *
+   * @param termLabels Labels for each {@link Term}, identified by {@link TermId}
+   * @return {@link InformationContent} of all terms.
+   */
+  public InformationContent computeInformationContentVector(
+      Map<TermId, Collection<TermId>> termLabels) {
+    return InformationContent.of(ontology, computeInformationContent(termLabels));
+  }
+
   /**
    * Calculate information content for each {@link TermId}.
    * We assign an information content of zero for terms that have zero frequency in our dataset
@@ -112,40 +123,77 @@ public final class InformationContentComputation {
   /**
    * This method returns the <b>most informative common ancestor (MICA)</b> of a set of
    * two terms t1 and t2. It is designed to use the map returned by {@link #computeInformationContent}.
+   *
+   * <p>The ancestors of <code>t1</code> are walked by descending IC using {@link
+   * IcOrderedAncestors}, stopping at the first one that is an ancestor of <code>t2</code>. The
+   * {@link IcOrderedAncestors} of the last <code>ontology</code> and <code>term2ic</code> are kept
+   * for the next call, such that repeated calls with the same map cost no more than walking the
+   * ancestors; <code>term2ic</code> must thus not be modified between calls. Terms without IC value
+   * count as IC <code>0</code>, ties are broken by term index.
+   *
+   * <p>The root is not considered as common ancestor. Terms that are not in the ontology have no
+   * ancestors, so <code>null</code> is returned for them rather than throwing.
+   *
    * @param t1 The first term
    * @param t2 the second term
    * @param ontology reference to the ontology
    * @param term2ic map of information content calculated for each term
-   * @return The term representing the most informative common ancestor
+   * @return The term representing the most informative common ancestor, <code>null</code> if there
+   *     is none or one of the terms is not in the ontology.
    */
   public static TermId mostInformativeCommonAncestor(TermId t1, TermId t2, Ontology ontology, Map<TermId, Double> term2ic) {
     // Case 1, terms are identical
     if (t1.equals(t2)) return t1;
+    final TermClosureIndex closureIndex = ontology.getTermClosureIndex();
+    final int idx1 = closureIndex.getIndex(t1);
+    final int idx2 = closureIndex.getIndex(t2);
+    if (idx1 == -1 || idx2 == -1) {
+      return null;
+    }
+    // The root is not considered as common ancestor.
+    final int rootIdx = closureIndex.getRootIndex();
     // Case 2, t2 is an ancestor of t1
-    Set<TermId> anc1 = ontology.getAncestorTermIds(t1,false);
-    if (anc1.contains(t2)) return t2;
+    if (idx2 != rootIdx && closureIndex.getAncestors(idx1).contains(idx2)) return t2;
     // Case 3, t1 is an ancestor of t2
-    Set<TermId> anc2 = ontology.getAncestorTermIds(t2,false);
-    if (anc2.contains(t1)) return t1;
-    // Case 4, t1 and t2 are not ancestors of one another
-    Sets.SetView<TermId> intersection = Sets.intersection(anc1,anc2);
-    TermId mica = null;
-    double maxIC = -1.0; // information content
-    Deque<TermId> stack = new ArrayDeque<>();
-    stack.push(t1);
-    while (! stack.isEmpty()) {
-      TermId t = stack.pop();
-      if (intersection.contains(t)) {
-        double ic = term2ic.get(t);
-        if (ic>maxIC) {
-          mica=t;
-          maxIC=ic;
-        }
-      }
-      for (TermId p : ontology.getParentTermIds(t)) {
-        stack.push(p);
+    final TermBitSet anc2 = closureIndex.getAncestors(idx2);
+    if (idx1 != rootIdx && anc2.contains(idx1)) return t1;
+    // Case 4, t1 and t2 are not ancestors of one another: the first common ancestor by IC.
+    for (int idx : icOrderedAncestors(closureIndex, ontology, term2ic).getSortedAncestors(idx1)) {
+      if (idx != rootIdx && anc2.contains(idx)) {
+        return closureIndex.getTermId(idx);
       }
     }
-    return mica;
+    return null;
+  }
+
+  /** The {@link IcOrderedAncestors} of the last call, see {@link #icOrderedAncestors}. */
+  private static volatile CachedOrder lastOrder;
+
+  /**
+   * @return {@link IcOrderedAncestors} for {@code ontology} and {@code term2ic}, taken from the
+   *     last call if both are the same objects.
+   */
+  private static IcOrderedAncestors icOrderedAncestors(
+      TermClosureIndex closureIndex, Ontology ontology, Map<TermId, Double> term2ic) {
+    final CachedOrder cached = lastOrder;
+    if (cached != null
+        && cached.icOrderedAncestors.getClosureIndex() == closureIndex
+        && cached.term2ic == term2ic) {
+      return cached.icOrderedAncestors;
+    }
+    final IcOrderedAncestors result = IcOrderedAncestors.of(ontology, term2ic);
+    lastOrder = new CachedOrder(term2ic, result);
+    return result;
+  }
+
+  /** IC map together with the {@link IcOrderedAncestors} built from it. */
+  private static final class CachedOrder {
+    private final Map<TermId, Double> term2ic;
+    private final IcOrderedAncestors icOrderedAncestors;
+
+    CachedOrder(Map<TermId, Double> term2ic, IcOrderedAncestors icOrderedAncestors) {
+      this.term2ic = term2ic;
+      this.icOrderedAncestors = icOrderedAncestors;
+    }
   }
 }
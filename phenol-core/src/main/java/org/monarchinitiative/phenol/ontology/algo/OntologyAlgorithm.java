@@ -5,8 +5,6 @@ import org.monarchinitiative.phenol.formats.hpo.HpoFrequencyTermIds;
 import org.monarchinitiative.phenol.formats.hpo.HpoModeOfInheritanceTermIds;
 import org.monarchinitiative.phenol.formats.hpo.HpoSubOntologyRootTermIds;
 import org.monarchinitiative.phenol.graph.IdLabeledEdge;
-import org.monarchinitiative.phenol.graph.algo.BreadthFirstSearch;
-import org.jgrapht.graph.DefaultDirectedGraph;
 import org.monarchinitiative.phenol.ontology.data.*;
 
 import com.google.common.collect.ImmutableSet;
@@ -14,6 +12,7 @@ import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.ref.WeakReference;
 import java.util.*;
 
 /**
@@ -31,26 +30,55 @@ public class OntologyAlgorithm {
 
   private static final Logger logger = LoggerFactory.getLogger(OntologyAlgorithm.class);
 
+  /** {@link ReachabilityIndex} for each ontology, built on first use. */
+  private static final Map<Ontology, ReachabilityIndex> REACHABILITY_INDICES =
+    Collections.synchronizedMap(new WeakHashMap<>());
+
+  /** Last {@link ReachabilityIndex} handed out, read without locking. */
+  private static volatile CachedReachability lastReachability;
+
   private OntologyAlgorithm() {
   }
 
+  /**
+   * Return the (cached) {@link ReachabilityIndex} for an ontology.
+   *
+   * <p>Repeated calls for the same ontology object are answered from a volatile field without
+   * locking; only switching between ontologies goes through the synchronized map, which builds
+   * each index once.
+   *
+   * @param ontology The ontology to get the index for.
+   * @return The {@link ReachabilityIndex} for the given ontology.
+   */
+  public static ReachabilityIndex getReachabilityIndex(Ontology ontology) {
+    final CachedReachability cached = lastReachability;
+    if (cached != null && cached.ontology.get() == ontology) {
+      return cached.index;
+    }
+    final ReachabilityIndex index =
+      REACHABILITY_INDICES.computeIfAbsent(ontology, ReachabilityIndex::of);
+    lastReachability = new CachedReachability(ontology, index);
+    return index;
+  }
+
+  /** Ontology, weakly referenced, together with its {@link ReachabilityIndex}. */
+  private static final class CachedReachability {
+    private final WeakReference<Ontology> ontology;
+    private final ReachabilityIndex index;
+
+    CachedReachability(Ontology ontology, ReachabilityIndex index) {
+      this.ontology = new WeakReference<>(ontology);
+      this.index = index;
+    }
+  }
+
   public static boolean existsPath(
       Ontology ontology,
       final TermId sourceID,
       TermId destID) {
     // special case -- a term cannot have a path to itself in an ontology (DAG)
     if (sourceID.equals(destID)) return false;
-    final DefaultDirectedGraph<TermId, IdLabeledEdge> graph = ontology.getGraph();
-    List<TermId> visited = new ArrayList<>();
-    BreadthFirstSearch<TermId, IdLabeledEdge> bfs = new BreadthFirstSearch<>();
-    bfs.startFromForward(
-        graph,
-        sourceID,
-        (g, termId) -> {
-          visited.add(termId);
-          return true;
-        });
-    return visited.contains(destID);
+    return getReachabilityIndex(ontology).isAncestor(destID, sourceID);
   }
 
   /**
@@ -194,8 +222,7 @@ public class OntologyAlgorithm {
       TermId rootTerm,
       Set<TermId> children,
       boolean includeOriginalTerm) {
-    ImmutableOntology subontology =
-        (ImmutableOntology) ontology.subOntology(rootTerm);
+    Ontology subontology = ontology.subOntology(rootTerm);
     return getAncestorTerms(subontology, children, includeOriginalTerm);
   }
 
@@ -204,8 +231,7 @@ public class OntologyAlgorithm {
       TermId rootTerm,
       TermId child,
       boolean includeOriginalTerm) {
-    ImmutableOntology subontology =
-        (ImmutableOntology) ontology.subOntology(rootTerm);
+    Ontology subontology = ontology.subOntology(rootTerm);
     return getAncestorTerms(subontology, child, includeOriginalTerm);
   }
 
@@ -274,7 +300,7 @@ public class OntologyAlgorithm {
 
   public static boolean isSubclass(
     Ontology ontology, TermId source, TermId dest) {
-    return ontology.getAncestorTermIds(source).contains(dest);
+    return getReachabilityIndex(ontology).isAncestor(dest, source);
   }
 
   public static boolean termsAreSiblings(
@@ -292,6 +318,12 @@ public class OntologyAlgorithm {
    */
   public static boolean termsAreRelated(
     Ontology ontology, TermId t1, TermId t2) {
+    final ReachabilityIndex index = getReachabilityIndex(ontology);
+    final int idx1 = index.getClosureIndex().getIndex(t1);
+    final int idx2 = index.getClosureIndex().getIndex(t2);
+    if (index.isPropagatingOnly() && idx1 != -1 && idx2 != -1) {
+      return index.haveCommonProperAncestor(idx1, idx2);
+    }
     Set<TermId> ancs1 = getAncestorTerms(ontology, t1, false);
     Set<TermId> ancs2 = getAncestorTerms(ontology, t2, false);
     Set<TermId> isect = Sets.intersection(ancs1, ancs2);
@@ -0,0 +1,230 @@
+package org.monarchinitiative.phenol.ontology.algo;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.monarchinitiative.phenol.graph.IdLabeledEdge;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermBitSet;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * Precomputed index for answering "is <code>a</code> an ancestor of <code>b</code>" queries.
+ *
+ * <p>A depth-first search from the roots along the child edges assigns each term its post-order
+ * number <code>post</code> and two labels:
+ *
+ * <ul>
+ *   <li><code>minPost</code>, the smallest post-order number of all descendants. All descendants of
+ *       a term have their post-order number in <code>[minPost, post]</code>, so a number outside
+ *       of this interval rules out reachability in constant time.
+ *   <li><code>treeLow</code>, the smallest post-order number in the DFS spanning tree below the
+ *       term. A number in <code>[treeLow, post]</code> proves reachability in constant time.
+ * </ul>
+ *
+ * <p>The remaining queries, i.e., those where the descendant is only reachable through a non-tree
+ * edge (multiple parents), are answered by a binary search in the ancestor {@link TermBitSet} of
+ * the {@link TermClosureIndex}. If the graph is not acyclic then the interval labels are not used.
+ *
+ * <p>As {@link Ontology#getAncestorTermIds(TermId)}, all edges are followed, regardless of their
+ * relationship type, and each term is considered an ancestor of itself.
+ */
+public final class ReachabilityIndex {
+
+  /** The closure index used for the term indices and as fallback. */
+  private final TermClosureIndex closureIndex;
+
+  /** Post-order number of each term. */
+  private final int[] post;
+
+  /** Smallest post-order number of all descendants of each term. */
+  private final int[] minPost;
+
+  /** Smallest post-order number in the DFS spanning tree below each term. */
+  private final int[] treeLow;
+
+  /** Whether the interval labels can be used, <code>false</code> if the graph has a cycle. */
+  private final boolean acyclic;
+
+  /** Whether all relationships of the ontology propagate, see {@link #isPropagatingOnly()}. */
+  private final boolean propagatingOnly;
+
+  /**
+   * Constructor.
+   *
+   * @param closureIndex The {@link TermClosureIndex} to use for term indices and fallback queries.
+   * @param children For each term index, the term indices of its children.
+   * @param propagatingOnly Whether all relationships of the ontology propagate.
+   */
+  private ReachabilityIndex(
+      TermClosureIndex closureIndex, int[][] children, boolean propagatingOnly) {
+    final int numTerms = closureIndex.countTerms();
+    this.closureIndex = closureIndex;
+    this.propagatingOnly = propagatingOnly;
+    this.post = new int[numTerms];
+    this.minPost = new int[numTerms];
+    this.treeLow = new int[numTerms];
+
+    final boolean[] hasParent = new boolean[numTerms];
+    for (int[] termChildren : children) {
+      for (int c : termChildren) {
+        hasParent[c] = true;
+      }
+    }
+
+    // Iterative DFS, state: 0 = unvisited, 1 = on stack, 2 = finished.
+    final byte[] state = new byte[numTerms];
+    final int[] stack = new int[numTerms];
+    final int[] edgePos = new int[numTerms];
+    boolean sawCycle = false;
+    int counter = 0;
+    for (int pass = 0; pass < 2; ++pass) {
+      for (int start = 0; start < numTerms; ++start) {
+        // First start from the roots, then pick up anything unreached (only possible with cycles).
+        if (state[start] != 0 || (pass == 0 && hasParent[start])) {
+          continue;
+        }
+        int top = 0;
+        stack[top++] = start;
+        state[start] = 1;
+        treeLow[start] = counter;
+        while (top > 0) {
+          final int v = stack[top - 1];
+          if (edgePos[v] < children[v].length) {
+            final int c = children[v][edgePos[v]++];
+            if (state[c] == 0) {
+              state[c] = 1;
+              treeLow[c] = counter;
+              stack[top++] = c;
+            } else if (state[c] == 1) {
+              sawCycle = true;
+            }
+          } else {
+            --top;
+            state[v] = 2;
+            post[v] = counter++;
+            int low = post[v];
+            for (int c : children[v]) {
+              if (state[c] == 2) {
+                low = Math.min(low, minPost[c]);
+              }
+            }
+            minPost[v] = low;
+          }
+        }
+      }
+    }
+    this.acyclic = !sawCycle;
+  }
+
+  /**
+   * Construct {@link ReachabilityIndex} for the given {@link Ontology}, using its {@link
+   * TermClosureIndex}.
+   *
+   * @param ontology The {@link Ontology} to build the index for.
+   * @return Newly created {@link ReachabilityIndex}.
+   */
+  public static ReachabilityIndex of(Ontology ontology) {
+    final TermClosureIndex closureIndex = ontology.getTermClosureIndex();
+    final DefaultDirectedGraph<TermId, IdLabeledEdge> graph = ontology.getGraph();
+    final int[][] children = new int[closureIndex.countTerms()][];
+    for (int i = 0; i < children.length; ++i) {
+      final Set<IdLabeledEdge> edges = graph.incomingEdgesOf(closureIndex.getTermId(i));
+      children[i] = new int[edges.size()];
+      int k = 0;
+      for (IdLabeledEdge edge : edges) {
+        children[i][k++] = closureIndex.getIndex(graph.getEdgeSource(edge));
+      }
+      Arrays.sort(children[i]);
+    }
+    final boolean propagatingOnly =
+        ontology
+            .getRelationMap()
+            .values()
+            .stream()
+            .allMatch(relationship -> relationship.getRelationshipType().propagates());
+    return new ReachabilityIndex(closureIndex, children, propagatingOnly);
+  }
+
+  /**
+   * @return Whether all relationships of the ontology propagate (see {@link
+   *     org.monarchinitiative.phenol.ontology.data.RelationshipType#propagates()}), such that
+   *     reachability is the same as reachability along propagating relationships only.
+   */
+  public boolean isPropagatingOnly() {
+    return propagatingOnly;
+  }
+
+  /** @return The underlying {@link TermClosureIndex}. */
+  public TermClosureIndex getClosureIndex() {
+    return closureIndex;
+  }
+
+  /**
+   * Query whether {@code ancestor} is an ancestor of {@code descendant} (by term index).
+   *
+   * @param ancestor Term index of the potential ancestor.
+   * @param descendant Term index of the potential descendant.
+   * @return <code>true</code> if {@code ancestor} is reachable from {@code descendant}, also if
+   *     both are equal.
+   */
+  public boolean isAncestor(int ancestor, int descendant) {
+    if (ancestor == descendant) {
+      return true;
+    }
+    if (acyclic) {
+      final int p = post[descendant];
+      if (p > post[ancestor] || p < minPost[ancestor]) {
+        return false;
+      } else if (p >= treeLow[ancestor]) {
+        return true;
+      }
+    }
+    return closureIndex.getAncestors(descendant).contains(ancestor);
+  }
+
+  /**
+   * Query whether {@code ancestor} is an ancestor of {@code descendant}.
+   *
+   * @param ancestor {@link TermId} of the potential ancestor.
+   * @param descendant {@link TermId} of the potential descendant.
+   * @return <code>true</code> if {@code ancestor} is reachable from {@code descendant}, also if
+   *     both are equal, <code>false</code> if any of the two is not known.
+   */
+  public boolean isAncestor(TermId ancestor, TermId descendant) {
+    final int a = closureIndex.getIndex(ancestor);
+    final int d = closureIndex.getIndex(descendant);
+    return a != -1 && d != -1 && isAncestor(a, d);
+  }
+
+  /**
+   * Query whether the two terms have a common ancestor other than the root and themselves.
+   *
+   * @param first Term index of the first term.
+   * @param second Term index of the second term.
+   * @return <code>true</code> if there is a term that is neither the root nor {@code first} nor
+   *     {@code second} and that is an ancestor of both.
+   */
+  public boolean haveCommonProperAncestor(int first, int second) {
+    final TermBitSet ancestors1 = closureIndex.getAncestors(first);
+    final TermBitSet ancestors2 = closureIndex.getAncestors(second);
+    int count = ancestors1.intersectionSize(ancestors2);
+    if (ancestors2.contains(first)) {
+      --count;
+    }
+    if (second != first && ancestors1.contains(second)) {
+      --count;
+    }
+    final int root = closureIndex.getRootIndex();
+    if (root != -1
+        && root != first
+        && root != second
+        && ancestors1.contains(root)
+        && ancestors2.contains(root)) {
+      --count;
+    }
+    return count > 0;
+  }
+}
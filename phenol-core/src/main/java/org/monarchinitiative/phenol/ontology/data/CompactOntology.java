@@ -0,0 +1,565 @@
+package org.monarchinitiative.phenol.ontology.data;
+
+import java.util.*;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Sets;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.monarchinitiative.phenol.graph.IdLabeledEdge;
+
+/**
+ * Implementation of an immutable {@link Ontology} with a compact, integer-indexed graph
+ * representation.
+ *
+ * <p>Each vertex of the ontology graph (i.e., each non-obsolete term) is assigned a dense
+ * <b>term index</b> in <code>[0, countIndexedTerms())</code>, following the natural order of the
+ * {@link TermId}s. The parent and child relations are stored as compressed sparse row (CSR)
+ * <code>int</code> arrays with the {@link RelationshipType} of each edge inlined, such that
+ * ancestor and descendant walks only touch primitive arrays.
+ *
+ * <h5>Graph and Relation Map</h5>
+ *
+ * <p>No {@link DefaultDirectedGraph} and no relation map are kept. {@link #getGraph()} and {@link
+ * #getRelationMap()} materialize them from the CSR arrays on first access. Code on the hot path
+ * should use the <code>int</code>-based methods, e.g., {@link #getParentIndex(int, int)} and
+ * {@link #getChildIndex(int, int)}, instead.
+ */
+public final class CompactOntology implements Ontology {
+
+  /** Serial UId for serialization. */
+  private static final long serialVersionUID = 2L;
+
+  /** Cached result of {@link RelationshipType#values()} for decoding inlined edge types. */
+  private static final RelationshipType[] RELATIONSHIP_TYPES = RelationshipType.values();
+
+  /** Meta information, as loaded from file. */
+  private final ImmutableSortedMap<String, String> metaInfo;
+
+  /** Id of the root term. */
+  private final TermId rootTermId;
+
+  /** The mapping from TermId to Term for all terms. */
+  private final ImmutableMap<TermId, Term> termMap;
+
+  /** Set of non-obsolete term ids. */
+  private final ImmutableSet<TermId> nonObsoleteTermIds;
+
+  /** Set of obsolete term ids. */
+  private final ImmutableSet<TermId> obsoleteTermIds;
+
+  /** Set of all term IDs. */
+  private final ImmutableSet<TermId> allTermIds;
+
+  /** Term IDs of the graph vertices, the position in the array is the term index. */
+  private final TermId[] termIds;
+
+  /** Mapping from term ID to term index. */
+  private final HashMap<TermId, Integer> termIdToIdx;
+
+  /** Index of the root term. */
+  private final int rootIdx;
+
+  /** Offsets into {@link #parentIndices}, one more entry than there are terms. */
+  private final int[] parentOffsets;
+
+  /** Term indices of the parents, grouped by child term. */
+  private final int[] parentIndices;
+
+  /** Edge Ids of the parent edges, parallel to {@link #parentIndices}. */
+  private final int[] parentEdgeIds;
+
+  /** Ordinals of the {@link RelationshipType}s, parallel to {@link #parentIndices}. */
+  private final byte[] parentRelationshipTypes;
+
+  /** Offsets into {@link #childIndices}, one more entry than there are terms. */
+  private final int[] childOffsets;
+
+  /** Term indices of the children, grouped by parent term. */
+  private final int[] childIndices;
+
+  /** Ordinals of the {@link RelationshipType}s, parallel to {@link #childIndices}. */
+  private final byte[] childRelationshipTypes;
+
+  /** Lazily materialized graph, see {@link #getGraph()}. */
+  private transient DefaultDirectedGraph<TermId, IdLabeledEdge> graph;
+
+  /** Lazily materialized relation map, see {@link #getRelationMap()}. */
+  private transient ImmutableMap<Integer, Relationship> relationMap;
+
+  /** Lazily computed closure index, see {@link #getTermClosureIndex()}. */
+  private transient TermClosureIndex closureIndex;
+
+  /**
+   * Constructor.
+   *
+   * <p>The graph vertices are the non-obsolete terms and all terms referenced by {@code
+   * relationships}. If there are several relationships between the same pair of terms then only
+   * the first one is used, in agreement with {@link ImmutableOntology}.
+   *
+   * @param metaInfo {@link ImmutableSortedMap} with meta information.
+   * @param rootTermId Root node's {@link TermId}.
+   * @param nonObsoleteTermIds {@link Collection} of {@link TermId}s of non-obsolete terms.
+   * @param obsoleteTermIds {@link Collection} of {@link TermId}s of obsolete terms.
+   * @param termMap Mapping from {@link TermId} to {@link Term}.
+   * @param relationships The {@link Relationship}s, pointing from child to parent.
+   */
+  public CompactOntology(
+      ImmutableSortedMap<String, String> metaInfo,
+      TermId rootTermId,
+      Collection<TermId> nonObsoleteTermIds,
+      Collection<TermId> obsoleteTermIds,
+      ImmutableMap<TermId, Term> termMap,
+      Collection<Relationship> relationships) {
+    this.metaInfo = metaInfo;
+    this.rootTermId = rootTermId;
+    this.termMap = termMap;
+    this.nonObsoleteTermIds = ImmutableSet.copyOf(nonObsoleteTermIds);
+    this.obsoleteTermIds = ImmutableSet.copyOf(obsoleteTermIds);
+    this.allTermIds =
+        ImmutableSet.copyOf(Sets.union(this.nonObsoleteTermIds, this.obsoleteTermIds));
+
+    // Assign term indices in natural order of the vertices' term IDs.
+    final ImmutableSortedSet.Builder<TermId> vertexBuilder = ImmutableSortedSet.naturalOrder();
+    vertexBuilder.addAll(this.nonObsoleteTermIds);
+    for (Relationship relationship : relationships) {
+      vertexBuilder.add(relationship.getSource());
+      vertexBuilder.add(relationship.getTarget());
+    }
+    this.termIds = vertexBuilder.build().toArray(new TermId[0]);
+    this.termIdToIdx = new HashMap<>(2 * termIds.length);
+    for (int i = 0; i < termIds.length; ++i) {
+      termIdToIdx.put(termIds[i], i);
+    }
+    final Integer rootIdxValue = termIdToIdx.get(rootTermId);
+    this.rootIdx = (rootIdxValue == null) ? -1 : rootIdxValue;
+
+    // Collect the distinct edges as (child, parent) pairs, keeping the first relationship.
+    final int numTerms = termIds.length;
+    final Set<Long> seenEdges = new HashSet<>();
+    final List<Relationship> edges = new ArrayList<>(relationships.size());
+    final int[] numParents = new int[numTerms];
+    final int[] numChildren = new int[numTerms];
+    for (Relationship relationship : relationships) {
+      final int child = termIdToIdx.get(relationship.getSource());
+      final int parent = termIdToIdx.get(relationship.getTarget());
+      if (seenEdges.add(((long) child << 32) | parent)) {
+        edges.add(relationship);
+        numParents[child]++;
+        numChildren[parent]++;
+      }
+    }
+
+    // Build CSR arrays for both directions.
+    this.parentOffsets = prefixSums(numParents);
+    this.childOffsets = prefixSums(numChildren);
+    this.parentIndices = new int[edges.size()];
+    this.parentEdgeIds = new int[edges.size()];
+    this.parentRelationshipTypes = new byte[edges.size()];
+    this.childIndices = new int[edges.size()];
+    this.childRelationshipTypes = new byte[edges.size()];
+    final int[] parentFill = Arrays.copyOf(parentOffsets, numTerms);
+    final int[] childFill = Arrays.copyOf(childOffsets, numTerms);
+    for (Relationship relationship : edges) {
+      final int child = termIdToIdx.get(relationship.getSource());
+      final int parent = termIdToIdx.get(relationship.getTarget());
+      final byte type = (byte) relationship.getRelationshipType().ordinal();
+      final int p = parentFill[child]++;
+      parentIndices[p] = parent;
+      parentEdgeIds[p] = relationship.getId();
+      parentRelationshipTypes[p] = type;
+      final int c = childFill[parent]++;
+      childIndices[c] = child;
+      childRelationshipTypes[c] = type;
+    }
+  }
+
+  /**
+   * Construct {@link CompactOntology} from an existing {@link Ontology}.
+   *
+   * <p>The graph's edges are translated into CSR arrays, the edge relationship types are taken from
+   * the relation map of {@code ontology} ({@link RelationshipType#UNKNOWN} if missing).
+   *
+   * @param ontology The {@link Ontology} to convert.
+   * @return Newly created {@link CompactOntology}.
+   */
+  public static CompactOntology of(Ontology ontology) {
+    if (ontology instanceof CompactOntology) {
+      return (CompactOntology) ontology;
+    }
+
+    final DefaultDirectedGraph<TermId, IdLabeledEdge> graph = ontology.getGraph();
+    final Map<Integer, Relationship> relations = ontology.getRelationMap();
+    final List<Relationship> relationships = new ArrayList<>(graph.edgeSet().size());
+    for (IdLabeledEdge edge : graph.edgeSet()) {
+      final Relationship relationship = relations.get(edge.getId());
+      final RelationshipType type =
+          (relationship == null) ? RelationshipType.UNKNOWN : relationship.getRelationshipType();
+      relationships.add(
+          new Relationship(
+              graph.getEdgeSource(edge), graph.getEdgeTarget(edge), edge.getId(), type));
+    }
+    return new CompactOntology(
+        ImmutableSortedMap.copyOf(ontology.getMetaInfo()),
+        ontology.getRootTermId(),
+        ontology.getNonObsoleteTermIds(),
+        ontology.getObsoleteTermIds(),
+        ImmutableMap.copyOf(ontology.getTermMap()),
+        relationships);
+  }
+
+  private static int[] prefixSums(int[] counts) {
+    final int[] result = new int[counts.length + 1];
+    for (int i = 0; i < counts.length; ++i) {
+      result[i + 1] = result[i] + counts[i];
+    }
+    return result;
+  }
+
+  /** @return The number of terms with a term index, i.e., the number of graph vertices. */
+  public int countIndexedTerms() {
+    return termIds.length;
+  }
+
+  /**
+   * Return the term index of {@code termId}, alternative term IDs are translated to primary ones.
+   *
+   * @param termId The {@link TermId} to query for.
+   * @return The term index, <code>-1</code> if {@code termId} is not a vertex of the graph.
+   */
+  public int getTermIndex(TermId termId) {
+    Integer idx = termIdToIdx.get(termId);
+    if (idx == null) {
+      final TermId primaryTermId = getPrimaryTermId(termId);
+      if (primaryTermId == null || primaryTermId.equals(termId)) {
+        return -1;
+      }
+      idx = termIdToIdx.get(primaryTermId);
+    }
+    return (idx == null) ? -1 : idx;
+  }
+
+  /**
+   * @param index The term index.
+   * @return The {@link TermId} at the given term index.
+   */
+  public TermId getTermId(int index) {
+    return termIds[index];
+  }
+
+  /** @return The term index of the root term. */
+  public int getRootTermIndex() {
+    return rootIdx;
+  }
+
+  /**
+   * @param index The term index of the child.
+   * @return The number of parents of the term.
+   */
+  public int getParentCount(int index) {
+    return parentOffsets[index + 1] - parentOffsets[index];
+  }
+
+  /**
+   * @param index The term index of the child.
+   * @param k Number of the parent, in <code>[0, getParentCount(index))</code>.
+   * @return The term index of the <code>k</code>-th parent.
+   */
+  public int getParentIndex(int index, int k) {
+    return parentIndices[parentOffsets[index] + k];
+  }
+
+  /**
+   * @param index The term index of the child.
+   * @param k Number of the parent, in <code>[0, getParentCount(index))</code>.
+   * @return The {@link RelationshipType} of the edge to the <code>k</code>-th parent.
+   */
+  public RelationshipType getParentRelationshipType(int index, int k) {
+    return RELATIONSHIP_TYPES[parentRelationshipTypes[parentOffsets[index] + k]];
+  }
+
+  /**
+   * @param index The term index of the parent.
+   * @return The number of children of the term.
+   */
+  public int getChildCount(int index) {
+    return childOffsets[index + 1] - childOffsets[index];
+  }
+
+  /**
+   * @param index The term index of the parent.
+   * @param k Number of the child, in <code>[0, getChildCount(index))</code>.
+   * @return The term index of the <code>k</code>-th child.
+   */
+  public int getChildIndex(int index, int k) {
+    return childIndices[childOffsets[index] + k];
+  }
+
+  /**
+   * @param index The term index of the parent.
+   * @param k Number of the child, in <code>[0, getChildCount(index))</code>.
+   * @return The {@link RelationshipType} of the edge to the <code>k</code>-th child.
+   */
+  public RelationshipType getChildRelationshipType(int index, int k) {
+    return RELATIONSHIP_TYPES[childRelationshipTypes[childOffsets[index] + k]];
+  }
+
+  /**
+   * Return term indices of all ancestors of the term with the given index, including itself.
+   *
+   * @param index The term index to query the ancestors for.
+   * @param includeRoot Whether or not to include the root.
+   * @return Sorted array with the term indices of the ancestors.
+   */
+  public int[] getAncestorIndices(int index, boolean includeRoot) {
+    return walk(new int[] {index}, parentOffsets, parentIndices, includeRoot);
+  }
+
+  /**
+   * Return term indices of all descendants of the term with the given index, including itself.
+   *
+   * @param index The term index to query the descendants for.
+   * @return Sorted array with the term indices of the descendants.
+   */
+  public int[] getDescendantIndices(int index) {
+    return walk(new int[] {index}, childOffsets, childIndices, true);
+  }
+
+  /**
+   * Depth-first walk through the CSR arrays from the given start indices.
+   *
+   * @param starts Term indices to start from.
+   * @param offsets CSR offsets of the direction to walk.
+   * @param targets CSR targets of the direction to walk.
+   * @param includeRoot Whether or not to include the root in the result.
+   * @return Sorted term indices of all reached terms.
+   */
+  private int[] walk(int[] starts, int[] offsets, int[] targets, boolean includeRoot) {
+    final long[] seen = new long[(termIds.length + 63) >>> 6];
+    int[] stack = new int[Math.max(16, starts.length)];
+    int top = 0;
+    int count = 0;
+    for (int start : starts) {
+      if ((seen[start >>> 6] & (1L << start)) == 0) {
+        seen[start >>> 6] |= 1L << start;
+        stack[top++] = start;
+        ++count;
+      }
+    }
+    while (top > 0) {
+      final int v = stack[--top];
+      for (int e = offsets[v]; e < offsets[v + 1]; ++e) {
+        final int w = targets[e];
+        if ((seen[w >>> 6] & (1L << w)) == 0) {
+          seen[w >>> 6] |= 1L << w;
+          if (top == stack.length) {
+            stack = Arrays.copyOf(stack, 2 * stack.length);
+          }
+          stack[top++] = w;
+          ++count;
+        }
+      }
+    }
+    if (!includeRoot && rootIdx >= 0 && (seen[rootIdx >>> 6] & (1L << rootIdx)) != 0) {
+      seen[rootIdx >>> 6] &= ~(1L << rootIdx);
+      --count;
+    }
+
+    final int[] result = new int[count];
+    int pos = 0;
+    for (int w = 0; w < seen.length; ++w) {
+      long word = seen[w];
+      while (word != 0) {
+        result[pos++] = (w << 6) + Long.numberOfTrailingZeros(word);
+        word &= word - 1;
+      }
+    }
+    return result;
+  }
+
+  /** @return {@link ImmutableSet} with the {@link TermId}s for the given term indices. */
+  private ImmutableSet<TermId> toTermIds(int[] indices) {
+    final ImmutableSet.Builder<TermId> builder = ImmutableSet.builder();
+    for (int idx : indices) {
+      builder.add(termIds[idx]);
+    }
+    return builder.build();
+  }
+
+  @Override
+  public Map<String, String> getMetaInfo() {
+    return metaInfo;
+  }
+
+  @Override
+  public synchronized DefaultDirectedGraph<TermId, IdLabeledEdge> getGraph() {
+    if (graph == null) {
+      final DefaultDirectedGraph<TermId, IdLabeledEdge> result =
+          new DefaultDirectedGraph<>(IdLabeledEdge.class);
+      for (TermId termId : termIds) {
+        result.addVertex(termId);
+      }
+      for (int child = 0; child < termIds.length; ++child) {
+        for (int e = parentOffsets[child]; e < parentOffsets[child + 1]; ++e) {
+          result.addEdge(
+              termIds[child], termIds[parentIndices[e]], new IdLabeledEdge(parentEdgeIds[e]));
+        }
+      }
+      graph = result;
+    }
+    return graph;
+  }
+
+  @Override
+  public Map<TermId, Term> getTermMap() {
+    return termMap;
+  }
+
+  @Override
+  public synchronized Map<Integer, Relationship> getRelationMap() {
+    if (relationMap == null) {
+      final ImmutableMap.Builder<Integer, Relationship> builder = ImmutableMap.builder();
+      for (int child = 0; child < termIds.length; ++child) {
+        for (int e = parentOffsets[child]; e < parentOffsets[child + 1]; ++e) {
+          builder.put(
+              parentEdgeIds[e],
+              new Relationship(
+                  termIds[child],
+                  termIds[parentIndices[e]],
+                  parentEdgeIds[e],
+                  RELATIONSHIP_TYPES[parentRelationshipTypes[e]]));
+        }
+      }
+      relationMap = builder.build();
+    }
+    return relationMap;
+  }
+
+  @Override
+  public boolean isRootTerm(TermId termId) {
+    return termId.equals(rootTermId);
+  }
+
+  @Override
+  public Set<TermId> getAncestorTermIds(TermId termId, boolean includeRoot) {
+    final int idx = getTermIndex(termId);
+    if (idx == -1) {
+      return ImmutableSet.of();
+    }
+    return toTermIds(getAncestorIndices(idx, includeRoot));
+  }
+
+  @Override
+  public Set<TermId> getAllAncestorTermIds(Collection<TermId> termIds, boolean includeRoot) {
+    final int[] starts = new int[termIds.size()];
+    int count = 0;
+    for (TermId termId : termIds) {
+      final int idx = getTermIndex(termId);
+      if (idx != -1) {
+        starts[count++] = idx;
+      }
+    }
+    return new HashSet<>(
+        toTermIds(walk(Arrays.copyOf(starts, count), parentOffsets, parentIndices, includeRoot)));
+  }
+
+  @Override
+  public Set<TermId> getParentTermIds(TermId termId) {
+    final Set<TermId> result = new HashSet<>();
+    final int idx = getTermIndex(termId);
+    if (idx != -1) {
+      for (int e = parentOffsets[idx]; e < parentOffsets[idx + 1]; ++e) {
+        result.add(termIds[parentIndices[e]]);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public synchronized TermClosureIndex getTermClosureIndex() {
+    if (closureIndex == null) {
+      closureIndex = TermClosureIndex.of(this);
+    }
+    return closureIndex;
+  }
+
+  @Override
+  public TermId getRootTermId() {
+    return rootTermId;
+  }
+
+  @Override
+  public Set<TermId> getAllTermIds() {
+    return allTermIds;
+  }
+
+  @Override
+  public Collection<Term> getTerms() {
+    return termMap.values();
+  }
+
+  @Override
+  public Set<TermId> getNonObsoleteTermIds() {
+    return nonObsoleteTermIds;
+  }
+
+  @Override
+  public Set<TermId> getObsoleteTermIds() {
+    return obsoleteTermIds;
+  }
+
+  @Override
+  public CompactOntology subOntology(TermId subOntologyRoot) {
+    final int subRootIdx = getTermIndex(subOntologyRoot);
+    final Set<TermId> childTermIds =
+        (subRootIdx == -1)
+            ? ImmutableSet.of(subOntologyRoot)
+            : toTermIds(getDescendantIndices(subRootIdx));
+    final Set<TermId> intersectingTerms = Sets.intersection(nonObsoleteTermIds, childTermIds);
+
+    // make sure the term map contains only terms from the subontology
+    final ImmutableMap.Builder<TermId, Term> termBuilder = ImmutableMap.builder();
+    for (TermId tid : intersectingTerms) {
+      termBuilder.put(tid, termMap.get(tid));
+    }
+    final ImmutableMap<TermId, Term> subsetTermMap = termBuilder.build();
+
+    // Only retain relations where both source and destination are terms in the subontology
+    final List<Relationship> subRelationships = new ArrayList<>();
+    for (int child = 0; child < termIds.length; ++child) {
+      if (!subsetTermMap.containsKey(termIds[child])) {
+        continue;
+      }
+      for (int e = parentOffsets[child]; e < parentOffsets[child + 1]; ++e) {
+        final TermId parent = termIds[parentIndices[e]];
+        if (subsetTermMap.containsKey(parent)) {
+          subRelationships.add(
+              new Relationship(
+                  termIds[child],
+                  parent,
+                  parentEdgeIds[e],
+                  RELATIONSHIP_TYPES[parentRelationshipTypes[e]]));
+        }
+      }
+    }
+
+    final ImmutableSortedMap.Builder<String, String> metaInfoBuilder =
+        ImmutableSortedMap.naturalOrder();
+    metaInfoBuilder.putAll(metaInfo);
+    metaInfoBuilder.put(
+        "provenance",
+        String.format(
+            "Ontology created as a subset from original ontology with root %s",
+            getTermMap().get(rootTermId).getName()));
+
+    return new CompactOntology(
+        metaInfoBuilder.build(),
+        subOntologyRoot,
+        intersectingTerms,
+        Sets.intersection(obsoleteTermIds, childTermIds),
+        subsetTermMap,
+        subRelationships);
+  }
+}
@@ -7,7 +7,6 @@ import java.util.stream.Collectors;
 import com.google.common.collect.*;
 import org.monarchinitiative.phenol.base.PhenolRuntimeException;
 import org.monarchinitiative.phenol.graph.IdLabeledEdge;
-import org.monarchinitiative.phenol.graph.algo.BreadthFirstSearch;
 import org.monarchinitiative.phenol.graph.util.CompatibilityChecker;
 import org.monarchinitiative.phenol.graph.util.GraphUtil;
 import org.jgrapht.graph.DefaultDirectedGraph;
@@ -54,8 +53,8 @@ public class ImmutableOntology implements Ontology {
   /** The mapping from edge Id to relationship. */
   private final ImmutableMap<Integer, Relationship> relationMap;
 
-  /** Precomputed ancestors (including vertex itself). */
-  private final ImmutableMap<TermId, ImmutableSet<TermId>> precomputedAncestors;
+  /** Precomputed ancestor and descendant closures (including vertex itself). */
+  private final TermClosureIndex closureIndex;
 
   /**
    * Constructor.
@@ -85,30 +84,7 @@ public class ImmutableOntology implements Ontology {
     this.allTermIds =
         ImmutableSet.copyOf(Sets.union(this.nonObsoleteTermIds, this.obsoleteTermIds));
     this.relationMap = relationMap;
-    this.precomputedAncestors = precomputeAncestors();
-  }
-
-  /**
-   * @return Precomputed map from term id to list of ancestor term ids (a term is its own ancestor).
-   */
-  private ImmutableMap<TermId, ImmutableSet<TermId>> precomputeAncestors() {
-    final ImmutableMap.Builder<TermId, ImmutableSet<TermId>> mapBuilder = ImmutableMap.builder();
-
-    for (TermId termId : graph.vertexSet()) {
-      final ImmutableSet.Builder<TermId> setBuilder = ImmutableSet.builder();
-      BreadthFirstSearch<TermId, IdLabeledEdge> bfs = new BreadthFirstSearch<>();
-      bfs.startFromForward(
-        graph,
-        termId,
-        (g, v) -> {
-          setBuilder.add(v);
-          return true;
-        });
-
-      mapBuilder.put(termId, setBuilder.build());
-    }
-
-    return mapBuilder.build();
+    this.closureIndex = TermClosureIndex.of(graph, rootTermId, termMap);
   }
 
   @Override
@@ -138,29 +114,21 @@ public class ImmutableOntology implements Ontology {
 
   @Override
   public Set<TermId> getAncestorTermIds(TermId termId, boolean includeRoot) {
-    final TermId primaryTermId = getPrimaryTermId(termId);
-    if (primaryTermId == null) {
+    final int idx = closureIndex.getIndex(termId);
+    if (idx == -1) {
       return ImmutableSet.of();
     }
-
-    final ImmutableSet<TermId> precomputed = precomputedAncestors.getOrDefault(termId, ImmutableSet.of());
-    if (includeRoot) {
-      return precomputed;
-    } else {
-      return ImmutableSet.copyOf(Sets.difference(precomputed, ImmutableSet.of(rootTermId)));
-    }
+    return closureIndex.asTermIdSet(closureIndex.getAncestors(idx), includeRoot);
   }
 
   @Override
   public Set<TermId> getAllAncestorTermIds(Collection<TermId> termIds, boolean includeRoot) {
-    final Set<TermId> result = new HashSet<>();
-    for (TermId termId : termIds) {
-      result.addAll(getAncestorTermIds(termId, true));
-    }
-    if (!includeRoot) {
-      result.remove(rootTermId);
-    }
-    return result;
+    return closureIndex.asTermIdSet(closureIndex.getAncestors(termIds, true), includeRoot);
+  }
+
+  @Override
+  public TermClosureIndex getTermClosureIndex() {
+    return closureIndex;
   }
 
   @Override
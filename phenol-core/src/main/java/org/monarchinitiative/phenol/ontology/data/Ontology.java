@@ -94,6 +94,18 @@ public interface Ontology extends MinimalOntology, Serializable {
     return result;
   }
 
+  /**
+   * Return the {@link TermClosureIndex} with the ancestor and descendant closures of all terms.
+   *
+   * <p>The default implementation builds a new index on every call, implementations should cache
+   * it.
+   *
+   * @return {@link TermClosureIndex} for this ontology.
+   */
+  default TermClosureIndex getTermClosureIndex() {
+    return TermClosureIndex.of(this);
+  }
+
   /**
    * Construct and return sub ontology, starting from {@code subOntologyRoot}.
    *
@@ -0,0 +1,371 @@
+package org.monarchinitiative.phenol.ontology.data;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable, compressed bit set over dense term indices (see {@link TermClosureIndex}).
+ *
+ * <p>Only the non-zero 64 bit words are stored, together with their word offsets in sorted order.
+ * Ontology closures are very sparse and clustered (the ancestors of a term are typically a few
+ * dozen out of tens of thousands of terms), such that this representation is small while still
+ * allowing for set algebra via word-wise merging and {@link Long#bitCount(long)}.
+ *
+ * <p>Use {@link Builder} for constructing new instances.
+ */
+public final class TermBitSet implements Serializable {
+
+  /** Serial UId for serialization. */
+  private static final long serialVersionUID = 1L;
+
+  /** The empty set. */
+  private static final TermBitSet EMPTY = new TermBitSet(new int[0], new long[0]);
+
+  /** Sorted word offsets of the non-zero words, i.e., <code>index &gt;&gt;&gt; 6</code>. */
+  private final int[] keys;
+
+  /** The non-zero words, parallel to {@link #keys}. */
+  private final long[] words;
+
+  /** Number of set bits. */
+  private final int cardinality;
+
+  private TermBitSet(int[] keys, long[] words) {
+    this.keys = keys;
+    this.words = words;
+    int count = 0;
+    for (long word : words) {
+      count += Long.bitCount(word);
+    }
+    this.cardinality = count;
+  }
+
+  /** @return The empty {@link TermBitSet}. */
+  public static TermBitSet empty() {
+    return EMPTY;
+  }
+
+  /**
+   * @param indices The term indices to set, in arbitrary order.
+   * @return {@link TermBitSet} with the given bits set.
+   */
+  public static TermBitSet of(int... indices) {
+    final int[] sorted = indices.clone();
+    Arrays.sort(sorted);
+    int numWords = 0;
+    for (int i = 0; i < sorted.length; ++i) {
+      if (i == 0 || (sorted[i] >>> 6) != (sorted[i - 1] >>> 6)) {
+        ++numWords;
+      }
+    }
+    final int[] keys = new int[numWords];
+    final long[] words = new long[numWords];
+    int pos = -1;
+    for (int i = 0; i < sorted.length; ++i) {
+      if (i == 0 || (sorted[i] >>> 6) != (sorted[i - 1] >>> 6)) {
+        keys[++pos] = sorted[i] >>> 6;
+      }
+      words[pos] |= 1L << sorted[i];
+    }
+    return new TermBitSet(keys, words);
+  }
+
+  /** @return Number of set bits. */
+  public int cardinality() {
+    return cardinality;
+  }
+
+  /** @return Whether no bit is set. */
+  public boolean isEmpty() {
+    return cardinality == 0;
+  }
+
+  /**
+   * @param index Term index to query for.
+   * @return Whether the bit for {@code index} is set.
+   */
+  public boolean contains(int index) {
+    if (index < 0) {
+      return false;
+    }
+    final int pos = Arrays.binarySearch(keys, index >>> 6);
+    return pos >= 0 && (words[pos] & (1L << index)) != 0;
+  }
+
+  /**
+   * @param other The other {@link TermBitSet}.
+   * @return Size of the intersection of <code>this</code> and {@code other}.
+   */
+  public int intersectionSize(TermBitSet other) {
+    int result = 0;
+    int i = 0;
+    int j = 0;
+    while (i < keys.length && j < other.keys.length) {
+      if (keys[i] < other.keys[j]) {
+        ++i;
+      } else if (keys[i] > other.keys[j]) {
+        ++j;
+      } else {
+        result += Long.bitCount(words[i++] & other.words[j++]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param other The other {@link TermBitSet}.
+   * @return Size of the union of <code>this</code> and {@code other}.
+   */
+  public int unionSize(TermBitSet other) {
+    return cardinality + other.cardinality - intersectionSize(other);
+  }
+
+  /**
+   * @param other The other {@link TermBitSet}.
+   * @return Whether <code>this</code> and {@code other} share at least one bit.
+   */
+  public boolean intersects(TermBitSet other) {
+    int i = 0;
+    int j = 0;
+    while (i < keys.length && j < other.keys.length) {
+      if (keys[i] < other.keys[j]) {
+        ++i;
+      } else if (keys[i] > other.keys[j]) {
+        ++j;
+      } else if ((words[i++] & other.words[j++]) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param other The other {@link TermBitSet}.
+   * @return Newly created {@link TermBitSet} with the union of <code>this</code> and {@code other}.
+   */
+  public TermBitSet union(TermBitSet other) {
+    if (other.isEmpty()) {
+      return this;
+    } else if (isEmpty()) {
+      return other;
+    }
+    final int[] resultKeys = new int[keys.length + other.keys.length];
+    final long[] resultWords = new long[keys.length + other.keys.length];
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while (i < keys.length || j < other.keys.length) {
+      if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+        resultKeys[k] = keys[i];
+        resultWords[k++] = words[i++];
+      } else if (i == keys.length || keys[i] > other.keys[j]) {
+        resultKeys[k] = other.keys[j];
+        resultWords[k++] = other.words[j++];
+      } else {
+        resultKeys[k] = keys[i];
+        resultWords[k++] = words[i++] | other.words[j++];
+      }
+    }
+    return new TermBitSet(Arrays.copyOf(resultKeys, k), Arrays.copyOf(resultWords, k));
+  }
+
+  /**
+   * @param index The term index to clear.
+   * @return {@link TermBitSet} without {@code index}, <code>this</code> if not set.
+   */
+  public TermBitSet without(int index) {
+    if (!contains(index)) {
+      return this;
+    }
+    final int pos = Arrays.binarySearch(keys, index >>> 6);
+    final long word = words[pos] & ~(1L << index);
+    if (word != 0) {
+      final long[] resultWords = words.clone();
+      resultWords[pos] = word;
+      return new TermBitSet(keys, resultWords);
+    }
+    final int[] resultKeys = new int[keys.length - 1];
+    final long[] resultWords = new long[words.length - 1];
+    System.arraycopy(keys, 0, resultKeys, 0, pos);
+    System.arraycopy(keys, pos + 1, resultKeys, pos, keys.length - pos - 1);
+    System.arraycopy(words, 0, resultWords, 0, pos);
+    System.arraycopy(words, pos + 1, resultWords, pos, words.length - pos - 1);
+    return new TermBitSet(resultKeys, resultWords);
+  }
+
+  /**
+   * Call {@code consumer} for each set bit in ascending order.
+   *
+   * @param consumer The {@link IntConsumer} to call.
+   */
+  public void forEach(IntConsumer consumer) {
+    for (int i = 0; i < keys.length; ++i) {
+      long word = words[i];
+      while (word != 0) {
+        consumer.accept((keys[i] << 6) + Long.numberOfTrailingZeros(word));
+        word &= word - 1;
+      }
+    }
+  }
+
+  /** @return Iterator over the set bits in ascending order. */
+  public PrimitiveIterator.OfInt iterator() {
+    return new PrimitiveIterator.OfInt() {
+      private int pos = 0;
+      private long word = keys.length == 0 ? 0 : words[0];
+
+      @Override
+      public boolean hasNext() {
+        while (word == 0 && pos + 1 < keys.length) {
+          word = words[++pos];
+        }
+        return word != 0;
+      }
+
+      @Override
+      public int nextInt() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        final int result = (keys[pos] << 6) + Long.numberOfTrailingZeros(word);
+        word &= word - 1;
+        return result;
+      }
+    };
+  }
+
+  /** @return The set bits as sorted array. */
+  public int[] toArray() {
+    final int[] result = new int[cardinality];
+    final int[] pos = new int[1];
+    forEach(idx -> result[pos[0]++] = idx);
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof TermBitSet)) {
+      return false;
+    }
+    final TermBitSet that = (TermBitSet) o;
+    return Arrays.equals(keys, that.keys) && Arrays.equals(words, that.words);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(keys) + Arrays.hashCode(words);
+  }
+
+  @Override
+  public String toString() {
+    return "TermBitSet" + Arrays.toString(toArray());
+  }
+
+  /**
+   * Mutable builder for {@link TermBitSet}, backed by a dense <code>long[]</code>.
+   *
+   * <p>A builder can be reused after {@link #build()} by calling {@link #clear()}, only the touched
+   * words are reset.
+   */
+  public static final class Builder {
+
+    /** Dense words. */
+    private final long[] words;
+
+    /** Offsets of the words that have been touched, might contain duplicates. */
+    private int[] touched = new int[16];
+
+    /** Number of entries in {@link #touched}. */
+    private int numTouched = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity The number of term indices to support.
+     */
+    public Builder(int capacity) {
+      this.words = new long[(capacity + 63) >>> 6];
+    }
+
+    private void touch(int key) {
+      if (words[key] == 0) {
+        if (numTouched == touched.length) {
+          touched = Arrays.copyOf(touched, 2 * touched.length);
+        }
+        touched[numTouched++] = key;
+      }
+    }
+
+    /**
+     * @param index The term index to set.
+     * @return <code>this</code>
+     */
+    public Builder add(int index) {
+      touch(index >>> 6);
+      words[index >>> 6] |= 1L << index;
+      return this;
+    }
+
+    /**
+     * @param index The term index to clear.
+     * @return <code>this</code>
+     */
+    public Builder remove(int index) {
+      words[index >>> 6] &= ~(1L << index);
+      return this;
+    }
+
+    /**
+     * @param index Term index to query for.
+     * @return Whether the bit for {@code index} is set.
+     */
+    public boolean contains(int index) {
+      return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @param other {@link TermBitSet} to add all bits of.
+     * @return <code>this</code>
+     */
+    public Builder addAll(TermBitSet other) {
+      for (int i = 0; i < other.keys.length; ++i) {
+        touch(other.keys[i]);
+        words[other.keys[i]] |= other.words[i];
+      }
+      return this;
+    }
+
+    /** @return <code>this</code>, after clearing all bits. */
+    public Builder clear() {
+      for (int i = 0; i < numTouched; ++i) {
+        words[touched[i]] = 0;
+      }
+      numTouched = 0;
+      return this;
+    }
+
+    /** @return Newly constructed {@link TermBitSet} with the currently set bits. */
+    public TermBitSet build() {
+      final int[] keys = Arrays.copyOf(touched, numTouched);
+      Arrays.sort(keys);
+      int k = 0;
+      for (int i = 0; i < keys.length; ++i) {
+        if ((i == 0 || keys[i] != keys[i - 1]) && words[keys[i]] != 0) {
+          keys[k++] = keys[i];
+        }
+      }
+      final int[] resultKeys = Arrays.copyOf(keys, k);
+      final long[] resultWords = new long[k];
+      for (int i = 0; i < k; ++i) {
+        resultWords[i] = words[resultKeys[i]];
+      }
+      return new TermBitSet(resultKeys, resultWords);
+    }
+  }
+}
@@ -0,0 +1,465 @@
+package org.monarchinitiative.phenol.ontology.data;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.monarchinitiative.phenol.graph.IdLabeledEdge;
+
+/**
+ * Precomputed ancestor and descendant closures of an ontology as {@link TermBitSet}s.
+ *
+ * <p>Each graph vertex is assigned a dense <b>term index</b> in <code>[0, countTerms())</code>,
+ * following the natural order of the {@link TermId}s (for {@link CompactOntology}, this is the same
+ * as its term index). Both closures include the term itself and follow all edges of the graph,
+ * regardless of their {@link RelationshipType}.
+ *
+ * <p>The set views returned by {@link #asTermIdSet(TermBitSet, boolean)} are backed by the bit sets
+ * and do not materialize any {@link Set} of {@link TermId}s, such that set-based similarity
+ * measures can be implemented using {@link TermBitSet#intersectionSize(TermBitSet)} and friends.
+ */
+public final class TermClosureIndex implements Serializable {
+
+  /** Serial UId for serialization. */
+  private static final long serialVersionUID = 1L;
+
+  /** Levels with fewer terms than this are processed sequentially. */
+  private static final int PARALLEL_THRESHOLD = 512;
+
+  /** Term IDs of the graph vertices, the position in the array is the term index. */
+  private final TermId[] termIds;
+
+  /** Mapping from primary and alternative term IDs to term index. */
+  private final HashMap<TermId, Integer> termIdToIdx;
+
+  /** Index of the root term, <code>-1</code> if not in the graph. */
+  private final int rootIdx;
+
+  /** Ancestor closure for each term index. */
+  private final TermBitSet[] ancestors;
+
+  /** Descendant closure for each term index. */
+  private final TermBitSet[] descendants;
+
+  /**
+   * Constructor.
+   *
+   * @param termIds Term IDs of the graph vertices, in term index order.
+   * @param rootIdx Index of the root term, <code>-1</code> if not in the graph.
+   * @param parents For each term index, the term indices of its parents.
+   * @param termMap Mapping from term ID to {@link Term}, used for registering alternative IDs.
+   */
+  TermClosureIndex(TermId[] termIds, int rootIdx, int[][] parents, Map<TermId, Term> termMap) {
+    this.termIds = termIds;
+    this.rootIdx = rootIdx;
+    this.termIdToIdx = new HashMap<>(2 * termIds.length);
+    for (int i = 0; i < termIds.length; ++i) {
+      termIdToIdx.put(termIds[i], i);
+    }
+    for (Map.Entry<TermId, Term> entry : termMap.entrySet()) {
+      if (!termIdToIdx.containsKey(entry.getKey())) {
+        final Integer idx = termIdToIdx.get(entry.getValue().getId());
+        if (idx != null) {
+          termIdToIdx.put(entry.getKey(), idx);
+        }
+      }
+    }
+    this.ancestors = computeAncestors(parents);
+    this.descendants = transpose(ancestors);
+  }
+
+  /**
+   * Construct {@link TermClosureIndex} for the given {@link Ontology}.
+   *
+   * @param ontology The {@link Ontology} to build the index for.
+   * @return Newly created {@link TermClosureIndex}.
+   */
+  public static TermClosureIndex of(Ontology ontology) {
+    if (ontology instanceof CompactOntology) {
+      final CompactOntology compact = (CompactOntology) ontology;
+      final TermId[] termIds = new TermId[compact.countIndexedTerms()];
+      final int[][] parents = new int[termIds.length][];
+      for (int i = 0; i < termIds.length; ++i) {
+        termIds[i] = compact.getTermId(i);
+        parents[i] = new int[compact.getParentCount(i)];
+        for (int k = 0; k < parents[i].length; ++k) {
+          parents[i][k] = compact.getParentIndex(i, k);
+        }
+      }
+      return new TermClosureIndex(
+          termIds, compact.getRootTermIndex(), parents, compact.getTermMap());
+    } else {
+      return of(ontology.getGraph(), ontology.getRootTermId(), ontology.getTermMap());
+    }
+  }
+
+  /**
+   * Construct {@link TermClosureIndex} from an ontology graph, edges point from child to parent.
+   *
+   * @param graph The ontology graph.
+   * @param rootTermId The {@link TermId} of the root.
+   * @param termMap Mapping from term ID to {@link Term}, used for registering alternative IDs.
+   * @return Newly created {@link TermClosureIndex}.
+   */
+  public static TermClosureIndex of(
+      DefaultDirectedGraph<TermId, IdLabeledEdge> graph,
+      TermId rootTermId,
+      Map<TermId, Term> termMap) {
+    final TermId[] termIds = graph.vertexSet().toArray(new TermId[0]);
+    Arrays.sort(termIds);
+    final Map<TermId, Integer> idx = new HashMap<>(2 * termIds.length);
+    for (int i = 0; i < termIds.length; ++i) {
+      idx.put(termIds[i], i);
+    }
+    final int[][] parents = new int[termIds.length][];
+    for (int i = 0; i < termIds.length; ++i) {
+      final Set<IdLabeledEdge> edges = graph.outgoingEdgesOf(termIds[i]);
+      parents[i] = new int[edges.size()];
+      int k = 0;
+      for (IdLabeledEdge edge : edges) {
+        parents[i][k++] = idx.get(graph.getEdgeTarget(edge));
+      }
+    }
+    final Integer rootIdx = idx.get(rootTermId);
+    return new TermClosureIndex(termIds, rootIdx == null ? -1 : rootIdx, parents, termMap);
+  }
+
+  /**
+   * Compute the ancestor closures (including the term itself) for each term index.
+   *
+   * <p>The terms are partitioned into levels such that all parents of a term are on a lower level
+   * (Kahn's algorithm, starting from the terms without parents). The closure of each term is then
+   * the union of its parents' closures plus the term itself. All terms of one level are independent
+   * of each other, so large levels are processed in parallel with a {@link ForkJoinPool}.
+   *
+   * <p>Should the graph contain a cycle, we fall back to a graph walk from each term.
+   *
+   * @param parents For each term index, the term indices of its parents.
+   * @return Ancestor closure for each term index.
+   */
+  private TermBitSet[] computeAncestors(int[][] parents) {
+    final int numTerms = termIds.length;
+
+    // Count children for each term, used as in-degree when sweeping from the top.
+    final int[] numChildren = new int[numTerms];
+    for (int[] termParents : parents) {
+      for (int p : termParents) {
+        numChildren[p]++;
+      }
+    }
+    final int[][] children = new int[numTerms][];
+    for (int i = 0; i < numTerms; ++i) {
+      children[i] = new int[numChildren[i]];
+    }
+    final int[] fill = new int[numTerms];
+    for (int i = 0; i < numTerms; ++i) {
+      for (int p : parents[i]) {
+        children[p][fill[p]++] = i;
+      }
+    }
+
+    // Assign levels; levelStarts[l] is the offset of level l in order.
+    final int[] pendingParents = new int[numTerms];
+    final int[] order = new int[numTerms];
+    int end = 0;
+    for (int i = 0; i < numTerms; ++i) {
+      pendingParents[i] = parents[i].length;
+      if (pendingParents[i] == 0) {
+        order[end++] = i;
+      }
+    }
+    final List<Integer> levelStarts = new ArrayList<>();
+    int begin = 0;
+    while (begin < end) {
+      levelStarts.add(begin);
+      final int levelEnd = end;
+      for (int k = begin; k < levelEnd; ++k) {
+        for (int c : children[order[k]]) {
+          if (--pendingParents[c] == 0) {
+            order[end++] = c;
+          }
+        }
+      }
+      begin = levelEnd;
+    }
+    levelStarts.add(end);
+    if (end != numTerms) {
+      return computeAncestorsByWalking(parents);
+    }
+
+    final TermBitSet[] result = new TermBitSet[numTerms];
+    for (int l = 0; l + 1 < levelStarts.size(); ++l) {
+      final int from = levelStarts.get(l);
+      final int to = levelStarts.get(l + 1);
+      if (to - from < PARALLEL_THRESHOLD) {
+        unionParents(order, from, to, parents, result);
+      } else {
+        ForkJoinPool.commonPool().invoke(new LevelTask(order, from, to, parents, result));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Compute closures for <code>order[from..to)</code> from the closures of their parents.
+   *
+   * @param order The term indices in level order.
+   * @param from First position in {@code order} to process.
+   * @param to Position behind the last one in {@code order} to process.
+   * @param parents For each term index, the term indices of its parents.
+   * @param result Array with the closures, closures of all parents must already be present.
+   */
+  private void unionParents(int[] order, int from, int to, int[][] parents, TermBitSet[] result) {
+    final TermBitSet.Builder builder = new TermBitSet.Builder(termIds.length);
+    for (int k = from; k < to; ++k) {
+      final int v = order[k];
+      if (parents[v].length == 1) {
+        // Shortcut: a single parent, avoid touching the dense builder.
+        result[v] = result[parents[v][0]].union(TermBitSet.of(v));
+      } else {
+        builder.clear().add(v);
+        for (int p : parents[v]) {
+          builder.addAll(result[p]);
+        }
+        result[v] = builder.build();
+      }
+    }
+  }
+
+  /** Processing of one level as {@link RecursiveAction}, splitting the range in halves. */
+  private final class LevelTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] order;
+    private final int from;
+    private final int to;
+    private final int[][] parents;
+    private final TermBitSet[] result;
+
+    LevelTask(int[] order, int from, int to, int[][] parents, TermBitSet[] result) {
+      this.order = order;
+      this.from = from;
+      this.to = to;
+      this.parents = parents;
+      this.result = result;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= PARALLEL_THRESHOLD) {
+        unionParents(order, from, to, parents, result);
+      } else {
+        final int mid = (from + to) >>> 1;
+        invokeAll(
+            new LevelTask(order, from, mid, parents, result),
+            new LevelTask(order, mid, to, parents, result));
+      }
+    }
+  }
+
+  /**
+   * Compute the ancestor closures by a graph walk from each term, also works for cyclic graphs.
+   *
+   * @param parents For each term index, the term indices of its parents.
+   * @return Ancestor closure for each term index.
+   */
+  private TermBitSet[] computeAncestorsByWalking(int[][] parents) {
+    final TermBitSet[] result = new TermBitSet[termIds.length];
+    final TermBitSet.Builder builder = new TermBitSet.Builder(termIds.length);
+    int[] stack = new int[16];
+    for (int start = 0; start < termIds.length; ++start) {
+      builder.clear().add(start);
+      int top = 0;
+      stack[top++] = start;
+      while (top > 0) {
+        final int v = stack[--top];
+        for (int w : parents[v]) {
+          if (!builder.contains(w)) {
+            builder.add(w);
+            if (top == stack.length) {
+              stack = Arrays.copyOf(stack, 2 * stack.length);
+            }
+            stack[top++] = w;
+          }
+        }
+      }
+      result[start] = builder.build();
+    }
+    return result;
+  }
+
+  /** @return Descendant closures, derived from the ancestor closures. */
+  private static TermBitSet[] transpose(TermBitSet[] ancestors) {
+    final int[] counts = new int[ancestors.length];
+    for (TermBitSet bits : ancestors) {
+      bits.forEach(a -> counts[a]++);
+    }
+    final int[][] members = new int[ancestors.length][];
+    for (int i = 0; i < ancestors.length; ++i) {
+      members[i] = new int[counts[i]];
+    }
+    final int[] fill = new int[ancestors.length];
+    for (int i = 0; i < ancestors.length; ++i) {
+      final int term = i;
+      ancestors[i].forEach(a -> members[a][fill[a]++] = term);
+    }
+    final TermBitSet[] result = new TermBitSet[ancestors.length];
+    for (int i = 0; i < ancestors.length; ++i) {
+      result[i] = TermBitSet.of(members[i]);
+    }
+    return result;
+  }
+
+  /** @return Number of terms with a term index. */
+  public int countTerms() {
+    return termIds.length;
+  }
+
+  /**
+   * @param termId The primary or alternative {@link TermId} to query for.
+   * @return The term index, <code>-1</code> if not known.
+   */
+  public int getIndex(TermId termId) {
+    final Integer idx = termIdToIdx.get(termId);
+    return (idx == null) ? -1 : idx;
+  }
+
+  /**
+   * @param index The term index.
+   * @return The {@link TermId} at the given term index.
+   */
+  public TermId getTermId(int index) {
+    return termIds[index];
+  }
+
+  /** @return Term index of the root, <code>-1</code> if not in the graph. */
+  public int getRootIndex() {
+    return rootIdx;
+  }
+
+  /**
+   * @param index The term index.
+   * @return The ancestors of the term (including itself and the root).
+   */
+  public TermBitSet getAncestors(int index) {
+    return ancestors[index];
+  }
+
+  /**
+   * @param index The term index.
+   * @return The descendants of the term (including itself).
+   */
+  public TermBitSet getDescendants(int index) {
+    return descendants[index];
+  }
+
+  /**
+   * Return the union of the ancestor closures of {@code termIds}, unknown IDs are ignored.
+   *
+   * @param termIds The {@link TermId}s to get the ancestors for.
+   * @param includeRoot Whether or not to include the root.
+   * @return {@link TermBitSet} with the ancestors of all {@code termIds} (including themselves).
+   */
+  public TermBitSet getAncestors(Collection<TermId> termIds, boolean includeRoot) {
+    TermBitSet result = TermBitSet.empty();
+    if (termIds.size() == 1) {
+      final int idx = getIndex(termIds.iterator().next());
+      if (idx != -1) {
+        result = ancestors[idx];
+      }
+    } else {
+      final TermBitSet.Builder builder = new TermBitSet.Builder(this.termIds.length);
+      for (TermId termId : termIds) {
+        final int idx = getIndex(termId);
+        if (idx != -1) {
+          builder.addAll(ancestors[idx]);
+        }
+      }
+      result = builder.build();
+    }
+    return includeRoot ? result : result.without(rootIdx);
+  }
+
+  /**
+   * Return a read-only {@link Set} view of {@code bits}.
+   *
+   * @param bits The {@link TermBitSet} of term indices of this index.
+   * @param includeRoot Whether or not to include the root.
+   * @return {@link Set} of {@link TermId}s backed by {@code bits}.
+   */
+  public Set<TermId> asTermIdSet(TermBitSet bits, boolean includeRoot) {
+    return new TermIdSetView(bits, includeRoot ? -1 : rootIdx);
+  }
+
+  /** Read-only {@link Set} view of a {@link TermBitSet}, optionally hiding one term index. */
+  private final class TermIdSetView extends AbstractSet<TermId> {
+
+    /** The underlying bits. */
+    private final TermBitSet bits;
+
+    /** Term index to hide, <code>-1</code> for none. */
+    private final int excluded;
+
+    /** Size of the view. */
+    private final int size;
+
+    TermIdSetView(TermBitSet bits, int excluded) {
+      this.bits = bits;
+      this.excluded = excluded;
+      this.size = bits.cardinality() - (excluded != -1 && bits.contains(excluded) ? 1 : 0);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof TermId)) {
+        return false;
+      }
+      final Integer idx = termIdToIdx.get(o);
+      return idx != null
+          && idx != excluded
+          && termIds[idx].equals(o)
+          && bits.contains(idx);
+    }
+
+    @Override
+    public Iterator<TermId> iterator() {
+      final PrimitiveIterator.OfInt it = bits.iterator();
+      return new Iterator<TermId>() {
+        private int next = advance();
+
+        private int advance() {
+          while (it.hasNext()) {
+            final int idx = it.nextInt();
+            if (idx != excluded) {
+              return idx;
+            }
+          }
+          return -1;
+        }
+
+        @Override
+        public boolean hasNext() {
+          return next != -1;
+        }
+
+        @Override
+        public TermId next() {
+          if (next == -1) {
+            throw new NoSuchElementException();
+          }
+          final TermId result = termIds[next];
+          next = advance();
+          return result;
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
@@ -3,7 +3,6 @@ package org.monarchinitiative.phenol.ontology.data;
 import org.monarchinitiative.phenol.base.PhenolRuntimeException;
 
 import java.io.Serializable;
-import java.util.Objects;
 
 /**
  * Immutable  TermId.
@@ -19,6 +18,9 @@ public final class TermId implements Comparable<TermId>, Serializable {
   private final int separatorPos;
   private final String value;
 
+  /** Cached hash code, computed on first use (as in {@link String}). */
+  private transient int hash;
+
   /**
    * Construct from term ID including prefix. e.g. HP:1234567
    *
@@ -55,7 +57,7 @@ public final class TermId implements Comparable<TermId>, Serializable {
     return pos;
   }
 
-  private TermId(int separatorPos, String termId) {
+  TermId(int separatorPos, String termId) {
     this.separatorPos = separatorPos;
     this.value = termId;
   }
@@ -82,12 +84,18 @@ public final class TermId implements Comparable<TermId>, Serializable {
     if (this == o) return true;
     if (o == null || getClass() != o.getClass()) return false;
     TermId termId1 = (TermId) o;
-    return Objects.equals(value, termId1.value);
+    return hashCode() == termId1.hashCode() && value.equals(termId1.value);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(value);
+    int h = hash;
+    if (h == 0) {
+      // same value as Objects.hash(value), without allocating the varargs array
+      h = 31 + value.hashCode();
+      hash = h;
+    }
+    return h;
   }
 
   @Override
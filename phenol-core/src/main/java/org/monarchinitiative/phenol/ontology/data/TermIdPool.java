@@ -0,0 +1,413 @@
+package org.monarchinitiative.phenol.ontology.data;
+
+import java.util.Arrays;
+
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+
+/**
+ * Pool for interning {@link TermId}s, such that each distinct term ID is represented by exactly one
+ * instance.
+ *
+ * <p>Parsers create the same term IDs millions of times (each annotation line references its
+ * disease and phenotype). Looking them up in a pool instead avoids the duplicate objects and
+ * strings, and makes {@link TermId#equals(Object)} succeed on the identity check.
+ *
+ * <h5>Lookup</h5>
+ *
+ * <p>Term IDs with a numeric local ID of up to 12 digits (e.g., <code>HP:0000118</code>, <code>
+ * GO:0008150</code>, <code>OMIM:600100</code>) are looked up by a packed <code>long</code> key
+ * consisting of the code of the prefix in a prefix dictionary, the number of digits (to preserve
+ * leading zeros), and the numeric value. All other term IDs are looked up by the hash of their
+ * characters. In both cases, the lookup is performed directly on a slice of a {@link
+ * CharSequence}, so no object is allocated if the term ID is already in the pool.
+ *
+ * <h5>Thread Safety</h5>
+ *
+ * <p>Lookups of known term IDs do not take a lock, insertions synchronize on the pool. The table
+ * arrays are plain arrays, so a lock-free reader racing with an insertion may miss the new entry;
+ * it then falls back to {@link #insert(TermId)}, which repeats the lookup under the lock. Lookups
+ * are therefore correct, but only the combination of both paths makes them so.
+ *
+ * <h5>Capacity</h5>
+ *
+ * <p>A pool holds at most {@link #getMaxSize()} term IDs. Once full, term IDs that are not pooled
+ * yet are returned as fresh, unpooled instances; they are still {@link TermId#equals(Object)
+ * equal} to any other instance with the same value. The {@link #global()} pool is capped at
+ * {@link #GLOBAL_MAX_SIZE} term IDs, which covers all terms and annotated objects of the
+ * ontologies used by phenol with room to spare.
+ */
+public final class TermIdPool {
+
+  /** Maximal number of term IDs in the {@link #global()} pool. */
+  public static final int GLOBAL_MAX_SIZE = 1 << 22;
+
+  /** Process-wide pool, used by the parsers. */
+  private static final TermIdPool GLOBAL = new TermIdPool(GLOBAL_MAX_SIZE);
+
+  /** Maximal number of digits for packing a local ID, <code>10^12 &lt; 2^40</code>. */
+  private static final int MAX_PACKED_DIGITS = 12;
+
+  /** Initial capacity of the hash tables, must be a power of two. */
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /** Prefix dictionary, the position is the prefix code; replaced on growth. */
+  private volatile String[] prefixes = new String[0];
+
+  /** Table for term IDs with packed keys. */
+  private volatile PackedTable packed = new PackedTable(INITIAL_CAPACITY);
+
+  /** Table for all other term IDs, by hash of their value. */
+  private volatile HashedTable hashed = new HashedTable(INITIAL_CAPACITY);
+
+  /** Maximal number of pooled term IDs. */
+  private final int maxSize;
+
+  /** Construct pool without a limit on its size. */
+  public TermIdPool() {
+    this(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Construct pool holding at most {@code maxSize} term IDs.
+   *
+   * @param maxSize Maximal number of pooled term IDs.
+   * @throws PhenolRuntimeException if {@code maxSize} is not positive.
+   */
+  public TermIdPool(int maxSize) {
+    if (maxSize <= 0) {
+      throw new PhenolRuntimeException("maxSize must be positive but was " + maxSize);
+    }
+    this.maxSize = maxSize;
+  }
+
+  /** @return Process-wide {@link TermIdPool}. */
+  public static TermIdPool global() {
+    return GLOBAL;
+  }
+
+  /**
+   * Return pooled {@link TermId} for a term ID string such as <code>HP:0000118</code>.
+   *
+   * @param termId String with the term ID, including prefix.
+   * @return The pooled {@link TermId}.
+   * @throws PhenolRuntimeException if the string is empty or does not have a prefix.
+   */
+  public TermId of(String termId) {
+    if (termId == null) {
+      throw new PhenolRuntimeException("termId cannot be null or empty");
+    }
+    return of(termId, 0, termId.length());
+  }
+
+  /**
+   * Return pooled {@link TermId} for the term ID in <code>seq[start, end)</code>.
+   *
+   * @param seq The {@link CharSequence} containing the term ID, e.g., a line of a file.
+   * @param start Start position of the term ID in {@code seq}.
+   * @param end End position of the term ID in {@code seq}.
+   * @return The pooled {@link TermId}.
+   * @throws PhenolRuntimeException if the slice is empty or does not have a prefix.
+   */
+  public TermId of(CharSequence seq, int start, int end) {
+    if (start >= end) {
+      throw new PhenolRuntimeException("termId cannot be null or empty");
+    }
+    int sep = -1;
+    for (int i = start; i < end; ++i) {
+      if (seq.charAt(i) == ':') {
+        sep = i;
+        break;
+      }
+    }
+    if (sep == -1) {
+      throw new PhenolRuntimeException(
+          "TermId construction error: '"
+              + seq.subSequence(start, end)
+              + "' does not have a prefix!");
+    }
+    return lookup(seq, start, sep, seq, sep + 1, end);
+  }
+
+  /**
+   * Return pooled {@link TermId} for the given prefix and local ID.
+   *
+   * @param prefix The prefix, e.g., <code>HP</code>.
+   * @param id The local ID, e.g., <code>0000118</code>.
+   * @return The pooled {@link TermId}.
+   * @throws PhenolRuntimeException if the prefix or local ID are empty.
+   */
+  public TermId of(String prefix, String id) {
+    if (prefix == null || prefix.isEmpty()) {
+      throw new PhenolRuntimeException("termPrefix cannot be null or empty");
+    }
+    if (id == null || id.isEmpty()) {
+      throw new PhenolRuntimeException("term id cannot be null or empty");
+    }
+    return lookup(prefix, 0, prefix.length(), id, 0, id.length());
+  }
+
+  /**
+   * @param termId The {@link TermId} to intern.
+   * @return The pooled {@link TermId} equal to {@code termId}, {@code termId} itself if it was not
+   *     pooled before.
+   */
+  public TermId intern(TermId termId) {
+    final String value = termId.getValue();
+    final int sep = value.indexOf(':');
+    final TermId result = find(value, 0, sep, value, sep + 1, value.length());
+    return (result != null) ? result : insert(termId);
+  }
+
+  /** @return Number of pooled {@link TermId}s. */
+  public int size() {
+    return packed.size + hashed.size;
+  }
+
+  /** @return Maximal number of pooled {@link TermId}s. */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  private TermId lookup(
+      CharSequence prefixSeq, int prefixStart, int prefixEnd,
+      CharSequence idSeq, int idStart, int idEnd) {
+    final TermId result = find(prefixSeq, prefixStart, prefixEnd, idSeq, idStart, idEnd);
+    if (result != null) {
+      return result;
+    }
+    final String value =
+        new StringBuilder(prefixEnd - prefixStart + 1 + idEnd - idStart)
+            .append(prefixSeq, prefixStart, prefixEnd)
+            .append(':')
+            .append(idSeq, idStart, idEnd)
+            .toString();
+    return insert(new TermId(prefixEnd - prefixStart, value));
+  }
+
+  /**
+   * Lookup without lock, <code>null</code> if not pooled or if racing with the insertion of the
+   * term ID; callers must then go through {@link #insert(TermId)}.
+   */
+  private TermId find(
+      CharSequence prefixSeq, int prefixStart, int prefixEnd,
+      CharSequence idSeq, int idStart, int idEnd) {
+    final long key = packKey(prefixSeq, prefixStart, prefixEnd, idSeq, idStart, idEnd);
+    if (key != 0) {
+      return packed.get(key);
+    }
+    int hash = 0;
+    for (int i = prefixStart; i < prefixEnd; ++i) {
+      hash = 31 * hash + prefixSeq.charAt(i);
+    }
+    hash = 31 * hash + ':';
+    for (int i = idStart; i < idEnd; ++i) {
+      hash = 31 * hash + idSeq.charAt(i);
+    }
+    return hashed.get(hash, prefixSeq, prefixStart, prefixEnd, idSeq, idStart, idEnd);
+  }
+
+  /**
+   * Insert {@code termId} unless an equal one has been inserted concurrently, or return it
+   * unpooled if the pool is full.
+   */
+  private synchronized TermId insert(TermId termId) {
+    final String value = termId.getValue();
+    final int sep = value.indexOf(':');
+    final TermId existing = find(value, 0, sep, value, sep + 1, value.length());
+    if (existing != null) {
+      return existing;
+    }
+    if (size() >= maxSize) {
+      return termId;
+    }
+    if (isPackable(value, sep + 1, value.length())) {
+      final int code = prefixCode(value, 0, sep);
+      if (code == -1) {
+        final String[] grown = Arrays.copyOf(prefixes, prefixes.length + 1);
+        grown[prefixes.length] = value.substring(0, sep);
+        prefixes = grown;
+      }
+    }
+    final long key = packKey(value, 0, sep, value, sep + 1, value.length());
+    if (key != 0) {
+      if (2 * (packed.size + 1) > packed.keys.length) {
+        packed = packed.grow();
+      }
+      packed.put(key, termId);
+    } else {
+      if (2 * (hashed.size + 1) > hashed.values.length) {
+        hashed = hashed.grow();
+      }
+      hashed.put(termId);
+    }
+    return termId;
+  }
+
+  /** @return Whether the local ID is numeric with at most {@link #MAX_PACKED_DIGITS} digits. */
+  private static boolean isPackable(CharSequence idSeq, int idStart, int idEnd) {
+    if (idEnd - idStart < 1 || idEnd - idStart > MAX_PACKED_DIGITS) {
+      return false;
+    }
+    for (int i = idStart; i < idEnd; ++i) {
+      final char c = idSeq.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return Code of the prefix in the dictionary, <code>-1</code> if not known. */
+  private int prefixCode(CharSequence seq, int start, int end) {
+    final String[] dict = prefixes;
+    final int len = end - start;
+    for (int code = 0; code < dict.length; ++code) {
+      final String prefix = dict[code];
+      if (prefix.length() == len && regionEquals(prefix, 0, seq, start, len)) {
+        return code;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Pack a term ID into a <code>long</code>: prefix code + 1 in bits 48-63, number of digits in bits
+   * 40-47, and numeric value in bits 0-39.
+   *
+   * @return Packed key, <code>0</code> if the term ID cannot be packed.
+   */
+  private long packKey(
+      CharSequence prefixSeq, int prefixStart, int prefixEnd,
+      CharSequence idSeq, int idStart, int idEnd) {
+    if (!isPackable(idSeq, idStart, idEnd)) {
+      return 0;
+    }
+    final int code = prefixCode(prefixSeq, prefixStart, prefixEnd);
+    if (code == -1 || code >= 0xFFFF) {
+      return 0;
+    }
+    long number = 0;
+    for (int i = idStart; i < idEnd; ++i) {
+      number = 10 * number + (idSeq.charAt(i) - '0');
+    }
+    return ((long) (code + 1) << 48) | ((long) (idEnd - idStart) << 40) | number;
+  }
+
+  private static boolean regionEquals(String s, int offset, CharSequence seq, int start, int len) {
+    for (int i = 0; i < len; ++i) {
+      if (s.charAt(offset + i) != seq.charAt(start + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Open addressing table from packed <code>long</code> key to {@link TermId}. */
+  private static final class PackedTable {
+    private final long[] keys;
+    private final TermId[] values;
+    private int size;
+
+    PackedTable(int capacity) {
+      this.keys = new long[capacity];
+      this.values = new TermId[capacity];
+    }
+
+    private static int slot(long key, int mask) {
+      return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    TermId get(long key) {
+      final int mask = keys.length - 1;
+      for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+        final long k = keys[i];
+        if (k == key) {
+          return values[i];
+        } else if (k == 0) {
+          return null;
+        }
+      }
+    }
+
+    void put(long key, TermId value) {
+      final int mask = keys.length - 1;
+      int i = slot(key, mask);
+      while (keys[i] != 0) {
+        i = (i + 1) & mask;
+      }
+      // Plain writes: a lock-free reader may still see the key before the value and read null,
+      // which makes it fall back to the synchronized insert(). A non-null value is safe to use, as
+      // the state of TermId is in final fields (the cached hash code is racy but idempotent).
+      values[i] = value;
+      keys[i] = key;
+      ++size;
+    }
+
+    PackedTable grow() {
+      final PackedTable result = new PackedTable(2 * keys.length);
+      for (int i = 0; i < keys.length; ++i) {
+        if (keys[i] != 0) {
+          result.put(keys[i], values[i]);
+        }
+      }
+      return result;
+    }
+  }
+
+  /** Open addressing table of {@link TermId}s, by hash of their value. */
+  private static final class HashedTable {
+    private final TermId[] values;
+    private int size;
+
+    HashedTable(int capacity) {
+      this.values = new TermId[capacity];
+    }
+
+    private static int slot(int hash, int mask) {
+      return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    TermId get(
+        int hash,
+        CharSequence prefixSeq, int prefixStart, int prefixEnd,
+        CharSequence idSeq, int idStart, int idEnd) {
+      final int mask = values.length - 1;
+      final int prefixLen = prefixEnd - prefixStart;
+      final int len = prefixLen + 1 + idEnd - idStart;
+      for (int i = slot(hash, mask); ; i = (i + 1) & mask) {
+        final TermId candidate = values[i];
+        if (candidate == null) {
+          return null;
+        }
+        final String value = candidate.getValue();
+        if (value.hashCode() == hash
+            && value.length() == len
+            && value.charAt(prefixLen) == ':'
+            && regionEquals(value, 0, prefixSeq, prefixStart, prefixLen)
+            && regionEquals(value, prefixLen + 1, idSeq, idStart, idEnd - idStart)) {
+          return candidate;
+        }
+      }
+    }
+
+    void put(TermId value) {
+      final int mask = values.length - 1;
+      int i = slot(value.getValue().hashCode(), mask);
+      while (values[i] != null) {
+        i = (i + 1) & mask;
+      }
+      values[i] = value;
+      ++size;
+    }
+
+    HashedTable grow() {
+      final HashedTable result = new HashedTable(2 * values.length);
+      for (TermId value : values) {
+        if (value != null) {
+          result.put(value);
+        }
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package org.monarchinitiative.phenol.ontology.scoredist;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.similarity.BestMatchAverageSimilarity;
+import org.monarchinitiative.phenol.ontology.similarity.IndexedPairwiseSimilarity;
+import org.monarchinitiative.phenol.ontology.similarity.PairwiseSimilarity;
+
+/**
+ * Best-match-average score of a growing query against a fixed target, updated term by term.
+ *
+ * <p>Adding a query term <code>q</code> computes the scores of <code>q</code> against all target
+ * terms once; the best match of <code>q</code> is added to the sum of row maxima and, for the
+ * symmetric score, the best matches of the target terms (column maxima) are updated. {@link
+ * #score()} then equals {@link BestMatchAverageSimilarity#computeScore(Collection, Collection)} of
+ * the query terms added since the last {@link #reset()}, such that the scores of all prefixes of a
+ * query cost as much as the score of the full query.
+ *
+ * <p>Not thread-safe; use one instance per thread.
+ */
+final class IncrementalBestMatchScore {
+
+  /** Pairwise term similarity computation. */
+  private final PairwiseSimilarity pairwise;
+
+  /** {@link #pairwise} if it supports term indices, <code>null</code> otherwise. */
+  private final IndexedPairwiseSimilarity indexed;
+
+  /** Whether to compute the symmetric score. */
+  private final boolean symmetric;
+
+  /** The target terms. */
+  private final TermId[] targetIds;
+
+  /** Term indices of the targets if all are known, <code>null</code> otherwise. */
+  private final int[] targets;
+
+  /** Scores of the current query term against the targets. */
+  private final double[] row;
+
+  /** Best score of each target term against the query terms so far. */
+  private final double[] colMax;
+
+  /** Sum of the best scores of the query terms so far. */
+  private double rowSum;
+
+  /** Number of query terms so far. */
+  private int numQueryTerms;
+
+  /**
+   * Constructor.
+   *
+   * @param similarity The {@link BestMatchAverageSimilarity} to reproduce.
+   * @param target The target terms.
+   */
+  IncrementalBestMatchScore(BestMatchAverageSimilarity similarity, Collection<TermId> target) {
+    this.pairwise = similarity.getPairwiseSimilarity();
+    this.indexed =
+        (pairwise instanceof IndexedPairwiseSimilarity)
+            ? (IndexedPairwiseSimilarity) pairwise
+            : null;
+    this.symmetric = similarity.isSymmetric();
+    this.targetIds = target.toArray(new TermId[0]);
+    this.targets = (indexed == null) ? null : resolve(indexed.getClosureIndex(), targetIds);
+    this.row = new double[targetIds.length];
+    this.colMax = new double[targetIds.length];
+  }
+
+  /** @return Term indices of {@code termIds}, <code>null</code> if any is unknown. */
+  private static int[] resolve(TermClosureIndex closureIndex, TermId[] termIds) {
+    final int[] result = new int[termIds.length];
+    for (int i = 0; i < termIds.length; ++i) {
+      result[i] = closureIndex.getIndex(termIds[i]);
+      if (result[i] == -1) {
+        return null;
+      }
+    }
+    return result;
+  }
+
+  /** Start over with an empty query. */
+  void reset() {
+    Arrays.fill(colMax, 0.0);
+    rowSum = 0;
+    numQueryTerms = 0;
+  }
+
+  /**
+   * Add a term to the query.
+   *
+   * @param queryId The query term to add.
+   */
+  void add(TermId queryId) {
+    final int query = (targets == null) ? -1 : indexed.getClosureIndex().getIndex(queryId);
+    if (query != -1) {
+      indexed.computeScores(query, targets, row);
+    } else {
+      for (int j = 0; j < targetIds.length; ++j) {
+        row[j] = pairwise.computeScore(queryId, targetIds[j]);
+      }
+    }
+
+    double rowMax = 0.0;
+    for (int j = 0; j < row.length; ++j) {
+      rowMax = Math.max(rowMax, row[j]);
+    }
+    rowSum += rowMax;
+    ++numQueryTerms;
+
+    if (symmetric) {
+      if (!pairwise.isSymmetric()) {
+        for (int j = 0; j < targetIds.length; ++j) {
+          row[j] = pairwise.computeScore(targetIds[j], queryId);
+        }
+      }
+      for (int j = 0; j < row.length; ++j) {
+        colMax[j] = Math.max(colMax[j], row[j]);
+      }
+    }
+  }
+
+  /** @return Score of the query terms added so far against the target. */
+  double score() {
+    if (!symmetric) {
+      return rowSum / numQueryTerms;
+    }
+    double colSum = 0;
+    for (int j = 0; j < colMax.length; ++j) {
+      colSum += colMax[j];
+    }
+    return 0.5 * (rowSum / numQueryTerms + colSum / colMax.length);
+  }
+}
@@ -7,16 +7,25 @@ import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+
 /**
  * Precomputed score distribution for a fixed number of terms and one world object Ids.
  *
+ * <p>The distribution is stored as parallel arrays of ascending scores and their cumulative
+ * frequencies, such that {@link #estimatePValue(double)} is a binary search. Use {@link
+ * #estimatePValues(double[])} for looking up many scores at once.
+ *
+ * <p>Alternatively, the distribution is a fitted {@link ScoreDistributionModel} (see {@link
+ * ScoreDistributionFitter}); then, no scores are stored and p values are computed in closed form.
+ *
  * @author <a href="mailto:manuel.holtgrewe@bihealth.de">Manuel Holtgrewe</a>
  * @author <a href="mailto:sebastian.koehler@charite.de">Sebastian Koehler</a>
  */
 public final class ObjectScoreDistribution implements Serializable {
 
   /** Serial UId for serialization. */
-  private static final long serialVersionUID = 1L;
+  private static final long serialVersionUID = 3L;
 
   /** "World object" identifier. */
   private final int objectId;
@@ -27,9 +36,14 @@ public final class ObjectScoreDistribution implements Serializable {
   /** Number of iterations for sampling. */
   private final int sampleSize;
 
-  // TODO: maybe better replace by arrays?
-  /** Cumulative frequencies for the score. */
-  private final SortedMap<Double, Double> cumulativeFrequencies;
+  /** Observed scores, strictly ascending. */
+  private final double[] scores;
+
+  /** Cumulative frequencies, parallel to {@link #scores}. */
+  private final double[] cumulativeFrequencies;
+
+  /** The fitted model, <code>null</code> for empirical distributions. */
+  private final ScoreDistributionModel model;
 
   /**
    * Construct score distribution for a given number of terms, sample size, and cumulative
@@ -45,40 +59,154 @@ public final class ObjectScoreDistribution implements Serializable {
     this.objectId = objectId;
     this.numTerms = numTerms;
     this.sampleSize = sampleSize;
+    this.scores = new double[cumulativeFrequencies.size()];
+    this.cumulativeFrequencies = new double[cumulativeFrequencies.size()];
+    int i = 0;
+    for (Entry<Double, Double> entry : cumulativeFrequencies.entrySet()) {
+      this.scores[i] = entry.getKey();
+      this.cumulativeFrequencies[i++] = entry.getValue();
+    }
+    this.model = null;
+  }
+
+  /**
+   * Construct score distribution from arrays.
+   *
+   * @param objectId "World object" identifier.
+   * @param numTerms Number of terms used in precomputation.
+   * @param sampleSize Sample size used for precomputation.
+   * @param scores Observed scores, strictly ascending; not copied.
+   * @param cumulativeFrequencies Cumulative frequencies, parallel to {@code scores}; not copied.
+   * @throws PhenolRuntimeException if the arrays differ in length or scores are not ascending.
+   */
+  public ObjectScoreDistribution(
+      int objectId, int numTerms, int sampleSize, double[] scores, double[] cumulativeFrequencies) {
+    if (scores.length != cumulativeFrequencies.length) {
+      throw new PhenolRuntimeException(
+          "Got " + scores.length + " scores but " + cumulativeFrequencies.length + " frequencies");
+    }
+    for (int i = 1; i < scores.length; ++i) {
+      if (!(scores[i - 1] < scores[i])) {
+        throw new PhenolRuntimeException("Scores must be strictly ascending at position " + i);
+      }
+    }
+    this.objectId = objectId;
+    this.numTerms = numTerms;
+    this.sampleSize = sampleSize;
+    this.scores = scores;
     this.cumulativeFrequencies = cumulativeFrequencies;
+    this.model = null;
+  }
+
+  /**
+   * Construct fitted score distribution.
+   *
+   * @param objectId "World object" identifier.
+   * @param numTerms Number of terms used in precomputation.
+   * @param sampleSize Sample size the model was fitted to.
+   * @param model The fitted {@link ScoreDistributionModel}.
+   */
+  public ObjectScoreDistribution(
+      int objectId, int numTerms, int sampleSize, ScoreDistributionModel model) {
+    this.objectId = objectId;
+    this.numTerms = numTerms;
+    this.sampleSize = sampleSize;
+    this.scores = new double[0];
+    this.cumulativeFrequencies = new double[0];
+    this.model = model;
   }
 
   /**
    * Estimate p value from the given score.
    *
+   * <p>Scores up to the smallest observed score have a p value of 1, scores from the largest
+   * observed score on have a p value of 0. In between, the cumulative frequencies of the
+   * neighboring observed scores are interpolated. For fitted distributions, this is {@link
+   * ScoreDistributionModel#pValue(double)}.
+   *
    * @param score The score to estimate p value for
    * @return Empirically estimated p value.
    */
   public double estimatePValue(double score) {
-    Entry<Double, Double> previous = null;
-    for (Entry<Double, Double> entry : cumulativeFrequencies.entrySet()) {
-      if (previous == null && score <= entry.getKey()) {
-        return 1.0; // smaller than all
-      }
-      if (previous != null && previous.getKey() <= score && score < entry.getKey()) {
-        // interpolate and return
-        final double dx = (entry.getKey() - previous.getKey()) / 2.0;
-        return 1 - (previous.getValue() + dx * (entry.getValue() - previous.getValue()));
+    if (model != null) {
+      return model.pValue(score);
+    }
+    if (scores.length > 0 && score <= scores[0]) {
+      return 1.0; // smaller than all
+    }
+    // Find first observed score greater than score, the previous one is at most score.
+    int lo = 0;
+    int hi = scores.length;
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      if (scores[mid] > score) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
       }
-      previous = entry;
     }
-    // If we reach here, p value is 0.0
-    return 0.0;
+    if (lo == scores.length) {
+      // If we reach here, p value is 0.0
+      return 0.0;
+    }
+    // interpolate and return
+    final double dx = (scores[lo] - scores[lo - 1]) / 2.0;
+    return 1
+        - (cumulativeFrequencies[lo - 1]
+            + dx * (cumulativeFrequencies[lo] - cumulativeFrequencies[lo - 1]));
   }
 
-  /** @return List of copy of observed scores, sorted ascendingly. */
+  /**
+   * Estimate p values for many scores.
+   *
+   * @param scores The scores to estimate p values for.
+   * @return Empirically estimated p values, parallel to {@code scores}, see {@link
+   *     #estimatePValue(double)}.
+   */
+  public double[] estimatePValues(double[] scores) {
+    final double[] result = new double[scores.length];
+    for (int i = 0; i < scores.length; ++i) {
+      result[i] = estimatePValue(scores[i]);
+    }
+    return result;
+  }
+
+  /** @return Whether this is a fitted distribution, see {@link #getModel()}. */
+  public boolean isFitted() {
+    return model != null;
+  }
+
+  /** @return The fitted {@link ScoreDistributionModel}, <code>null</code> if empirical. */
+  public ScoreDistributionModel getModel() {
+    return model;
+  }
+
+  /** @return List of copy of observed scores, sorted ascendingly, empty if fitted. */
   public List<Double> observedScores() {
-    return new ArrayList<>(cumulativeFrequencies.keySet());
+    final List<Double> result = new ArrayList<>(scores.length);
+    for (double score : scores) {
+      result.add(score);
+    }
+    return result;
+  }
+
+  /** @return Copy of the observed scores, sorted ascendingly. */
+  public double[] getScores() {
+    return scores.clone();
+  }
+
+  /** @return Copy of the cumulative frequencies, parallel to {@link #getScores()}. */
+  public double[] getCumulativeFrequencyArray() {
+    return cumulativeFrequencies.clone();
   }
 
   /** @return Copy of the score distribution. */
   public SortedMap<Double, Double> getCumulativeFrequencies() {
-    return new TreeMap<>(cumulativeFrequencies);
+    final TreeMap<Double, Double> result = new TreeMap<>();
+    for (int i = 0; i < scores.length; ++i) {
+      result.put(scores[i], cumulativeFrequencies[i]);
+    }
+    return result;
   }
 
   /** @return The world object Id for which the score has been precomputed. */
@@ -104,8 +232,9 @@ public final class ObjectScoreDistribution implements Serializable {
         + numTerms
         + ", sampleSize="
         + sampleSize
-        + ", cumulativeFrequencies="
-        + cumulativeFrequencies
+        + ((model == null)
+            ? ", cumulativeFrequencies=" + getCumulativeFrequencies()
+            : ", model=" + model)
         + "]";
   }
 }
@@ -0,0 +1,376 @@
+package org.monarchinitiative.phenol.ontology.scoredist;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.monarchinitiative.phenol.ser.SerializationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only checkpoint file of completed {@link ObjectScoreDistribution}s.
+ *
+ * <p>{@link SimilarityScoreSampling#performSampling(Map, ScoreDistributionCheckpoint)} appends each
+ * distribution as soon as it is complete and skips the <code>(numTerms, objectId)</code> pairs that
+ * are already in the checkpoint. As sampling is seeded per object, a resumed run yields the same
+ * distributions as an uninterrupted one.
+ *
+ * <h5>File Format</h5>
+ *
+ * <p>The file starts with the magic bytes <code>PHNLCP</code>, the format version as <code>int
+ * </code>, and the {@link ScoreSamplingOptions#getSamplingFingerprint()} (modified UTF-8) of the
+ * run that created it; resuming with different options is rejected. Each record is the payload
+ * length as <code>int</code>, the payload, and the CRC32 of the payload as <code>long</code>, all
+ * big endian. The payload holds the term count, object ID, and sample size as <code>int</code>s,
+ * followed by either <code>0</code>, the number of points and the score and cumulative frequency
+ * of each point as <code>double</code>s (empirical), or <code>1</code>, the family name (modified
+ * UTF-8) and the location, scale, shape, and Kolmogorov-Smirnov distance as <code>double</code>s
+ * (fitted).
+ *
+ * <p>Each record is flushed to the file on {@link #append(ObjectScoreDistribution)}, such that it
+ * survives a crash of the process. Syncing to disk is batched: every {@link #SYNC_RECORDS} records
+ * or {@link #SYNC_INTERVAL_NANOS} nanoseconds, and on {@link #close()}. A record that was torn by a
+ * crash fails its length or checksum check; on resume, it is dropped and the file is truncated to
+ * the last complete record.
+ */
+public final class ScoreDistributionCheckpoint implements Closeable {
+
+  /** {@link Logger} object to use. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(ScoreDistributionCheckpoint.class);
+
+  /** Magic bytes at the beginning of the file. */
+  private static final byte[] MAGIC_BYTES = {'P', 'H', 'N', 'L', 'C', 'P'};
+
+  /** Current file format version. */
+  private static final int VERSION = 2;
+
+  /** Number of appended records after which to sync to disk. */
+  static final int SYNC_RECORDS = 64;
+
+  /** Time after which to sync appended records to disk. */
+  static final long SYNC_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+  /** Record kind of empirical distributions. */
+  private static final byte KIND_EMPIRICAL = 0;
+
+  /** Record kind of fitted distributions. */
+  private static final byte KIND_FITTED = 1;
+
+  /** The checkpoint file. */
+  private final File file;
+
+  /** Completed distributions, by term count and object ID. */
+  private final Map<Integer, Map<Integer, ObjectScoreDistribution>> completed;
+
+  /** The file to append to. */
+  private final FileOutputStream fileOut;
+
+  /** Buffered stream on {@link #fileOut}. */
+  private final DataOutputStream out;
+
+  /** Number of records appended since the last sync. */
+  private int unsyncedRecords = 0;
+
+  /** Time of the last sync, see {@link System#nanoTime()}. */
+  private long lastSyncNanos = System.nanoTime();
+
+  private ScoreDistributionCheckpoint(
+      File file, Map<Integer, Map<Integer, ObjectScoreDistribution>> completed)
+      throws IOException {
+    this.file = file;
+    this.completed = completed;
+    this.fileOut = new FileOutputStream(file, true);
+    this.out = new DataOutputStream(new BufferedOutputStream(fileOut));
+  }
+
+  /**
+   * Open a checkpoint file.
+   *
+   * @param file The checkpoint file.
+   * @param options The {@link ScoreSamplingOptions} of the run.
+   * @param resume Whether to keep the distributions in an existing file; otherwise, the file is
+   *     overwritten.
+   * @return The opened {@link ScoreDistributionCheckpoint}.
+   * @throws SerializationException On problems reading or creating the file, an invalid file, or a
+   *     file written with different sampling options.
+   */
+  public static ScoreDistributionCheckpoint open(
+      File file, ScoreSamplingOptions options, boolean resume) throws SerializationException {
+    final Map<Integer, Map<Integer, ObjectScoreDistribution>> completed = new TreeMap<>();
+    final String fingerprint = options.getSamplingFingerprint();
+    try {
+      if (resume && file.exists() && file.length() > 0) {
+        final long validLength = readRecords(file, fingerprint, completed);
+        if (validLength < file.length()) {
+          LOGGER.warn(
+              "Dropping {} bytes of incomplete record at end of checkpoint {}",
+              file.length() - validLength,
+              file);
+          try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(validLength);
+          }
+        }
+        LOGGER.info("Resuming from {} distributions in checkpoint {}", count(completed), file);
+      } else {
+        try (FileOutputStream header = new FileOutputStream(file)) {
+          header.write(header(fingerprint));
+        }
+      }
+      return new ScoreDistributionCheckpoint(file, completed);
+    } catch (IOException e) {
+      throw new SerializationException("Problem opening checkpoint " + file, e);
+    }
+  }
+
+  /**
+   * Read all complete records of {@code file} into {@code completed}.
+   *
+   * @param fingerprint The expected {@link ScoreSamplingOptions#getSamplingFingerprint()}.
+   * @return Length of the valid prefix of the file.
+   */
+  private static long readRecords(
+      File file, String fingerprint, Map<Integer, Map<Integer, ObjectScoreDistribution>> completed)
+      throws IOException, SerializationException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      final byte[] magic = new byte[MAGIC_BYTES.length];
+      final int version;
+      final String fileFingerprint;
+      try {
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC_BYTES)) {
+          throw new SerializationException("Invalid magic bytes in checkpoint " + file);
+        }
+        version = in.readInt();
+        if (version != VERSION) {
+          throw new SerializationException(
+              "Unsupported checkpoint version " + version + " in " + file);
+        }
+        fileFingerprint = in.readUTF();
+      } catch (EOFException | UTFDataFormatException e) {
+        throw new SerializationException("Truncated header in checkpoint " + file, e);
+      }
+      if (!fileFingerprint.equals(fingerprint)) {
+        throw new SerializationException(
+            "Checkpoint "
+                + file
+                + " was written with different sampling options: "
+                + fileFingerprint
+                + " instead of "
+                + fingerprint);
+      }
+
+      long validLength = header(fileFingerprint).length;
+      final CRC32 crc = new CRC32();
+      while (true) {
+        final byte[] payload;
+        try {
+          final int length = in.readInt();
+          if (length <= 0 || length > file.length() - validLength) {
+            return validLength;
+          }
+          payload = new byte[length];
+          in.readFully(payload);
+          crc.reset();
+          crc.update(payload);
+          if (in.readLong() != crc.getValue()) {
+            return validLength;
+          }
+        } catch (EOFException e) {
+          return validLength;
+        }
+        final ObjectScoreDistribution dist = decode(payload);
+        completed.computeIfAbsent(dist.getNumTerms(), k -> new TreeMap<>())
+            .putIfAbsent(dist.getObjectId(), dist);
+        validLength += 4 + payload.length + 8;
+      }
+    }
+  }
+
+  /** @return The file header for {@code fingerprint}. */
+  private static byte[] header(String fingerprint) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream header = new DataOutputStream(bytes)) {
+      header.write(MAGIC_BYTES);
+      header.writeInt(VERSION);
+      header.writeUTF(fingerprint);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static int count(Map<Integer, Map<Integer, ObjectScoreDistribution>> completed) {
+    int result = 0;
+    for (Map<Integer, ObjectScoreDistribution> dists : completed.values()) {
+      result += dists.size();
+    }
+    return result;
+  }
+
+  /** @return Record payload of {@code dist}. */
+  private static byte[] encode(ObjectScoreDistribution dist) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream payload = new DataOutputStream(bytes)) {
+      payload.writeInt(dist.getNumTerms());
+      payload.writeInt(dist.getObjectId());
+      payload.writeInt(dist.getSampleSize());
+      if (dist.isFitted()) {
+        final ScoreDistributionModel model = dist.getModel();
+        payload.writeByte(KIND_FITTED);
+        payload.writeUTF(model.getFamily().name());
+        payload.writeDouble(model.getLocation());
+        payload.writeDouble(model.getScale());
+        payload.writeDouble(model.getShape());
+        payload.writeDouble(model.getKsDistance());
+      } else {
+        final double[] scores = dist.getScores();
+        final double[] cumFreqs = dist.getCumulativeFrequencyArray();
+        payload.writeByte(KIND_EMPIRICAL);
+        payload.writeInt(scores.length);
+        for (int i = 0; i < scores.length; ++i) {
+          payload.writeDouble(scores[i]);
+          payload.writeDouble(cumFreqs[i]);
+        }
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /** @return Distribution decoded from a record payload with valid checksum. */
+  private static ObjectScoreDistribution decode(byte[] payload)
+      throws IOException, SerializationException {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+      final int numTerms = in.readInt();
+      final int objectId = in.readInt();
+      final int sampleSize = in.readInt();
+      final byte kind = in.readByte();
+      if (kind == KIND_FITTED) {
+        final ScoreDistributionModel.Family family =
+            ScoreDistributionModel.Family.valueOf(in.readUTF());
+        return new ObjectScoreDistribution(
+            objectId,
+            numTerms,
+            sampleSize,
+            new ScoreDistributionModel(
+                family, in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble()));
+      } else if (kind == KIND_EMPIRICAL) {
+        final int count = in.readInt();
+        final double[] scores = new double[count];
+        final double[] cumFreqs = new double[count];
+        for (int i = 0; i < count; ++i) {
+          scores[i] = in.readDouble();
+          cumFreqs[i] = in.readDouble();
+        }
+        return new ObjectScoreDistribution(objectId, numTerms, sampleSize, scores, cumFreqs);
+      } else {
+        throw new SerializationException("Invalid checkpoint record kind " + kind);
+      }
+    }
+  }
+
+  /**
+   * @param numTerms Number of terms.
+   * @param objectId "World object" Id.
+   * @return Whether the distribution is in the checkpoint.
+   */
+  public synchronized boolean contains(int numTerms, int objectId) {
+    return get(numTerms, objectId) != null;
+  }
+
+  /**
+   * @param numTerms Number of terms.
+   * @param objectId "World object" Id.
+   * @return The checkpointed distribution, <code>null</code> if there is none.
+   */
+  public synchronized ObjectScoreDistribution get(int numTerms, int objectId) {
+    final Map<Integer, ObjectScoreDistribution> dists = completed.get(numTerms);
+    return (dists == null) ? null : dists.get(objectId);
+  }
+
+  /** @return Number of distributions in the checkpoint. */
+  public synchronized int size() {
+    return count(completed);
+  }
+
+  /**
+   * Append a completed distribution, unless one for the same term count and object is already in
+   * the checkpoint; the record is flushed to the file before returning, and synced to disk in
+   * batches.
+   *
+   * @param dist The completed {@link ObjectScoreDistribution}.
+   * @throws SerializationException On problems writing to the file.
+   */
+  public synchronized void append(ObjectScoreDistribution dist) throws SerializationException {
+    if (contains(dist.getNumTerms(), dist.getObjectId())) {
+      return;
+    }
+    try {
+      final byte[] payload = encode(dist);
+      final CRC32 crc = new CRC32();
+      crc.update(payload);
+      out.writeInt(payload.length);
+      out.write(payload);
+      out.writeLong(crc.getValue());
+      out.flush();
+      ++unsyncedRecords;
+      if (unsyncedRecords >= SYNC_RECORDS
+          || System.nanoTime() - lastSyncNanos >= SYNC_INTERVAL_NANOS) {
+        sync();
+      }
+    } catch (IOException e) {
+      throw new SerializationException("Problem appending to checkpoint " + file, e);
+    }
+    completed.computeIfAbsent(dist.getNumTerms(), k -> new TreeMap<>())
+        .put(dist.getObjectId(), dist);
+  }
+
+  /**
+   * Assemble all checkpointed distributions.
+   *
+   * @return {@link Map} from term count to {@link ScoreDistribution} of all checkpointed objects.
+   */
+  public synchronized Map<Integer, ScoreDistribution> toScoreDistributions() {
+    final Map<Integer, ScoreDistribution> result = new HashMap<>();
+    for (Map.Entry<Integer, Map<Integer, ObjectScoreDistribution>> e : completed.entrySet()) {
+      result.put(e.getKey(), new ScoreDistribution(e.getKey(), new HashMap<>(e.getValue())));
+    }
+    return result;
+  }
+
+  /** Sync the appended records to disk. */
+  private void sync() throws IOException {
+    fileOut.getFD().sync();
+    unsyncedRecords = 0;
+    lastSyncNanos = System.nanoTime();
+  }
+
+  /** Flush and sync the appended records to disk, and close the file. */
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      out.flush();
+      if (unsyncedRecords > 0) {
+        sync();
+      }
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,308 @@
+package org.monarchinitiative.phenol.ontology.scoredist;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreDistributionModel.Family;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fitting of {@link ScoreDistributionModel}s to empirical {@link ObjectScoreDistribution}s.
+ *
+ * <p>The parameters are estimated in closed form from the sampled scores, reconstructed from the
+ * cumulative frequencies and the sample size:
+ *
+ * <ul>
+ *   <li>{@link Family#GAMMA} by the method of moments, i.e., from mean, variance, and skewness;
+ *       this requires a positive skew.
+ *   <li>{@link Family#GEV} by probability-weighted moments with Hosking's approximation of the
+ *       shape from the L-skewness.
+ * </ul>
+ *
+ * <p>As goodness-of-fit diagnostic, the Kolmogorov-Smirnov distance between the fitted and the
+ * empirical cumulative distribution is computed, allowing for the rounding of sampled scores to
+ * three decimal places. As the distance is dominated by the bulk of the distribution, it does not
+ * bound the error of small p values. Therefore, the survival function of the model is also
+ * compared to the empirical one in the upper tail, at all observed scores exceeded by at most
+ * {@link #TAIL_FRACTION} but at least {@link #MIN_TAIL_COUNT} samples, and the largest ratio
+ * between both (in either direction) is the tail diagnostic.
+ *
+ * <p>If no model can be fitted, the distance is larger than {@code maxKsDistance}, or the tail
+ * ratio is larger than {@code maxTailRatio}, the empirical distribution is kept; this is typically
+ * the case for distributions with a large point mass, e.g., at score 0, or with a heavier tail than
+ * the model family.
+ */
+public final class ScoreDistributionFitter {
+
+  /** {@link Logger} object to use. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(ScoreDistributionFitter.class);
+
+  /** Smallest number of samples to fit to. */
+  private static final int MIN_SAMPLE_SIZE = 30;
+
+  /** Half of the rounding step of sampled scores, see {@link ScoreHistogram}. */
+  private static final double HALF_STEP = 0.0005;
+
+  /** Largest empirical p value at which the tail diagnostic is evaluated. */
+  static final double TAIL_FRACTION = 0.05;
+
+  /**
+   * Smallest number of samples above a score for evaluating the tail diagnostic there; below, the
+   * empirical p value itself is too noisy.
+   */
+  static final int MIN_TAIL_COUNT = 50;
+
+  /** Default for the largest accepted tail ratio. */
+  public static final double DEFAULT_MAX_TAIL_RATIO = 2.0;
+
+  /** Euler-Mascheroni constant, for the Gumbel fit. */
+  private static final double EULER_GAMMA = 0.5772156649015329;
+
+  /** The family to fit. */
+  private final Family family;
+
+  /** Largest Kolmogorov-Smirnov distance at which a fit is accepted. */
+  private final double maxKsDistance;
+
+  /** Largest ratio of fitted and empirical p values in the upper tail at which a fit is accepted. */
+  private final double maxTailRatio;
+
+  /**
+   * Constructor.
+   *
+   * @param family The {@link Family} to fit.
+   * @param maxKsDistance Largest Kolmogorov-Smirnov distance to the empirical distribution at which
+   *     the fit is accepted, e.g., <code>0.02</code>.
+   * @param maxTailRatio Largest ratio between fitted and empirical p values in the upper tail at
+   *     which the fit is accepted, at least <code>1</code>, see {@link #tailRatio}.
+   */
+  public ScoreDistributionFitter(Family family, double maxKsDistance, double maxTailRatio) {
+    this.family = family;
+    this.maxKsDistance = maxKsDistance;
+    this.maxTailRatio = maxTailRatio;
+  }
+
+  /**
+   * Constructor, accepting fits with a tail ratio of at most {@link #DEFAULT_MAX_TAIL_RATIO}.
+   *
+   * @param family The {@link Family} to fit.
+   * @param maxKsDistance Largest Kolmogorov-Smirnov distance to the empirical distribution at which
+   *     the fit is accepted, e.g., <code>0.02</code>.
+   */
+  public ScoreDistributionFitter(Family family, double maxKsDistance) {
+    this(family, maxKsDistance, DEFAULT_MAX_TAIL_RATIO);
+  }
+
+  /**
+   * Fit all object score distributions of {@code dist}.
+   *
+   * @param dist The empirical {@link ScoreDistribution}.
+   * @return {@link ScoreDistribution} with fitted object distributions where the fit is accepted
+   *     and the original ones otherwise.
+   */
+  public ScoreDistribution fit(ScoreDistribution dist) {
+    final Map<Integer, ObjectScoreDistribution> result = new HashMap<>();
+    int numFitted = 0;
+    for (int objectId : dist.getObjectIds()) {
+      final ObjectScoreDistribution fitted = fit(dist.getObjectScoreDistribution(objectId));
+      if (fitted.isFitted()) {
+        ++numFitted;
+      }
+      result.put(objectId, fitted);
+    }
+    LOGGER.info(
+        "Fitted {} of {} distributions for {} terms, kept the others empirical.",
+        new Object[] {numFitted, result.size(), dist.getNumTerms()});
+    return new ScoreDistribution(dist.getNumTerms(), result);
+  }
+
+  /**
+   * Fit an object score distribution.
+   *
+   * @param dist The empirical {@link ObjectScoreDistribution}.
+   * @return Fitted {@link ObjectScoreDistribution} if the fit is accepted, {@code dist} otherwise.
+   */
+  public ObjectScoreDistribution fit(ObjectScoreDistribution dist) {
+    if (dist.isFitted()) {
+      return dist;
+    }
+    final ScoreDistributionModel model = fitModel(dist);
+    if (model == null
+        || !(model.getKsDistance() <= maxKsDistance)
+        || !(tailRatio(model, dist) <= maxTailRatio)) {
+      return dist;
+    }
+    return new ObjectScoreDistribution(
+        dist.getObjectId(), dist.getNumTerms(), dist.getSampleSize(), model);
+  }
+
+  /**
+   * Fit the model to an empirical distribution, regardless of the goodness of fit.
+   *
+   * @param dist The empirical {@link ObjectScoreDistribution}.
+   * @return The fitted {@link ScoreDistributionModel} with its Kolmogorov-Smirnov distance, or
+   *     <code>null</code> if the parameters cannot be estimated.
+   */
+  public ScoreDistributionModel fitModel(ObjectScoreDistribution dist) {
+    final double[] scores = dist.getScores();
+    final double[] cumFreqs = dist.getCumulativeFrequencyArray();
+    final long n = dist.getSampleSize();
+    if (n < MIN_SAMPLE_SIZE) {
+      return null;
+    }
+    // Reconstruct the counts of the sampled scores.
+    final long[] counts = new long[scores.length];
+    for (int i = 0; i < scores.length; ++i) {
+      counts[i] = Math.round((cumFreqs[i] - ((i == 0) ? 0.0 : cumFreqs[i - 1])) * n);
+    }
+
+    final double[] params =
+        (family == Family.GAMMA) ? fitGamma(scores, counts, n) : fitGev(scores, counts, n);
+    if (params == null) {
+      return null;
+    }
+    final ScoreDistributionModel unchecked =
+        new ScoreDistributionModel(family, params[0], params[1], params[2], Double.NaN);
+    return new ScoreDistributionModel(
+        family, params[0], params[1], params[2], ksDistance(unchecked, scores, cumFreqs));
+  }
+
+  /**
+   * Compute the tail diagnostic of {@code model} for an empirical distribution.
+   *
+   * <p>At each observed score exceeded by at most {@link #TAIL_FRACTION} but at least {@link
+   * #MIN_TAIL_COUNT} samples, the p value of the model is compared to the empirical one, both just
+   * above the rounding interval of the score.
+   *
+   * @param model The fitted {@link ScoreDistributionModel}.
+   * @param dist The empirical {@link ObjectScoreDistribution} it was fitted to.
+   * @return Largest ratio of the larger to the smaller p value, <code>1</code> if there are not
+   *     enough samples in the tail, infinite if the model has no mass where samples were observed.
+   */
+  public static double tailRatio(ScoreDistributionModel model, ObjectScoreDistribution dist) {
+    final double[] scores = dist.getScores();
+    final double[] cumFreqs = dist.getCumulativeFrequencyArray();
+    final double minTail = (double) MIN_TAIL_COUNT / dist.getSampleSize();
+    double result = 1.0;
+    for (int i = scores.length - 1; i >= 0; --i) {
+      final double empirical = 1.0 - cumFreqs[i];
+      if (empirical < minTail) {
+        continue;
+      }
+      if (empirical > TAIL_FRACTION) {
+        break;
+      }
+      final double fitted = model.pValue(scores[i] + HALF_STEP);
+      if (!(fitted > 0)) {
+        return Double.POSITIVE_INFINITY;
+      }
+      result = Math.max(result, Math.max(fitted / empirical, empirical / fitted));
+    }
+    return result;
+  }
+
+  /** @return Location, scale, and shape of the gamma fit, <code>null</code> if impossible. */
+  private static double[] fitGamma(double[] scores, long[] counts, long n) {
+    double mean = 0;
+    for (int i = 0; i < scores.length; ++i) {
+      mean += counts[i] * scores[i];
+    }
+    mean /= n;
+    double m2 = 0;
+    double m3 = 0;
+    for (int i = 0; i < scores.length; ++i) {
+      final double d = scores[i] - mean;
+      m2 += counts[i] * d * d;
+      m3 += counts[i] * d * d * d;
+    }
+    m2 /= n;
+    m3 /= n;
+    if (!(m2 > 0)) {
+      return null;
+    }
+    final double skewness = m3 / Math.pow(m2, 1.5);
+    if (!(skewness > 0)) {
+      return null;
+    }
+    final double shape = 4 / (skewness * skewness);
+    final double scale = Math.sqrt(m2) * skewness / 2;
+    return new double[] {mean - shape * scale, scale, shape};
+  }
+
+  /** @return Location, scale, and shape of the GEV fit, <code>null</code> if impossible. */
+  private static double[] fitGev(double[] scores, long[] counts, long n) {
+    // Probability-weighted moments b_r = 1/n sum_j C(j, r) / C(n - 1, r) x_(j), j = 0..n-1, with
+    // the sums over the ranks of each score in closed form.
+    double b0 = 0;
+    double b1 = 0;
+    double b2 = 0;
+    long rank = 0;
+    for (int i = 0; i < scores.length; ++i) {
+      if (counts[i] == 0) {
+        continue;
+      }
+      final long last = rank + counts[i] - 1;
+      b0 += counts[i] * scores[i];
+      b1 += (sumRanks(last) - sumRanks(rank - 1)) * scores[i];
+      b2 += (sumRankPairs(last) - sumRankPairs(rank - 1)) * scores[i];
+      rank = last + 1;
+    }
+    b0 /= n;
+    b1 /= (double) n * (n - 1);
+    b2 /= (double) n * (n - 1) * (n - 2);
+
+    final double l1 = b0;
+    final double l2 = 2 * b1 - b0;
+    final double l3 = 6 * b2 - 6 * b1 + b0;
+    if (!(l2 > 0)) {
+      return null;
+    }
+    final double t3 = l3 / l2;
+    final double c = 2 / (3 + t3) - Math.log(2) / Math.log(3);
+    final double k = 7.8590 * c + 2.9554 * c * c; // Hosking's shape, negative of ours.
+    if (Math.abs(k) < 1e-6) {
+      final double scale = l2 / Math.log(2);
+      return new double[] {l1 - EULER_GAMMA * scale, scale, 0.0};
+    }
+    if (!(k > -1)) {
+      return null;
+    }
+    final double g = SpecialFunctions.gamma(1 + k);
+    final double scale = l2 * k / ((1 - Math.pow(2, -k)) * g);
+    if (!(scale > 0) || Double.isInfinite(scale)) {
+      return null;
+    }
+    return new double[] {l1 - scale * (1 - g) / k, scale, -k};
+  }
+
+  /** @return <code>sum_{j=0}^{m} j</code>. */
+  private static double sumRanks(long m) {
+    return (m <= 0) ? 0.0 : m * (m + 1.0) / 2;
+  }
+
+  /** @return <code>sum_{j=0}^{m} j (j - 1)</code>. */
+  private static double sumRankPairs(long m) {
+    return (m <= 1) ? 0.0 : (m + 1.0) * m * (m - 1.0) / 3;
+  }
+
+  /**
+   * Compute the Kolmogorov-Smirnov distance between {@code model} and an empirical distribution.
+   *
+   * <p>Each observed score stands for all scores rounding to it, such that the empirical
+   * distribution is compared to the model at the boundaries of the rounding interval.
+   */
+  private static double ksDistance(
+      ScoreDistributionModel model, double[] scores, double[] cumFreqs) {
+    double result = 0;
+    for (int i = 0; i < scores.length; ++i) {
+      final double below = (i == 0) ? 0.0 : cumFreqs[i - 1];
+      result =
+          Math.max(result, Math.abs(model.cumulativeProbability(scores[i] - HALF_STEP) - below));
+      result =
+          Math.max(
+              result, Math.abs(model.cumulativeProbability(scores[i] + HALF_STEP) - cumFreqs[i]));
+    }
+    return result;
+  }
+}
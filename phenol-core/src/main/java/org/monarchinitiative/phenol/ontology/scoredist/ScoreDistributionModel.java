@@ -0,0 +1,150 @@
+package org.monarchinitiative.phenol.ontology.scoredist;
+
+import java.io.Serializable;
+
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+
+/**
+ * Parametric score distribution, fitted to sampled scores by {@link ScoreDistributionFitter}.
+ *
+ * <p>The distribution is given by a {@link Family} and its location, scale, and shape parameters;
+ * p values are closed-form evaluations of the survival function and thus not limited by the sample
+ * size. The Kolmogorov-Smirnov distance to the sample the model was fitted to is kept for
+ * diagnostics.
+ */
+public final class ScoreDistributionModel implements Serializable {
+
+  /** Serial UId for serialization. */
+  private static final long serialVersionUID = 1L;
+
+  /** Supported distribution families. */
+  public enum Family {
+    /**
+     * Shifted gamma (Pearson type III) distribution with density proportional to <code>
+     * ((x - location) / scale)^(shape - 1) exp(-(x - location) / scale)</code> for <code>
+     * x &gt; location</code>.
+     */
+    GAMMA,
+    /**
+     * Generalized extreme value distribution with <code>F(x) = exp(-(1 + shape (x - location) /
+     * scale)^(-1 / shape))</code>, the Gumbel distribution for <code>shape = 0</code>.
+     */
+    GEV
+  }
+
+  /** The distribution family. */
+  private final Family family;
+
+  /** Location parameter. */
+  private final double location;
+
+  /** Scale parameter, positive. */
+  private final double scale;
+
+  /** Shape parameter. */
+  private final double shape;
+
+  /** Kolmogorov-Smirnov distance to the sample the model was fitted to. */
+  private final double ksDistance;
+
+  /**
+   * Constructor.
+   *
+   * @param family The distribution family.
+   * @param location Location parameter.
+   * @param scale Scale parameter, must be positive.
+   * @param shape Shape parameter, must be positive for {@link Family#GAMMA}.
+   * @param ksDistance Kolmogorov-Smirnov distance to the sample the model was fitted to.
+   * @throws PhenolRuntimeException On invalid parameters.
+   */
+  public ScoreDistributionModel(
+      Family family, double location, double scale, double shape, double ksDistance) {
+    if (!(scale > 0) || Double.isInfinite(scale)) {
+      throw new PhenolRuntimeException("Scale must be positive but was " + scale);
+    }
+    if (family == Family.GAMMA && !(shape > 0)) {
+      throw new PhenolRuntimeException("Gamma shape must be positive but was " + shape);
+    }
+    if (Double.isNaN(location) || Double.isNaN(shape)) {
+      throw new PhenolRuntimeException("Parameters must not be NaN");
+    }
+    this.family = family;
+    this.location = location;
+    this.scale = scale;
+    this.shape = shape;
+    this.ksDistance = ksDistance;
+  }
+
+  /**
+   * @param score The score to evaluate.
+   * @return Probability of a score of at most {@code score}.
+   */
+  public double cumulativeProbability(double score) {
+    return 1.0 - pValue(score);
+  }
+
+  /**
+   * Compute the p value, i.e., the probability of a score of at least {@code score}.
+   *
+   * @param score The score to compute the p value for.
+   * @return The p value.
+   */
+  public double pValue(double score) {
+    final double z = (score - location) / scale;
+    if (family == Family.GAMMA) {
+      return SpecialFunctions.regularizedGammaQ(shape, z);
+    }
+    final double y; // -log F(score)
+    if (shape == 0.0) {
+      y = Math.exp(-z);
+    } else {
+      final double t = 1 + shape * z;
+      if (t <= 0) {
+        // Outside of the support, below the lower bound for shape > 0, above the upper one else.
+        return (shape > 0) ? 1.0 : 0.0;
+      }
+      y = Math.pow(t, -1 / shape);
+    }
+    return -Math.expm1(-y);
+  }
+
+  /** @return The distribution family. */
+  public Family getFamily() {
+    return family;
+  }
+
+  /** @return The location parameter. */
+  public double getLocation() {
+    return location;
+  }
+
+  /** @return The scale parameter. */
+  public double getScale() {
+    return scale;
+  }
+
+  /** @return The shape parameter. */
+  public double getShape() {
+    return shape;
+  }
+
+  /** @return Kolmogorov-Smirnov distance to the sample the model was fitted to. */
+  public double getKsDistance() {
+    return ksDistance;
+  }
+
+  @Override
+  public String toString() {
+    return "ScoreDistributionModel [family="
+        + family
+        + ", location="
+        + location
+        + ", scale="
+        + scale
+        + ", shape="
+        + shape
+        + ", ksDistance="
+        + ksDistance
+        + "]";
+  }
+}
@@ -0,0 +1,101 @@
+package org.monarchinitiative.phenol.ontology.scoredist;
+
+import java.util.TreeMap;
+
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+
+/**
+ * Histogram of scores rounded to three decimal places, backed by a <code>long[]</code> of counts.
+ *
+ * <p>The rounded score <code>round(1000 * score)</code> is the bin key; the array covers a
+ * contiguous range of keys and grows on demand in both directions.
+ */
+final class ScoreHistogram {
+
+  /** Counts, <code>counts[i]</code> is the count of key <code>base + i</code>. */
+  private long[] counts = new long[1024];
+
+  /** Key of the first bin. */
+  private long base = 0;
+
+  /** Total number of added scores. */
+  private long total = 0;
+
+  /**
+   * Add a score.
+   *
+   * @param score The score to add.
+   */
+  void add(double score) {
+    final long key = Math.round(score * 1000.);
+    if (key < base || key >= base + counts.length) {
+      grow(key);
+    }
+    counts[(int) (key - base)]++;
+    total++;
+  }
+
+  /** Grow {@link #counts} such that it covers {@code key}. */
+  private void grow(long key) {
+    final long newBase = Math.min(base, key);
+    final long newEnd = Math.max(base + counts.length, key + 1);
+    long newLength = counts.length;
+    while (newLength < newEnd - newBase) {
+      newLength *= 2;
+    }
+    if (newLength > Integer.MAX_VALUE - 8) {
+      throw new PhenolRuntimeException("Score range too large for histogram: " + key);
+    }
+    final long[] newCounts = new long[(int) newLength];
+    // Keep new space on the side we grew on.
+    final long shiftedBase = (key < base) ? newEnd - newLength : newBase;
+    System.arraycopy(counts, 0, newCounts, (int) (base - shiftedBase), counts.length);
+    counts = newCounts;
+    base = shiftedBase;
+  }
+
+  /** @return Total number of added scores. */
+  long getTotal() {
+    return total;
+  }
+
+  /**
+   * @param rank Rank, <code>0</code> for the smallest score.
+   * @return The rounded score at {@code rank} in ascending order.
+   * @throws PhenolRuntimeException if {@code rank} is not in <code>[0, total)</code>.
+   */
+  double scoreAtRank(long rank) {
+    if (rank < 0 || rank >= total) {
+      throw new PhenolRuntimeException("Rank " + rank + " out of range for " + total + " scores");
+    }
+    int i = 0;
+    long counter = counts[0];
+    while (counter <= rank) {
+      counter += counts[++i];
+    }
+    return (base + i) / 1000.0;
+  }
+
+  /**
+   * Compute cumulative relative frequencies.
+   *
+   * @param sampleSize Divisor for the relative frequencies.
+   * @return Mapping from rounded score to cumulative relative frequency, always containing score 0.
+   */
+  TreeMap<Double, Double> toCumulativeRelFreq(long sampleSize) {
+    final TreeMap<Double, Double> result = new TreeMap<>();
+    long counter = 0;
+    for (int i = 0; i < counts.length; ++i) {
+      final long key = base + i;
+      counter += counts[i];
+      if (counts[i] != 0 || key == 0) {
+        result.put(key / 1000.0, (double) counter / sampleSize);
+      }
+    }
+    if (!result.containsKey(0.0)) {
+      // Score 0 is outside of the covered range.
+      result.put(0.0, (base > 0) ? 0.0 : (double) total / sampleSize);
+    }
+    return result;
+  }
+}
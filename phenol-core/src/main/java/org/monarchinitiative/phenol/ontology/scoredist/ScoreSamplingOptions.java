@@ -34,6 +34,24 @@ public final class ScoreSamplingOptions implements Serializable, Cloneable {
   /** The seed to use for the precomputations. */
   private int seed = 42;
 
+  /** Whether to sample all term counts in one nested pass. */
+  private boolean nestedSampling = false;
+
+  /** Confidence interval width of the tail quantile to stop at, <code>0</code> to never stop. */
+  private double adaptivePrecision = 0.0;
+
+  /** Tail probability of the quantile tracked by adaptive sampling. */
+  private double tailProbability = 0.01;
+
+  /** Number of iterations between precision checks in adaptive sampling. */
+  private int batchSize = 1000;
+
+  /** Family of the model to fit to the sampled scores, <code>null</code> to keep them. */
+  private ScoreDistributionModel.Family fitFamily = null;
+
+  /** Largest Kolmogorov-Smirnov distance at which a fitted model is accepted. */
+  private double maxKsDistance = 0.02;
+
   /**
    * Default constructor.
    *
@@ -185,10 +203,176 @@ public final class ScoreSamplingOptions implements Serializable, Cloneable {
     this.numIterations = numIterations;
   }
 
+  /** @return Whether to sample all term counts in one nested pass. */
+  public boolean isNestedSampling() {
+    return nestedSampling;
+  }
+
+  /**
+   * Set whether to sample all term counts in one nested pass.
+   *
+   * <p>In nested sampling, each iteration draws one random ordering of {@link #getMaxNumTerms()}
+   * terms and the sample for <code>k</code> terms is its prefix of length <code>k</code>. The
+   * per-count distributions are thus correlated but each is sampled correctly, and the work is
+   * about that of a single term count. See {@link SimilarityScoreSampling#performSampling(
+   * java.util.Map)} for the requirements.
+   *
+   * <p>The default is <code>false</code>.
+   *
+   * @param nestedSampling Whether to sample all term counts in one nested pass.
+   */
+  public void setNestedSampling(boolean nestedSampling) {
+    this.nestedSampling = nestedSampling;
+  }
+
+  /** @return Whether sampling stops early once the tail quantile is precise enough. */
+  public boolean isAdaptiveSampling() {
+    return adaptivePrecision > 0;
+  }
+
+  /**
+   * @return Confidence interval width of the tail quantile at which to stop sampling, <code>0
+   *     </code> if not adaptive.
+   */
+  public double getAdaptivePrecision() {
+    return adaptivePrecision;
+  }
+
+  /**
+   * Set the precision for adaptive sampling.
+   *
+   * <p>If positive, iterations are run in batches of {@link #getBatchSize()} and sampling of a
+   * world object stops once the 95% confidence interval of the score quantile at {@link
+   * #getTailProbability()} is not wider than this score difference, but at the latest after {@link
+   * #getNumIterations()} iterations.
+   *
+   * <p>The default is <code>0</code>, i.e., all iterations are run.
+   *
+   * @param adaptivePrecision Largest confidence interval width to stop at, <code>0</code> to
+   *     disable adaptive sampling.
+   */
+  public void setAdaptivePrecision(double adaptivePrecision) {
+    this.adaptivePrecision = adaptivePrecision;
+  }
+
+  /** @return Tail probability of the quantile tracked by adaptive sampling. */
+  public double getTailProbability() {
+    return tailProbability;
+  }
+
+  /**
+   * Set the tail probability of the quantile tracked by adaptive sampling, i.e., the p value of
+   * interest.
+   *
+   * <p>The default is <code>0.01</code>.
+   *
+   * @param tailProbability Tail probability of the quantile tracked by adaptive sampling.
+   */
+  public void setTailProbability(double tailProbability) {
+    this.tailProbability = tailProbability;
+  }
+
+  /** @return Number of iterations between precision checks in adaptive sampling. */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Set the number of iterations between precision checks in adaptive sampling.
+   *
+   * <p>The default is <code>1000</code>.
+   *
+   * @param batchSize Number of iterations between precision checks in adaptive sampling.
+   */
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * @return Family of the model to fit to the sampled scores, <code>null</code> to keep the
+   *     empirical distributions.
+   */
+  public ScoreDistributionModel.Family getFitFamily() {
+    return fitFamily;
+  }
+
+  /**
+   * Set the family of the model to fit to the sampled scores.
+   *
+   * <p>If set, a {@link ScoreDistributionModel} is fitted to each sampled distribution with {@link
+   * ScoreDistributionFitter} and stored instead of the scores if its Kolmogorov-Smirnov distance is
+   * at most {@link #getMaxKsDistance()} and its upper tail matches the sampled one, see {@link
+   * ScoreDistributionFitter#tailRatio(ScoreDistributionModel, ObjectScoreDistribution)}.
+   *
+   * <p>The default is <code>null</code>, i.e., the empirical distributions are kept.
+   *
+   * @param fitFamily Family of the model to fit, <code>null</code> to keep the empirical
+   *     distributions.
+   */
+  public void setFitFamily(ScoreDistributionModel.Family fitFamily) {
+    this.fitFamily = fitFamily;
+  }
+
+  /** @return Largest Kolmogorov-Smirnov distance at which a fitted model is accepted. */
+  public double getMaxKsDistance() {
+    return maxKsDistance;
+  }
+
+  /**
+   * Set the largest Kolmogorov-Smirnov distance at which a fitted model is accepted.
+   *
+   * <p>The default is <code>0.02</code>.
+   *
+   * @param maxKsDistance Largest Kolmogorov-Smirnov distance at which a fitted model is accepted.
+   */
+  public void setMaxKsDistance(double maxKsDistance) {
+    this.maxKsDistance = maxKsDistance;
+  }
+
+  /**
+   * Describe the options that determine the sampled distribution of each world object, i.e., all
+   * but the number of threads and the object ID range.
+   *
+   * <p>Checkpoints and shard outputs record this fingerprint, such that runs can only be resumed or
+   * merged with the same options.
+   *
+   * @return Fingerprint of the sampling options.
+   */
+  public String getSamplingFingerprint() {
+    return "seed="
+        + seed
+        + ";numIterations="
+        + numIterations
+        + ";numTerms="
+        + minNumTerms
+        + "-"
+        + maxNumTerms
+        + ";nested="
+        + nestedSampling
+        + ";adaptivePrecision="
+        + adaptivePrecision
+        + ";tailProbability="
+        + tailProbability
+        + ";batchSize="
+        + batchSize
+        + ";fitFamily="
+        + fitFamily
+        + ";maxKsDistance="
+        + maxKsDistance;
+  }
+
   @Override
   public Object clone() {
-    return new ScoreSamplingOptions(
-        numThreads, minObjectId, maxObjectId, minNumTerms, maxNumTerms, seed, numIterations);
+    final ScoreSamplingOptions result =
+        new ScoreSamplingOptions(
+            numThreads, minObjectId, maxObjectId, minNumTerms, maxNumTerms, seed, numIterations);
+    result.setNestedSampling(nestedSampling);
+    result.setAdaptivePrecision(adaptivePrecision);
+    result.setTailProbability(tailProbability);
+    result.setBatchSize(batchSize);
+    result.setFitFamily(fitFamily);
+    result.setMaxKsDistance(maxKsDistance);
+    return result;
   }
 
   @Override
@@ -207,6 +391,18 @@ public final class ScoreSamplingOptions implements Serializable, Cloneable {
         + numIterations
         + ", seed="
         + seed
+        + ", nestedSampling="
+        + nestedSampling
+        + ", adaptivePrecision="
+        + adaptivePrecision
+        + ", tailProbability="
+        + tailProbability
+        + ", batchSize="
+        + batchSize
+        + ", fitFamily="
+        + fitFamily
+        + ", maxKsDistance="
+        + maxKsDistance
         + "]";
   }
 }
@@ -0,0 +1,264 @@
+package org.monarchinitiative.phenol.ontology.scoredist;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ser.SerializationException;
+
+/**
+ * One shard of a score sampling run, i.e., a set of "world object" Ids to sample together, as
+ * planned by {@link ScoreSamplingShards#plan(Map, ScoreSamplingOptions, int)}.
+ *
+ * <h5>Manifest Format</h5>
+ *
+ * <p>{@link #write(File)} writes a text manifest with the header line <code>
+ * #phenol-shard-manifest v2</code> followed by <code>key=value</code> lines for <code>shard</code>,
+ * <code>numShards</code>, <code>estimatedCost</code>, <code>sampling</code> (the {@link
+ * ScoreSamplingOptions#getSamplingFingerprint()} of the plan), and <code>objectIds</code>
+ * (comma-separated, ascending), such that shards can be handed to independent processes. The same
+ * lines, each prefixed with <code>#</code>, are appended to the checksum file of the shard's output
+ * by {@link ScoreSamplingShards#writeChecksum(File, ScoreSamplingShard)}.
+ */
+public final class ScoreSamplingShard {
+
+  /** Header line of manifest files. */
+  private static final String HEADER = "#phenol-shard-manifest v2";
+
+  /** Index of the shard, starting at 0. */
+  private final int index;
+
+  /** Total number of shards in the plan. */
+  private final int numShards;
+
+  /** Estimated cost, see {@link ScoreSamplingShards#estimateCost(int, ScoreSamplingOptions)}. */
+  private final long estimatedCost;
+
+  /** See {@link ScoreSamplingOptions#getSamplingFingerprint()}. */
+  private final String samplingFingerprint;
+
+  /** "World object" Ids of the shard, ascending. */
+  private final int[] objectIds;
+
+  /**
+   * Constructor.
+   *
+   * @param index Index of the shard, starting at 0.
+   * @param numShards Total number of shards in the plan.
+   * @param estimatedCost Estimated cost of the shard.
+   * @param samplingFingerprint Fingerprint of the sampling options of the plan.
+   * @param objectIds "World object" Ids of the shard; copied and sorted.
+   */
+  public ScoreSamplingShard(
+      int index, int numShards, long estimatedCost, String samplingFingerprint, int[] objectIds) {
+    this.index = index;
+    this.numShards = numShards;
+    this.estimatedCost = estimatedCost;
+    this.samplingFingerprint = samplingFingerprint;
+    this.objectIds = objectIds.clone();
+    Arrays.sort(this.objectIds);
+  }
+
+  /**
+   * Read a shard manifest.
+   *
+   * @param file The manifest file written by {@link #write(File)}.
+   * @return The {@link ScoreSamplingShard}.
+   * @throws SerializationException On problems reading the file or an invalid manifest.
+   */
+  public static ScoreSamplingShard read(File file) throws SerializationException {
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      return read(reader, "", file);
+    } catch (IOException e) {
+      throw new SerializationException("Problem reading shard manifest " + file, e);
+    }
+  }
+
+  /**
+   * Read manifest lines, starting at the header.
+   *
+   * @param reader The reader positioned at the header line.
+   * @param prefix Prefix of each manifest line, removed before parsing.
+   * @param file The file read from, for error messages.
+   * @return The {@link ScoreSamplingShard}.
+   * @throws IOException On problems reading.
+   * @throws SerializationException On an invalid manifest.
+   */
+  static ScoreSamplingShard read(BufferedReader reader, String prefix, File file)
+      throws IOException, SerializationException {
+    if (!(prefix + HEADER).equals(reader.readLine())) {
+      throw new SerializationException("Invalid shard manifest header in " + file);
+    }
+    final Map<String, String> values = new HashMap<>();
+    String line;
+    while ((line = reader.readLine()) != null && line.startsWith(prefix)) {
+      final int pos = line.indexOf('=');
+      if (pos != -1) {
+        values.put(
+            line.substring(prefix.length(), pos).trim(), line.substring(pos + 1).trim());
+      }
+    }
+
+    try {
+      final String ids = required(values, "objectIds", file);
+      final int[] objectIds =
+          ids.isEmpty()
+              ? new int[0]
+              : Arrays.stream(ids.split(",")).mapToInt(Integer::parseInt).toArray();
+      return new ScoreSamplingShard(
+          Integer.parseInt(required(values, "shard", file)),
+          Integer.parseInt(required(values, "numShards", file)),
+          Long.parseLong(required(values, "estimatedCost", file)),
+          required(values, "sampling", file),
+          objectIds);
+    } catch (NumberFormatException e) {
+      throw new SerializationException("Invalid number in shard manifest " + file, e);
+    }
+  }
+
+  private static String required(Map<String, String> values, String key, File file)
+      throws SerializationException {
+    final String value = values.get(key);
+    if (value == null) {
+      throw new SerializationException("Missing " + key + " in shard manifest " + file);
+    }
+    return value;
+  }
+
+  /**
+   * Write the shard manifest.
+   *
+   * @param file The file to write to.
+   * @throws SerializationException On problems writing the file.
+   */
+  public void write(File file) throws SerializationException {
+    try (PrintWriter out =
+        new PrintWriter(
+            new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+      write(out, "");
+      if (out.checkError()) {
+        throw new SerializationException("Problem writing shard manifest " + file);
+      }
+    } catch (IOException e) {
+      throw new SerializationException("Problem writing shard manifest " + file, e);
+    }
+  }
+
+  /**
+   * Write the manifest lines.
+   *
+   * @param out The writer to write to.
+   * @param prefix Prefix of each line.
+   */
+  void write(PrintWriter out, String prefix) {
+    out.println(prefix + HEADER);
+    out.println(prefix + "shard=" + index);
+    out.println(prefix + "numShards=" + numShards);
+    out.println(prefix + "estimatedCost=" + estimatedCost);
+    out.println(prefix + "sampling=" + samplingFingerprint);
+    final StringBuilder ids = new StringBuilder();
+    for (int objectId : objectIds) {
+      if (ids.length() > 0) {
+        ids.append(',');
+      }
+      ids.append(objectId);
+    }
+    out.println(prefix + "objectIds=" + ids);
+  }
+
+  /**
+   * Restrict labels to the objects of this shard.
+   *
+   * @param labels {@link Map} from "world object" Id to a {@link Collection} of {@link TermId}
+   *     labels.
+   * @param <T> Type of the label collections.
+   * @return {@link Map} with the entries of {@code labels} for the objects of this shard.
+   */
+  public <T extends Collection<TermId>> Map<Integer, T> select(Map<Integer, T> labels) {
+    final Map<Integer, T> result = new TreeMap<>();
+    for (int objectId : objectIds) {
+      final T terms = labels.get(objectId);
+      if (terms != null) {
+        result.put(objectId, terms);
+      }
+    }
+    return result;
+  }
+
+  /** @return Index of the shard, starting at 0. */
+  public int getIndex() {
+    return index;
+  }
+
+  /** @return Total number of shards in the plan. */
+  public int getNumShards() {
+    return numShards;
+  }
+
+  /** @return Estimated cost of the shard. */
+  public long getEstimatedCost() {
+    return estimatedCost;
+  }
+
+  /** @return Fingerprint of the sampling options of the plan. */
+  public String getSamplingFingerprint() {
+    return samplingFingerprint;
+  }
+
+  /** @return Copy of the "world object" Ids of the shard, ascending. */
+  public int[] getObjectIds() {
+    return objectIds.clone();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof ScoreSamplingShard)) {
+      return false;
+    }
+    final ScoreSamplingShard other = (ScoreSamplingShard) obj;
+    return index == other.index
+        && numShards == other.numShards
+        && estimatedCost == other.estimatedCost
+        && samplingFingerprint.equals(other.samplingFingerprint)
+        && Arrays.equals(objectIds, other.objectIds);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(index, numShards, estimatedCost, samplingFingerprint)
+        + 31 * Arrays.hashCode(objectIds);
+  }
+
+  @Override
+  public String toString() {
+    return "ScoreSamplingShard [index="
+        + index
+        + ", numShards="
+        + numShards
+        + ", estimatedCost="
+        + estimatedCost
+        + ", samplingFingerprint="
+        + samplingFingerprint
+        + ", numObjects="
+        + objectIds.length
+        + "]";
+  }
+}
@@ -0,0 +1,264 @@
+package org.monarchinitiative.phenol.ontology.scoredist;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ser.SerializationException;
+
+/**
+ * Class with static helper methods for splitting score sampling into {@link ScoreSamplingShard}s
+ * that are run by independent processes, and for verifying their outputs before merging.
+ *
+ * <p>Sampling is seeded per "world object" (see {@link SimilarityScoreSampling}), so the result of
+ * running all shards and merging them with {@link ScoreDistributions#merge(Collection)} does not
+ * depend on the number of shards.
+ */
+public final class ScoreSamplingShards {
+
+  /** Suffix of checksum files. */
+  public static final String CHECKSUM_SUFFIX = ".sha256";
+
+  /** Prefix of the shard manifest lines in checksum files. */
+  private static final String SHARD_PREFIX = "#";
+
+  /** Digest algorithm for checksums. */
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  private ScoreSamplingShards() {}
+
+  /**
+   * Plan a sharded score sampling run.
+   *
+   * <p>Objects are selected using {@link ScoreSamplingOptions#getMinObjectId()} and {@link
+   * ScoreSamplingOptions#getMaxObjectId()} and assigned by the longest-processing-time rule: in the
+   * order of decreasing {@link #estimateCost(int, ScoreSamplingOptions)}, each object goes to the
+   * shard with the smallest total cost so far. Ties are broken by object Id and shard index, so the
+   * plan is deterministic.
+   *
+   * @param labels {@link Map} from "world object" Id to a {@link Collection} of {@link TermId}
+   *     labels.
+   * @param options The {@link ScoreSamplingOptions} of the run.
+   * @param numShards Number of shards, positive.
+   * @return {@link List} of {@code numShards} {@link ScoreSamplingShard}s, by index.
+   * @throws PhenolRuntimeException If {@code numShards} is not positive.
+   */
+  public static <T extends Collection<TermId>> List<ScoreSamplingShard> plan(
+      Map<Integer, T> labels, ScoreSamplingOptions options, int numShards) {
+    if (numShards <= 0) {
+      throw new PhenolRuntimeException("Number of shards must be positive but was " + numShards);
+    }
+
+    final List<long[]> objects = new ArrayList<>(); // (cost, objectId)
+    for (Map.Entry<Integer, T> e : labels.entrySet()) {
+      final int objectId = e.getKey();
+      if (options.getMinObjectId() != null && objectId < options.getMinObjectId()) {
+        continue;
+      }
+      if (options.getMaxObjectId() != null && objectId > options.getMaxObjectId()) {
+        continue;
+      }
+      objects.add(new long[] {estimateCost(e.getValue().size(), options), objectId});
+    }
+    objects.sort(
+        (lhs, rhs) ->
+            (lhs[0] != rhs[0]) ? Long.compare(rhs[0], lhs[0]) : Long.compare(lhs[1], rhs[1]));
+
+    final long[] costs = new long[numShards];
+    final List<List<Integer>> objectIds = new ArrayList<>();
+    final PriorityQueue<Integer> shards =
+        new PriorityQueue<>(
+            numShards,
+            (lhs, rhs) ->
+                (costs[lhs] != costs[rhs])
+                    ? Long.compare(costs[lhs], costs[rhs])
+                    : Integer.compare(lhs, rhs));
+    for (int i = 0; i < numShards; ++i) {
+      objectIds.add(new ArrayList<>());
+      shards.add(i);
+    }
+    for (long[] object : objects) {
+      final int shard = shards.poll();
+      costs[shard] += object[0];
+      objectIds.get(shard).add((int) object[1]);
+      shards.add(shard);
+    }
+
+    final List<ScoreSamplingShard> result = new ArrayList<>();
+    for (int i = 0; i < numShards; ++i) {
+      final int[] ids = objectIds.get(i).stream().mapToInt(Integer::intValue).toArray();
+      result.add(
+          new ScoreSamplingShard(i, numShards, costs[i], options.getSamplingFingerprint(), ids));
+    }
+    return result;
+  }
+
+  /**
+   * Estimate the cost of sampling the distributions of one object.
+   *
+   * <p>The cost is the number of pairwise term comparisons, i.e., the query term count times the
+   * number of object labels times {@link ScoreSamplingOptions#getNumIterations()}, summed over all
+   * term counts or, in nested mode, for the largest term count only. In adaptive mode, this is an
+   * upper bound.
+   *
+   * @param numLabels Number of labels of the object.
+   * @param options The {@link ScoreSamplingOptions} of the run.
+   * @return Estimated cost.
+   */
+  public static long estimateCost(int numLabels, ScoreSamplingOptions options) {
+    final long perTerm = (long) Math.max(1, numLabels) * options.getNumIterations();
+    if (options.isNestedSampling()) {
+      return options.getMaxNumTerms() * perTerm;
+    }
+    long numTerms = 0;
+    for (int k = options.getMinNumTerms(); k <= options.getMaxNumTerms(); ++k) {
+      numTerms += k;
+    }
+    return numTerms * perTerm;
+  }
+
+  /**
+   * Compute the checksum of a file.
+   *
+   * @param file The file to compute the checksum of.
+   * @return Lower-case hexadecimal SHA-256 digest of the file's contents.
+   * @throws SerializationException On problems reading the file.
+   */
+  public static String checksum(File file) throws SerializationException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new PhenolRuntimeException("Digest algorithm not available: " + DIGEST_ALGORITHM, e);
+    }
+    try (InputStream in = new FileInputStream(file)) {
+      final byte[] buffer = new byte[64 * 1024];
+      int len;
+      while ((len = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, len);
+      }
+    } catch (IOException e) {
+      throw new SerializationException("Problem computing checksum of " + file, e);
+    }
+    final StringBuilder result = new StringBuilder();
+    for (byte b : digest.digest()) {
+      result.append(String.format("%02x", b));
+    }
+    return result.toString();
+  }
+
+  /**
+   * @param file A data file.
+   * @return The checksum file of {@code file}, i.e., with {@link #CHECKSUM_SUFFIX} appended.
+   */
+  public static File checksumFile(File file) {
+    return new File(file.getPath() + CHECKSUM_SUFFIX);
+  }
+
+  /**
+   * Write the checksum file of {@code file}, in the format of <code>sha256sum</code>.
+   *
+   * @param file The file to write the checksum of.
+   * @return The checksum.
+   * @throws SerializationException On problems reading {@code file} or writing the checksum file.
+   */
+  public static String writeChecksum(File file) throws SerializationException {
+    return writeChecksum(file, null);
+  }
+
+  /**
+   * Write the checksum file of {@code file}, in the format of <code>sha256sum</code>, recording the
+   * shard that produced {@code file}.
+   *
+   * <p>The manifest of {@code shard} follows the checksum line, each line prefixed with <code>#
+   * </code> such that <code>sha256sum -c</code> ignores it, see {@link #readShard(File)}.
+   *
+   * @param file The file to write the checksum of.
+   * @param shard The {@link ScoreSamplingShard} that produced {@code file}, or <code>null</code>.
+   * @return The checksum.
+   * @throws SerializationException On problems reading {@code file} or writing the checksum file.
+   */
+  public static String writeChecksum(File file, ScoreSamplingShard shard)
+      throws SerializationException {
+    final String checksum = checksum(file);
+    final File target = checksumFile(file);
+    try (PrintWriter out =
+        new PrintWriter(
+            new OutputStreamWriter(new FileOutputStream(target), StandardCharsets.UTF_8))) {
+      out.println(checksum + "  " + file.getName());
+      if (shard != null) {
+        shard.write(out, SHARD_PREFIX);
+      }
+      if (out.checkError()) {
+        throw new SerializationException("Problem writing checksum file " + target);
+      }
+    } catch (IOException e) {
+      throw new SerializationException("Problem writing checksum file " + target, e);
+    }
+    return checksum;
+  }
+
+  /**
+   * Read the shard recorded in the checksum file of {@code file}.
+   *
+   * @param file The data file, written by a shard.
+   * @return The {@link ScoreSamplingShard} that produced {@code file}.
+   * @throws SerializationException If the checksum file is missing or records no valid shard.
+   */
+  public static ScoreSamplingShard readShard(File file) throws SerializationException {
+    final File source = checksumFile(file);
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8))) {
+      // Skip the checksum line.
+      reader.readLine();
+      return ScoreSamplingShard.read(reader, SHARD_PREFIX, source);
+    } catch (IOException e) {
+      throw new SerializationException("Problem reading checksum file " + source, e);
+    }
+  }
+
+  /**
+   * Verify {@code file} against its checksum file.
+   *
+   * @param file The file to verify.
+   * @throws SerializationException If the checksum file is missing or invalid or the checksum does
+   *     not match.
+   */
+  public static void verifyChecksum(File file) throws SerializationException {
+    final File source = checksumFile(file);
+    final String expected;
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8))) {
+      final String line = reader.readLine();
+      if (line == null || line.trim().isEmpty()) {
+        throw new SerializationException("Empty checksum file " + source);
+      }
+      expected = line.trim().split("\\s+")[0].toLowerCase();
+    } catch (IOException e) {
+      throw new SerializationException("Problem reading checksum file " + source, e);
+    }
+    final String actual = checksum(file);
+    if (!expected.equals(actual)) {
+      throw new SerializationException(
+          "Checksum mismatch for " + file + ": expected " + expected + " but was " + actual);
+    }
+  }
+}
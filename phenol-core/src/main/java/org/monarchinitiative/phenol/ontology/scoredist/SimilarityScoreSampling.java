@@ -1,28 +1,25 @@
 package org.monarchinitiative.phenol.ontology.scoredist;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Random;
-import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
-import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.IntConsumer;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import org.monarchinitiative.phenol.base.PhenolRuntimeException;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.similarity.BestMatchAverageSimilarity;
 import org.monarchinitiative.phenol.ontology.similarity.Similarity;
+import org.monarchinitiative.phenol.ser.SerializationException;
 import org.monarchinitiative.phenol.utils.MersenneTwister;
 import org.monarchinitiative.phenol.utils.ProgressReporter;
 import org.slf4j.Logger;
@@ -37,6 +34,16 @@ import org.slf4j.LoggerFactory;
  * <p>The resulting precomputed {@link ScoreDistribution} can be used for empirical estimation of p
  * values.
  *
+ * <p>By default, {@link ScoreSamplingOptions#getNumIterations()} iterations are run per world
+ * object. In adaptive mode (see {@link ScoreSamplingOptions#setAdaptivePrecision(double)}), the
+ * iterations are run in batches and sampling stops early once the tail quantile of interest is
+ * known precisely enough; {@link ObjectScoreDistribution#getSampleSize()} gives the number of
+ * iterations actually run.
+ *
+ * <p>Optionally (see {@link ScoreSamplingOptions#setFitFamily(ScoreDistributionModel.Family)}), a
+ * {@link ScoreDistributionModel} is fitted to each sampled distribution and kept instead of the
+ * scores where it fits well.
+ *
  * @author <a href="mailto:manuel.holtgrewe@bihealth.de">Manuel Holtgrewe</a>
  */
 public final class SimilarityScoreSampling {
@@ -44,6 +51,9 @@ public final class SimilarityScoreSampling {
   /** {@link Logger} object to use. */
   private static final Logger LOGGER = LoggerFactory.getLogger(SimilarityScoreSampling.class);
 
+  /** Standard normal quantile for the 95% confidence interval of adaptive sampling. */
+  private static final double CONFIDENCE_Z = 1.96;
+
   /** {@link Ontology} to use for computation. */
   private final Ontology ontology;
 
@@ -53,6 +63,9 @@ public final class SimilarityScoreSampling {
   /** Configuration for score sampling. */
   private final ScoreSamplingOptions options;
 
+  /** Fitter for the sampled distributions, <code>null</code> to keep them empirical. */
+  private final ScoreDistributionFitter fitter;
+
   // TODO: ontology already is in similarity?
   /**
    * Constructor.
@@ -64,6 +77,10 @@ public final class SimilarityScoreSampling {
     this.similarity = similarity;
     // Clone configuration so it cannot be changed.
     this.options = (ScoreSamplingOptions) options.clone();
+    this.fitter =
+        (options.getFitFamily() == null)
+            ? null
+            : new ScoreDistributionFitter(options.getFitFamily(), options.getMaxKsDistance());
 
   }
 
@@ -73,16 +90,107 @@ public final class SimilarityScoreSampling {
    * <p>Note that in general, this will be too slow and it will be required to split the work both
    * by term count and by world object Id and distribute this to a parallel (cluster) computer.
    *
+   * <p>With {@link ScoreSamplingOptions#isNestedSampling()}, all term counts are sampled in one
+   * pass per object, see {@link #performNestedSampling(Map, ScoreDistributionCheckpoint)}. This
+   * requires the similarity to be a {@link BestMatchAverageSimilarity}; otherwise, each term count
+   * is sampled separately.
+   *
    * @param labels {@link Map} from "world object" Id to a {@link Collection} of {@link TermId}
    *     labels.
    * @return Resulting {@link Map} from query term count to precomputed {@link ScoreDistribution}.
    */
   public Map<Integer, ScoreDistribution> performSampling(Map<Integer, ? extends Collection<TermId>> labels) {
+    return performSampling(labels, null);
+  }
+
+  /**
+   * Perform the sampling for all configured query term counts, checkpointing each completed
+   * distribution.
+   *
+   * <p>Distributions already in {@code checkpoint} are not sampled again but taken from it, such
+   * that an interrupted run can be resumed from the same checkpoint. Each newly completed {@link
+   * ObjectScoreDistribution} is appended to {@code checkpoint} right away. The result consists of
+   * the distributions of all selected world objects, from this and earlier runs.
+   *
+   * @param labels {@link Map} from "world object" Id to a {@link Collection} of {@link TermId}
+   *     labels.
+   * @param checkpoint The {@link ScoreDistributionCheckpoint} to resume from and append to, or
+   *     <code>null</code>.
+   * @return Resulting {@link Map} from query term count to precomputed {@link ScoreDistribution}.
+   */
+  public Map<Integer, ScoreDistribution> performSampling(
+      Map<Integer, ? extends Collection<TermId>> labels, ScoreDistributionCheckpoint checkpoint) {
+    if (options.isNestedSampling()) {
+      if (similarity instanceof BestMatchAverageSimilarity) {
+        return performNestedSampling(labels, checkpoint);
+      }
+      LOGGER.warn(
+          "Nested sampling is not supported for {}, sampling term counts separately.",
+          similarity.getName());
+    }
     Map<Integer, ScoreDistribution> result = new HashMap<>();
     for (int numTerms = options.getMinNumTerms();
         numTerms <= options.getMaxNumTerms();
         ++numTerms) {
-      result.put(numTerms, performSamplingForTermCount(labels, numTerms));
+      result.put(numTerms, performSamplingForTermCount(labels, numTerms, checkpoint));
+    }
+    return result;
+  }
+
+  /**
+   * Perform the sampling for all configured query term counts in one pass per object.
+   *
+   * <p>Each iteration draws a random ordering of {@link ScoreSamplingOptions#getMaxNumTerms()}
+   * terms once and adds the terms one by one to an {@link IncrementalBestMatchScore}; the score
+   * after adding <code>k</code> terms is a sample for <code>k</code> query terms. This reuses the
+   * draws and pairwise scores of the smaller term counts, such that the whole range costs about as
+   * much as sampling the largest term count alone.
+   *
+   * @param labels {@link Map} from "world object" Id to a {@link Collection} of {@link TermId}
+   *     labels.
+   * @param checkpoint The {@link ScoreDistributionCheckpoint} to use, or <code>null</code>.
+   * @return Resulting {@link Map} from query term count to precomputed {@link ScoreDistribution}.
+   */
+  private Map<Integer, ScoreDistribution> performNestedSampling(
+      Map<Integer, ? extends Collection<TermId>> labels, ScoreDistributionCheckpoint checkpoint) {
+    final int minNumTerms = options.getMinNumTerms();
+    final int maxNumTerms = options.getMaxNumTerms();
+    LOGGER.info(
+        "Running nested precomputation for {} world objects using {}-{} query terms...",
+        new Object[] {labels.size(), minNumTerms, maxNumTerms});
+
+    final ConcurrentHashMap<Integer, ObjectScoreDistribution[]> distributions =
+        new ConcurrentHashMap<>();
+    forEachObject(
+        labels,
+        objectId -> {
+          final ObjectScoreDistribution[] dists =
+              new ObjectScoreDistribution[maxNumTerms - minNumTerms + 1];
+          boolean done = checkpoint != null;
+          for (int i = 0; done && i < dists.length; ++i) {
+            dists[i] = checkpoint.get(minNumTerms + i, objectId);
+            done = dists[i] != null;
+          }
+          if (!done) {
+            // Sample all term counts again, keeping the checkpointed ones consistent.
+            final ObjectScoreDistribution[] sampled =
+                performNestedComputation(objectId, labels.get(objectId));
+            for (int i = 0; i < dists.length; ++i) {
+              dists[i] = checkpoint(checkpoint, sampled[i]);
+            }
+          }
+          distributions.put(objectId, dists);
+        });
+
+    LOGGER.info("Done running nested precomputation.");
+    final Map<Integer, ScoreDistribution> result = new HashMap<>();
+    for (int numTerms = minNumTerms; numTerms <= maxNumTerms; ++numTerms) {
+      final Map<Integer, ObjectScoreDistribution> objectDists = new HashMap<>();
+      for (ObjectScoreDistribution[] dists : distributions.values()) {
+        final ObjectScoreDistribution dist = dists[numTerms - minNumTerms];
+        objectDists.put(dist.getObjectId(), dist);
+      }
+      result.put(numTerms, new ScoreDistribution(numTerms, objectDists));
     }
     return result;
   }
@@ -100,26 +208,60 @@ public final class SimilarityScoreSampling {
    * @return Resulting {@link ScoreDistribution}.
    */
   public ScoreDistribution performSamplingForTermCount(Map<Integer, ? extends Collection<TermId>> labels, int numTerms) {
+    return performSamplingForTermCount(labels, numTerms, null);
+  }
+
+  /**
+   * Perform the sampling for a given number of terms, using a checkpoint.
+   *
+   * @param labels {@link Map} from "world object" Id to a {@code Collection} of {@link TermId}
+   *     labels.
+   * @param numTerms Number of query terms to compute score distributions for.
+   * @param checkpoint The {@link ScoreDistributionCheckpoint} to use, or <code>null</code>.
+   * @return Resulting {@link ScoreDistribution}.
+   */
+  private ScoreDistribution performSamplingForTermCount(
+      Map<Integer, ? extends Collection<TermId>> labels,
+      int numTerms,
+      ScoreDistributionCheckpoint checkpoint) {
     LOGGER.info("Running precomputation for {} world objects using {} query terms...", labels.size(), numTerms);
 
+    final ConcurrentHashMap<Integer, ObjectScoreDistribution> distributions = new ConcurrentHashMap<>();
+    forEachObject(
+        labels,
+        objectId -> {
+          ObjectScoreDistribution dist =
+              (checkpoint == null) ? null : checkpoint.get(numTerms, objectId);
+          if (dist == null) {
+            dist = performComputation(objectId, labels.get(objectId), numTerms);
+            dist = checkpoint(checkpoint, dist);
+          }
+          distributions.put(dist.getObjectId(), dist);
+        });
+
+    LOGGER.info("Done running precomputation.");
+    // Convert from concurrent to non-concurrent hash map.
+    return new ScoreDistribution(numTerms, new HashMap<>(distributions));
+  }
+
+  /**
+   * Run {@code task} for each selected world object Id on {@link
+   * ScoreSamplingOptions#getNumThreads()} threads and wait for all tasks being completed.
+   *
+   * <p>After the first failing task, the remaining tasks are skipped and the failure is rethrown
+   * once all running tasks are done, such that no incomplete result (or checkpoint) goes unnoticed.
+   *
+   * @param labels {@link Map} from "world object" Id to a {@code Collection} of {@link TermId}
+   *     labels.
+   * @param task The task to run for each world object Id.
+   * @throws PhenolRuntimeException If a task failed.
+   */
+  private void forEachObject(
+      Map<Integer, ? extends Collection<TermId>> labels, IntConsumer task) {
     // Setup progress reporting.
     final ProgressReporter progressReport = new ProgressReporter(LOGGER, "objects", labels.size());
     progressReport.start();
 
-    // Setup the task to execute in parallel, with concurrent hash map for collecting results.
-    final ConcurrentHashMap<Integer, ObjectScoreDistribution> distributions = new ConcurrentHashMap<>();
-    IntConsumer task =
-      objectId -> {
-          try {
-            final ObjectScoreDistribution dist =
-                performComputation(objectId, labels.get(objectId), numTerms);
-            distributions.put(dist.getObjectId(), dist);
-            progressReport.incCurrent();
-          } catch (Exception e) {
-            LOGGER.error("An exception occured in parallel processing!", e);
-          }
-        };
-
     // Execution of the task in a ThreadPoolExecutor. This is the only way in Java 8 to guarantee
     // thread counts.
     //
@@ -131,10 +273,23 @@ public final class SimilarityScoreSampling {
         new ThreadPoolExecutor(
             numThreads, numThreads, 5, TimeUnit.MICROSECONDS, new LinkedBlockingQueue<>());
     // Submit all chunks into the executor.
+    final AtomicReference<Exception> failure = new AtomicReference<>();
     final Iterator<Integer> objectIdIter = labels.keySet().stream().filter(this::selectObject).iterator();
     while (objectIdIter.hasNext()) {
       final int objectId = objectIdIter.next();
-      threadPoolExecutor.submit(() -> task.accept(objectId));
+      threadPoolExecutor.submit(
+          () -> {
+            if (failure.get() != null) {
+              return;
+            }
+            try {
+              task.accept(objectId);
+              progressReport.incCurrent();
+            } catch (Exception e) {
+              LOGGER.error("An exception occured in parallel processing!", e);
+              failure.compareAndSet(null, e);
+            }
+          });
     }
     // Shutdown executor and wait for all tasks being completed.
     threadPoolExecutor.shutdown();
@@ -144,10 +299,9 @@ public final class SimilarityScoreSampling {
       throw new PhenolRuntimeException("Could not wait for thread pool being done.", e);
     }
     progressReport.stop();
-
-    LOGGER.info("Done running precomputation.");
-    // Convert from concurrent to non-concurrent hash map.
-    return new ScoreDistribution(numTerms, new HashMap<>(distributions));
+    if (failure.get() != null) {
+      throw new PhenolRuntimeException("Precomputation failed", failure.get());
+    }
   }
 
   /**
@@ -181,93 +335,184 @@ public final class SimilarityScoreSampling {
     rng.setSeed(options.getSeed() + objectId);
 
     // Sample per-object score distribution
+    final ScoreHistogram histogram = sampleScores(terms, numTerms, rng);
+    final int sampleSize = (int) histogram.getTotal();
     ObjectScoreDistribution result =
-        new ObjectScoreDistribution(
-            objectId,
-            numTerms,
-            options.getNumIterations(),
-            sampleScoreCumulativeRelFreq(
-                objectId, terms, numTerms, options.getNumIterations(), rng));
-
-    LOGGER.info("Done computing precomputation for world object {}.", objectId);
+        fit(
+            new ObjectScoreDistribution(
+                objectId, numTerms, sampleSize, histogram.toCumulativeRelFreq(sampleSize)));
+
+    LOGGER.info(
+        "Done computing precomputation for world object {} using {} samples.",
+        objectId,
+        sampleSize);
     return result;
   }
 
   /**
-   * Compute cumulative relative frequencies for the gene with the given "world object Id, number of
-   * terms, iterations, and RNG using sampling.
+   * Perform the nested sampling for all term counts, given "world object" <code>objectId</code>
+   * and the given <code>terms</code> for this object.
    *
-   * @param objectId World object Id to compute for.
+   * @param objectId "World object" id.
    * @param terms The {@link TermId}s that this object is labeled with.
-   * @param numTerms Number of query terms to use for the computation.
-   * @param rng Random number generator to use.
-   * @return Mapping between score and cumulative relative frequency (to use for p value
-   *     computation).
+   * @return Resulting {@link ObjectScoreDistribution}s, by term count starting at {@link
+   *     ScoreSamplingOptions#getMinNumTerms()}.
    */
-  private TreeMap<Double, Double> sampleScoreCumulativeRelFreq(
-    int objectId, Collection<TermId> terms, int numTerms, int numIterations, Random rng) {
-    final List<TermId> allTermIds = new ArrayList<>(ontology.getNonObsoleteTermIds());
+  private ObjectScoreDistribution[] performNestedComputation(
+      int objectId, Collection<TermId> terms) {
+    LOGGER.info("Running nested precomputation for world object {}.", objectId);
+    final int minNumTerms = options.getMinNumTerms();
+    final int maxNumTerms = options.getMaxNumTerms();
 
-    // Now, perform the iterations: pick random terms, compute score, and increment absolute
-    // frequency
-    Map<Double, Long> counts =
-        IntStream.range(0, numIterations - 1)
-            .boxed()
-            .map(
-                i -> {
-                  // Sample numTerms TermI objects from ontology.
-                  final List<TermId> randomTerms = selectRandomElements(allTermIds, numTerms, rng);
-                  final double score = similarity.computeScore(randomTerms, terms);
-                  // Round to four decimal places.
-                  return Math.round(score * 1000.) / 1000.0;
-                })
-            .collect(Collectors.groupingByConcurrent(Function.identity(), Collectors.counting()));
-    counts.putIfAbsent(0.0, 0L);
-
-    // Create cumulative relative frequencies
-    TreeMap<Double, Double> result = new TreeMap<>();
-    for (Entry<Double, Long> entry : counts.entrySet()) {
-      result.put(entry.getKey(), (double) entry.getValue());
+    // Create and seed MersenneTwister
+    final MersenneTwister rng = new MersenneTwister();
+    rng.setSeed(options.getSeed() + objectId);
+
+    // Each iteration adds the terms of one random ordering one by one, yielding one sample for
+    // each term count.
+    final TermSampler sampler = new TermSampler(ontology.getNonObsoleteTermIds(), maxNumTerms);
+    final IncrementalBestMatchScore score =
+        new IncrementalBestMatchScore((BestMatchAverageSimilarity) similarity, terms);
+    final ScoreHistogram[] histograms = new ScoreHistogram[maxNumTerms - minNumTerms + 1];
+    for (int i = 0; i < histograms.length; ++i) {
+      histograms[i] = new ScoreHistogram();
     }
-    double counter = 0.0;
-    for (Entry<Double, Double> entry : result.entrySet()) {
-      counter += entry.getValue();
-      result.put(entry.getKey(), counter / numIterations);
+    int sampleSize = 0;
+    while (sampleSize < options.getNumIterations()) {
+      for (final int end = nextBatchEnd(sampleSize); sampleSize < end; ++sampleSize) {
+        final List<TermId> ordering = sampler.next(rng);
+        score.reset();
+        for (int k = 1; k <= maxNumTerms; ++k) {
+          // With fewer terms in the ontology, larger counts use all terms, as in non-nested mode.
+          if (k <= ordering.size()) {
+            score.add(ordering.get(k - 1));
+          }
+          if (k >= minNumTerms) {
+            histograms[k - minNumTerms].add(score.score());
+          }
+        }
+      }
+      if (Arrays.stream(histograms).allMatch(this::isPrecise)) {
+        break;
+      }
+    }
+
+    final ObjectScoreDistribution[] result = new ObjectScoreDistribution[histograms.length];
+    for (int i = 0; i < histograms.length; ++i) {
+      result[i] =
+          fit(
+              new ObjectScoreDistribution(
+                  objectId,
+                  minNumTerms + i,
+                  sampleSize,
+                  histograms[i].toCumulativeRelFreq(sampleSize)));
     }
 
+    LOGGER.info(
+        "Done computing nested precomputation for world object {} using {} samples.",
+        objectId,
+        sampleSize);
     return result;
   }
 
   /**
-   * Sample <code>count</code> random elements from the given {@link List} using PRNG <code>rng
-   * </code>.
+   * Append a completed distribution to the checkpoint.
    *
-   * <p><a href="http://stackoverflow.com/a/41322569/84349">Taken from StackOverflow.</a>
-   *
-   * @param src {@link List} to sample random elements from.
-   * @param count Number of elements to sample.
-   * @param rng PRNG to use for random number generation.
-   * @return List of sampled elements.
+   * @param checkpoint The {@link ScoreDistributionCheckpoint} to use, or <code>null</code>.
+   * @param dist The completed {@link ObjectScoreDistribution}.
+   * @return The checkpointed distribution, which is {@code dist} unless one was checkpointed
+   *     before.
+   * @throws PhenolRuntimeException On problems writing the checkpoint.
    */
-  private static <E> List<E> selectRandomElements(List<E> src, int count, Random rng) {
-    // Avoid running infinitely
-    if (count >= src.size()) {
-      return src;
+  private static ObjectScoreDistribution checkpoint(
+      ScoreDistributionCheckpoint checkpoint, ObjectScoreDistribution dist) {
+    if (checkpoint == null) {
+      return dist;
+    }
+    try {
+      checkpoint.append(dist);
+    } catch (SerializationException e) {
+      throw new PhenolRuntimeException("Could not write checkpoint", e);
     }
+    return checkpoint.get(dist.getNumTerms(), dist.getObjectId());
+  }
 
-    final List<E> selected = new ArrayList<>();
-    final Random random = new Random();
-    final int listSize = src.size();
+  /**
+   * @param dist Empirical {@link ObjectScoreDistribution}.
+   * @return Fitted distribution if configured and accepted, {@code dist} otherwise.
+   */
+  private ObjectScoreDistribution fit(ObjectScoreDistribution dist) {
+    return (fitter == null) ? dist : fitter.fit(dist);
+  }
 
-    // Get a random item until we got the requested amount
-    while (selected.size() < count) {
-      final int randomIndex = random.nextInt(listSize);
-      final E element = src.get(randomIndex);
-      if (!selected.contains(element)) {
-        selected.add(element);
+  /**
+   * Sample scores of random queries against the given world object's terms.
+   *
+   * <p>Runs {@link ScoreSamplingOptions#getNumIterations()} iterations or, in adaptive mode, stops
+   * after the first batch at which the tail quantile is precise enough, see {@link
+   * #isPrecise(ScoreHistogram)}.
+   *
+   * @param terms The {@link TermId}s that this object is labeled with.
+   * @param numTerms Number of query terms to use for the computation.
+   * @param rng Random number generator to use.
+   * @return {@link ScoreHistogram} of the sampled scores; its total is the sample size.
+   */
+  private ScoreHistogram sampleScores(Collection<TermId> terms, int numTerms, Random rng) {
+    final TermSampler sampler = new TermSampler(ontology.getNonObsoleteTermIds(), numTerms);
+
+    // Now, perform the iterations: pick random terms, compute score, and increment absolute
+    // frequency of the score rounded to three decimal places.
+    final ScoreHistogram histogram = new ScoreHistogram();
+    int sampleSize = 0;
+    while (sampleSize < options.getNumIterations()) {
+      for (final int end = nextBatchEnd(sampleSize); sampleSize < end; ++sampleSize) {
+        histogram.add(similarity.computeScore(sampler.next(rng), terms));
+      }
+      if (isPrecise(histogram)) {
+        break;
       }
     }
+    return histogram;
+  }
+
+  /**
+   * @param sampleSize Number of iterations done so far.
+   * @return Number of iterations after the next batch, all iterations if not adaptive.
+   */
+  private int nextBatchEnd(int sampleSize) {
+    if (!options.isAdaptiveSampling()) {
+      return options.getNumIterations();
+    }
+    return (int) Math.min(options.getNumIterations(), (long) sampleSize + options.getBatchSize());
+  }
 
-    return selected;
+  /**
+   * Check whether adaptive sampling can stop.
+   *
+   * <p>The upper tail quantile <code>x</code> with <code>P(score &gt;= x) = p</code> for the
+   * configured {@link ScoreSamplingOptions#getTailProbability()} is the order statistic at rank
+   * <code>n (1 - p)</code> of the <code>n</code> samples. The number of samples below the true
+   * quantile is binomial, such that the order statistics at ranks <code>n (1 - p) &plusmn; z
+   * sqrt(n p (1 - p))</code> with <code>z = 1.96</code> form an approximate 95% confidence interval
+   * of the quantile. Sampling stops once this interval is not wider than {@link
+   * ScoreSamplingOptions#getAdaptivePrecision()}; p values near <code>p</code> are then stable to
+   * within this score tolerance. Distributions with well-separated tails or few distinct scores
+   * reach this after few batches.
+   *
+   * @param histogram The scores sampled so far.
+   * @return Whether in adaptive mode and the tail quantile is precise enough.
+   */
+  private boolean isPrecise(ScoreHistogram histogram) {
+    if (!options.isAdaptiveSampling()) {
+      return false;
+    }
+    final long n = histogram.getTotal();
+    final double p = options.getTailProbability();
+    final double center = n * (1 - p);
+    final double halfWidth = CONFIDENCE_Z * Math.sqrt(n * p * (1 - p));
+    final long lower = Math.max(0, (long) Math.floor(center - halfWidth));
+    final long upper = Math.min(n - 1, (long) Math.ceil(center + halfWidth));
+    return histogram.scoreAtRank(upper) - histogram.scoreAtRank(lower)
+        <= options.getAdaptivePrecision();
   }
 }
@@ -0,0 +1,85 @@
+package org.monarchinitiative.phenol.ontology.scoredist;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * Sampler for random sets of distinct terms, reusing its buffers between draws.
+ *
+ * <p>A permutation of the term positions is kept; a draw of <code>k</code> terms performs the first
+ * <code>k</code> steps of a Fisher-Yates shuffle on it. The permutation is not reset, as shuffling
+ * any permutation gives a uniformly random sample. A draw thus takes <code>O(k)</code> random
+ * numbers and swaps and no allocations. All randomness comes from the given {@link Random}, such
+ * that draws are reproducible with a seeded generator.
+ *
+ * <p>Not thread-safe; use one sampler per thread.
+ */
+final class TermSampler {
+
+  /** The terms to sample from. */
+  private final TermId[] terms;
+
+  /** Permutation of the positions in {@link #terms}; the sample is its prefix. */
+  private final int[] permutation;
+
+  /** Number of terms per draw. */
+  private final int count;
+
+  /** View on the current sample. */
+  private final List<TermId> sample;
+
+  /**
+   * Constructor.
+   *
+   * @param terms The terms to sample from.
+   * @param count Number of terms per draw; all terms are returned if there are not more.
+   */
+  TermSampler(Collection<TermId> terms, int count) {
+    this.terms = terms.toArray(new TermId[0]);
+    this.permutation = new int[this.terms.length];
+    for (int i = 0; i < permutation.length; ++i) {
+      permutation[i] = i;
+    }
+    this.count = Math.min(count, this.terms.length);
+    this.sample =
+        new AbstractList<TermId>() {
+          @Override
+          public TermId get(int index) {
+            return TermSampler.this.terms[permutation[index]];
+          }
+
+          @Override
+          public int size() {
+            return TermSampler.this.count;
+          }
+        };
+  }
+
+  /**
+   * Draw the next sample.
+   *
+   * @param rng The random number generator to use.
+   * @return View on the sampled terms, only valid until the next draw.
+   */
+  List<TermId> next(Random rng) {
+    if (count < permutation.length) {
+      shuffle(count, rng);
+    }
+    return sample;
+  }
+
+  /** Perform the first {@code k} steps of a Fisher-Yates shuffle on {@link #permutation}. */
+  private void shuffle(int k, Random rng) {
+    final int n = permutation.length;
+    for (int i = 0; i < k; ++i) {
+      final int j = i + rng.nextInt(n - i);
+      final int tmp = permutation[i];
+      permutation[i] = permutation[j];
+      permutation[j] = tmp;
+    }
+  }
+}
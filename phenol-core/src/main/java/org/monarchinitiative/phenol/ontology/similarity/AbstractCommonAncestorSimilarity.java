@@ -3,6 +3,8 @@ package org.monarchinitiative.phenol.ontology.similarity;
 import java.io.Serializable;
 import java.util.Collection;
 
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 
 
@@ -18,7 +20,7 @@ import org.monarchinitiative.phenol.ontology.data.TermId;
  * @author <a href="mailto:sebastian.koehler@charite.de">Sebastian Koehler</a>
  */
 abstract class AbstractCommonAncestorSimilarity
-    implements Similarity, Serializable {
+    implements BestMatchAverageSimilarity, Serializable {
   static final long serialVersionUID = 2L;
 
   /** Whether or not to use symmetric score flavor (arithmetic mean of both directions). */
@@ -42,13 +44,127 @@ abstract class AbstractCommonAncestorSimilarity
 
   @Override
   public final double computeScore(Collection<TermId> query, Collection<TermId> target) {
-    if (symmetric) {
+    if (symmetric && pairwiseSimilarity.isSymmetric()) {
+      return computeSymmetricScoreImpl(query, target);
+    } else if (symmetric) {
       return 0.5 * (computeScoreImpl(query, target) + computeScoreImpl(target, query));
     } else {
       return computeScoreImpl(query, target);
     }
   }
 
+  @Override
+  public final double computeScore(CompiledTermSet query, CompiledTermSet target) {
+    if (pairwiseSimilarity instanceof IndexedPairwiseSimilarity
+        && query.isCompatible(
+            target, ((IndexedPairwiseSimilarity) pairwiseSimilarity).getClosureIndex())) {
+      return computeScore(query.getIndices(), target.getIndices());
+    } else {
+      return computeScore(query.getTermIds(), target.getTermIds());
+    }
+  }
+
+  /**
+   * Compute score between a query and a target array of term indices.
+   *
+   * <p>This requires the {@link PairwiseSimilarity} to be an {@link IndexedPairwiseSimilarity} and
+   * avoids resolving {@link TermId}s for callers that score the same term sets repeatedly.
+   *
+   * @param query Query term indices, see {@link IndexedPairwiseSimilarity#getClosureIndex()}.
+   * @param target Target term indices.
+   * @return Similarity score between <code>query</code> and <code>target</code>.
+   * @throws PhenolRuntimeException if the pairwise similarity does not support term indices.
+   */
+  public final double computeScore(int[] query, int[] target) {
+    if (!(pairwiseSimilarity instanceof IndexedPairwiseSimilarity)) {
+      throw new PhenolRuntimeException(
+          "Pairwise similarity does not support term indices: " + pairwiseSimilarity);
+    }
+    final IndexedPairwiseSimilarity indexed = (IndexedPairwiseSimilarity) pairwiseSimilarity;
+    if (symmetric && indexed.isSymmetric()) {
+      return BestMatchAverage.symmetric(
+          indexed, query, null, query.length, target, null, target.length);
+    } else if (symmetric) {
+      return 0.5
+          * (BestMatchAverage.directed(indexed, query, null, query.length, target, null)
+              + BestMatchAverage.directed(indexed, target, null, target.length, query, null));
+    } else {
+      return BestMatchAverage.directed(indexed, query, null, query.length, target, null);
+    }
+  }
+
+  /**
+   * Compute symmetric score in a single pass over all term pairs, tracking the best match of each
+   * query term (row maxima) and of each target term (column maxima) at the same time.
+   *
+   * <p>Requires the {@link PairwiseSimilarity} to be symmetric.
+   *
+   * @param query Query set of {@link TermId}s.
+   * @param target Target set of {@link TermId}s
+   * @return Symmetric similarity score between <code>query</code> and <code>target</code>.
+   */
+  private double computeSymmetricScoreImpl(Collection<TermId> query, Collection<TermId> target) {
+    final TermId[] queryIds = query.toArray(new TermId[0]);
+    final TermId[] targetIds = target.toArray(new TermId[0]);
+    if (pairwiseSimilarity instanceof IndexedPairwiseSimilarity) {
+      final IndexedPairwiseSimilarity indexed = (IndexedPairwiseSimilarity) pairwiseSimilarity;
+      final TermClosureIndex closureIndex = indexed.getClosureIndex();
+      return BestMatchAverage.symmetric(
+          indexed,
+          resolve(closureIndex, queryIds),
+          queryIds,
+          queryIds.length,
+          resolve(closureIndex, targetIds),
+          targetIds,
+          targetIds.length);
+    } else if (pairwiseSimilarity instanceof MappedSimilarityMatrix) {
+      final MappedSimilarityMatrix matrix = (MappedSimilarityMatrix) pairwiseSimilarity;
+      return BestMatchAverage.symmetric(
+          matrix,
+          resolve(matrix, queryIds),
+          queryIds,
+          queryIds.length,
+          resolve(matrix, targetIds),
+          targetIds,
+          targetIds.length);
+    }
+
+    final double[] colMax = new double[targetIds.length];
+    double rowSum = 0;
+    for (TermId q : queryIds) {
+      double rowMax = 0.0;
+      for (int j = 0; j < targetIds.length; ++j) {
+        final double value = pairwiseSimilarity.computeScore(q, targetIds[j]);
+        rowMax = Math.max(rowMax, value);
+        colMax[j] = Math.max(colMax[j], value);
+      }
+      rowSum += rowMax;
+    }
+    double colSum = 0;
+    for (double value : colMax) {
+      colSum += value;
+    }
+    return 0.5 * (rowSum / queryIds.length + colSum / targetIds.length);
+  }
+
+  /** @return Term indices of {@code termIds}, <code>-1</code> for unknown ones. */
+  private static int[] resolve(TermClosureIndex closureIndex, TermId[] termIds) {
+    final int[] result = new int[termIds.length];
+    for (int i = 0; i < termIds.length; ++i) {
+      result[i] = closureIndex.getIndex(termIds[i]);
+    }
+    return result;
+  }
+
+  /** @return Term indices of {@code termIds} in {@code matrix}, <code>-1</code> for unknown ones. */
+  private static int[] resolve(MappedSimilarityMatrix matrix, TermId[] termIds) {
+    final int[] result = new int[termIds.length];
+    for (int i = 0; i < termIds.length; ++i) {
+      result[i] = matrix.getTermIndex(termIds[i]);
+    }
+    return result;
+  }
+
   /**
    * Compute directed score between a query and a target set of {@link TermId}s.
    *
@@ -57,6 +173,30 @@ abstract class AbstractCommonAncestorSimilarity
    * @return Symmetric similarity score between <code>query</code> and <code>target</code>.
    */
   protected final double computeScoreImpl(Collection<TermId> query, Collection<TermId> target) {
+    if (pairwiseSimilarity instanceof IndexedPairwiseSimilarity) {
+      final IndexedPairwiseSimilarity indexed = (IndexedPairwiseSimilarity) pairwiseSimilarity;
+      final TermId[] queryIds = query.toArray(new TermId[0]);
+      final TermId[] targetIds = target.toArray(new TermId[0]);
+      return BestMatchAverage.directed(
+          indexed,
+          resolve(indexed.getClosureIndex(), queryIds),
+          queryIds,
+          queryIds.length,
+          resolve(indexed.getClosureIndex(), targetIds),
+          targetIds);
+    } else if (pairwiseSimilarity instanceof MappedSimilarityMatrix) {
+      final MappedSimilarityMatrix matrix = (MappedSimilarityMatrix) pairwiseSimilarity;
+      final TermId[] queryIds = query.toArray(new TermId[0]);
+      final TermId[] targetIds = target.toArray(new TermId[0]);
+      return BestMatchAverage.directed(
+          matrix,
+          resolve(matrix, queryIds),
+          queryIds,
+          queryIds.length,
+          resolve(matrix, targetIds),
+          targetIds);
+    }
+
     double sum = 0;
 
     for (TermId q : query) {
@@ -70,6 +210,11 @@ abstract class AbstractCommonAncestorSimilarity
     return sum / query.size();
   }
 
+  @Override
+  public final PairwiseSimilarity getPairwiseSimilarity() {
+    return pairwiseSimilarity;
+  }
+
   /** @return Whether score computation is to be symmetric. */
   public final boolean isSymmetric() {
     return symmetric;
@@ -0,0 +1,199 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import java.util.Arrays;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * Kernels for the best-match-average score of {@link AbstractCommonAncestorSimilarity} on term
+ * indices.
+ *
+ * <p>The directed score of query <code>Q</code> against target <code>T</code> is the average over
+ * <code>q</code> in <code>Q</code> of the best score of <code>q</code> against any term of <code>T
+ * </code> (at least 0). For a symmetric {@link PairwiseSimilarity}, both directions are computed in
+ * a single pass over the <code>|Q| x |T|</code> score block, tracking the row and column maxima at
+ * the same time.
+ *
+ * <p>If all terms are known, each row of the score block is first gathered into a primitive array
+ * with {@link IndexedScores#computeScores(int, int[], double[])} and then reduced in separate
+ * loops. These loops over <code>double[]</code> have no calls and no branches besides {@link
+ * Math#max(double, double)}, such that the JIT compiles them to SIMD instructions. The row and
+ * column maximum buffers are kept per thread and reused across calls.
+ *
+ * <p>Term indices of <code>-1</code> denote terms unknown to the {@link
+ * org.monarchinitiative.phenol.ontology.data.TermClosureIndex}; if {@link TermId}s are given, these
+ * are scored through {@link PairwiseSimilarity#computeScore(TermId, TermId)}, otherwise they are
+ * skipped. The sizes used for averaging are passed explicitly, such that callers can drop unknown
+ * terms from the arrays and still count them.
+ */
+final class BestMatchAverage {
+
+  /** Per-thread scratch buffers. */
+  private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+  private BestMatchAverage() {}
+
+  /**
+   * Compute the directed score.
+   *
+   * @param pairwise The similarity to use, scoring on term indices and {@link TermId}s.
+   * @param query Query term indices.
+   * @param queryIds Query {@link TermId}s, parallel to {@code query}, or <code>null</code>.
+   * @param querySize Number of query terms for averaging.
+   * @param target Target term indices.
+   * @param targetIds Target {@link TermId}s, parallel to {@code target}, or <code>null</code>.
+   * @return The directed score.
+   */
+  static <S extends PairwiseSimilarity & IndexedScores> double directed(
+      S pairwise,
+      int[] query,
+      TermId[] queryIds,
+      int querySize,
+      int[] target,
+      TermId[] targetIds) {
+    if (allKnown(query) && allKnown(target)) {
+      final double[] row = SCRATCH.get().row(target.length);
+      double sum = 0;
+      for (int q : query) {
+        pairwise.computeScores(q, target, row);
+        sum += rowMax(row, target.length);
+      }
+      return sum / querySize;
+    }
+
+    double sum = 0;
+    for (int i = 0; i < query.length; ++i) {
+      double maxValue = 0.0;
+      for (int j = 0; j < target.length; ++j) {
+        maxValue = Math.max(maxValue, score(pairwise, query, queryIds, i, target, targetIds, j));
+      }
+      sum += maxValue;
+    }
+    return sum / querySize;
+  }
+
+  /**
+   * Compute the symmetric score, i.e., the mean of both directed scores, in a single pass.
+   *
+   * <p>Requires {@code pairwise} to be symmetric.
+   *
+   * @param pairwise The symmetric similarity to use, scoring on term indices and {@link TermId}s.
+   * @param query Query term indices.
+   * @param queryIds Query {@link TermId}s, parallel to {@code query}, or <code>null</code>.
+   * @param querySize Number of query terms for averaging.
+   * @param target Target term indices.
+   * @param targetIds Target {@link TermId}s, parallel to {@code target}, or <code>null</code>.
+   * @param targetSize Number of target terms for averaging.
+   * @return The symmetric score.
+   */
+  static <S extends PairwiseSimilarity & IndexedScores> double symmetric(
+      S pairwise,
+      int[] query,
+      TermId[] queryIds,
+      int querySize,
+      int[] target,
+      TermId[] targetIds,
+      int targetSize) {
+    final Scratch scratch = SCRATCH.get();
+    final double[] colMax = scratch.colMax(target.length);
+    if (allKnown(query) && allKnown(target)) {
+      final double[] row = scratch.row(target.length);
+      double rowSum = 0;
+      for (int q : query) {
+        pairwise.computeScores(q, target, row);
+        rowSum += rowMax(row, target.length);
+        updateColMax(colMax, row, target.length);
+      }
+      return 0.5 * (rowSum / querySize + sum(colMax, target.length) / targetSize);
+    }
+
+    double rowSum = 0;
+    for (int i = 0; i < query.length; ++i) {
+      double rowMax = 0.0;
+      for (int j = 0; j < target.length; ++j) {
+        final double value = score(pairwise, query, queryIds, i, target, targetIds, j);
+        rowMax = Math.max(rowMax, value);
+        colMax[j] = Math.max(colMax[j], value);
+      }
+      rowSum += rowMax;
+    }
+    return 0.5 * (rowSum / querySize + sum(colMax, target.length) / targetSize);
+  }
+
+  /** @return Whether no index is <code>-1</code>. */
+  private static boolean allKnown(int[] indices) {
+    for (int idx : indices) {
+      if (idx == -1) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return Maximum of the first {@code n} entries of {@code row}, at least 0. */
+  private static double rowMax(double[] row, int n) {
+    double result = 0.0;
+    for (int j = 0; j < n; ++j) {
+      result = Math.max(result, row[j]);
+    }
+    return result;
+  }
+
+  /** Update the first {@code n} entries of {@code colMax} with the maximum with {@code row}. */
+  private static void updateColMax(double[] colMax, double[] row, int n) {
+    for (int j = 0; j < n; ++j) {
+      colMax[j] = Math.max(colMax[j], row[j]);
+    }
+  }
+
+  /** @return Sum of the first {@code n} entries of {@code values}. */
+  private static double sum(double[] values, int n) {
+    double result = 0;
+    for (int j = 0; j < n; ++j) {
+      result += values[j];
+    }
+    return result;
+  }
+
+  /** Compute pairwise score, falling back to {@link TermId}s for unknown terms. */
+  private static <S extends PairwiseSimilarity & IndexedScores> double score(
+      S pairwise,
+      int[] query,
+      TermId[] queryIds,
+      int i,
+      int[] target,
+      TermId[] targetIds,
+      int j) {
+    if (query[i] != -1 && target[j] != -1) {
+      return pairwise.computeScore(query[i], target[j]);
+    } else if (queryIds != null && targetIds != null) {
+      return pairwise.computeScore(queryIds[i], targetIds[j]);
+    } else {
+      return 0.0;
+    }
+  }
+
+  /** Row and column maximum buffers, grown on demand. */
+  private static final class Scratch {
+    private double[] row = new double[64];
+    private double[] colMax = new double[64];
+
+    /** @return Buffer of at least {@code n} entries, contents undefined. */
+    double[] row(int n) {
+      if (row.length < n) {
+        row = new double[Math.max(n, 2 * row.length)];
+      }
+      return row;
+    }
+
+    /** @return Buffer of at least {@code n} entries, the first {@code n} of which are 0. */
+    double[] colMax(int n) {
+      if (colMax.length < n) {
+        colMax = new double[Math.max(n, 2 * colMax.length)];
+      } else {
+        Arrays.fill(colMax, 0, n, 0.0);
+      }
+      return colMax;
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+/**
+ * A {@link Similarity} that is the best-match average of a {@link PairwiseSimilarity}.
+ *
+ * <p>The directed score of query <code>Q</code> against target <code>T</code> is the average over
+ * <code>q</code> in <code>Q</code> of the best score of <code>q</code> against any term of <code>T
+ * </code> (at least 0); the symmetric score is the mean of both directions. Exposing the pairwise
+ * similarity allows callers to update scores incrementally, e.g., when sampling score
+ * distributions.
+ */
+public interface BestMatchAverageSimilarity extends Similarity {
+
+  /** @return The {@link PairwiseSimilarity} used for term pairs. */
+  PairwiseSimilarity getPairwiseSimilarity();
+}
@@ -0,0 +1,90 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * {@link SimilarityMatrixSink} writing a compact binary format.
+ *
+ * <h5>File Format</h5>
+ *
+ * <p>All numbers are big endian, scores are stored as <code>float</code>.
+ *
+ * <pre>
+ * magic bytes "PHNLSMX\0"       8 bytes
+ * version                       int
+ * top-K (0 for all targets)     int
+ * number of queries             int
+ * number of targets             int
+ * query IDs, target IDs         modified UTF-8 (as DataOutput#writeUTF)
+ * for each query, in order:
+ *   all targets: one score per target, in target order
+ *   top-K:       number of entries (int), then per entry target position (int) and score
+ * </pre>
+ */
+public final class BinarySimilarityMatrixSink implements SimilarityMatrixSink {
+
+  /** Magic bytes at the beginning of the file. */
+  static final byte[] MAGIC_BYTES = "PHNLSMX\0".getBytes(StandardCharsets.US_ASCII);
+
+  /** Current file format version. */
+  static final int VERSION = 1;
+
+  /** The stream to write to. */
+  private final DataOutputStream out;
+
+  /** Whether to write top-K entries instead of full rows. */
+  private boolean pairs;
+
+  /**
+   * Constructor.
+   *
+   * @param outputStream The {@link OutputStream} to write to, closed with this sink.
+   */
+  public BinarySimilarityMatrixSink(OutputStream outputStream) {
+    this.out = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16));
+  }
+
+  @Override
+  public void begin(List<TermId> queryIds, List<TermId> targetIds, int topK) throws IOException {
+    this.pairs = topK > 0;
+    out.write(MAGIC_BYTES);
+    out.writeInt(VERSION);
+    out.writeInt(topK);
+    out.writeInt(queryIds.size());
+    out.writeInt(targetIds.size());
+    for (TermId queryId : queryIds) {
+      out.writeUTF(queryId.getValue());
+    }
+    for (TermId targetId : targetIds) {
+      out.writeUTF(targetId.getValue());
+    }
+  }
+
+  @Override
+  public void writeRow(int queryPos, int[] targetPositions, double[] scores, int count)
+      throws IOException {
+    if (pairs) {
+      out.writeInt(count);
+      for (int i = 0; i < count; ++i) {
+        out.writeInt(targetPositions[i]);
+        out.writeFloat((float) scores[i]);
+      }
+    } else {
+      for (int i = 0; i < count; ++i) {
+        out.writeFloat((float) scores[i]);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
@@ -0,0 +1,332 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * Decorator for a {@link PairwiseSimilarity} that caches computed scores in a size-bounded cache.
+ *
+ * <p>This is a middle ground between {@link PairwiseResnikSimilarity} (no memory, every query
+ * walks the ancestor sets) and {@link PrecomputingPairwiseResnikSimilarity} (quadratic memory).
+ * Workloads that repeatedly query a hot set of terms (e.g., the phenotypes of a patient against all
+ * diseases) get close to precomputed latency with a fixed memory budget.
+ *
+ * <h5>Cache Structure</h5>
+ *
+ * <p>The cache is set-associative: a pair of term indices (see {@link TermClosureIndex}) is packed
+ * into a <code>long</code> key that is hashed to a set of {@link #WAYS} slots. Slots hold immutable
+ * entries and are replaced with compare-and-set, so lookups and insertions are lock-free, and
+ * concurrent threads only contend when they hit the same set.
+ *
+ * <p>Eviction follows TinyLFU: the access frequencies of all keys (also of those not in the cache)
+ * are approximated with a count-min sketch of 4 bit counters that are periodically halved. On a
+ * miss in a full set, the candidate only replaces the least frequently used entry of the set if
+ * the candidate has been accessed more frequently. This keeps one-off pairs from flushing the hot
+ * pairs.
+ *
+ * <p>Pairs with terms unknown to the ontology are not cached but passed to the wrapped similarity.
+ *
+ * <h5>Term Indices</h5>
+ *
+ * <p>The cache is an {@link IndexedPairwiseSimilarity} on the {@link TermClosureIndex} of the
+ * ontology, such that best-match-average computations gather whole rows through {@link
+ * #computeScores(int, int[], double[])}. Misses are computed on term indices as well if the wrapped
+ * similarity is indexed by the same closure index, and on the primary {@link TermId}s otherwise.
+ */
+public final class CachingPairwiseSimilarity implements IndexedPairwiseSimilarity {
+
+  /** Number of slots per set. */
+  static final int WAYS = 4;
+
+  /** Approximate number of bytes per slot, entry object and its share of the sketch. */
+  static final int BYTES_PER_ENTRY = 48;
+
+  /** The wrapped {@link PairwiseSimilarity}. */
+  private final PairwiseSimilarity delegate;
+
+  /** The closure index for translating term IDs into indices. */
+  private final TermClosureIndex closureIndex;
+
+  /** {@link #delegate} if it is indexed by {@link #closureIndex}, <code>null</code> otherwise. */
+  private final IndexedPairwiseSimilarity indexedDelegate;
+
+  /** Whether scores are symmetric, such that <code>(a, b)</code> and <code>(b, a)</code> share. */
+  private final boolean symmetric;
+
+  /** The slots, <code>WAYS</code> consecutive slots form a set. */
+  private final AtomicReferenceArray<Entry> slots;
+
+  /** Mask for the set number. */
+  private final int setMask;
+
+  /** Frequency sketch for admission. */
+  private final FrequencySketch sketch;
+
+  /** Number of cache hits. */
+  private final LongAdder hitCount = new LongAdder();
+
+  /** Number of cache misses. */
+  private final LongAdder missCount = new LongAdder();
+
+  /** Number of evicted entries. */
+  private final LongAdder evictionCount = new LongAdder();
+
+  /** Number of pairs that were not cached because of unknown terms. */
+  private final LongAdder bypassCount = new LongAdder();
+
+  /**
+   * Construct new {@link CachingPairwiseSimilarity}.
+   *
+   * @param ontology {@link Ontology} that the terms come from.
+   * @param delegate The {@link PairwiseSimilarity} to wrap.
+   * @param maxBytes Approximate memory budget of the cache in bytes.
+   * @param symmetric Whether {@code delegate} is symmetric, as the Resnik similarity.
+   */
+  public CachingPairwiseSimilarity(
+      Ontology ontology, PairwiseSimilarity delegate, long maxBytes, boolean symmetric) {
+    if (maxBytes < WAYS * BYTES_PER_ENTRY) {
+      throw new PhenolRuntimeException("Cache memory budget too small: " + maxBytes);
+    }
+    this.delegate = delegate;
+    this.closureIndex = ontology.getTermClosureIndex();
+    this.indexedDelegate =
+        (delegate instanceof IndexedPairwiseSimilarity
+                && ((IndexedPairwiseSimilarity) delegate).getClosureIndex() == closureIndex)
+            ? (IndexedPairwiseSimilarity) delegate
+            : null;
+    this.symmetric = symmetric;
+    final long maxSets = Math.min(1L << 28, maxBytes / BYTES_PER_ENTRY / WAYS);
+    final int numSets = Integer.highestOneBit((int) maxSets);
+    this.slots = new AtomicReferenceArray<>(numSets * WAYS);
+    this.setMask = numSets - 1;
+    this.sketch = new FrequencySketch(numSets * WAYS);
+  }
+
+  /**
+   * Construct new {@link CachingPairwiseSimilarity} for a symmetric {@link PairwiseSimilarity}.
+   *
+   * @param ontology {@link Ontology} that the terms come from.
+   * @param delegate The {@link PairwiseSimilarity} to wrap.
+   * @param maxBytes Approximate memory budget of the cache in bytes.
+   */
+  public CachingPairwiseSimilarity(Ontology ontology, PairwiseSimilarity delegate, long maxBytes) {
+    this(ontology, delegate, maxBytes, true);
+  }
+
+  @Override
+  public double computeScore(TermId query, TermId target) {
+    final int lhs = closureIndex.getIndex(query);
+    final int rhs = closureIndex.getIndex(target);
+    if (lhs == -1 || rhs == -1) {
+      bypassCount.increment();
+      return delegate.computeScore(query, target);
+    }
+    return computeScore(lhs, rhs);
+  }
+
+  @Override
+  public double computeScore(int query, int target) {
+    final long key;
+    if (symmetric && query > target) {
+      key = ((long) target << 32) | query;
+    } else {
+      key = ((long) query << 32) | target;
+    }
+    final int hash = spread(key);
+    final int base = (hash & setMask) * WAYS;
+    sketch.increment(hash);
+    for (int way = 0; way < WAYS; ++way) {
+      final Entry entry = slots.get(base + way);
+      if (entry != null && entry.key == key) {
+        hitCount.increment();
+        return entry.value;
+      }
+    }
+    missCount.increment();
+    final double value =
+        (indexedDelegate != null)
+            ? indexedDelegate.computeScore(query, target)
+            : delegate.computeScore(closureIndex.getTermId(query), closureIndex.getTermId(target));
+    admit(base, new Entry(key, hash, value));
+    return value;
+  }
+
+  @Override
+  public void computeScores(int query, int[] targets, double[] out) {
+    for (int j = 0; j < targets.length; ++j) {
+      out[j] = computeScore(query, targets[j]);
+    }
+  }
+
+  @Override
+  public TermClosureIndex getClosureIndex() {
+    return closureIndex;
+  }
+
+  /** Insert {@code candidate} into the set at {@code base} if admitted by the sketch. */
+  private void admit(int base, Entry candidate) {
+    int victimWay = -1;
+    int victimFrequency = Integer.MAX_VALUE;
+    Entry victim = null;
+    for (int way = 0; way < WAYS; ++way) {
+      final Entry entry = slots.get(base + way);
+      if (entry == null) {
+        slots.compareAndSet(base + way, null, candidate);
+        return;
+      } else if (entry.key == candidate.key) {
+        return; // inserted concurrently
+      }
+      final int frequency = sketch.frequency(entry.hash);
+      if (frequency < victimFrequency) {
+        victimFrequency = frequency;
+        victimWay = way;
+        victim = entry;
+      }
+    }
+    if (sketch.frequency(candidate.hash) > victimFrequency
+        && slots.compareAndSet(base + victimWay, victim, candidate)) {
+      evictionCount.increment();
+    }
+  }
+
+  @Override
+  public boolean isSymmetric() {
+    return symmetric;
+  }
+
+  /** @return Number of lookups served from the cache. */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /** @return Number of lookups that had to be computed. */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /** @return Number of entries evicted from the cache. */
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  /** @return Number of lookups passed through because of unknown terms. */
+  public long getBypassCount() {
+    return bypassCount.sum();
+  }
+
+  /** @return Ratio of hits to cacheable lookups, <code>0</code> if there was none. */
+  public double getHitRate() {
+    final long hits = getHitCount();
+    final long total = hits + getMissCount();
+    return (total == 0) ? 0.0 : (double) hits / total;
+  }
+
+  /** @return Maximal number of cached entries. */
+  public int getCapacity() {
+    return slots.length();
+  }
+
+  /** @return The wrapped {@link PairwiseSimilarity}. */
+  public PairwiseSimilarity getDelegate() {
+    return delegate;
+  }
+
+  /** Mix the bits of {@code key}. */
+  private static int spread(long key) {
+    final long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /** Immutable cache entry. */
+  private static final class Entry {
+    /** The packed pair of term indices. */
+    final long key;
+    /** The spread hash of {@link #key}. */
+    final int hash;
+    /** The cached score. */
+    final double value;
+
+    Entry(long key, int hash, double value) {
+      this.key = key;
+      this.hash = hash;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Count-min sketch with four rows of 4 bit counters, packed 16 per <code>long</code>.
+   *
+   * <p>Updates are not atomic, lost increments only make the estimate slightly less accurate. After
+   * ten times the cache capacity increments all counters are halved, such that the sketch follows
+   * changes of the hot set.
+   */
+  private static final class FrequencySketch {
+    /** Seeds for the four rows. */
+    private static final int[] SEEDS = {0x97CB3127, 0xB1D5B8E5, 0xC4CEB9FE, 0x2F9E2A6B};
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private final LongAdder additions = new LongAdder();
+
+    FrequencySketch(int capacity) {
+      final int size = Integer.highestOneBit(Math.max(16, capacity / 4));
+      this.table = new long[size];
+      this.tableMask = size - 1;
+      this.sampleSize = 10 * capacity;
+    }
+
+    /** @return Position of the counter for {@code hash} in row {@code row}, in 4 bit units. */
+    private int counterIndex(int hash, int row) {
+      int h = (hash ^ SEEDS[row]) * 0x85EBCA6B;
+      h ^= h >>> 13;
+      return h & ((tableMask << 4) | 15);
+    }
+
+    int frequency(int hash) {
+      int result = 15;
+      for (int row = 0; row < 4; ++row) {
+        final int idx = counterIndex(hash, row);
+        final int count = (int) ((table[idx >>> 4] >>> ((idx & 15) << 2)) & 15L);
+        result = Math.min(result, count);
+      }
+      return result;
+    }
+
+    void increment(int hash) {
+      boolean added = false;
+      for (int row = 0; row < 4; ++row) {
+        final int idx = counterIndex(hash, row);
+        final int shift = (idx & 15) << 2;
+        final long word = table[idx >>> 4];
+        if (((word >>> shift) & 15L) != 15L) {
+          table[idx >>> 4] = word + (1L << shift);
+          added = true;
+        }
+      }
+      if (added) {
+        additions.increment();
+        // Only check occasionally, summing the adder is not free.
+        if ((ThreadLocalRandom.current().nextInt() & 63) == 0 && additions.sum() >= sampleSize) {
+          reset();
+        }
+      }
+    }
+
+    private synchronized void reset() {
+      if (additions.sum() < sampleSize) {
+        return;
+      }
+      for (int i = 0; i < table.length; ++i) {
+        table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+      }
+      additions.reset();
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermBitSet;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * A set of terms resolved once against a {@link TermClosureIndex}, for scoring it many times.
+ *
+ * <p>Compiling a term set resolves alternative IDs to the primary ones, drops terms that are not
+ * part of the ontology graph (obsolete and unknown terms), removes duplicates and, optionally,
+ * redundant terms that are ancestors of other terms in the set. The result is a sorted array of
+ * term indices together with the union of their ancestor closures, both with and without the root.
+ *
+ * <p>All {@link Similarity} implementations accept compiled term sets through {@link
+ * Similarity#computeScore(CompiledTermSet, CompiledTermSet)}. If the term sets were compiled
+ * against the {@link TermClosureIndex} used by the similarity, no {@link TermId} is looked up when
+ * scoring. Annotation profiles such as those of diseases only change with releases, so they should
+ * be compiled once after loading.
+ */
+public final class CompiledTermSet {
+
+  /** The {@link TermClosureIndex} the term indices refer to. */
+  private final TermClosureIndex closureIndex;
+
+  /** Sorted term indices. */
+  private final int[] indices;
+
+  /** Union of the ancestor closures, including the root. */
+  private final TermBitSet ancestors;
+
+  /** Union of the ancestor closures, excluding the root. */
+  private final TermBitSet ancestorsWithoutRoot;
+
+  private CompiledTermSet(TermClosureIndex closureIndex, int[] indices) {
+    this.closureIndex = closureIndex;
+    this.indices = indices;
+    final TermBitSet.Builder builder = new TermBitSet.Builder(closureIndex.countTerms());
+    for (int idx : indices) {
+      builder.addAll(closureIndex.getAncestors(idx));
+    }
+    this.ancestors = builder.build();
+    this.ancestorsWithoutRoot =
+        (closureIndex.getRootIndex() == -1)
+            ? ancestors
+            : ancestors.without(closureIndex.getRootIndex());
+  }
+
+  /**
+   * Compile a term set.
+   *
+   * @param ontology The {@link Ontology} whose {@link TermClosureIndex} to use.
+   * @param termIds The {@link TermId}s of the set.
+   * @param removeRedundant Whether to remove terms that are ancestors of other terms in the set.
+   * @return The {@link CompiledTermSet}.
+   */
+  public static CompiledTermSet compile(
+      Ontology ontology, Collection<TermId> termIds, boolean removeRedundant) {
+    return compile(ontology.getTermClosureIndex(), termIds, removeRedundant);
+  }
+
+  /**
+   * Compile a term set.
+   *
+   * @param closureIndex The {@link TermClosureIndex} to use.
+   * @param termIds The {@link TermId}s of the set.
+   * @param removeRedundant Whether to remove terms that are ancestors of other terms in the set.
+   * @return The {@link CompiledTermSet}.
+   */
+  public static CompiledTermSet compile(
+      TermClosureIndex closureIndex, Collection<TermId> termIds, boolean removeRedundant) {
+    int[] indices = new int[termIds.size()];
+    int k = 0;
+    for (TermId termId : termIds) {
+      final int idx = closureIndex.getIndex(termId);
+      if (idx != -1) {
+        indices[k++] = idx;
+      }
+    }
+    indices = Arrays.stream(indices, 0, k).sorted().distinct().toArray();
+
+    if (removeRedundant) {
+      final TermBitSet.Builder properAncestors = new TermBitSet.Builder(closureIndex.countTerms());
+      for (int idx : indices) {
+        properAncestors.addAll(closureIndex.getAncestors(idx).without(idx));
+      }
+      indices = Arrays.stream(indices).filter(idx -> !properAncestors.contains(idx)).toArray();
+    }
+    return new CompiledTermSet(closureIndex, indices);
+  }
+
+  /** @return The {@link TermClosureIndex} the term indices refer to. */
+  public TermClosureIndex getClosureIndex() {
+    return closureIndex;
+  }
+
+  /** @return Number of terms. */
+  public int size() {
+    return indices.length;
+  }
+
+  /** @return Whether there is no term. */
+  public boolean isEmpty() {
+    return indices.length == 0;
+  }
+
+  /** @return Sorted term indices; the array must not be modified. */
+  public int[] getIndices() {
+    return indices;
+  }
+
+  /**
+   * @param includeRoot Whether to include the root term.
+   * @return Union of the ancestor closures of all terms.
+   */
+  public TermBitSet getAncestors(boolean includeRoot) {
+    return includeRoot ? ancestors : ancestorsWithoutRoot;
+  }
+
+  /** @return The primary {@link TermId}s of the terms, in term index order. */
+  public List<TermId> getTermIds() {
+    return new AbstractList<TermId>() {
+      @Override
+      public TermId get(int index) {
+        return closureIndex.getTermId(indices[index]);
+      }
+
+      @Override
+      public int size() {
+        return indices.length;
+      }
+    };
+  }
+
+  /**
+   * @param other The other {@link CompiledTermSet}.
+   * @return Whether both were compiled against {@code closureIndex}.
+   */
+  boolean isCompatible(CompiledTermSet other, TermClosureIndex closureIndex) {
+    return this.closureIndex == closureIndex && other.closureIndex == closureIndex;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof CompiledTermSet)) {
+      return false;
+    }
+    final CompiledTermSet that = (CompiledTermSet) o;
+    return closureIndex == that.closureIndex && Arrays.equals(indices, that.indices);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(indices);
+  }
+
+  @Override
+  public String toString() {
+    return "CompiledTermSet" + getTermIds();
+  }
+}
@@ -1,11 +1,11 @@
 package org.monarchinitiative.phenol.ontology.similarity;
 
 import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermBitSet;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
 import org.monarchinitiative.phenol.ontology.data.TermId;
-import com.google.common.collect.Sets;
 
 import java.util.Collection;
-import java.util.Set;
 
 // TODO: opposite aware computation is not implemented (yet)
 
@@ -17,8 +17,8 @@ import java.util.Set;
  */
 public final class CosineSimilarity implements Similarity {
 
-  /** The {@link Ontology} to compute the similarity for. */
-  private final Ontology ontology;
+  /** The {@link TermClosureIndex} of the {@link Ontology} to compute the similarity for. */
+  private final TermClosureIndex closureIndex;
 
   /** Whether or not to compute in an opposite-aware fashion. */
   private final boolean oppositeAware;
@@ -41,7 +41,7 @@ public final class CosineSimilarity implements Similarity {
    * @param oppositeAware Whether or not to be opposite aware.
    */
   public CosineSimilarity(Ontology ontology, boolean oppositeAware) {
-    this.ontology = ontology;
+    this.closureIndex = ontology.getTermClosureIndex();
     this.oppositeAware = oppositeAware;
   }
 
@@ -62,10 +62,22 @@ public final class CosineSimilarity implements Similarity {
 
   @Override
   public double computeScore(Collection<TermId> query, Collection<TermId> target) {
-    final Set<TermId> termIdsQuery = ontology.getAllAncestorTermIds(query, false);
-    final Set<TermId> termIdsTarget = ontology.getAllAncestorTermIds(target, false);
+    return computeScore(
+        closureIndex.getAncestors(query, false), closureIndex.getAncestors(target, false));
+  }
+
+  @Override
+  public double computeScore(CompiledTermSet query, CompiledTermSet target) {
+    if (!query.isCompatible(target, closureIndex)) {
+      return computeScore(query.getTermIds(), target.getTermIds());
+    }
+    return computeScore(query.getAncestors(false), target.getAncestors(false));
+  }
+
+  /** Compute score from the ancestor closures (without root) of both sets. */
+  private double computeScore(TermBitSet termIdsQuery, TermBitSet termIdsTarget) {
 
-    return Sets.intersection(termIdsQuery, termIdsTarget).size()
-        / (Math.sqrt(termIdsQuery.size()) * Math.sqrt(termIdsTarget.size()));
+    return termIdsQuery.intersectionSize(termIdsTarget)
+        / (Math.sqrt(termIdsQuery.cardinality()) * Math.sqrt(termIdsTarget.cardinality()));
   }
 }
@@ -0,0 +1,14 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * A {@link PairwiseSimilarity} that can also compute scores directly on the term indices of a
+ * {@link TermClosureIndex}, avoiding the {@link TermId} lookups in tight loops.
+ */
+public interface IndexedPairwiseSimilarity extends PairwiseSimilarity, IndexedScores {
+
+  /** @return The {@link TermClosureIndex} defining the term indices. */
+  TermClosureIndex getClosureIndex();
+}
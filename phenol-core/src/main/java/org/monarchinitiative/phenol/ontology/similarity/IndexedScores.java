@@ -0,0 +1,39 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+
+/**
+ * Pairwise similarity scores on term indices, read by single entries or gathered by rows.
+ *
+ * <p>The numbering of the terms is defined by the implementation: the {@link TermClosureIndex} of
+ * an {@link IndexedPairwiseSimilarity}, or the term order of the file of a {@link
+ * MappedSimilarityMatrix}.
+ */
+public interface IndexedScores {
+
+  /**
+   * Compute similarity score between two terms, given their term indices.
+   *
+   * @param query Term index of the first term.
+   * @param target Term index of the second term.
+   * @return Similarity score between the two terms
+   */
+  double computeScore(int query, int target);
+
+  /**
+   * Compute similarity scores of one term against several terms.
+   *
+   * <p>The default implementation calls {@link #computeScore(int, int)} for each target.
+   * Implementations backed by a score or MICA matrix should override this with a plain loop over
+   * the matrix, saving the virtual call per pair.
+   *
+   * @param query Term index of the query term.
+   * @param targets Term indices of the target terms, none may be <code>-1</code>.
+   * @param out Receives the score against <code>targets[j]</code> at position <code>j</code>.
+   */
+  default void computeScores(int query, int[] targets, double[] out) {
+    for (int j = 0; j < targets.length; ++j) {
+      out[j] = computeScore(query, targets[j]);
+    }
+  }
+}
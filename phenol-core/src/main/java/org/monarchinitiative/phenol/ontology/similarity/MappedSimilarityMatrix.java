@@ -0,0 +1,710 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import java.io.*;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermBitSet;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ser.SerializationException;
+import org.monarchinitiative.phenol.utils.ProgressReporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Precomputed pairwise Resnik similarity matrix, stored in a file and accessed via memory mapping.
+ *
+ * <p>Use {@link #write(File, Ontology, Map, int, int)} for precomputing the matrix once and {@link
+ * #open(File)} for using it. As the file is mapped read-only with {@link FileChannel#map}, all JVMs
+ * on the same host share the same copy in the page cache, and opening the file is independent of
+ * the ontology size.
+ *
+ * <h5>Quantization</h5>
+ *
+ * <p>The Resnik score of two terms is the information content (IC) of their most informative common
+ * ancestor. Thus, the matrix stores 8 or 16 bit codes into a table of IC values. If the ontology
+ * has no more distinct IC values than codes, the table is lossless. Otherwise, the table entries
+ * are chosen evenly by rank from the sorted distinct IC values and each IC value is mapped to the
+ * closest entry.
+ *
+ * <h5>File Format</h5>
+ *
+ * <p>All numbers are big endian.
+ *
+ * <pre>
+ * magic bytes "PHNLSIM\0"       8 bytes
+ * version                       int
+ * bits per code (8 or 16)       int
+ * number of terms n             int
+ * flags                         int
+ * offset of matrix              long
+ * number of table entries m     int
+ * table                         m doubles
+ * number of term IDs k          int
+ * k times: term index (int), length of UTF-8 encoded term ID (short), UTF-8 bytes
+ * padding to matrix offset
+ * upper triangle (including the diagonal), row by row, n * (n + 1) / 2 codes
+ * if flag MICA is set:
+ *   padding to a multiple of 8
+ *   upper triangle of MICA term indices, as unsigned short (none: 0xFFFF) if n &lt; 65535,
+ *   otherwise as int (none: -1)
+ * </pre>
+ *
+ * <p>The term IDs include alternative IDs. The term indices are those of the ontology's {@link
+ * TermClosureIndex}. Flag {@link #FLAG_MICA} (bit 0) marks that the most informative common
+ * ancestor (MICA) of each pair is stored, see {@link #getMica(TermId, TermId)}; files written
+ * without MICAs have all flags cleared.
+ */
+public final class MappedSimilarityMatrix
+    implements MicaPairwiseSimilarity, IndexedScores, Closeable {
+
+  /** {@link Logger} object to use. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(MappedSimilarityMatrix.class);
+
+  /** Magic bytes at the beginning of the file. */
+  private static final byte[] MAGIC_BYTES = "PHNLSIM\0".getBytes(StandardCharsets.US_ASCII);
+
+  /** Current file format version. */
+  static final int VERSION = 1;
+
+  /** Size of the fixed part of the header. */
+  private static final int FIXED_HEADER_SIZE = 32;
+
+  /** Log2 of the size of the mapped chunks; a chunk must not exceed <code>2^31 - 1</code>. */
+  private static final int CHUNK_BITS = 30;
+
+  /** Number of rows to compute per task when writing. */
+  private static final int BLOCK_ROWS = 64;
+
+  /** Flag for stored MICA matrix. */
+  static final int FLAG_MICA = 1;
+
+  /** The open {@link FileChannel}. */
+  private final FileChannel channel;
+
+  /** Number of bits per code. */
+  private final int bitsPerCode;
+
+  /** Number of terms. */
+  private final int numTerms;
+
+  /** Mapping from code to IC value. */
+  private final double[] table;
+
+  /** Mapping from term ID (including alternative ones) to term index. */
+  private final Map<TermId, Integer> termIdToIdx;
+
+  /** Mapping from term index to primary term ID. */
+  private final TermId[] idxToTermId;
+
+  /** The mapped matrix, in chunks of <code>2^CHUNK_BITS</code> bytes. */
+  private final MappedByteBuffer[] chunks;
+
+  /** The mapped MICA matrix, in chunks, <code>null</code> if not stored. */
+  private final MappedByteBuffer[] micaChunks;
+
+  private MappedSimilarityMatrix(
+      FileChannel channel,
+      int bitsPerCode,
+      int numTerms,
+      double[] table,
+      Map<TermId, Integer> termIdToIdx,
+      TermId[] idxToTermId,
+      MappedByteBuffer[] chunks,
+      MappedByteBuffer[] micaChunks) {
+    this.channel = channel;
+    this.bitsPerCode = bitsPerCode;
+    this.numTerms = numTerms;
+    this.table = table;
+    this.termIdToIdx = termIdToIdx;
+    this.idxToTermId = idxToTermId;
+    this.chunks = chunks;
+    this.micaChunks = micaChunks;
+  }
+
+  /**
+   * Open a file written by {@link #write(File, Ontology, Map, int, int)}.
+   *
+   * @param file The file to open.
+   * @return The {@link MappedSimilarityMatrix}, to be closed after use.
+   * @throws SerializationException On problems reading the file or an invalid file.
+   */
+  public static MappedSimilarityMatrix open(File file) throws SerializationException {
+    FileChannel channel = null;
+    try {
+      channel = new RandomAccessFile(file, "r").getChannel();
+      final ByteBuffer fixed = ByteBuffer.allocate(FIXED_HEADER_SIZE);
+      readFully(channel, fixed, 0);
+      final byte[] magic = new byte[MAGIC_BYTES.length];
+      fixed.get(magic);
+      if (!Arrays.equals(magic, MAGIC_BYTES)) {
+        throw new SerializationException("Invalid magic bytes in " + file);
+      }
+      final int version = fixed.getInt();
+      if (version != VERSION) {
+        throw new SerializationException(
+            "Unsupported similarity matrix version " + version + " in " + file);
+      }
+      final int bitsPerCode = fixed.getInt();
+      final int numTerms = fixed.getInt();
+      final int flags = fixed.getInt();
+      final long matrixOffset = fixed.getLong();
+      if (bitsPerCode != 8 && bitsPerCode != 16) {
+        throw new SerializationException("Invalid number of bits per code: " + bitsPerCode);
+      }
+
+      final ByteBuffer header = ByteBuffer.allocate((int) (matrixOffset - FIXED_HEADER_SIZE));
+      readFully(channel, header, FIXED_HEADER_SIZE);
+      final double[] table = new double[header.getInt()];
+      for (int i = 0; i < table.length; ++i) {
+        table[i] = header.getDouble();
+      }
+      final int numIds = header.getInt();
+      final Map<TermId, Integer> termIdToIdx = new HashMap<>(2 * numIds);
+      final TermId[] idxToTermId = new TermId[numTerms];
+      for (int i = 0; i < numIds; ++i) {
+        final int idx = header.getInt();
+        final byte[] bytes = new byte[header.getShort()];
+        header.get(bytes);
+        final TermId termId = TermId.of(new String(bytes, StandardCharsets.UTF_8));
+        termIdToIdx.put(termId, idx);
+        if (idxToTermId[idx] == null) { // primary IDs come first
+          idxToTermId[idx] = termId;
+        }
+      }
+
+      final long matrixSize = numCodes(numTerms) * (bitsPerCode / 8);
+      final long micaOffset = micaOffset(matrixOffset, matrixSize);
+      final boolean hasMica = (flags & FLAG_MICA) != 0;
+      final long micaSize = hasMica ? numCodes(numTerms) * bytesPerMica(numTerms) : 0;
+      if (channel.size() < matrixOffset + matrixSize
+          || (hasMica && channel.size() < micaOffset + micaSize)) {
+        throw new SerializationException("Similarity matrix file is truncated: " + file);
+      }
+      final MappedByteBuffer[] chunks = mapChunks(channel, matrixOffset, matrixSize);
+      final MappedByteBuffer[] micaChunks =
+          hasMica ? mapChunks(channel, micaOffset, micaSize) : null;
+      LOGGER.info(
+          "Opened similarity matrix {} with {} terms and {} bit codes",
+          new Object[] {file, numTerms, bitsPerCode});
+      return new MappedSimilarityMatrix(
+          channel, bitsPerCode, numTerms, table, termIdToIdx, idxToTermId, chunks, micaChunks);
+    } catch (IOException | RuntimeException e) {
+      closeQuietly(channel);
+      throw new SerializationException("Problem opening similarity matrix " + file, e);
+    } catch (SerializationException e) {
+      closeQuietly(channel);
+      throw e;
+    }
+  }
+
+  /**
+   * Precompute the pairwise Resnik similarity of all terms in {@code ontology} and write it to
+   * {@code file}, without MICAs.
+   *
+   * @param file The file to write to.
+   * @param ontology The {@link Ontology} to use.
+   * @param termToIc {@link Map} from {@link TermId} to its information content.
+   * @param bitsPerCode Number of bits per code, 8 or 16.
+   * @param numThreads Number of threads to use for the computation.
+   * @throws SerializationException On problems writing the file.
+   */
+  public static void write(
+      File file, Ontology ontology, Map<TermId, Double> termToIc, int bitsPerCode, int numThreads)
+      throws SerializationException {
+    write(file, ontology, termToIc, bitsPerCode, numThreads, false);
+  }
+
+  /**
+   * Precompute the pairwise Resnik similarity of all terms in {@code ontology} and write it to
+   * {@code file}.
+   *
+   * @param file The file to write to.
+   * @param ontology The {@link Ontology} to use.
+   * @param termToIc {@link Map} from {@link TermId} to its information content.
+   * @param bitsPerCode Number of bits per code, 8 or 16.
+   * @param numThreads Number of threads to use for the computation.
+   * @param storeMica Whether to also store the most informative common ancestor of each pair.
+   * @throws SerializationException On problems writing the file.
+   */
+  public static void write(
+      File file,
+      Ontology ontology,
+      Map<TermId, Double> termToIc,
+      int bitsPerCode,
+      int numThreads,
+      boolean storeMica)
+      throws SerializationException {
+    if (bitsPerCode != 8 && bitsPerCode != 16) {
+      throw new PhenolRuntimeException("bitsPerCode must be 8 or 16 but was " + bitsPerCode);
+    }
+    final TermClosureIndex closureIndex = ontology.getTermClosureIndex();
+    final int numTerms = closureIndex.countTerms();
+
+    final double[] termIc = new double[numTerms];
+    for (int i = 0; i < numTerms; ++i) {
+      termIc[i] = termToIc.getOrDefault(closureIndex.getTermId(i), 0.0);
+    }
+    final double[] table = buildTable(termIc, 1 << bitsPerCode);
+    final int[] termCode = new int[numTerms];
+    for (int i = 0; i < numTerms; ++i) {
+      termCode[i] = closestCode(table, termIc[i]);
+    }
+
+    final ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(headerBytes)) {
+      out.writeInt(table.length);
+      for (double value : table) {
+        out.writeDouble(value);
+      }
+      final List<TermId> ids = new ArrayList<>();
+      for (int i = 0; i < numTerms; ++i) {
+        ids.add(closureIndex.getTermId(i));
+      }
+      for (Map.Entry<TermId, Term> entry : ontology.getTermMap().entrySet()) {
+        if (!entry.getKey().equals(entry.getValue().getId())
+            && closureIndex.getIndex(entry.getKey()) != -1) {
+          ids.add(entry.getKey());
+        }
+      }
+      out.writeInt(ids.size());
+      for (TermId termId : ids) {
+        final byte[] bytes = termId.getValue().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(closureIndex.getIndex(termId));
+        out.writeShort(bytes.length);
+        out.write(bytes);
+      }
+    } catch (IOException e) {
+      throw new SerializationException("Problem building similarity matrix header", e);
+    }
+    final long matrixOffset = (FIXED_HEADER_SIZE + headerBytes.size() + 7) & ~7L;
+    final long micaOffset = micaOffset(matrixOffset, numCodes(numTerms) * (bitsPerCode / 8));
+
+    LOGGER.info(
+        "Precomputing similarity matrix for {} terms into {}...", new Object[] {numTerms, file});
+    final ProgressReporter progressReport = new ProgressReporter(LOGGER, "terms", numTerms);
+    progressReport.start();
+    final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        FileChannel out = raf.getChannel()) {
+      out.truncate(0);
+      final ByteArrayOutputStream fixedBytes = new ByteArrayOutputStream();
+      try (DataOutputStream fixed = new DataOutputStream(fixedBytes)) {
+        fixed.write(MAGIC_BYTES);
+        fixed.writeInt(VERSION);
+        fixed.writeInt(bitsPerCode);
+        fixed.writeInt(numTerms);
+        fixed.writeInt(storeMica ? FLAG_MICA : 0);
+        fixed.writeLong(matrixOffset);
+        headerBytes.writeTo(fixed);
+        for (long i = FIXED_HEADER_SIZE + headerBytes.size(); i < matrixOffset; ++i) {
+          fixed.write(0);
+        }
+      }
+      writeFully(out, ByteBuffer.wrap(fixedBytes.toByteArray()), 0);
+
+      // Compute blocks of rows in parallel, but write them in order, with a bounded window. The
+      // codes and MICAs of a block go to their positions in the respective matrix.
+      final Deque<Future<RowBlock>> window = new ArrayDeque<>();
+      final long[] positions = {matrixOffset, micaOffset};
+      for (int begin = 0; begin < numTerms; begin += BLOCK_ROWS) {
+        final int from = begin;
+        final int to = Math.min(numTerms, begin + BLOCK_ROWS);
+        window.add(
+            executor.submit(
+                () ->
+                    computeRows(closureIndex, termIc, termCode, bitsPerCode, storeMica, from, to)));
+        if (window.size() >= 2 * numThreads) {
+          writeBlock(out, window.poll().get(), positions);
+          progressReport.setCurrent(to - window.size() * BLOCK_ROWS);
+        }
+      }
+      while (!window.isEmpty()) {
+        writeBlock(out, window.poll().get(), positions);
+      }
+      progressReport.setCurrent(numTerms);
+    } catch (IOException | ExecutionException e) {
+      throw new SerializationException("Problem writing similarity matrix " + file, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SerializationException("Interrupted writing similarity matrix " + file, e);
+    } finally {
+      executor.shutdownNow();
+    }
+    progressReport.stop();
+    LOGGER.info("Done precomputing similarity matrix.");
+  }
+
+  /** Write {@code block} at {@code positions} (codes, MICAs) and advance them. */
+  private static void writeBlock(FileChannel out, RowBlock block, long[] positions)
+      throws IOException {
+    writeFully(out, ByteBuffer.wrap(block.codes), positions[0]);
+    positions[0] += block.codes.length;
+    if (block.micas != null) {
+      writeFully(out, ByteBuffer.wrap(block.micas), positions[1]);
+      positions[1] += block.micas.length;
+    }
+  }
+
+  /** Encoded codes and MICAs for a block of rows. */
+  private static final class RowBlock {
+    /** The encoded codes. */
+    final byte[] codes;
+    /** The encoded MICAs, <code>null</code> if not stored. */
+    final byte[] micas;
+
+    RowBlock(byte[] codes, byte[] micas) {
+      this.codes = codes;
+      this.micas = micas;
+    }
+  }
+
+  /**
+   * Compute the codes (and MICAs) of the upper triangle for rows <code>[from, to)</code>.
+   *
+   * <p>For row <code>i</code>, the ancestors of <code>i</code> are visited by decreasing IC. Each
+   * descendant <code>j &gt;= i</code> of such an ancestor that has not been assigned yet gets the
+   * ancestor's code, as this is the most informative common ancestor of <code>i</code> and <code>j
+   * </code>. Terms without common ancestor of positive IC keep code 0, the smallest IC. When storing
+   * MICAs, ancestors without positive IC are visited as well, such that the MICA is only missing
+   * for terms without any common ancestor.
+   */
+  private static RowBlock computeRows(
+      TermClosureIndex closureIndex,
+      double[] termIc,
+      int[] termCode,
+      int bitsPerCode,
+      boolean storeMica,
+      int from,
+      int to) {
+    final int numTerms = termIc.length;
+    final int bytesPerCode = bitsPerCode / 8;
+    final long numPairs = numCodes(numTerms - from) - numCodes(numTerms - to);
+    final ByteBuffer buffer = ByteBuffer.allocate((int) (numPairs * bytesPerCode));
+    final int bytesPerMica = bytesPerMica(numTerms);
+    final ByteBuffer micaBuffer =
+        storeMica ? ByteBuffer.allocate((int) (numPairs * bytesPerMica)) : null;
+    final int[] rowCodes = new int[numTerms];
+    final int[] rowMicas = new int[numTerms];
+    final long[] assigned = new long[(numTerms + 63) >>> 6];
+    for (int i = from; i < to; ++i) {
+      final int row = i;
+      final Integer[] ancestors =
+          Arrays.stream(closureIndex.getAncestors(i).toArray()).boxed().toArray(Integer[]::new);
+      Arrays.sort(ancestors, (lhs, rhs) -> Double.compare(termIc[rhs], termIc[lhs]));
+      Arrays.fill(rowCodes, row, numTerms, 0);
+      Arrays.fill(rowMicas, row, numTerms, -1);
+      Arrays.fill(assigned, 0L);
+      final int[] numAssigned = new int[1];
+      for (int a : ancestors) {
+        if ((termCode[a] == 0 && !storeMica) || numAssigned[0] == numTerms - row) {
+          break;
+        }
+        final int code = termCode[a];
+        final TermBitSet descendants = closureIndex.getDescendants(a);
+        descendants.forEach(
+            j -> {
+              if (j >= row && (assigned[j >>> 6] & (1L << j)) == 0) {
+                assigned[j >>> 6] |= 1L << j;
+                rowCodes[j] = code;
+                rowMicas[j] = a;
+                numAssigned[0]++;
+              }
+            });
+      }
+      for (int j = row; j < numTerms; ++j) {
+        if (bytesPerCode == 1) {
+          buffer.put((byte) rowCodes[j]);
+        } else {
+          buffer.putShort((short) rowCodes[j]);
+        }
+        if (micaBuffer != null) {
+          if (bytesPerMica == 2) {
+            micaBuffer.putShort((short) rowMicas[j]);
+          } else {
+            micaBuffer.putInt(rowMicas[j]);
+          }
+        }
+      }
+    }
+    return new RowBlock(buffer.array(), (micaBuffer == null) ? null : micaBuffer.array());
+  }
+
+  /**
+   * Build the table of IC values.
+   *
+   * @param termIc IC value for each term.
+   * @param maxSize Maximal number of entries.
+   * @return Sorted table of IC values, the first entry is the smallest value (and at most 0).
+   */
+  static double[] buildTable(double[] termIc, int maxSize) {
+    final double[] distinct =
+        Arrays.stream(termIc).map(x -> x == 0.0 ? 0.0 : x).distinct().sorted().toArray();
+    final double[] values;
+    if (distinct.length == 0 || distinct[0] > 0.0) {
+      values = new double[distinct.length + 1];
+      System.arraycopy(distinct, 0, values, 1, distinct.length);
+    } else {
+      values = distinct;
+    }
+    if (values.length <= maxSize) {
+      return values;
+    }
+    final double[] result = new double[maxSize];
+    for (int k = 0; k < maxSize; ++k) {
+      result[k] = values[(int) ((long) k * (values.length - 1) / (maxSize - 1))];
+    }
+    return result;
+  }
+
+  /** @return Code of the table entry closest to {@code value}. */
+  static int closestCode(double[] table, double value) {
+    final int pos = Arrays.binarySearch(table, value);
+    if (pos >= 0) {
+      return pos;
+    }
+    final int insert = -(pos + 1);
+    if (insert == 0) {
+      return 0;
+    } else if (insert == table.length) {
+      return table.length - 1;
+    } else {
+      return (value - table[insert - 1] <= table[insert] - value) ? insert - 1 : insert;
+    }
+  }
+
+  /** @return Number of entries in the upper triangle (including diagonal) of an n x n matrix. */
+  private static long numCodes(long n) {
+    return n * (n + 1) / 2;
+  }
+
+  /** @return Number of bytes per MICA entry for {@code numTerms} terms. */
+  private static int bytesPerMica(int numTerms) {
+    return (numTerms < 0xFFFF) ? 2 : 4;
+  }
+
+  /** @return Offset of the MICA matrix, following the code matrix. */
+  private static long micaOffset(long matrixOffset, long matrixSize) {
+    return (matrixOffset + matrixSize + 7) & ~7L;
+  }
+
+  /** Map {@code size} bytes at {@code offset} read-only in chunks of <code>2^CHUNK_BITS</code>. */
+  private static MappedByteBuffer[] mapChunks(FileChannel channel, long offset, long size)
+      throws IOException {
+    final int numChunks = (int) ((size + (1L << CHUNK_BITS) - 1) >>> CHUNK_BITS);
+    final MappedByteBuffer[] result = new MappedByteBuffer[Math.max(1, numChunks)];
+    for (int i = 0; i < result.length; ++i) {
+      final long begin = (long) i << CHUNK_BITS;
+      final long chunkSize = Math.min(1L << CHUNK_BITS, size - begin);
+      result[i] =
+          channel.map(FileChannel.MapMode.READ_ONLY, offset + begin, Math.max(0, chunkSize));
+    }
+    return result;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    long pos = position;
+    while (buffer.hasRemaining()) {
+      pos += channel.write(buffer, pos);
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    long pos = position;
+    while (buffer.hasRemaining()) {
+      final int n = channel.read(buffer, pos);
+      if (n < 0) {
+        throw new EOFException("Unexpected end of similarity matrix file");
+      }
+      pos += n;
+    }
+    ((Buffer) buffer).flip();
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        LOGGER.warn("Problem closing file", e);
+      }
+    }
+  }
+
+  /** @return Number of terms in the matrix. */
+  public int countTerms() {
+    return numTerms;
+  }
+
+  /** @return Number of bits per code, 8 or 16. */
+  public int getBitsPerCode() {
+    return bitsPerCode;
+  }
+
+  /**
+   * @param termId The primary or alternative {@link TermId} to query for.
+   * @return The term index, <code>-1</code> if not known.
+   */
+  public int getTermIndex(TermId termId) {
+    final Integer idx = termIdToIdx.get(termId);
+    return (idx == null) ? -1 : idx;
+  }
+
+  /**
+   * Return score for two term indices.
+   *
+   * @param lhs First term index.
+   * @param rhs Second term index.
+   * @return The (quantized) Resnik similarity score.
+   */
+  public double getScore(int lhs, int rhs) {
+    final long pos = position(lhs, rhs);
+    if (bitsPerCode == 8) {
+      return table[chunks[(int) (pos >>> CHUNK_BITS)].get((int) (pos & ((1 << CHUNK_BITS) - 1)))
+          & 0xFF];
+    } else {
+      final long bytePos = 2 * pos;
+      return table[
+          chunks[(int) (bytePos >>> CHUNK_BITS)].getShort(
+                  (int) (bytePos & ((1 << CHUNK_BITS) - 1)))
+              & 0xFFFF];
+    }
+  }
+
+  /**
+   * Same as {@link #getScore(int, int)}, the term indices are those of {@link
+   * #getTermIndex(TermId)}.
+   */
+  @Override
+  public double computeScore(int query, int target) {
+    return getScore(query, target);
+  }
+
+  /**
+   * Gather the scores of row {@code query}.
+   *
+   * <p>Targets at or after {@code query} are read from the stored row of {@code query}, the others
+   * from its column; no virtual call is made per pair.
+   */
+  @Override
+  public void computeScores(int query, int[] targets, double[] out) {
+    final long rowStart = position(query, query) - query;
+    final int mask = (1 << CHUNK_BITS) - 1;
+    if (bitsPerCode == 8) {
+      for (int j = 0; j < targets.length; ++j) {
+        final int target = targets[j];
+        final long pos = (target >= query) ? rowStart + target : position(target, query);
+        out[j] = table[chunks[(int) (pos >>> CHUNK_BITS)].get((int) (pos & mask)) & 0xFF];
+      }
+    } else {
+      for (int j = 0; j < targets.length; ++j) {
+        final int target = targets[j];
+        final long bytePos = 2 * ((target >= query) ? rowStart + target : position(target, query));
+        out[j] =
+            table[chunks[(int) (bytePos >>> CHUNK_BITS)].getShort((int) (bytePos & mask)) & 0xFFFF];
+      }
+    }
+  }
+
+  /** @return Position of the pair in the upper triangle. */
+  private long position(int lhs, int rhs) {
+    final long i = Math.min(lhs, rhs);
+    final long j = Math.max(lhs, rhs);
+    return i * numTerms - i * (i - 1) / 2 + (j - i);
+  }
+
+  /**
+   * Return MICA for two term indices.
+   *
+   * @param lhs First term index.
+   * @param rhs Second term index.
+   * @return Term index of the MICA, <code>-1</code> if there is no common ancestor.
+   * @throws PhenolRuntimeException if the file has no MICAs.
+   */
+  public int getMica(int lhs, int rhs) {
+    if (micaChunks == null) {
+      throw new PhenolRuntimeException("Similarity matrix was written without MICAs");
+    }
+    final long pos = position(lhs, rhs);
+    if (bytesPerMica(numTerms) == 2) {
+      final long bytePos = 2 * pos;
+      final int value =
+          micaChunks[(int) (bytePos >>> CHUNK_BITS)].getShort(
+                  (int) (bytePos & ((1 << CHUNK_BITS) - 1)))
+              & 0xFFFF;
+      return (value == 0xFFFF) ? -1 : value;
+    } else {
+      final long bytePos = 4 * pos;
+      return micaChunks[(int) (bytePos >>> CHUNK_BITS)].getInt(
+          (int) (bytePos & ((1 << CHUNK_BITS) - 1)));
+    }
+  }
+
+  @Override
+  public boolean hasMica() {
+    return micaChunks != null;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws PhenolRuntimeException if the file has no MICAs.
+   */
+  @Override
+  public TermId getMica(TermId query, TermId target) {
+    if (micaChunks == null) {
+      throw new PhenolRuntimeException("Similarity matrix was written without MICAs");
+    }
+    final int lhs = getTermIndex(query);
+    final int rhs = getTermIndex(target);
+    if (lhs == -1 || rhs == -1) {
+      return null;
+    }
+    final int mica = getMica(lhs, rhs);
+    return (mica == -1) ? null : idxToTermId[mica];
+  }
+
+  /**
+   * Return score for two terms, unknown terms have a score of 0, as in {@link
+   * PrecomputingPairwiseResnikSimilarity}.
+   */
+  @Override
+  public double computeScore(TermId query, TermId target) {
+    final int lhs = getTermIndex(query);
+    final int rhs = getTermIndex(target);
+    if (lhs == -1 || rhs == -1) {
+      return 0.0;
+    }
+    return getScore(lhs, rhs);
+  }
+
+  @Override
+  public boolean isSymmetric() {
+    return true;
+  }
+
+  /**
+   * Close the underlying file.
+   *
+   * <p>Note that the memory mapping itself is only released once the object has been garbage
+   * collected.
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
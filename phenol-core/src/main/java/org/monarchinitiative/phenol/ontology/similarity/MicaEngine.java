@@ -0,0 +1,363 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+import org.monarchinitiative.phenol.ontology.algo.IcOrderedAncestors;
+import org.monarchinitiative.phenol.ontology.algo.InformationContent;
+import org.monarchinitiative.phenol.ontology.data.TermBitSet;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared most informative common ancestor (MICA) computation for all IC-based measures.
+ *
+ * <p>The MICA of each term pair is either computed on demand with {@link IcOrderedAncestors} or
+ * precomputed once for all pairs (upper triangle of term indices, 4 bytes per pair). All {@link
+ * Measure}s are derived from the MICA and the IC of the two terms, such that switching between
+ * measures needs no further precomputation. The group-wise simGIC measure is provided by {@link
+ * #simGic()}.
+ *
+ * <p>Let <code>m</code> be the MICA of <code>a</code> and <code>b</code>, then the measures are
+ * defined as follows, and are 0 if there is no common ancestor.
+ *
+ * <ul>
+ *   <li>Resnik: <code>IC(m)</code>
+ *   <li>Lin: <code>2 IC(m) / (IC(a) + IC(b))</code>, 0 if the denominator is 0
+ *   <li>Jiang-Conrath, as similarity: <code>1 / (1 + IC(a) + IC(b) - 2 IC(m))</code>
+ *   <li>Relevance (Schlicker et al.): <code>Lin(a, b) * (1 - exp(-IC(m)))</code>
+ * </ul>
+ */
+public final class MicaEngine implements Serializable {
+
+  /** Serial UID for serialization. */
+  private static final long serialVersionUID = 1L;
+
+  /** {@link Logger} object to use. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(MicaEngine.class);
+
+  /** Number of rows per precomputation task. */
+  private static final int BLOCK_ROWS = 64;
+
+  /** IC-based pairwise measures derived from the MICA. */
+  public enum Measure {
+    /** Resnik similarity. */
+    RESNIK("Resnik similarity"),
+    /** Lin similarity. */
+    LIN("Lin similarity"),
+    /** Jiang-Conrath similarity. */
+    JIANG_CONRATH("Jiang-Conrath similarity"),
+    /** Relevance similarity. */
+    RELEVANCE("Relevance similarity");
+
+    /** Human-readable name. */
+    private final String name;
+
+    Measure(String name) {
+      this.name = name;
+    }
+
+    /** @return Human-readable name. */
+    public String getName() {
+      return name;
+    }
+  }
+
+  /** The IC-ordered ancestors for computing the MICA. */
+  private final IcOrderedAncestors icOrderedAncestors;
+
+  /** Precomputed MICA for the upper triangle of term indices, <code>null</code> if on demand. */
+  private final int[] micaTable;
+
+  /**
+   * Construct {@link MicaEngine} computing the MICA on demand.
+   *
+   * @param informationContent The {@link InformationContent} of the terms.
+   */
+  public MicaEngine(InformationContent informationContent) {
+    this.icOrderedAncestors = IcOrderedAncestors.of(informationContent);
+    this.micaTable = null;
+  }
+
+  /**
+   * Construct {@link MicaEngine} with precomputed MICAs.
+   *
+   * @param informationContent The {@link InformationContent} of the terms.
+   * @param numThreads Number of threads to use for precomputation.
+   * @throws PhenolRuntimeException if the ontology has too many terms for an in-memory table.
+   */
+  public MicaEngine(InformationContent informationContent, int numThreads) {
+    this.icOrderedAncestors = IcOrderedAncestors.of(informationContent);
+    final long n = icOrderedAncestors.getClosureIndex().countTerms();
+    final long size = n * (n + 1) / 2;
+    if (size > Integer.MAX_VALUE - 8) {
+      throw new PhenolRuntimeException(
+          "Too many terms for precomputing MICAs in memory (" + n + "), use on-demand mode");
+    }
+    this.micaTable = new int[(int) size];
+    precompute(numThreads);
+  }
+
+  /** Fill {@link #micaTable}, see {@link MappedSimilarityMatrix} for the algorithm. */
+  private void precompute(int numThreads) {
+    final int numTerms = icOrderedAncestors.getClosureIndex().countTerms();
+    LOGGER.info("Precomputing MICAs for {} terms...", numTerms);
+    final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int begin = 0; begin < numTerms; begin += BLOCK_ROWS) {
+        final int from = begin;
+        final int to = Math.min(numTerms, begin + BLOCK_ROWS);
+        futures.add(executor.submit(() -> precomputeRows(from, to)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      throw new PhenolRuntimeException("Problem precomputing MICAs", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PhenolRuntimeException("Interrupted precomputing MICAs", e);
+    } finally {
+      executor.shutdownNow();
+    }
+    LOGGER.info("Done precomputing MICAs.");
+  }
+
+  /**
+   * Precompute rows <code>[from, to)</code>: the ancestors of row <code>i</code> are visited in
+   * IC order and assigned to all their descendants <code>j &gt;= i</code> that have no MICA yet.
+   */
+  private void precomputeRows(int from, int to) {
+    final TermClosureIndex closureIndex = icOrderedAncestors.getClosureIndex();
+    final int numTerms = closureIndex.countTerms();
+    final boolean[] assigned = new boolean[numTerms];
+    for (int i = from; i < to; ++i) {
+      final int row = i;
+      final long offset = rowOffset(row, numTerms);
+      Arrays.fill(assigned, row, numTerms, false);
+      for (int j = row; j < numTerms; ++j) {
+        micaTable[(int) (offset + j - row)] = -1;
+      }
+      final int[] remaining = {numTerms - row};
+      for (int ancestor : icOrderedAncestors.getSortedAncestors(row)) {
+        if (remaining[0] == 0) {
+          break;
+        }
+        final TermBitSet descendants = closureIndex.getDescendants(ancestor);
+        descendants.forEach(
+            j -> {
+              if (j >= row && !assigned[j]) {
+                assigned[j] = true;
+                micaTable[(int) (offset + j - row)] = ancestor;
+                remaining[0]--;
+              }
+            });
+      }
+    }
+  }
+
+  /** @return Position of <code>(i, i)</code> in the upper triangle. */
+  private static long rowOffset(long i, long n) {
+    return i * n - i * (i - 1) / 2;
+  }
+
+  /** @return The {@link TermClosureIndex} defining the term indices. */
+  public TermClosureIndex getClosureIndex() {
+    return icOrderedAncestors.getClosureIndex();
+  }
+
+  /** @return Whether the MICAs have been precomputed. */
+  public boolean isPrecomputed() {
+    return micaTable != null;
+  }
+
+  /**
+   * @param idx Term index.
+   * @return IC of the term.
+   */
+  public double getInformationContent(int idx) {
+    return icOrderedAncestors.getInformationContent(idx);
+  }
+
+  /**
+   * @param lhs Term index of the first term.
+   * @param rhs Term index of the second term.
+   * @return Term index of the MICA, <code>-1</code> if there is no common ancestor.
+   */
+  public int getMica(int lhs, int rhs) {
+    if (micaTable == null) {
+      return icOrderedAncestors.mostInformativeCommonAncestor(lhs, rhs);
+    }
+    final long i = Math.min(lhs, rhs);
+    final long j = Math.max(lhs, rhs);
+    return micaTable[(int) (rowOffset(i, getClosureIndex().countTerms()) + j - i)];
+  }
+
+  /**
+   * @param lhs First {@link TermId}.
+   * @param rhs Second {@link TermId}.
+   * @return {@link TermId} of the MICA, <code>null</code> if there is none or a term is unknown.
+   */
+  public TermId getMica(TermId lhs, TermId rhs) {
+    final int i = getClosureIndex().getIndex(lhs);
+    final int j = getClosureIndex().getIndex(rhs);
+    if (i == -1 || j == -1) {
+      return null;
+    }
+    final int mica = getMica(i, j);
+    return (mica == -1) ? null : getClosureIndex().getTermId(mica);
+  }
+
+  /**
+   * Compute a measure for a term pair.
+   *
+   * @param measure The {@link Measure} to compute.
+   * @param lhs Term index of the first term.
+   * @param rhs Term index of the second term.
+   * @return The score.
+   */
+  public double computeScore(Measure measure, int lhs, int rhs) {
+    final int mica = getMica(lhs, rhs);
+    if (mica == -1) {
+      return 0.0;
+    }
+    final double icMica = Math.max(0.0, getInformationContent(mica));
+    switch (measure) {
+      case RESNIK:
+        return icMica;
+      case LIN:
+        return lin(icMica, lhs, rhs);
+      case JIANG_CONRATH:
+        final double distance =
+            getInformationContent(lhs) + getInformationContent(rhs) - 2 * icMica;
+        return 1.0 / (1.0 + Math.max(0.0, distance));
+      case RELEVANCE:
+        return lin(icMica, lhs, rhs) * (1.0 - Math.exp(-icMica));
+      default:
+        throw new PhenolRuntimeException("Unknown measure " + measure);
+    }
+  }
+
+  /**
+   * Compute a measure for one term against several terms.
+   *
+   * <p>With precomputed MICAs, the Resnik scores are gathered with a plain loop over the MICA table.
+   *
+   * @param measure The {@link Measure} to compute.
+   * @param query Term index of the query term.
+   * @param targets Term indices of the target terms.
+   * @param out Receives the score against <code>targets[j]</code> at position <code>j</code>.
+   */
+  public void computeScores(Measure measure, int query, int[] targets, double[] out) {
+    if (micaTable == null || measure != Measure.RESNIK) {
+      for (int j = 0; j < targets.length; ++j) {
+        out[j] = computeScore(measure, query, targets[j]);
+      }
+      return;
+    }
+    final long n = getClosureIndex().countTerms();
+    final long queryOffset = rowOffset(query, n) - query;
+    for (int j = 0; j < targets.length; ++j) {
+      final int target = targets[j];
+      final long pos =
+          (query <= target) ? queryOffset + target : rowOffset(target, n) + query - target;
+      final int mica = micaTable[(int) pos];
+      out[j] = (mica == -1) ? 0.0 : Math.max(0.0, getInformationContent(mica));
+    }
+  }
+
+  private double lin(double icMica, int lhs, int rhs) {
+    final double denominator = getInformationContent(lhs) + getInformationContent(rhs);
+    return (denominator <= 0.0) ? 0.0 : 2 * icMica / denominator;
+  }
+
+  /**
+   * @param measure The {@link Measure} to compute.
+   * @return {@link IndexedPairwiseSimilarity} for the measure, backed by this engine.
+   */
+  public IndexedPairwiseSimilarity pairwise(Measure measure) {
+    return new MeasurePairwiseSimilarity(this, measure);
+  }
+
+  /**
+   * @param measure The {@link Measure} to use for term pairs.
+   * @param symmetric Whether or not to compute score in symmetric fashion.
+   * @return Best-match-average {@link Similarity} of term sets for the measure.
+   */
+  public Similarity similarity(Measure measure, boolean symmetric) {
+    return new MeasureSimilarity(measure, pairwise(measure), symmetric);
+  }
+
+  /** @return Group-wise simGIC {@link Similarity} using the IC of this engine. */
+  public Similarity simGic() {
+    return new SimGicSimilarity(this);
+  }
+
+  /** Best-match-average similarity for a {@link Measure}. */
+  private static final class MeasureSimilarity extends AbstractCommonAncestorSimilarity {
+    private static final long serialVersionUID = 1L;
+
+    private final Measure measure;
+
+    MeasureSimilarity(Measure measure, PairwiseSimilarity pairwise, boolean symmetric) {
+      super(pairwise, symmetric);
+      this.measure = measure;
+    }
+
+    @Override
+    public String getName() {
+      return measure.getName();
+    }
+  }
+
+  /** Pairwise similarity for a {@link Measure}, serializable together with its engine. */
+  private static final class MeasurePairwiseSimilarity
+      implements IndexedPairwiseSimilarity, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final MicaEngine engine;
+    private final Measure measure;
+
+    MeasurePairwiseSimilarity(MicaEngine engine, Measure measure) {
+      this.engine = engine;
+      this.measure = measure;
+    }
+
+    @Override
+    public TermClosureIndex getClosureIndex() {
+      return engine.getClosureIndex();
+    }
+
+    @Override
+    public double computeScore(int query, int target) {
+      return engine.computeScore(measure, query, target);
+    }
+
+    @Override
+    public void computeScores(int query, int[] targets, double[] out) {
+      engine.computeScores(measure, query, targets, out);
+    }
+
+    @Override
+    public double computeScore(TermId query, TermId target) {
+      final int i = getClosureIndex().getIndex(query);
+      final int j = getClosureIndex().getIndex(target);
+      return (i == -1 || j == -1) ? 0.0 : computeScore(i, j);
+    }
+
+    @Override
+    public boolean isSymmetric() {
+      return true;
+    }
+  }
+}
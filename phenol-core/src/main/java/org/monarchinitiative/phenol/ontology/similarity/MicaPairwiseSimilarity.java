@@ -0,0 +1,32 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * A {@link PairwiseSimilarity} based on the most informative common ancestor (MICA) of two terms
+ * that can also report the MICA itself.
+ *
+ * <p>This is used by {@link ResnikSimilarity#explain(java.util.Collection, java.util.Collection)}
+ * for explaining set-to-set scores without recomputing ancestors.
+ */
+public interface MicaPairwiseSimilarity extends PairwiseSimilarity {
+
+  /**
+   * @return Whether MICAs are available; precomputing implementations may have been built without
+   *     them.
+   */
+  default boolean hasMica() {
+    return true;
+  }
+
+  /**
+   * Return the most informative common ancestor of two terms.
+   *
+   * @param query Query {@link TermId}.
+   * @param target Target {@link TermId}.
+   * @return {@link TermId} of the MICA, <code>null</code> if there is none or a term is unknown.
+   * @throws org.monarchinitiative.phenol.base.PhenolRuntimeException if {@link #hasMica()} is
+   *     <code>false</code>.
+   */
+  TermId getMica(TermId query, TermId target);
+}
@@ -1,9 +1,11 @@
 package org.monarchinitiative.phenol.ontology.similarity;
 
 import java.util.Map;
-import java.util.Set;
 
+import org.monarchinitiative.phenol.ontology.algo.IcOrderedAncestors;
+import org.monarchinitiative.phenol.ontology.algo.InformationContent;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 
 /**
@@ -18,7 +20,7 @@ import org.monarchinitiative.phenol.ontology.data.TermId;
  * @see PrecomputingPairwiseResnikSimilarity
  */
 public final class PairwiseResnikSimilarity
-    implements PairwiseSimilarity {
+    implements IndexedPairwiseSimilarity, MicaPairwiseSimilarity {
 
   /** {@link Ontology} to base computations on. */
   private final Ontology ontology;
@@ -26,10 +28,14 @@ public final class PairwiseResnikSimilarity
   /** {@link Map} from {@link TermId} to its information content. */
   private final Map<TermId, Double> termToIc;
 
+  /** Ancestors of each term ordered by descending information content. */
+  private final IcOrderedAncestors icOrderedAncestors;
+
   /** Required default constructor for serialization. */
   protected PairwiseResnikSimilarity() {
     this.ontology = null;
     this.termToIc = null;
+    this.icOrderedAncestors = null;
   }
 
   /**
@@ -41,6 +47,19 @@ public final class PairwiseResnikSimilarity
   public PairwiseResnikSimilarity(Ontology ontology, Map<TermId, Double> termToIc) {
     this.ontology = ontology;
     this.termToIc = termToIc;
+    this.icOrderedAncestors = IcOrderedAncestors.of(ontology, termToIc);
+  }
+
+  /**
+   * Construct new {@link PairwiseResnikSimilarity}.
+   *
+   * @param ontology {@link Ontology} to base computations on.
+   * @param informationContent {@link InformationContent} of the terms of {@code ontology}.
+   */
+  public PairwiseResnikSimilarity(Ontology ontology, InformationContent informationContent) {
+    this.ontology = ontology;
+    this.termToIc = informationContent.asMap();
+    this.icOrderedAncestors = IcOrderedAncestors.of(informationContent);
   }
 
   /**
@@ -49,24 +68,24 @@ public final class PairwiseResnikSimilarity
    *
    * <h5>Performance Note</h5>
    *
-   * <p>This method is a performance hotspot and already well optimized. Further speedup can be
-   * gained through {@link PrecomputingPairwiseResnikSimilarity}.
+   * <p>This method is a performance hotspot. The ancestors of the query are walked by descending
+   * information content until the first one that is also an ancestor of the target, see {@link
+   * IcOrderedAncestors}. Further speedup can be gained through {@link
+   * PrecomputingPairwiseResnikSimilarity}.
    *
    * @param query Query {@link TermId}.
    * @param target Target {@link TermId}.
-   * @return Precomputed pairwise Resnik similarity score.
+   * @return Pairwise Resnik similarity score, <code>0</code> if either term is not in the ontology.
    */
   private double computeScoreImpl(TermId query, TermId target) {
-    final Set<TermId> queryTerms = getOntology().getAncestorTermIds(query, true);
-    final Set<TermId> targetTerms = getOntology().getAncestorTermIds(target, true);
-
-    double maxValue = 0.0;
-    for (TermId termId : queryTerms) {
-      if (targetTerms.contains(termId)) {
-        maxValue = Double.max(maxValue, getTermToIc().get(termId));
-      }
+    final TermClosureIndex closureIndex = icOrderedAncestors.getClosureIndex();
+    final int queryIdx = closureIndex.getIndex(query);
+    final int targetIdx = closureIndex.getIndex(target);
+    if (queryIdx == -1 || targetIdx == -1) {
+      // terms unknown to the ontology have no ancestors, thus no common ancestor
+      return 0.0;
     }
-    return maxValue;
+    return icOrderedAncestors.resnikScore(queryIdx, targetIdx);
   }
 
   @Override
@@ -74,6 +93,38 @@ public final class PairwiseResnikSimilarity
     return computeScoreImpl(query, target);
   }
 
+  @Override
+  public boolean isSymmetric() {
+    return true;
+  }
+
+  @Override
+  public TermClosureIndex getClosureIndex() {
+    return icOrderedAncestors.getClosureIndex();
+  }
+
+  @Override
+  public double computeScore(int query, int target) {
+    return icOrderedAncestors.resnikScore(query, target);
+  }
+
+  @Override
+  public TermId getMica(TermId query, TermId target) {
+    final TermClosureIndex closureIndex = icOrderedAncestors.getClosureIndex();
+    final int queryIdx = closureIndex.getIndex(query);
+    final int targetIdx = closureIndex.getIndex(target);
+    if (queryIdx == -1 || targetIdx == -1) {
+      return null;
+    }
+    final int mica = icOrderedAncestors.mostInformativeCommonAncestor(queryIdx, targetIdx);
+    return (mica == -1) ? null : closureIndex.getTermId(mica);
+  }
+
+  /** @return Ancestors of each term ordered by descending information content. */
+  public IcOrderedAncestors getIcOrderedAncestors() {
+    return icOrderedAncestors;
+  }
+
   /** @return Underlying {@link Ontology}. */
   public Ontology getOntology() {
     return ontology;
@@ -21,4 +21,13 @@ public interface PairwiseSimilarity {
    * @return Similarity score between the two terms
    */
   double computeScore(TermId t1, TermId t2);
+
+  /**
+   * @return Whether the score is symmetric, i.e., <code>computeScore(t1, t2)</code> equals <code>
+   *     computeScore(t2, t1)</code>, which allows for computing symmetric set-to-set scores in a
+   *     single pass.
+   */
+  default boolean isSymmetric() {
+    return false;
+  }
 }
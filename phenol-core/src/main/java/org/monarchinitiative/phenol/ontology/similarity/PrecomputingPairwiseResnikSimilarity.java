@@ -1,5 +1,6 @@
 package org.monarchinitiative.phenol.ontology.similarity;
 
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.monarchinitiative.phenol.utils.ProgressReporter;
@@ -34,12 +35,18 @@ import org.slf4j.LoggerFactory;
  * <p>In the future, this decision might be revoked and an implementation based on arrays might be
  * chosen as well for performance reasons.
  *
+ * <h5>Explanations</h5>
+ *
+ * <p>Optionally, the most informative common ancestor (MICA) of each pair is stored next to the
+ * score (4 more bytes per pair), such that {@link #getMica(TermId, TermId)} and thus {@link
+ * ResnikSimilarity#explain(Collection, Collection)} do not need to walk any ancestors.
+ *
  * @author <a href="mailto:manuel.holtgrewe@bihealth.de">Manuel Holtgrewe</a>
  * @author <a href="mailto:sebastian.koehler@charite.de">Sebastian Koehler</a>
  * @author <a href="mailto:HyeongSikKim@lbl.gov">HyeongSik Kim</a>
  */
 public final class PrecomputingPairwiseResnikSimilarity
-    implements PairwiseSimilarity, Serializable {
+    implements MicaPairwiseSimilarity, Serializable {
 
   /** Serial UID for serialization. */
   private static final long serialVersionUID = -350622665214125471L;
@@ -63,14 +70,27 @@ public final class PrecomputingPairwiseResnikSimilarity
    * @param ontology {@link Ontology} to base computations on.
    * @param termToIc {@link Map} from{@link TermId} to its information content.
    * @param numThreads Number of threads to use for precomputation.
+   * @param storeMica Whether to also store the most informative common ancestor of each pair.
    */
   public PrecomputingPairwiseResnikSimilarity(
-    Ontology ontology, Map<TermId, Double> termToIc, int numThreads) {
-    this.precomputedScores = new PrecomputedScores(ontology.getAllTermIds());
+      Ontology ontology, Map<TermId, Double> termToIc, int numThreads, boolean storeMica) {
+    this.precomputedScores = new PrecomputedScores(ontology.getAllTermIds(), storeMica);
     this.numThreads = numThreads;
     precomputeScores(ontology, termToIc);
   }
 
+  /**
+   * Construct new {@link PrecomputingPairwiseResnikSimilarity} without storing MICAs.
+   *
+   * @param ontology {@link Ontology} to base computations on.
+   * @param termToIc {@link Map} from{@link TermId} to its information content.
+   * @param numThreads Number of threads to use for precomputation.
+   */
+  public PrecomputingPairwiseResnikSimilarity(
+    Ontology ontology, Map<TermId, Double> termToIc, int numThreads) {
+    this(ontology, termToIc, numThreads, false);
+  }
+
   /**
    * Construct with thread count of one.
    *
@@ -106,6 +126,10 @@ public final class PrecomputingPairwiseResnikSimilarity
                 if (queryId.compareTo(targetId) <= 0) {
                   precomputedScores.put(
                       queryId, targetId, pairwiseSimilarity.computeScore(queryId, targetId));
+                  if (precomputedScores.hasMica()) {
+                    precomputedScores.putMica(
+                        queryId, targetId, pairwiseSimilarity.getMica(queryId, targetId));
+                  }
                 }
               }
               progressReport.incCurrent();
@@ -149,6 +173,29 @@ public final class PrecomputingPairwiseResnikSimilarity
     return precomputedScores.get(query, target);
   }
 
+  @Override
+  public boolean isSymmetric() {
+    return true;
+  }
+
+  @Override
+  public boolean hasMica() {
+    return precomputedScores.hasMica();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws PhenolRuntimeException if constructed without storing MICAs.
+   */
+  @Override
+  public TermId getMica(TermId query, TermId target) {
+    if (!precomputedScores.hasMica()) {
+      throw new PhenolRuntimeException("MICAs have not been precomputed");
+    }
+    return precomputedScores.getMica(query, target);
+  }
+
   /**
    * Container class for storing precomputed scores efficiently.
    *
@@ -157,26 +204,66 @@ public final class PrecomputingPairwiseResnikSimilarity
    */
   private static final class PrecomputedScores implements Serializable {
 
-    private static final long serialVersionUID = -6390653194662991513L;
+    /** Serial UID, changed with each change of the stored fields. */
+    private static final long serialVersionUID = -6390653194662991515L;
 
     /** Mapping from term ID to term index. */
     private final HashMap<TermId, Integer> termIdToIdx;
 
-    /** Internal storage of the similarity scores as array of floats. */
+    /**
+     * Internal storage of the similarity scores as array of floats, upper triangle (including the
+     * diagonal) in row-major order.
+     */
     private final float[] data;
 
+    /**
+     * Index of the most informative common ancestor of each pair, parallel to {@link #data},
+     * <code>-1</code> if there is none, <code>null</code> if not stored.
+     */
+    private final int[] micas;
+
+    /** Mapping from term index to term ID, <code>null</code> if MICAs are not stored. */
+    private final TermId[] idxToTermId;
+
     /** Number of known termIds. */
     private final int termIdCount;
 
-    PrecomputedScores(Collection<TermId> termIds) {
+    PrecomputedScores(Collection<TermId> termIds, boolean storeMica) {
       termIdCount = termIds.size();
-      data = new float[termIdCount * termIdCount];
+      final long size = (long) termIdCount * (termIdCount + 1) / 2;
+      if (size > Integer.MAX_VALUE - 8) {
+        throw new PhenolRuntimeException(
+            "Too many terms for precomputing scores in memory ("
+                + termIdCount
+                + "), use MappedSimilarityMatrix instead");
+      }
+      data = new float[(int) size];
       termIdToIdx = new HashMap<>(termIdCount);
+      micas = storeMica ? new int[(int) size] : null;
+      idxToTermId = storeMica ? new TermId[termIdCount] : null;
 
       int i = 0;
       for (TermId termId : ImmutableSortedSet.copyOf(termIds)) {
+        if (storeMica) {
+          idxToTermId[i] = termId;
+        }
         termIdToIdx.put(termId, i++);
       }
+      if (storeMica) {
+        Arrays.fill(micas, -1);
+      }
+    }
+
+    /** @return Whether MICAs are stored. */
+    boolean hasMica() {
+      return micas != null;
+    }
+
+    /** @return Position of the pair in {@link #data}. */
+    private int index(int idxLhs, int idxRhs) {
+      final long i = Math.min(idxLhs, idxRhs);
+      final long j = Math.max(idxLhs, idxRhs);
+      return (int) (i * termIdCount - i * (i - 1) / 2 + (j - i));
     }
 
     /** Set score. */
@@ -186,10 +273,24 @@ public final class PrecomputingPairwiseResnikSimilarity
 
     /** Set score. */
     public void put(TermId lhs, TermId rhs, float value) {
-      final int idxLhs = termIdToIdx.get(lhs);
-      final int idxRhs = termIdToIdx.get(rhs);
-      data[idxLhs * termIdCount + idxRhs] = value;
-      data[idxRhs * termIdCount + idxLhs] = value;
+      data[index(termIdToIdx.get(lhs), termIdToIdx.get(rhs))] = value;
+    }
+
+    /** Set MICA, {@code mica} may be <code>null</code>. */
+    void putMica(TermId lhs, TermId rhs, TermId mica) {
+      final Integer idxMica = (mica == null) ? null : termIdToIdx.get(mica);
+      micas[index(termIdToIdx.get(lhs), termIdToIdx.get(rhs))] = (idxMica == null) ? -1 : idxMica;
+    }
+
+    /** Get MICA, <code>null</code> if there is none or a term is unknown. */
+    TermId getMica(TermId lhs, TermId rhs) {
+      final Integer idxLhs = termIdToIdx.get(lhs);
+      final Integer idxRhs = termIdToIdx.get(rhs);
+      if (idxLhs == null || idxRhs == null) {
+        return null;
+      }
+      final int idxMica = micas[index(idxLhs, idxRhs)];
+      return (idxMica == -1) ? null : idxToTermId[idxMica];
     }
 
     /** Get score. */
@@ -199,7 +300,7 @@ public final class PrecomputingPairwiseResnikSimilarity
       if (idxLhs == null || idxRhs == null) {
         return 0.0f;
       } else {
-        return data[idxLhs * termIdCount + idxRhs];
+        return data[index(idxLhs, idxRhs)];
       }
     }
   }
@@ -0,0 +1,308 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.monarchinitiative.phenol.ontology.algo.IcOrderedAncestors;
+import org.monarchinitiative.phenol.ontology.data.TermBitSet;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * Top-K search for the profiles most similar to a query by Resnik best-match-average similarity,
+ * scoring only the profiles that can enter the top-K.
+ *
+ * <p>The scores are the same as those of {@link ResnikSimilarity} with {@link
+ * PairwiseResnikSimilarity} and those of {@link SimilarityIndex}, but only few profiles are scored
+ * exactly, using the threshold algorithm (Fagin et al.) on per-term posting lists, in the spirit of
+ * the MaxScore/WAND algorithms from text retrieval.
+ *
+ * <h5>Exact Scores</h5>
+ *
+ * <p>The best match of a query term <code>q</code> in profile <code>P</code> is the IC of the most
+ * informative ancestor of <code>q</code> that is an ancestor of any term of <code>P</code>. Thus, it
+ * is found by walking the IC-ordered ancestors of <code>q</code> (see {@link IcOrderedAncestors})
+ * until the first one contained in the union of the ancestor closures of <code>P</code>, which is
+ * precomputed. The costs are linear in the number of terms rather than in the number of term pairs.
+ *
+ * <h5>Posting Lists and Threshold</h5>
+ *
+ * <p>For each term, the posting list holds the profiles whose closure contains the term. For each
+ * query term <code>q</code>, the posting lists of its ancestors are visited by descending IC, always
+ * advancing the query term with the largest IC at its current ancestor (its frontier). Each profile
+ * is scored exactly when first seen. A profile not seen yet has a best match of at most the
+ * frontier of each query term, so the average of the frontiers bounds its directed score; for the
+ * symmetric score, the best match of each profile term in the query is bounded by the largest
+ * frontier. The search stops as soon as this threshold falls below the k-th best score. Neither the
+ * visited posting lists nor the bookkeeping depend on the number of profiles beyond the profiles
+ * actually seen.
+ */
+public final class PrunedResnikSearch {
+
+  /** The IC-ordered ancestors. */
+  private final IcOrderedAncestors icOrderedAncestors;
+
+  /** Whether or not to use symmetric score flavor (arithmetic mean of both directions). */
+  private final boolean symmetric;
+
+  /** IDs of the profiles, in the iteration order of the profile map. */
+  private final TermId[] profileIds;
+
+  /** Term indices of the known terms of each profile. */
+  private final int[][] profileTerms;
+
+  /** Number of terms of each profile, including unknown ones. */
+  private final int[] profileSizes;
+
+  /** Union of the ancestor closures of each profile. */
+  private final TermBitSet[] profileClosures;
+
+  /** For each term index, the ascending positions of the profiles whose closure contains it. */
+  private final int[][] postings;
+
+  /** Per-thread marks of seen profiles. */
+  private final ThreadLocal<SeenMarks> seenMarks;
+
+  /** Number of queries. */
+  private final LongAdder queryCount = new LongAdder();
+
+  /** Number of exactly scored profiles. */
+  private final LongAdder scoredCount = new LongAdder();
+
+  /**
+   * Constructor.
+   *
+   * @param icOrderedAncestors IC-ordered ancestors, e.g., from {@link
+   *     PairwiseResnikSimilarity#getIcOrderedAncestors()}.
+   * @param symmetric Whether or not to compute score in symmetric fashion.
+   * @param profiles {@link Map} from profile ID (e.g., disease ID) to its terms.
+   */
+  public PrunedResnikSearch(
+      IcOrderedAncestors icOrderedAncestors,
+      boolean symmetric,
+      Map<TermId, ? extends Collection<TermId>> profiles) {
+    this.icOrderedAncestors = icOrderedAncestors;
+    this.symmetric = symmetric;
+    final int numProfiles = profiles.size();
+    this.profileIds = new TermId[numProfiles];
+    this.profileTerms = new int[numProfiles][];
+    this.profileSizes = new int[numProfiles];
+    this.profileClosures = new TermBitSet[numProfiles];
+    final int numTerms = icOrderedAncestors.getClosureIndex().countTerms();
+    final TermBitSet.Builder builder = new TermBitSet.Builder(numTerms);
+    int i = 0;
+    for (Map.Entry<TermId, ? extends Collection<TermId>> entry : profiles.entrySet()) {
+      profileIds[i] = entry.getKey();
+      profileTerms[i] = resolve(entry.getValue());
+      profileSizes[i] = entry.getValue().size();
+      profileClosures[i] = closure(profileTerms[i], builder);
+      ++i;
+    }
+    this.postings = buildPostings(profileClosures, numTerms);
+    this.seenMarks = ThreadLocal.withInitial(() -> new SeenMarks(numProfiles));
+  }
+
+  /** @return For each term index, the ascending positions of the profiles containing it. */
+  private static int[][] buildPostings(TermBitSet[] closures, int numTerms) {
+    final int[] counts = new int[numTerms];
+    for (TermBitSet closure : closures) {
+      closure.forEach(t -> ++counts[t]);
+    }
+    final int[][] result = new int[numTerms][];
+    for (int t = 0; t < numTerms; ++t) {
+      result[t] = new int[counts[t]];
+    }
+    Arrays.fill(counts, 0);
+    for (int pos = 0; pos < closures.length; ++pos) {
+      final int profile = pos;
+      closures[pos].forEach(t -> result[t][counts[t]++] = profile);
+    }
+    return result;
+  }
+
+  /** @return Term indices of the known terms in {@code termIds}. */
+  private int[] resolve(Collection<TermId> termIds) {
+    final TermClosureIndex closureIndex = icOrderedAncestors.getClosureIndex();
+    final int[] result = new int[termIds.size()];
+    int k = 0;
+    for (TermId termId : termIds) {
+      final int idx = closureIndex.getIndex(termId);
+      if (idx != -1) {
+        result[k++] = idx;
+      }
+    }
+    return (k == result.length) ? result : Arrays.copyOf(result, k);
+  }
+
+  /** @return Union of the ancestor closures of {@code terms}. */
+  private TermBitSet closure(int[] terms, TermBitSet.Builder builder) {
+    builder.clear();
+    for (int t : terms) {
+      builder.addAll(icOrderedAncestors.getClosureIndex().getAncestors(t));
+    }
+    return builder.build();
+  }
+
+  /** @return Number of profiles. */
+  public int countProfiles() {
+    return profileIds.length;
+  }
+
+  /** @return Number of queries so far. */
+  public long getQueryCount() {
+    return queryCount.sum();
+  }
+
+  /** @return Number of profiles scored exactly so far, over all queries. */
+  public long getScoredCount() {
+    return scoredCount.sum();
+  }
+
+  /**
+   * Return the {@code k} profiles most similar to {@code query}.
+   *
+   * @param query The query terms, must not be empty.
+   * @param k Maximal number of results.
+   * @return The best {@code k} profiles by descending score, ties in profile order.
+   */
+  public List<SimilarityIndex.ScoredProfile> topK(Collection<TermId> query, int k) {
+    if (k <= 0 || profileIds.length == 0 || query.isEmpty()) {
+      return Collections.emptyList();
+    }
+    queryCount.increment();
+    final int[] queryTerms = resolve(query);
+    final int querySize = query.size();
+    final TermBitSet queryClosure =
+        closure(
+            queryTerms, new TermBitSet.Builder(icOrderedAncestors.getClosureIndex().countTerms()));
+
+    final TopKHeap heap = new TopKHeap(Math.min(k, profileIds.length));
+    final SeenMarks seen = seenMarks.get();
+    seen.reset();
+    final TermBitSet.Builder visited =
+        new TermBitSet.Builder(icOrderedAncestors.getClosureIndex().countTerms());
+    // Position of each query term in its IC-ordered ancestors, and the IC there.
+    final int[] cursors = new int[queryTerms.length];
+    final double[] frontiers = new double[queryTerms.length];
+    for (int i = 0; i < queryTerms.length; ++i) {
+      frontiers[i] = frontier(queryTerms[i], 0);
+    }
+    int numScored = 0;
+    while (true) {
+      // Find the query term with the largest frontier, and the threshold for unseen profiles.
+      int next = -1;
+      double sum = 0.0;
+      double max = 0.0;
+      for (int i = 0; i < queryTerms.length; ++i) {
+        sum += frontiers[i];
+        if (cursors[i] < icOrderedAncestors.getSortedAncestors(queryTerms[i]).length
+            && (next == -1 || frontiers[i] > frontiers[next])) {
+          next = i;
+        }
+        max = Math.max(max, frontiers[i]);
+      }
+      final double threshold = symmetric ? 0.5 * (sum / querySize + max) : sum / querySize;
+      // Allow for rounding differences between the threshold and the exact sums.
+      if (next == -1
+          || (heap.isFull()
+              && threshold < heap.worstScore() - 1e-9 * Math.max(1.0, threshold))) {
+        break;
+      }
+      final int ancestor = icOrderedAncestors.getSortedAncestors(queryTerms[next])[cursors[next]];
+      if (!visited.contains(ancestor)) {
+        visited.add(ancestor);
+        for (int pos : postings[ancestor]) {
+          if (seen.mark(pos)) {
+            heap.offer(pos, score(queryTerms, querySize, queryClosure, pos));
+            ++numScored;
+          }
+        }
+      }
+      frontiers[next] = frontier(queryTerms[next], ++cursors[next]);
+    }
+    // All posting lists visited: unseen profiles share no ancestor with the query and score 0, they
+    // only matter if the top-K is not full or ends in a tie at 0.
+    if (!heap.isFull() || heap.worstScore() <= 1e-9) {
+      for (int pos = 0; pos < profileIds.length; ++pos) {
+        if (seen.mark(pos)) {
+          heap.offer(pos, score(queryTerms, querySize, queryClosure, pos));
+          ++numScored;
+        }
+      }
+    }
+    scoredCount.add(numScored);
+    return heap.drain(profileIds);
+  }
+
+  /**
+   * @return IC of the ancestor of {@code term} at {@code cursor} in IC order, at least 0, or 0 if
+   *     all ancestors have been visited.
+   */
+  private double frontier(int term, int cursor) {
+    final int[] ancestors = icOrderedAncestors.getSortedAncestors(term);
+    return (cursor < ancestors.length)
+        ? Math.max(0.0, icOrderedAncestors.getInformationContent(ancestors[cursor]))
+        : 0.0;
+  }
+
+  /** @return The exact score of the query against the profile at {@code pos}. */
+  double score(int[] queryTerms, int querySize, TermBitSet queryClosure, int pos) {
+    final double forward = directedScore(queryTerms, querySize, profileClosures[pos]);
+    if (symmetric) {
+      final double backward = directedScore(profileTerms[pos], profileSizes[pos], queryClosure);
+      return 0.5 * (forward + backward);
+    } else {
+      return forward;
+    }
+  }
+
+  private double directedScore(int[] query, int querySize, TermBitSet targetClosure) {
+    double sum = 0;
+    for (int q : query) {
+      for (int ancestor : icOrderedAncestors.getSortedAncestors(q)) {
+        if (targetClosure.contains(ancestor)) {
+          sum += Math.max(0.0, icOrderedAncestors.getInformationContent(ancestor));
+          break;
+        }
+      }
+    }
+    return sum / querySize;
+  }
+
+  /**
+   * Marks of the profiles seen in the current query, reset in constant time by advancing the
+   * epoch.
+   */
+  private static final class SeenMarks {
+    /** Epoch in which each profile was last seen. */
+    private final int[] epochs;
+
+    /** The current epoch. */
+    private int epoch = 0;
+
+    SeenMarks(int numProfiles) {
+      this.epochs = new int[numProfiles];
+    }
+
+    /** Start a new query. */
+    void reset() {
+      if (++epoch == Integer.MAX_VALUE) {
+        Arrays.fill(epochs, 0);
+        epoch = 1;
+      }
+    }
+
+    /** @return Whether the profile at {@code pos} was not seen before in this query. */
+    boolean mark(int pos) {
+      if (epochs[pos] == epoch) {
+        return false;
+      }
+      epochs[pos] = epoch;
+      return true;
+    }
+  }
+}
@@ -1,8 +1,13 @@
 package org.monarchinitiative.phenol.ontology.similarity;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 
@@ -46,6 +51,67 @@ public final class ResnikSimilarity
     super(pairwiseSimilarity, symmetric);
   }
 
+  /**
+   * Explain the score of a query against a target term set.
+   *
+   * <p>Returns the best-matching target term of each query term together with the most
+   * informative common ancestor (MICA) of the pair; in the symmetric flavor, the best-matching
+   * query term of each target term is included as well. These are exactly the pairs averaged by
+   * {@link #computeScore(Collection, Collection)}. The matches are sorted by decreasing score,
+   * ties keep the query (then target) order.
+   *
+   * <p>This requires the {@link PairwiseSimilarity} to be a {@link MicaPairwiseSimilarity} with
+   * MICAs, e.g., {@link PrecomputingPairwiseResnikSimilarity} or {@link MappedSimilarityMatrix}
+   * built with MICAs, such that explaining costs the same lookups as scoring.
+   *
+   * @param query Query set of {@link TermId}s.
+   * @param target Target set of {@link TermId}s.
+   * @return The best-matching term pairs, empty if either set is empty.
+   * @throws PhenolRuntimeException if the pairwise similarity cannot provide MICAs.
+   */
+  public List<TermMatch> explain(Collection<TermId> query, Collection<TermId> target) {
+    final PairwiseSimilarity pairwise = getPairwiseSimilarity();
+    if (!(pairwise instanceof MicaPairwiseSimilarity)
+        || !((MicaPairwiseSimilarity) pairwise).hasMica()) {
+      throw new PhenolRuntimeException("Pairwise similarity does not provide MICAs: " + pairwise);
+    }
+    final MicaPairwiseSimilarity micaPairwise = (MicaPairwiseSimilarity) pairwise;
+    final List<TermMatch> result = new ArrayList<>();
+    if (query.isEmpty() || target.isEmpty()) {
+      return result;
+    }
+    for (TermId q : query) {
+      result.add(bestMatch(micaPairwise, q, target, false));
+    }
+    if (isSymmetric()) {
+      for (TermId t : target) {
+        result.add(bestMatch(micaPairwise, t, query, true));
+      }
+    }
+    result.sort(Comparator.comparingDouble(TermMatch::getScore).reversed());
+    return result;
+  }
+
+  /** @return Best match of {@code termId} among {@code others}, the first one on ties. */
+  private static TermMatch bestMatch(
+      MicaPairwiseSimilarity pairwise, TermId termId, Collection<TermId> others, boolean reverse) {
+    TermId best = null;
+    double bestScore = Double.NEGATIVE_INFINITY;
+    for (TermId other : others) {
+      final double score =
+          reverse ? pairwise.computeScore(other, termId) : pairwise.computeScore(termId, other);
+      if (score > bestScore) {
+        best = other;
+        bestScore = score;
+      }
+    }
+    if (reverse) {
+      return new TermMatch(best, termId, pairwise.getMica(best, termId), bestScore);
+    } else {
+      return new TermMatch(termId, best, pairwise.getMica(termId, best), bestScore);
+    }
+  }
+
   @Override
   public String getName() {
     return "Resnik similarity";
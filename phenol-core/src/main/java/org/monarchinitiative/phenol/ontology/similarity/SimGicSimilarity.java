@@ -0,0 +1,75 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import java.util.Collection;
+
+import org.monarchinitiative.phenol.ontology.data.TermBitSet;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * Implementation of the group-wise simGIC similarity (Pesquita et al.).
+ *
+ * <p>Both term sets are extended by their ancestors, and the sum of the information content (IC)
+ * of the terms in the intersection is divided by the sum of the IC of the terms in the union. The
+ * IC values are taken from a {@link MicaEngine}.
+ */
+public final class SimGicSimilarity implements Similarity {
+
+  /** The engine providing term indices and IC values. */
+  private final MicaEngine engine;
+
+  /**
+   * Constructor.
+   *
+   * @param engine The {@link MicaEngine} providing term indices and IC values.
+   */
+  public SimGicSimilarity(MicaEngine engine) {
+    this.engine = engine;
+  }
+
+  @Override
+  public String getName() {
+    return "simGIC similarity";
+  }
+
+  @Override
+  public String getParameters() {
+    return "{}";
+  }
+
+  @Override
+  public boolean isSymmetric() {
+    return true;
+  }
+
+  @Override
+  public double computeScore(Collection<TermId> query, Collection<TermId> target) {
+    final TermClosureIndex closureIndex = engine.getClosureIndex();
+    return computeScore(
+        closureIndex.getAncestors(query, true), closureIndex.getAncestors(target, true));
+  }
+
+  @Override
+  public double computeScore(CompiledTermSet query, CompiledTermSet target) {
+    if (!query.isCompatible(target, engine.getClosureIndex())) {
+      return computeScore(query.getTermIds(), target.getTermIds());
+    }
+    return computeScore(query.getAncestors(true), target.getAncestors(true));
+  }
+
+  /** Compute score from the ancestor closures of both sets. */
+  private double computeScore(TermBitSet query, TermBitSet target) {
+    final double[] sums = new double[3]; // query, target, intersection
+    query.forEach(
+        idx -> {
+          final double ic = Math.max(0.0, engine.getInformationContent(idx));
+          sums[0] += ic;
+          if (target.contains(idx)) {
+            sums[2] += ic;
+          }
+        });
+    target.forEach(idx -> sums[1] += Math.max(0.0, engine.getInformationContent(idx)));
+    final double union = sums[0] + sums[1] - sums[2];
+    return (union <= 0.0) ? 0.0 : sums[2] / union;
+  }
+}
@@ -30,4 +30,18 @@ public interface Similarity {
    * @return asymmetric similarity score
    */
   double computeScore(Collection<TermId> query, Collection<TermId> target);
+
+  /**
+   * Compute similarity score between two compiled term sets.
+   *
+   * <p>The default implementation scores the primary {@link TermId}s of the sets, implementations
+   * use the precomputed term indices and closures where possible.
+   *
+   * @param query Query {@link CompiledTermSet}
+   * @param target Target {@link CompiledTermSet}
+   * @return similarity score
+   */
+  default double computeScore(CompiledTermSet query, CompiledTermSet target) {
+    return computeScore(query.getTermIds(), target.getTermIds());
+  }
 }
@@ -0,0 +1,236 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * Index of term profiles (e.g., the phenotypes of all diseases) for scoring one query against all
+ * of them at once.
+ *
+ * <p>The scores are the same as those of {@link ResnikSimilarity} (or any other {@link
+ * AbstractCommonAncestorSimilarity} flavor) with the given {@link IndexedPairwiseSimilarity}: for
+ * each query term, the best matching profile term is taken, and the average over the query terms
+ * is the directed score. The symmetric score is the mean of both directions.
+ *
+ * <p>All profiles are resolved to arrays of term indices (see {@link TermClosureIndex}) once on
+ * construction. Queries are scored against blocks of profiles in parallel on the common {@link
+ * ForkJoinPool}. Terms that are not known to the ontology do not match anything but still count
+ * for the averages, as in {@link AbstractCommonAncestorSimilarity}.
+ */
+public final class SimilarityIndex {
+
+  /** Number of profiles per parallel task. */
+  private static final int BLOCK_SIZE = 256;
+
+  /** Pairwise term similarity computation. */
+  private final IndexedPairwiseSimilarity pairwiseSimilarity;
+
+  /** Whether or not to use symmetric score flavor (arithmetic mean of both directions). */
+  private final boolean symmetric;
+
+  /** IDs of the profiles, in the iteration order of the profile map. */
+  private final TermId[] profileIds;
+
+  /** Term indices of the known terms of each profile. */
+  private final int[][] profileTerms;
+
+  /** Number of terms of each profile, including unknown ones. */
+  private final int[] profileSizes;
+
+  /**
+   * Constructor.
+   *
+   * @param pairwiseSimilarity {@link IndexedPairwiseSimilarity} to use for term pairs.
+   * @param symmetric Whether or not to compute score in symmetric fashion.
+   * @param profiles {@link Map} from profile ID (e.g., disease ID) to its terms.
+   */
+  public SimilarityIndex(
+      IndexedPairwiseSimilarity pairwiseSimilarity,
+      boolean symmetric,
+      Map<TermId, ? extends Collection<TermId>> profiles) {
+    this.pairwiseSimilarity = pairwiseSimilarity;
+    this.symmetric = symmetric;
+    this.profileIds = new TermId[profiles.size()];
+    this.profileTerms = new int[profiles.size()][];
+    this.profileSizes = new int[profiles.size()];
+    int i = 0;
+    for (Map.Entry<TermId, ? extends Collection<TermId>> entry : profiles.entrySet()) {
+      profileIds[i] = entry.getKey();
+      profileTerms[i] = resolve(entry.getValue());
+      profileSizes[i] = entry.getValue().size();
+      ++i;
+    }
+  }
+
+  /** @return Term indices of the known terms in {@code termIds}. */
+  private int[] resolve(Collection<TermId> termIds) {
+    final TermClosureIndex closureIndex = pairwiseSimilarity.getClosureIndex();
+    final int[] result = new int[termIds.size()];
+    int k = 0;
+    for (TermId termId : termIds) {
+      final int idx = closureIndex.getIndex(termId);
+      if (idx != -1) {
+        result[k++] = idx;
+      }
+    }
+    return (k == result.length) ? result : Arrays.copyOf(result, k);
+  }
+
+  /** @return Number of profiles. */
+  public int countProfiles() {
+    return profileIds.length;
+  }
+
+  /**
+   * @param pos Position of the profile.
+   * @return ID of the profile.
+   */
+  public TermId getProfileId(int pos) {
+    return profileIds[pos];
+  }
+
+  /** @return Whether score computation is symmetric. */
+  public boolean isSymmetric() {
+    return symmetric;
+  }
+
+  /**
+   * Score {@code query} against all profiles.
+   *
+   * @param query The query terms.
+   * @param out Array to write the scores to, in profile order, of length at least {@link
+   *     #countProfiles()}.
+   */
+  public void scoreAll(Collection<TermId> query, double[] out) {
+    if (out.length < profileIds.length) {
+      throw new PhenolRuntimeException(
+          "Output array too small: " + out.length + " < " + profileIds.length);
+    }
+    final int[] queryTerms = resolve(query);
+    ForkJoinPool.commonPool()
+        .invoke(new ScoreTask(queryTerms, query.size(), out, 0, profileIds.length));
+  }
+
+  /**
+   * Return the {@code k} profiles most similar to {@code query}.
+   *
+   * @param query The query terms.
+   * @param k Maximal number of results.
+   * @return The best {@code k} profiles by descending score, ties in profile order.
+   */
+  public List<ScoredProfile> topK(Collection<TermId> query, int k) {
+    if (k <= 0 || profileIds.length == 0) {
+      return Collections.emptyList();
+    }
+    final double[] scores = new double[profileIds.length];
+    scoreAll(query, scores);
+    final TopKHeap heap = new TopKHeap(Math.min(k, scores.length));
+    for (int pos = 0; pos < scores.length; ++pos) {
+      heap.offer(pos, scores[pos]);
+    }
+    return heap.drain(profileIds);
+  }
+
+  /**
+   * Compute the score of the query against one profile.
+   *
+   * @param queryTerms Known query term indices.
+   * @param querySize Number of query terms, including unknown ones.
+   * @param pos Position of the profile.
+   * @return The similarity score.
+   */
+  double score(int[] queryTerms, int querySize, int pos) {
+    if (symmetric && pairwiseSimilarity.isSymmetric()) {
+      return BestMatchAverage.symmetric(
+          pairwiseSimilarity,
+          queryTerms,
+          null,
+          querySize,
+          profileTerms[pos],
+          null,
+          profileSizes[pos]);
+    }
+    final double forward =
+        BestMatchAverage.directed(
+            pairwiseSimilarity, queryTerms, null, querySize, profileTerms[pos], null);
+    if (symmetric) {
+      final double backward =
+          BestMatchAverage.directed(
+              pairwiseSimilarity, profileTerms[pos], null, profileSizes[pos], queryTerms, null);
+      return 0.5 * (forward + backward);
+    } else {
+      return forward;
+    }
+  }
+
+  /** Task for scoring a range of profiles, split until at most {@link #BLOCK_SIZE} profiles. */
+  private final class ScoreTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int[] queryTerms;
+    private final int querySize;
+    private final double[] out;
+    private final int from;
+    private final int to;
+
+    ScoreTask(int[] queryTerms, int querySize, double[] out, int from, int to) {
+      this.queryTerms = queryTerms;
+      this.querySize = querySize;
+      this.out = out;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= BLOCK_SIZE) {
+        for (int pos = from; pos < to; ++pos) {
+          out[pos] = score(queryTerms, querySize, pos);
+        }
+      } else {
+        final int mid = (from + to) >>> 1;
+        invokeAll(
+            new ScoreTask(queryTerms, querySize, out, from, mid),
+            new ScoreTask(queryTerms, querySize, out, mid, to));
+      }
+    }
+  }
+
+  /** A profile together with its score, as returned by {@link #topK(Collection, int)}. */
+  public static final class ScoredProfile {
+    /** ID of the profile. */
+    private final TermId profileId;
+
+    /** The similarity score. */
+    private final double score;
+
+    ScoredProfile(TermId profileId, double score) {
+      this.profileId = profileId;
+      this.score = score;
+    }
+
+    /** @return ID of the profile. */
+    public TermId getProfileId() {
+      return profileId;
+    }
+
+    /** @return The similarity score. */
+    public double getScore() {
+      return score;
+    }
+
+    @Override
+    public String toString() {
+      return "ScoredProfile [profileId=" + profileId + ", score=" + score + "]";
+    }
+  }
+}
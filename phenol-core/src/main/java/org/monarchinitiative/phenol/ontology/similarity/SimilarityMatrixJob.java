@@ -0,0 +1,308 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.utils.ProgressReporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Computation of the similarity of many query profiles (e.g., a patient cohort) against many
+ * target profiles (e.g., all diseases), streaming the result rows to a {@link
+ * SimilarityMatrixSink}.
+ *
+ * <p>All profiles are compiled to {@link CompiledTermSet}s once, such that unknown and duplicate
+ * terms are dropped, and scored with {@link Similarity#computeScore(CompiledTermSet,
+ * CompiledTermSet)}. The queries are processed in bands of {@code tileRows} rows. Each band is
+ * split into tiles of {@code tileCols} targets that are scored in parallel on a {@link
+ * ForkJoinPool}; within a tile, the target profiles stay in the CPU caches while all rows of the
+ * band are scored against them. While a band is written to the sink, the next band is already
+ * computed, and only these two bands are held in memory.
+ *
+ * <p>Optionally, only the {@code topK} best targets of each row are written, which bounds the
+ * output size.
+ *
+ * <p>Use {@link Builder} for construction.
+ */
+public final class SimilarityMatrixJob {
+
+  /** {@link Logger} object to use. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(SimilarityMatrixJob.class);
+
+  /** The similarity to compute. */
+  private final Similarity similarity;
+
+  /** IDs of the queries. */
+  private final List<TermId> queryIds;
+
+  /** Compiled query profiles. */
+  private final CompiledTermSet[] queries;
+
+  /** IDs of the targets. */
+  private final List<TermId> targetIds;
+
+  /** Compiled target profiles. */
+  private final CompiledTermSet[] targets;
+
+  /** Number of queries per band. */
+  private final int tileRows;
+
+  /** Number of targets per tile. */
+  private final int tileCols;
+
+  /** Number of threads. */
+  private final int numThreads;
+
+  /** Number of targets to keep per row, <code>0</code> for all. */
+  private final int topK;
+
+  private SimilarityMatrixJob(Builder builder, TermClosureIndex closureIndex) {
+    this.similarity = builder.similarity;
+    this.queryIds = new ArrayList<>(builder.queries.keySet());
+    this.queries = compile(closureIndex, builder.queries);
+    this.targetIds = new ArrayList<>(builder.targets.keySet());
+    this.targets = compile(closureIndex, builder.targets);
+    this.tileRows = builder.tileRows;
+    this.tileCols = builder.tileCols;
+    this.numThreads = builder.numThreads;
+    this.topK = Math.min(builder.topK, targets.length);
+  }
+
+  private static CompiledTermSet[] compile(
+      TermClosureIndex closureIndex, Map<TermId, ? extends Collection<TermId>> profiles) {
+    final CompiledTermSet[] result = new CompiledTermSet[profiles.size()];
+    int i = 0;
+    for (Collection<TermId> terms : profiles.values()) {
+      result[i++] = CompiledTermSet.compile(closureIndex, terms, false);
+    }
+    return result;
+  }
+
+  /** @return IDs of the queries (rows), by position. */
+  public List<TermId> getQueryIds() {
+    return Collections.unmodifiableList(queryIds);
+  }
+
+  /** @return IDs of the targets (columns), by position. */
+  public List<TermId> getTargetIds() {
+    return Collections.unmodifiableList(targetIds);
+  }
+
+  /**
+   * Compute all rows and write them to {@code sink}.
+   *
+   * @param sink The {@link SimilarityMatrixSink} to write to; not closed by this method.
+   * @throws IOException On problems writing to {@code sink}.
+   */
+  public void run(SimilarityMatrixSink sink) throws IOException {
+    final int numTargets = targets.length;
+    if ((long) tileRows * numTargets > Integer.MAX_VALUE - 8) {
+      throw new PhenolRuntimeException(
+          "Band of " + tileRows + " x " + numTargets + " scores too large, reduce tile rows");
+    }
+    LOGGER.info(
+        "Computing similarity of {} queries against {} targets...",
+        new Object[] {queries.length, numTargets});
+    final ProgressReporter progressReport =
+        new ProgressReporter(LOGGER, "queries", queries.length);
+    progressReport.start();
+
+    sink.begin(getQueryIds(), getTargetIds(), topK);
+    final double[][] bands = {new double[tileRows * numTargets], new double[0]};
+    if (queries.length > tileRows) {
+      bands[1] = new double[tileRows * numTargets];
+    }
+    final int[] positions = new int[numTargets];
+    final double[] scores = new double[numTargets];
+    final TopKHeap heap = (topK > 0) ? new TopKHeap(topK) : null;
+
+    final ForkJoinPool pool = new ForkJoinPool(numThreads);
+    try {
+      ForkJoinTask<Void> pending = pool.submit(new TileTask(bands[0], 0, 0, numTargets));
+      for (int band = 0; band * tileRows < queries.length; ++band) {
+        pending.join();
+        final int begin = band * tileRows;
+        final int end = Math.min(queries.length, begin + tileRows);
+        if (end < queries.length) {
+          pending = pool.submit(new TileTask(bands[(band + 1) & 1], end, 0, numTargets));
+        }
+        final double[] values = bands[band & 1];
+        for (int q = begin; q < end; ++q) {
+          final int offset = (q - begin) * numTargets;
+          if (heap == null) {
+            for (int t = 0; t < numTargets; ++t) {
+              positions[t] = t;
+            }
+            System.arraycopy(values, offset, scores, 0, numTargets);
+            sink.writeRow(q, positions, scores, numTargets);
+          } else {
+            for (int t = 0; t < numTargets; ++t) {
+              heap.offer(t, values[offset + t]);
+            }
+            final int count = heap.drain(positions, scores);
+            sink.writeRow(q, positions, scores, count);
+          }
+        }
+        progressReport.setCurrent(end);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    progressReport.stop();
+    LOGGER.info("Done computing similarity matrix.");
+  }
+
+  /**
+   * Task for scoring the band starting at query {@code bandBegin} against targets <code>
+   * [from, to)</code>, split until at most {@link #tileCols} targets.
+   */
+  private final class TileTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final double[] band;
+    private final int bandBegin;
+    private final int from;
+    private final int to;
+
+    TileTask(double[] band, int bandBegin, int from, int to) {
+      this.band = band;
+      this.bandBegin = bandBegin;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= tileCols) {
+        final int bandEnd = Math.min(queries.length, bandBegin + tileRows);
+        final int numTargets = targets.length;
+        for (int q = bandBegin; q < bandEnd; ++q) {
+          final int offset = (q - bandBegin) * numTargets;
+          for (int t = from; t < to; ++t) {
+            band[offset + t] = similarity.computeScore(queries[q], targets[t]);
+          }
+        }
+      } else {
+        final int mid = (from + to) >>> 1;
+        invokeAll(
+            new TileTask(band, bandBegin, from, mid), new TileTask(band, bandBegin, mid, to));
+      }
+    }
+  }
+
+  /** Builder for {@link SimilarityMatrixJob}. */
+  public static final class Builder {
+    /** The similarity to compute. */
+    private final Similarity similarity;
+
+    /** The ontology the profile terms come from. */
+    private final Ontology ontology;
+
+    /** Query profiles. */
+    private Map<TermId, ? extends Collection<TermId>> queries = Collections.emptyMap();
+
+    /** Target profiles. */
+    private Map<TermId, ? extends Collection<TermId>> targets = Collections.emptyMap();
+
+    /** Number of queries per band. */
+    private int tileRows = 64;
+
+    /** Number of targets per tile. */
+    private int tileCols = 256;
+
+    /** Number of threads. */
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+
+    /** Number of targets to keep per row, <code>0</code> for all. */
+    private int topK = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param similarity The {@link Similarity} to compute.
+     * @param ontology The {@link Ontology} the profile terms come from.
+     */
+    public Builder(Similarity similarity, Ontology ontology) {
+      this.similarity = similarity;
+      this.ontology = ontology;
+    }
+
+    /**
+     * @param queries {@link Map} from query ID (e.g., patient ID) to its terms, in row order.
+     * @return This builder.
+     */
+    public Builder queries(Map<TermId, ? extends Collection<TermId>> queries) {
+      this.queries = queries;
+      return this;
+    }
+
+    /**
+     * @param targets {@link Map} from target ID (e.g., disease ID) to its terms, in column order.
+     * @return This builder.
+     */
+    public Builder targets(Map<TermId, ? extends Collection<TermId>> targets) {
+      this.targets = targets;
+      return this;
+    }
+
+    /**
+     * @param tileRows Number of queries per band, default 64.
+     * @param tileCols Number of targets per tile, default 256.
+     * @return This builder.
+     */
+    public Builder tileSize(int tileRows, int tileCols) {
+      this.tileRows = tileRows;
+      this.tileCols = tileCols;
+      return this;
+    }
+
+    /**
+     * @param numThreads Number of threads, default the number of available processors.
+     * @return This builder.
+     */
+    public Builder numThreads(int numThreads) {
+      this.numThreads = numThreads;
+      return this;
+    }
+
+    /**
+     * @param topK Number of best targets to keep per row, <code>0</code> (default) for all.
+     * @return This builder.
+     */
+    public Builder topK(int topK) {
+      this.topK = topK;
+      return this;
+    }
+
+    /**
+     * @return The {@link SimilarityMatrixJob}.
+     * @throws PhenolRuntimeException On invalid settings.
+     */
+    public SimilarityMatrixJob build() {
+      if (tileRows <= 0 || tileCols <= 0) {
+        throw new PhenolRuntimeException(
+            "Tile size must be positive but was " + tileRows + " x " + tileCols);
+      }
+      if (numThreads <= 0) {
+        throw new PhenolRuntimeException("Number of threads must be positive: " + numThreads);
+      }
+      if (topK < 0) {
+        throw new PhenolRuntimeException("topK must not be negative: " + topK);
+      }
+      return new SimilarityMatrixJob(this, ontology.getTermClosureIndex());
+    }
+  }
+}
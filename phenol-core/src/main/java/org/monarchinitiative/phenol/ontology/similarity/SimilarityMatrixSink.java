@@ -0,0 +1,41 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * Receiver for the rows computed by {@link SimilarityMatrixJob}.
+ *
+ * <p>{@link #begin(List, List, int)} is called once, followed by one call of {@link #writeRow(int,
+ * int[], double[], int)} per query in query order, all from the same thread. The job does not
+ * close the sink.
+ */
+public interface SimilarityMatrixSink extends Closeable {
+
+  /**
+   * Start the output.
+   *
+   * @param queryIds IDs of the queries (rows), by position.
+   * @param targetIds IDs of the targets (columns), by position.
+   * @param topK Maximal number of targets per row, <code>0</code> if all targets are written in
+   *     target order.
+   * @throws IOException On problems writing.
+   */
+  void begin(List<TermId> queryIds, List<TermId> targetIds, int topK) throws IOException;
+
+  /**
+   * Write one row.
+   *
+   * @param queryPos Position of the query.
+   * @param targetPositions Positions of the targets; in target order for all targets, otherwise
+   *     by descending score (ties in target order). Only valid during the call.
+   * @param scores Scores, parallel to {@code targetPositions}. Only valid during the call.
+   * @param count Number of valid entries in {@code targetPositions} and {@code scores}.
+   * @throws IOException On problems writing.
+   */
+  void writeRow(int queryPos, int[] targetPositions, double[] scores, int count)
+      throws IOException;
+}
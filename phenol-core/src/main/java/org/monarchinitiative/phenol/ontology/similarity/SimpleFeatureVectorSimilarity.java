@@ -35,4 +35,29 @@ public final class SimpleFeatureVectorSimilarity implements Similarity {
   public double computeScore(Collection<TermId> query, Collection<TermId> target) {
     return Sets.intersection(Sets.newHashSet(query), Sets.newHashSet(target)).size();
   }
+
+  @Override
+  public double computeScore(CompiledTermSet query, CompiledTermSet target) {
+    if (query.getClosureIndex() != target.getClosureIndex()) {
+      return computeScore(query.getTermIds(), target.getTermIds());
+    }
+    // Both index arrays are sorted and free of duplicates.
+    final int[] lhs = query.getIndices();
+    final int[] rhs = target.getIndices();
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < lhs.length && j < rhs.length) {
+      if (lhs[i] < rhs[j]) {
+        ++i;
+      } else if (lhs[i] > rhs[j]) {
+        ++j;
+      } else {
+        ++count;
+        ++i;
+        ++j;
+      }
+    }
+    return count;
+  }
 }
@@ -0,0 +1,93 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import java.util.Objects;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * Best-matching pair of a query and a target term together with their most informative common
+ * ancestor (MICA), as returned by {@link ResnikSimilarity#explain(java.util.Collection,
+ * java.util.Collection)}.
+ */
+public final class TermMatch {
+
+  /** The query term. */
+  private final TermId queryTermId;
+
+  /** The target term. */
+  private final TermId targetTermId;
+
+  /** The MICA of both terms, <code>null</code> if there is none. */
+  private final TermId micaTermId;
+
+  /** The pairwise score. */
+  private final double score;
+
+  /**
+   * Constructor.
+   *
+   * @param queryTermId The query term.
+   * @param targetTermId The target term.
+   * @param micaTermId The MICA of both terms, <code>null</code> if there is none.
+   * @param score The pairwise score.
+   */
+  public TermMatch(TermId queryTermId, TermId targetTermId, TermId micaTermId, double score) {
+    this.queryTermId = queryTermId;
+    this.targetTermId = targetTermId;
+    this.micaTermId = micaTermId;
+    this.score = score;
+  }
+
+  /** @return The query term. */
+  public TermId getQueryTermId() {
+    return queryTermId;
+  }
+
+  /** @return The target term. */
+  public TermId getTargetTermId() {
+    return targetTermId;
+  }
+
+  /** @return The MICA of both terms, <code>null</code> if there is none. */
+  public TermId getMicaTermId() {
+    return micaTermId;
+  }
+
+  /** @return The pairwise score. */
+  public double getScore() {
+    return score;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof TermMatch)) {
+      return false;
+    }
+    final TermMatch that = (TermMatch) o;
+    return Double.compare(score, that.score) == 0
+        && queryTermId.equals(that.queryTermId)
+        && targetTermId.equals(that.targetTermId)
+        && Objects.equals(micaTermId, that.micaTermId);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(queryTermId, targetTermId, micaTermId, score);
+  }
+
+  @Override
+  public String toString() {
+    return "TermMatch [queryTermId="
+        + queryTermId
+        + ", targetTermId="
+        + targetTermId
+        + ", micaTermId="
+        + micaTermId
+        + ", score="
+        + score
+        + "]";
+  }
+}
@@ -1,11 +1,11 @@
 package org.monarchinitiative.phenol.ontology.similarity;
 
 import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermBitSet;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
 import org.monarchinitiative.phenol.ontology.data.TermId;
-import com.google.common.collect.Sets;
 
 import java.util.Collection;
-import java.util.Set;
 
 /**
  * Implementation of term overlap similarity.
@@ -21,8 +21,8 @@ import java.util.Set;
 public final class TermOverlapSimilarity
     implements Similarity {
 
-  /** The {@link Ontology} to compute the similarity for. */
-  private final Ontology ontology;
+  /** The {@link TermClosureIndex} of the {@link Ontology} to compute the similarity for. */
+  private final TermClosureIndex closureIndex;
 
   /** Whether or not to compute in a normalized fashion. */
   private final boolean normalized;
@@ -45,7 +45,7 @@ public final class TermOverlapSimilarity
    * @param normalized Whether or not to normalize by smaller set size.
    */
   public TermOverlapSimilarity(Ontology ontology, boolean normalized) {
-    this.ontology = ontology;
+    this.closureIndex = ontology.getTermClosureIndex();
     this.normalized = normalized;
   }
 
@@ -66,14 +66,26 @@ public final class TermOverlapSimilarity
 
   @Override
   public double computeScore(Collection<TermId> query, Collection<TermId> target) {
-    final Set<TermId> termIdsQuery = ontology.getAllAncestorTermIds(query, false);
-    final Set<TermId> termIdsTarget = ontology.getAllAncestorTermIds(target, false);
+    return computeScore(
+        closureIndex.getAncestors(query, false), closureIndex.getAncestors(target, false));
+  }
+
+  @Override
+  public double computeScore(CompiledTermSet query, CompiledTermSet target) {
+    if (!query.isCompatible(target, closureIndex)) {
+      return computeScore(query.getTermIds(), target.getTermIds());
+    }
+    return computeScore(query.getAncestors(false), target.getAncestors(false));
+  }
+
+  /** Compute score from the ancestor closures (without root) of both sets. */
+  private double computeScore(TermBitSet termIdsQuery, TermBitSet termIdsTarget) {
 
-    double overlap = Sets.intersection(termIdsQuery, termIdsTarget).size();
+    double overlap = termIdsQuery.intersectionSize(termIdsTarget);
     if (!normalized) {
       return overlap;
     } else {
-      return overlap / Math.min(termIdsQuery.size(), termIdsTarget.size());
+      return overlap / Math.min(termIdsQuery.cardinality(), termIdsTarget.cardinality());
     }
   }
 }
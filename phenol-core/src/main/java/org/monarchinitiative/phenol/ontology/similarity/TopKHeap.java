@@ -0,0 +1,145 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * Bounded min-heap for selecting the <code>k</code> best scored profiles.
+ *
+ * <p>Profiles are identified by their position; higher scores rank first, ties are broken by
+ * ascending position. The root of the heap is the worst of the best <code>k</code> profiles seen so
+ * far.
+ */
+final class TopKHeap {
+
+  /** Profile positions, heap-ordered. */
+  private final int[] positions;
+
+  /** Scores, parallel to {@link #positions}. */
+  private final double[] scores;
+
+  /** Number of entries. */
+  private int size = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param k Maximal number of entries, must be positive.
+   */
+  TopKHeap(int k) {
+    this.positions = new int[k];
+    this.scores = new double[k];
+  }
+
+  /** @return Whether <code>k</code> entries have been collected. */
+  boolean isFull() {
+    return size == positions.length;
+  }
+
+  /** @return Score of the worst collected entry, only meaningful if not empty. */
+  double worstScore() {
+    return scores[0];
+  }
+
+  /**
+   * Offer a profile.
+   *
+   * @param pos Position of the profile.
+   * @param score Its score.
+   */
+  void offer(int pos, double score) {
+    if (size < positions.length) {
+      positions[size] = pos;
+      scores[size] = score;
+      siftUp(size++);
+    } else if (isWorse(positions[0], scores[0], pos, score)) {
+      positions[0] = pos;
+      scores[0] = score;
+      siftDown(size);
+    }
+  }
+
+  /**
+   * Drain the heap.
+   *
+   * @param profileIds IDs of the profiles, by position.
+   * @return The collected profiles by descending score, ties in position order.
+   */
+  List<SimilarityIndex.ScoredProfile> drain(TermId[] profileIds) {
+    final int[] positionsOut = new int[size];
+    final double[] scoresOut = new double[size];
+    final int count = drain(positionsOut, scoresOut);
+    final List<SimilarityIndex.ScoredProfile> list = new ArrayList<>(count);
+    for (int i = 0; i < count; ++i) {
+      list.add(new SimilarityIndex.ScoredProfile(profileIds[positionsOut[i]], scoresOut[i]));
+    }
+    return list;
+  }
+
+  /**
+   * Drain the heap into arrays.
+   *
+   * @param positionsOut Receives the collected positions by descending score, ties in position
+   *     order.
+   * @param scoresOut Receives the corresponding scores.
+   * @return Number of collected entries.
+   */
+  int drain(int[] positionsOut, double[] scoresOut) {
+    final int count = size;
+    for (int i = size - 1; i >= 0; --i) {
+      positionsOut[i] = positions[0];
+      scoresOut[i] = scores[0];
+      positions[0] = positions[i];
+      scores[0] = scores[i];
+      siftDown(i);
+    }
+    size = 0;
+    return count;
+  }
+
+  /** @return Whether the first profile ranks below the second one. */
+  private static boolean isWorse(int lhsPos, double lhsScore, int rhsPos, double rhsScore) {
+    final int cmp = Double.compare(lhsScore, rhsScore);
+    return cmp < 0 || (cmp == 0 && lhsPos > rhsPos);
+  }
+
+  private void siftUp(int from) {
+    final int pos = positions[from];
+    final double score = scores[from];
+    int i = from;
+    while (i > 0) {
+      final int parent = (i - 1) >>> 1;
+      if (!isWorse(pos, score, positions[parent], scores[parent])) {
+        break;
+      }
+      positions[i] = positions[parent];
+      scores[i] = scores[parent];
+      i = parent;
+    }
+    positions[i] = pos;
+    scores[i] = score;
+  }
+
+  private void siftDown(int heapSize) {
+    final int pos = positions[0];
+    final double score = scores[0];
+    int i = 0;
+    while (2 * i + 1 < heapSize) {
+      int child = 2 * i + 1;
+      if (child + 1 < heapSize
+          && isWorse(positions[child + 1], scores[child + 1], positions[child], scores[child])) {
+        ++child;
+      }
+      if (!isWorse(positions[child], scores[child], pos, score)) {
+        break;
+      }
+      positions[i] = positions[child];
+      scores[i] = scores[child];
+      i = child;
+    }
+    positions[i] = pos;
+    scores[i] = score;
+  }
+}
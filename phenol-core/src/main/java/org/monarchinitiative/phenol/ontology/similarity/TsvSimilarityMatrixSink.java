@@ -0,0 +1,87 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * {@link SimilarityMatrixSink} writing tab-separated text.
+ *
+ * <p>For all targets, a matrix is written with a header line <code>query</code> followed by the
+ * target IDs, and one line per query with the query ID followed by its scores. With top-K, one line
+ * is written per kept pair with the columns <code>query</code>, <code>target</code>, <code>rank
+ * </code> (starting at 1) and <code>score</code>.
+ */
+public final class TsvSimilarityMatrixSink implements SimilarityMatrixSink {
+
+  /** The writer to write to. */
+  private final BufferedWriter writer;
+
+  /** IDs of the queries, set on {@link #begin(List, List, int)}. */
+  private List<TermId> queryIds;
+
+  /** IDs of the targets, set on {@link #begin(List, List, int)}. */
+  private List<TermId> targetIds;
+
+  /** Whether to write top-K pairs instead of a matrix. */
+  private boolean pairs;
+
+  /**
+   * Constructor.
+   *
+   * @param writer The {@link Writer} to write to, closed with this sink.
+   */
+  public TsvSimilarityMatrixSink(Writer writer) {
+    this.writer = new BufferedWriter(writer, 1 << 16);
+  }
+
+  @Override
+  public void begin(List<TermId> queryIds, List<TermId> targetIds, int topK) throws IOException {
+    this.queryIds = queryIds;
+    this.targetIds = targetIds;
+    this.pairs = topK > 0;
+    if (pairs) {
+      writer.write("query\ttarget\trank\tscore\n");
+    } else {
+      writer.write("query");
+      for (TermId targetId : targetIds) {
+        writer.write('\t');
+        writer.write(targetId.getValue());
+      }
+      writer.write('\n');
+    }
+  }
+
+  @Override
+  public void writeRow(int queryPos, int[] targetPositions, double[] scores, int count)
+      throws IOException {
+    final String queryId = queryIds.get(queryPos).getValue();
+    if (pairs) {
+      for (int i = 0; i < count; ++i) {
+        writer.write(queryId);
+        writer.write('\t');
+        writer.write(targetIds.get(targetPositions[i]).getValue());
+        writer.write('\t');
+        writer.write(Integer.toString(i + 1));
+        writer.write('\t');
+        writer.write(Double.toString(scores[i]));
+        writer.write('\n');
+      }
+    } else {
+      writer.write(queryId);
+      for (int i = 0; i < count; ++i) {
+        writer.write('\t');
+        writer.write(Double.toString(scores[i]));
+      }
+      writer.write('\n');
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+}
@@ -0,0 +1,198 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+import org.monarchinitiative.phenol.formats.hpo.HpoAnnotation;
+import org.monarchinitiative.phenol.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.TermBitSet;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * Resnik similarity of a query term set against {@link HpoDisease}s that takes the annotation
+ * frequencies and negative annotations of the diseases into account.
+ *
+ * <p>For each query term <code>q</code>, the contribution is the best frequency-weighted match
+ * against the disease terms, <code>max_t sim(q, t) * freq(t)</code>, where <code>freq(t)</code> is
+ * {@link HpoAnnotation#getFrequency()}. If <code>q</code> is a negative annotation of the disease
+ * or one of its descendants, i.e., the query has a feature that the disease is known not to have,
+ * the contribution is reduced by <code>negationPenalty * sim(n, n)</code> for the most informative
+ * such negated term <code>n</code> (for Resnik, <code>sim(n, n)</code> is the IC of <code>n</code>).
+ * The score is the average contribution over all query terms and may thus be negative.
+ *
+ * <p>With all frequencies 1 and no negative annotations, the score equals the asymmetric {@link
+ * ResnikSimilarity} of the query against the disease terms. The term indices, frequencies and
+ * negated terms of all diseases are resolved on construction, such that scoring costs about the
+ * same as plain Resnik.
+ */
+public final class WeightedResnikSimilarity {
+
+  /** Pairwise term similarity computation. */
+  private final IndexedPairwiseSimilarity pairwiseSimilarity;
+
+  /** Weight of the penalty for query terms matching negative annotations. */
+  private final double negationPenalty;
+
+  /** Precomputed profiles by disease ID. */
+  private final Map<TermId, DiseaseProfile> profiles;
+
+  /** Per-thread score row buffer, grown to the largest disease profile seen. */
+  private static final ThreadLocal<double[][]> ROW =
+      ThreadLocal.withInitial(() -> new double[1][64]);
+
+  /**
+   * Constructor.
+   *
+   * @param pairwiseSimilarity {@link IndexedPairwiseSimilarity} to use for term pairs, usually
+   *     {@link PairwiseResnikSimilarity}.
+   * @param diseases The {@link HpoDisease}s to precompute profiles for.
+   * @param negationPenalty Weight of the penalty for query terms matching negative annotations,
+   *     <code>0</code> to ignore them.
+   */
+  public WeightedResnikSimilarity(
+      IndexedPairwiseSimilarity pairwiseSimilarity,
+      Collection<HpoDisease> diseases,
+      double negationPenalty) {
+    this.pairwiseSimilarity = pairwiseSimilarity;
+    this.negationPenalty = negationPenalty;
+    this.profiles = new HashMap<>(2 * diseases.size());
+    for (HpoDisease disease : diseases) {
+      profiles.put(disease.getDiseaseDatabaseId(), new DiseaseProfile(disease));
+    }
+  }
+
+  /** @return Weight of the penalty for query terms matching negative annotations. */
+  public double getNegationPenalty() {
+    return negationPenalty;
+  }
+
+  /** @return Number of precomputed diseases. */
+  public int countDiseases() {
+    return profiles.size();
+  }
+
+  /**
+   * Compute score of {@code query} against a precomputed disease.
+   *
+   * @param query Query {@link TermId}s.
+   * @param diseaseId ID of the disease, see {@link HpoDisease#getDiseaseDatabaseId()}.
+   * @return The weighted score.
+   * @throws PhenolRuntimeException if the disease was not given on construction.
+   */
+  public double computeScore(Collection<TermId> query, TermId diseaseId) {
+    final DiseaseProfile profile = profiles.get(diseaseId);
+    if (profile == null) {
+      throw new PhenolRuntimeException("Unknown disease " + diseaseId);
+    }
+    return computeScore(resolve(query), query.size(), profile);
+  }
+
+  /**
+   * Compute score of {@code query} against a disease, using its precomputed profile if available.
+   *
+   * @param query Query {@link TermId}s.
+   * @param disease The {@link HpoDisease}.
+   * @return The weighted score.
+   */
+  public double computeScore(Collection<TermId> query, HpoDisease disease) {
+    final DiseaseProfile profile = profiles.get(disease.getDiseaseDatabaseId());
+    return computeScore(
+        resolve(query), query.size(), (profile == null) ? new DiseaseProfile(disease) : profile);
+  }
+
+  /** @return Term indices of {@code termIds}, <code>-1</code> for unknown ones. */
+  private int[] resolve(Collection<TermId> termIds) {
+    final TermClosureIndex closureIndex = pairwiseSimilarity.getClosureIndex();
+    final int[] result = new int[termIds.size()];
+    int i = 0;
+    for (TermId termId : termIds) {
+      result[i++] = closureIndex.getIndex(termId);
+    }
+    return result;
+  }
+
+  private double computeScore(int[] query, int querySize, DiseaseProfile profile) {
+    if (querySize == 0) {
+      return 0.0;
+    }
+    final TermClosureIndex closureIndex = pairwiseSimilarity.getClosureIndex();
+    final double[] row = row(profile.terms.length);
+    double sum = 0;
+    for (int q : query) {
+      if (q == -1) {
+        continue;
+      }
+      pairwiseSimilarity.computeScores(q, profile.terms, row);
+      double best = 0.0;
+      for (int j = 0; j < profile.terms.length; ++j) {
+        best = Math.max(best, row[j] * profile.frequencies[j]);
+      }
+      double penalty = 0.0;
+      final TermBitSet ancestors = closureIndex.getAncestors(q);
+      for (int k = 0; k < profile.negated.length; ++k) {
+        if (profile.negatedScores[k] > penalty && ancestors.contains(profile.negated[k])) {
+          penalty = profile.negatedScores[k];
+        }
+      }
+      sum += best - negationPenalty * penalty;
+    }
+    return sum / querySize;
+  }
+
+  /** @return This thread's row buffer with at least {@code n} entries, contents undefined. */
+  private static double[] row(int n) {
+    final double[][] holder = ROW.get();
+    if (holder[0].length < n) {
+      holder[0] = new double[Math.max(n, 2 * holder[0].length)];
+    }
+    return holder[0];
+  }
+
+  /** Term indices and weights of a disease. */
+  private final class DiseaseProfile {
+    /** Term indices of the known phenotypic abnormalities. */
+    final int[] terms;
+    /** Frequencies, parallel to {@link #terms}. */
+    final double[] frequencies;
+    /** Term indices of the known negative annotations. */
+    final int[] negated;
+    /** Self-similarity of the negated terms, parallel to {@link #negated}. */
+    final double[] negatedScores;
+
+    DiseaseProfile(HpoDisease disease) {
+      final TermClosureIndex closureIndex = pairwiseSimilarity.getClosureIndex();
+      final List<HpoAnnotation> annotations = disease.getPhenotypicAbnormalities();
+      int[] termBuf = new int[annotations.size()];
+      double[] frequencyBuf = new double[annotations.size()];
+      int n = 0;
+      for (HpoAnnotation annotation : annotations) {
+        final int idx = closureIndex.getIndex(annotation.getTermId());
+        if (idx != -1) {
+          termBuf[n] = idx;
+          frequencyBuf[n++] = annotation.getFrequency();
+        }
+      }
+      this.terms = Arrays.copyOf(termBuf, n);
+      this.frequencies = Arrays.copyOf(frequencyBuf, n);
+
+      final int[] negatedIdx =
+          disease
+              .getNegativeAnnotations()
+              .stream()
+              .mapToInt(closureIndex::getIndex)
+              .filter(idx -> idx != -1)
+              .distinct()
+              .toArray();
+      this.negated = negatedIdx;
+      this.negatedScores = new double[negatedIdx.length];
+      for (int k = 0; k < negatedIdx.length; ++k) {
+        negatedScores[k] = pairwiseSimilarity.computeScore(negatedIdx[k], negatedIdx[k]);
+      }
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package org.monarchinitiative.phenol.ontology.algo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.data.TermAnnotations;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.testdata.vegetables.VegetableOntologyTestBase;
+
+public class IcOrderedAncestorsTest extends VegetableOntologyTestBase {
+
+  private Map<TermId, Double> informationContent;
+
+  private IcOrderedAncestors icOrderedAncestors;
+
+  private TermClosureIndex closureIndex;
+
+  @BeforeEach
+  public void setUp() {
+    InformationContentComputation computation = new InformationContentComputation(ontology);
+    Map<TermId, Collection<TermId>> termLabels =
+        TermAnnotations.constructTermAnnotationToLabelsMap(ontology, recipeAnnotations);
+    informationContent = computation.computeInformationContent(termLabels);
+    icOrderedAncestors = IcOrderedAncestors.of(ontology, informationContent);
+    closureIndex = icOrderedAncestors.getClosureIndex();
+  }
+
+  @Test
+  public void testSortedAncestors() {
+    final int blueCarrot = closureIndex.getIndex(idBlueCarrot);
+    final int[] ancestors = icOrderedAncestors.getSortedAncestors(blueCarrot);
+    assertEquals(blueCarrot, ancestors[0]);
+    assertEquals(closureIndex.getAncestors(blueCarrot).cardinality(), ancestors.length);
+    for (int k = 1; k < ancestors.length; ++k) {
+      assertTrue(
+          icOrderedAncestors.getInformationContent(ancestors[k - 1])
+              >= icOrderedAncestors.getInformationContent(ancestors[k]));
+    }
+  }
+
+  @Test
+  public void testResnikMatchesBruteForce() {
+    for (int q = 0; q < closureIndex.countTerms(); ++q) {
+      for (int t = 0; t < closureIndex.countTerms(); ++t) {
+        double expected = 0.0;
+        for (int a : closureIndex.getAncestors(q).toArray()) {
+          if (closureIndex.getAncestors(t).contains(a)) {
+            expected = Math.max(expected, informationContent.get(closureIndex.getTermId(a)));
+          }
+        }
+        assertEquals(expected, icOrderedAncestors.resnikScore(q, t), 1e-9);
+      }
+    }
+  }
+
+  @Test
+  public void testMostInformativeCommonAncestor() {
+    final int carrot = closureIndex.getIndex(idCarrot);
+    final int blueCarrot = closureIndex.getIndex(idBlueCarrot);
+    assertEquals(carrot, icOrderedAncestors.mostInformativeCommonAncestor(blueCarrot, carrot));
+    assertEquals(carrot, icOrderedAncestors.mostInformativeCommonAncestor(carrot, blueCarrot));
+    assertEquals(
+        blueCarrot, icOrderedAncestors.mostInformativeCommonAncestor(blueCarrot, blueCarrot));
+  }
+}
@@ -0,0 +1,107 @@
+package org.monarchinitiative.phenol.ontology.algo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.data.ImmutableOntology;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Relationship;
+import org.monarchinitiative.phenol.ontology.data.RelationshipType;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermAnnotations;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.similarity.PairwiseResnikSimilarity;
+import org.monarchinitiative.phenol.ontology.testdata.vegetables.VegetableOntologyTestBase;
+
+public class InformationContentTest extends VegetableOntologyTestBase {
+
+  private Map<TermId, Double> termToIc;
+
+  private InformationContent informationContent;
+
+  @BeforeEach
+  public void setUp() {
+    InformationContentComputation computation = new InformationContentComputation(ontology);
+    Map<TermId, Collection<TermId>> termLabels =
+        TermAnnotations.constructTermAnnotationToLabelsMap(ontology, recipeAnnotations);
+    termToIc = computation.computeInformationContent(termLabels);
+    informationContent = computation.computeInformationContentVector(termLabels);
+  }
+
+  @Test
+  public void testValues() {
+    assertEquals(ontology.getTermClosureIndex().countTerms(), informationContent.size());
+    for (Map.Entry<TermId, Double> entry : termToIc.entrySet()) {
+      assertEquals(entry.getValue(), informationContent.get(entry.getKey()), 1e-12);
+      int idx = informationContent.getClosureIndex().getIndex(entry.getKey());
+      assertEquals(entry.getValue(), informationContent.get(idx), 1e-12);
+    }
+    assertEquals(1.099, informationContent.get(idBlueCarrot), 0.01);
+    assertEquals(0.0, informationContent.get(TermId.of("VO:9999999")), 1e-12);
+  }
+
+  @Test
+  public void testMapView() {
+    Map<TermId, Double> view = informationContent.asMap();
+    assertEquals(termToIc, view);
+    assertNull(view.get(TermId.of("VO:9999999")));
+  }
+
+  @Test
+  public void testMapViewIgnoresAlternativeIds() {
+    TermId rootId = TermId.of("HP:0000001");
+    TermId childId = TermId.of("HP:0000002");
+    TermId altId = TermId.of("HP:2222222");
+    Ontology withAltId =
+        ImmutableOntology.builder()
+            .terms(
+                ImmutableList.of(
+                    Term.of(rootId, "root"),
+                    Term.builder().id(childId).name("child").altTermIds(ImmutableList.of(altId))
+                        .build()))
+            .relationships(
+                ImmutableList.of(new Relationship(childId, rootId, 1, RelationshipType.IS_A)))
+            .build();
+    InformationContent ic = new InformationContent(withAltId.getTermClosureIndex(), new double[2]);
+    assertEquals(
+        withAltId.getTermClosureIndex().getIndex(childId),
+        withAltId.getTermClosureIndex().getIndex(altId));
+    Map<TermId, Double> view = ic.asMap();
+    assertEquals(0.0, view.get(childId), 1e-12);
+    assertFalse(view.containsKey(altId));
+    assertNull(view.get(altId));
+    assertEquals(view.size(), view.keySet().size());
+  }
+
+  @Test
+  public void testWriteRead() throws Exception {
+    File file = File.createTempFile("phenol-ic", ".bin");
+    try {
+      informationContent.write(file);
+      InformationContent read = InformationContent.read(file, ontology);
+      assertEquals(informationContent.asMap(), read.asMap());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testPairwiseResnik() {
+    PairwiseResnikSimilarity fromMap = new PairwiseResnikSimilarity(ontology, termToIc);
+    PairwiseResnikSimilarity fromVector =
+        new PairwiseResnikSimilarity(ontology, informationContent);
+    for (TermId lhs : ontology.getNonObsoleteTermIds()) {
+      for (TermId rhs : ontology.getNonObsoleteTermIds()) {
+        assertEquals(fromMap.computeScore(lhs, rhs), fromVector.computeScore(lhs, rhs), 1e-12);
+      }
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package org.monarchinitiative.phenol.ontology.algo;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.TestOntology;
+import org.monarchinitiative.phenol.ontology.data.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testcases that verify the implementation of {@link ReachabilityIndex}
+ */
+public class ReachabilityIndexTest {
+
+  @Test
+  public void testIsAncestor() {
+    final ReachabilityIndex index = ReachabilityIndex.of(TestOntology.ontology());
+    assertTrue(index.isAncestor(TestOntology.TERM_ID_5, TestOntology.TERM_ID_1));
+    assertTrue(index.isAncestor(TestOntology.TERM_ID_3, TestOntology.TERM_ID_1));
+    assertTrue(index.isAncestor(TestOntology.TERM_ID_3, TestOntology.TERM_ID_3));
+    assertFalse(index.isAncestor(TestOntology.TERM_ID_1, TestOntology.TERM_ID_3));
+    assertFalse(index.isAncestor(TestOntology.TERM_ID_2, TestOntology.TERM_ID_3));
+    assertFalse(index.isAncestor(TermId.of("HP:9999999"), TestOntology.TERM_ID_3));
+    assertTrue(index.isPropagatingOnly());
+  }
+
+  /** Compare all pairs against the ancestor closures on a random DAG with many multi-parent terms. */
+  @Test
+  public void testLargeRandomDag() {
+    final Random rng = new Random(42);
+    final int numTerms = 400;
+    final List<Term> terms = new ArrayList<>();
+    final List<Relationship> relationships = new ArrayList<>();
+    for (int i = 0; i < numTerms; ++i) {
+      final TermId termId = TermId.of("HP", String.format("%07d", i));
+      terms.add(Term.of(termId, "term" + i));
+      final int numParents = (i == 0) ? 0 : 1 + rng.nextInt(3);
+      for (int k = 0; k < numParents; ++k) {
+        relationships.add(
+          new Relationship(
+            termId,
+            terms.get(rng.nextInt(i)).getId(),
+            relationships.size() + 1,
+            RelationshipType.IS_A));
+      }
+    }
+    final Ontology ontology =
+      ImmutableOntology.builder()
+        .terms(ImmutableList.copyOf(terms))
+        .relationships(ImmutableList.copyOf(relationships))
+        .build();
+    final ReachabilityIndex index = ReachabilityIndex.of(ontology);
+    for (Term descendant : terms) {
+      for (Term ancestor : terms) {
+        assertEquals(
+          ontology.getAncestorTermIds(descendant.getId()).contains(ancestor.getId()),
+          index.isAncestor(ancestor.getId(), descendant.getId()));
+      }
+    }
+  }
+}
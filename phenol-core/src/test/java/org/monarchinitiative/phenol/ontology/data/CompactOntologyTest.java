@@ -0,0 +1,75 @@
+package org.monarchinitiative.phenol.ontology.data;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.TestOntology;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testcases that verify the implementation of {@link CompactOntology}
+ */
+public class CompactOntologyTest {
+
+  private final Ontology source = TestOntology.ontology();
+
+  private final CompactOntology ontology = CompactOntology.of(source);
+
+  @Test
+  public void testTermIndices() {
+    assertEquals(5, ontology.countIndexedTerms());
+    for (int i = 0; i < ontology.countIndexedTerms(); ++i) {
+      assertEquals(i, ontology.getTermIndex(ontology.getTermId(i)));
+    }
+    assertEquals(TestOntology.TERM_ID_1, ontology.getTermId(0));
+    assertEquals(4, ontology.getRootTermIndex());
+    assertEquals(-1, ontology.getTermIndex(TermId.of("HP:9999999")));
+  }
+
+  @Test
+  public void testParentsAndChildren() {
+    final int idx1 = ontology.getTermIndex(TestOntology.TERM_ID_1);
+    assertEquals(3, ontology.getParentCount(idx1));
+    assertEquals(0, ontology.getChildCount(idx1));
+    assertEquals(RelationshipType.IS_A, ontology.getParentRelationshipType(idx1, 0));
+
+    final int idx5 = ontology.getRootTermIndex();
+    assertEquals(0, ontology.getParentCount(idx5));
+    assertEquals(3, ontology.getChildCount(idx5));
+
+    assertEquals(
+      ImmutableSet.of(TestOntology.TERM_ID_2, TestOntology.TERM_ID_3, TestOntology.TERM_ID_4),
+      ontology.getParentTermIds(TestOntology.TERM_ID_1));
+  }
+
+  @Test
+  public void testAgreesWithImmutableOntology() {
+    assertEquals(source.getGraph().vertexSet(), ontology.getGraph().vertexSet());
+    assertEquals(source.getGraph().edgeSet().size(), ontology.getGraph().edgeSet().size());
+    assertEquals(source.getRelationMap(), ontology.getRelationMap());
+    assertEquals(source.getAllTermIds(), ontology.getAllTermIds());
+    assertEquals(source.getRootTermId(), ontology.getRootTermId());
+    for (TermId termId : source.getNonObsoleteTermIds()) {
+      assertEquals(source.getAncestorTermIds(termId), ontology.getAncestorTermIds(termId));
+      assertEquals(
+        source.getAncestorTermIds(termId, false), ontology.getAncestorTermIds(termId, false));
+    }
+    assertEquals(
+      source.getAllAncestorTermIds(
+        ImmutableSet.of(TestOntology.TERM_ID_2, TestOntology.TERM_ID_3), false),
+      ontology.getAllAncestorTermIds(
+        ImmutableSet.of(TestOntology.TERM_ID_2, TestOntology.TERM_ID_3), false));
+  }
+
+  @Test
+  public void testSubontologyCreation() {
+    final CompactOntology subontology = ontology.subOntology(TestOntology.TERM_ID_4);
+    assertEquals(2, subontology.getTermMap().size());
+    assertEquals(2, subontology.countIndexedTerms());
+    assertEquals(1, subontology.getRelationMap().size());
+    assertEquals(TestOntology.TERM_ID_4, subontology.getRootTermId());
+    assertEquals(
+      ImmutableSet.of(TestOntology.TERM_ID_1, TestOntology.TERM_ID_4),
+      subontology.getAncestorTermIds(TestOntology.TERM_ID_1));
+  }
+}
@@ -0,0 +1,53 @@
+package org.monarchinitiative.phenol.ontology.data;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testcases that verify the implementation of {@link TermBitSet}
+ */
+public class TermBitSetTest {
+
+  private final TermBitSet first = TermBitSet.of(1, 3, 64, 200);
+
+  private final TermBitSet second = TermBitSet.of(3, 200, 201, 1000);
+
+  @Test
+  public void testContains() {
+    assertEquals(4, first.cardinality());
+    assertTrue(first.contains(64));
+    assertFalse(first.contains(65));
+    assertFalse(first.contains(-1));
+    assertFalse(first.contains(100_000));
+    assertTrue(TermBitSet.empty().isEmpty());
+  }
+
+  @Test
+  public void testSetAlgebra() {
+    assertEquals(2, first.intersectionSize(second));
+    assertEquals(6, first.unionSize(second));
+    assertTrue(first.intersects(second));
+    assertFalse(first.intersects(TermBitSet.of(2, 65)));
+    assertEquals(TermBitSet.of(1, 3, 64, 200, 201, 1000), first.union(second));
+    assertEquals(TermBitSet.of(1, 3, 200), first.without(64));
+    assertSame(first, first.without(2));
+  }
+
+  @Test
+  public void testIteration() {
+    assertArrayEquals(new int[] {1, 3, 64, 200}, first.toArray());
+    final StringBuilder builder = new StringBuilder();
+    first.iterator().forEachRemaining((int i) -> builder.append(i).append(','));
+    assertEquals("1,3,64,200,", builder.toString());
+  }
+
+  @Test
+  public void testBuilder() {
+    final TermBitSet.Builder builder = new TermBitSet.Builder(1024);
+    builder.addAll(first).add(500).remove(64);
+    assertEquals(TermBitSet.of(1, 3, 200, 500), builder.build());
+    builder.clear().add(7);
+    assertEquals(TermBitSet.of(7), builder.build());
+  }
+}
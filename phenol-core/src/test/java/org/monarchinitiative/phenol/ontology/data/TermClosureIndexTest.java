@@ -0,0 +1,101 @@
+package org.monarchinitiative.phenol.ontology.data;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.TestOntology;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testcases that verify the implementation of {@link TermClosureIndex}
+ */
+public class TermClosureIndexTest {
+
+  private final TermClosureIndex index = TestOntology.ontology().getTermClosureIndex();
+
+  @Test
+  public void testIndices() {
+    assertEquals(5, index.countTerms());
+    assertEquals(4, index.getRootIndex());
+    assertEquals(TestOntology.TERM_ID_1, index.getTermId(0));
+    assertEquals(0, index.getIndex(TestOntology.TERM_ID_1));
+    assertEquals(-1, index.getIndex(TermId.of("HP:9999999")));
+  }
+
+  @Test
+  public void testClosures() {
+    assertEquals(TermBitSet.of(0, 1, 2, 3, 4), index.getAncestors(0));
+    assertEquals(TermBitSet.of(1, 4), index.getAncestors(1));
+    assertEquals(TermBitSet.of(0, 1, 2, 3, 4), index.getDescendants(4));
+    assertEquals(TermBitSet.of(0, 3), index.getDescendants(3));
+    assertEquals(
+      TermBitSet.of(1, 2),
+      index.getAncestors(ImmutableSet.of(TestOntology.TERM_ID_2, TestOntology.TERM_ID_3), false));
+  }
+
+  @Test
+  public void testSetView() {
+    assertEquals(
+      ImmutableSet.of(TestOntology.TERM_ID_2, TestOntology.TERM_ID_5),
+      index.asTermIdSet(index.getAncestors(1), true));
+    assertEquals(
+      ImmutableSet.of(TestOntology.TERM_ID_2),
+      index.asTermIdSet(index.getAncestors(1), false));
+    assertFalse(index.asTermIdSet(index.getAncestors(1), false).contains(TestOntology.TERM_ID_5));
+  }
+
+  @Test
+  public void testCompactOntologyIndexAgrees() {
+    final TermClosureIndex compactIndex =
+      CompactOntology.of(TestOntology.ontology()).getTermClosureIndex();
+    for (int i = 0; i < index.countTerms(); ++i) {
+      assertEquals(index.getTermId(i), compactIndex.getTermId(i));
+      assertEquals(index.getAncestors(i), compactIndex.getAncestors(i));
+      assertEquals(index.getDescendants(i), compactIndex.getDescendants(i));
+    }
+  }
+
+  /** Large random DAG such that levels are processed in parallel. */
+  @Test
+  public void testLargeRandomDag() {
+    final Random rng = new Random(42);
+    final int numTerms = 5000;
+    final List<TermId> termIds = new ArrayList<>();
+    final List<Relationship> relationships = new ArrayList<>();
+    for (int i = 0; i < numTerms; ++i) {
+      termIds.add(TermId.of("HP", String.format("%07d", i)));
+      if (i > 0 && i <= 1000) {
+        relationships.add(
+          new Relationship(termIds.get(i), termIds.get(0), relationships.size(), RelationshipType.IS_A));
+      } else if (i > 1000) {
+        for (int k = 0; k < 2; ++k) {
+          relationships.add(
+            new Relationship(
+              termIds.get(i),
+              termIds.get(rng.nextInt(i)),
+              relationships.size(),
+              RelationshipType.IS_A));
+        }
+      }
+    }
+    final CompactOntology ontology =
+      new CompactOntology(
+        ImmutableSortedMap.of(),
+        termIds.get(0),
+        termIds,
+        ImmutableSet.of(),
+        ImmutableMap.of(),
+        relationships);
+    final TermClosureIndex largeIndex = ontology.getTermClosureIndex();
+    for (int i = 0; i < numTerms; ++i) {
+      assertArrayEquals(ontology.getAncestorIndices(i, true), largeIndex.getAncestors(i).toArray());
+      assertArrayEquals(ontology.getDescendantIndices(i), largeIndex.getDescendants(i).toArray());
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package org.monarchinitiative.phenol.ontology.data;
+
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testcases that verify the implementation of {@link TermIdPool}
+ */
+public class TermIdPoolTest {
+
+  private final TermIdPool pool = new TermIdPool();
+
+  @Test
+  public void testNumericIds() {
+    final TermId first = pool.of("HP:0000118");
+    assertEquals(TermId.of("HP:0000118"), first);
+    assertEquals("HP", first.getPrefix());
+    assertEquals("0000118", first.getId());
+    assertSame(first, pool.of("HP:0000118"));
+    assertSame(first, pool.of("HP", "0000118"));
+    assertSame(first, pool.of("1\tHP:0000118\tfoo", 2, 12));
+    assertSame(first, pool.intern(TermId.of("HP:0000118")));
+    // leading zeros are significant
+    assertNotSame(first, pool.of("HP:118"));
+    assertEquals("HP:118", pool.of("HP:118").getValue());
+    assertNotEquals(first, pool.of("MP:0000118"));
+    assertEquals(3, pool.size());
+  }
+
+  @Test
+  public void testNonNumericIds() {
+    final TermId first = pool.of("DECIPHER:Del1p36");
+    assertEquals(TermId.of("DECIPHER:Del1p36"), first);
+    assertSame(first, pool.of(new StringBuilder("xDECIPHER:Del1p36x"), 1, 17));
+    assertSame(first, pool.of("DECIPHER", "Del1p36"));
+    assertEquals(1, pool.size());
+  }
+
+  @Test
+  public void testGrowth() {
+    for (int i = 0; i < 10_000; ++i) {
+      pool.of("GO", String.format("%07d", i));
+      pool.of("X", "id" + i);
+    }
+    assertEquals(20_000, pool.size());
+    for (int i = 0; i < 10_000; ++i) {
+      assertEquals("GO:" + String.format("%07d", i), pool.of("GO:" + String.format("%07d", i)).getValue());
+      assertSame(pool.of("X:id" + i), pool.of("X", "id" + i));
+    }
+    assertEquals(20_000, pool.size());
+  }
+
+  @Test
+  public void testMaxSize() {
+    final TermIdPool small = new TermIdPool(2);
+    final TermId first = small.of("HP:0000118");
+    final TermId second = small.of("DECIPHER:Del1p36");
+    assertEquals(2, small.size());
+    // full: further term IDs are returned unpooled but remain equal
+    final TermId third = small.of("HP:0000001");
+    assertEquals(TermId.of("HP:0000001"), third);
+    assertNotSame(third, small.of("HP:0000001"));
+    assertEquals(2, small.size());
+    // pooled term IDs are still found
+    assertSame(first, small.of("HP:0000118"));
+    assertSame(second, small.of("DECIPHER", "Del1p36"));
+    assertEquals(TermIdPool.GLOBAL_MAX_SIZE, TermIdPool.global().getMaxSize());
+    assertThrows(PhenolRuntimeException.class, () -> new TermIdPool(0));
+  }
+
+  @Test
+  public void testNoPrefix() {
+    assertThrows(PhenolRuntimeException.class, () -> pool.of("HP0000118"));
+    assertThrows(PhenolRuntimeException.class, () -> pool.of(""));
+  }
+
+  @Test
+  public void testHashCodeCompatible() {
+    assertEquals(java.util.Objects.hash("HP:0000118"), TermId.of("HP:0000118").hashCode());
+  }
+}
@@ -0,0 +1,59 @@
+package org.monarchinitiative.phenol.ontology.scoredist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.algo.InformationContentComputation;
+import org.monarchinitiative.phenol.ontology.data.TermAnnotations;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.similarity.PairwiseResnikSimilarity;
+import org.monarchinitiative.phenol.ontology.similarity.PairwiseSimilarity;
+import org.monarchinitiative.phenol.ontology.similarity.ResnikSimilarity;
+import org.monarchinitiative.phenol.ontology.testdata.vegetables.VegetableOntologyTestBase;
+
+import com.google.common.collect.Lists;
+
+public class IncrementalBestMatchScoreTest extends VegetableOntologyTestBase {
+
+  private PairwiseResnikSimilarity pairwise;
+
+  @BeforeEach
+  public void setUp() {
+    InformationContentComputation computation = new InformationContentComputation(ontology);
+    Map<TermId, Collection<TermId>> termLabels =
+        TermAnnotations.constructTermAnnotationToLabelsMap(ontology, recipeAnnotations);
+    Map<TermId, Double> informationContent = computation.computeInformationContent(termLabels);
+    pairwise = new PairwiseResnikSimilarity(ontology, informationContent);
+  }
+
+  @Test
+  public void testMatchesSimilarityForAllPrefixes() {
+    // Hiding the indices and symmetry of the pairwise similarity covers the fallback paths.
+    PairwiseSimilarity plain = (t1, t2) -> pairwise.computeScore(t1, t2);
+    List<TermId> target = Lists.newArrayList(idCarrot, idBeet, TermId.of("VO:9999999"));
+    List<TermId> query =
+        Lists.newArrayList(idBlueCarrot, idPumpkin, idLeafVegetable, idRootVegetable, idCarrot);
+    for (ResnikSimilarity similarity :
+        Lists.newArrayList(
+            new ResnikSimilarity(pairwise, true),
+            new ResnikSimilarity(pairwise, false),
+            new ResnikSimilarity(plain, true))) {
+      IncrementalBestMatchScore score = new IncrementalBestMatchScore(similarity, target);
+      for (int round = 0; round < 2; ++round) {
+        score.reset();
+        List<TermId> prefix = new ArrayList<>();
+        for (TermId termId : query) {
+          prefix.add(termId);
+          score.add(termId);
+          assertEquals(similarity.computeScore(prefix, target), score.score(), 1e-9);
+        }
+      }
+    }
+  }
+}
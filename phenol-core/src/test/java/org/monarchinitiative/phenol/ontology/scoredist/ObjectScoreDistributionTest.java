@@ -1,10 +1,20 @@
 package org.monarchinitiative.phenol.ontology.scoredist;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedMap;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
 
 public class ObjectScoreDistributionTest {
 
@@ -21,6 +31,7 @@ public class ObjectScoreDistributionTest {
     assertEquals(2, objDist.getNumTerms());
     assertEquals(1, objDist.getObjectId());
     assertEquals(10, objDist.getSampleSize());
+    assertFalse(objDist.isFitted());
   }
 
   @Test
@@ -33,4 +44,110 @@ public class ObjectScoreDistributionTest {
     assertEquals(0.42, objDist.estimatePValue(0.8), 0.01);
     assertEquals(0.0, objDist.estimatePValue(0.99), 0.01);
   }
+
+  @Test
+  public void testEstimatePValueBoundaries() {
+    // below and at the minimal score
+    assertEquals(1.0, objDist.estimatePValue(Double.NEGATIVE_INFINITY), 1e-12);
+    assertEquals(1.0, objDist.estimatePValue(0.1), 1e-12);
+    // exactly on a stored score: interpolate towards the next one
+    assertEquals(1 - (0.5 + 0.2 * 0.4), objDist.estimatePValue(0.5), 1e-12);
+    // at and above the maximal score
+    assertEquals(0.0, objDist.estimatePValue(0.9), 1e-12);
+    assertEquals(0.0, objDist.estimatePValue(Double.POSITIVE_INFINITY), 1e-12);
+  }
+
+  @Test
+  public void testEmptyDistribution() {
+    final ObjectScoreDistribution empty =
+        new ObjectScoreDistribution(1, 2, 0, new double[0], new double[0]);
+    assertEquals(0.0, empty.estimatePValue(0.5), 1e-12);
+    assertEquals(0, empty.getScores().length);
+    assertEquals(0, empty.getCumulativeFrequencies().size());
+  }
+
+  @Test
+  public void testArrayConstructor() {
+    final double[] scores = {0.1, 0.5, 0.9};
+    final double[] freqs = {0.1, 0.5, 0.9};
+    final ObjectScoreDistribution fromArrays =
+        new ObjectScoreDistribution(1, 2, 10, scores, freqs);
+    assertArrayEquals(scores, fromArrays.getScores());
+    assertArrayEquals(freqs, fromArrays.getCumulativeFrequencyArray());
+    assertEquals(objDist.getCumulativeFrequencies(), fromArrays.getCumulativeFrequencies());
+    assertEquals(ImmutableList.of(0.1, 0.5, 0.9), fromArrays.observedScores());
+    // getters return copies
+    assertNotSame(fromArrays.getScores(), fromArrays.getScores());
+    fromArrays.getScores()[0] = 42.0;
+    assertEquals(0.1, fromArrays.getScores()[0]);
+    for (double score = -0.1; score < 1.1; score += 0.05) {
+      assertEquals(objDist.estimatePValue(score), fromArrays.estimatePValue(score));
+    }
+  }
+
+  @Test
+  public void testArrayConstructorValidation() {
+    assertThrows(
+        PhenolRuntimeException.class,
+        () -> new ObjectScoreDistribution(1, 2, 10, new double[] {0.1, 0.5}, new double[] {0.1}));
+    assertThrows(
+        PhenolRuntimeException.class,
+        () ->
+            new ObjectScoreDistribution(
+                1, 2, 10, new double[] {0.5, 0.1}, new double[] {0.1, 0.5}));
+    assertThrows(
+        PhenolRuntimeException.class,
+        () ->
+            new ObjectScoreDistribution(
+                1, 2, 10, new double[] {0.1, 0.1}, new double[] {0.1, 0.5}));
+  }
+
+  @Test
+  public void testEstimatePValues() {
+    final double[] queries = {0.0, 0.1, 0.2, 0.5, 0.8, 0.9, 0.99};
+    final double[] pValues = objDist.estimatePValues(queries);
+    assertEquals(queries.length, pValues.length);
+    for (int i = 0; i < queries.length; ++i) {
+      assertEquals(objDist.estimatePValue(queries[i]), pValues[i]);
+    }
+    assertEquals(0, objDist.estimatePValues(new double[0]).length);
+  }
+
+  @Test
+  public void testSameAsSortedMapScan() {
+    final Random random = new Random(42);
+    for (int round = 0; round < 20; ++round) {
+      final TreeMap<Double, Double> cumFreqs = new TreeMap<>();
+      final int numScores = 1 + random.nextInt(50);
+      for (int i = 0; i < numScores; ++i) {
+        cumFreqs.put(Math.round(random.nextDouble() * 100) / 10.0, 0.0);
+      }
+      int i = 0;
+      for (Entry<Double, Double> entry : cumFreqs.entrySet()) {
+        entry.setValue((double) ++i / cumFreqs.size());
+      }
+      final ObjectScoreDistribution dist = new ObjectScoreDistribution(1, 2, 10, cumFreqs);
+      for (int j = 0; j < 200; ++j) {
+        // include stored scores exactly as well as values in between and outside
+        final double score = Math.round((random.nextDouble() * 12 - 1) * 20) / 20.0;
+        assertEquals(scanPValue(cumFreqs, score), dist.estimatePValue(score), 1e-12);
+      }
+    }
+  }
+
+  /** Linear scan over the sorted map, as implemented before the switch to arrays. */
+  private static double scanPValue(SortedMap<Double, Double> cumulativeFrequencies, double score) {
+    Entry<Double, Double> previous = null;
+    for (Entry<Double, Double> entry : cumulativeFrequencies.entrySet()) {
+      if (previous == null && score <= entry.getKey()) {
+        return 1.0;
+      }
+      if (previous != null && previous.getKey() <= score && score < entry.getKey()) {
+        final double dx = (entry.getKey() - previous.getKey()) / 2.0;
+        return 1 - (previous.getValue() + dx * (entry.getValue() - previous.getValue()));
+      }
+      previous = entry;
+    }
+    return 0.0;
+  }
 }
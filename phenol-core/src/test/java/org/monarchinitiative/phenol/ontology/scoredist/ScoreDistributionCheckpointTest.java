@@ -0,0 +1,161 @@
+package org.monarchinitiative.phenol.ontology.scoredist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ser.SerializationException;
+
+public class ScoreDistributionCheckpointTest {
+
+  private File file;
+
+  private ScoreSamplingOptions options;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    file = File.createTempFile("phenol-checkpoint", ".bin");
+    options = new ScoreSamplingOptions();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    file.delete();
+  }
+
+  private static ObjectScoreDistribution empirical(int numTerms, int objectId) {
+    final TreeMap<Double, Double> cumFreqs = new TreeMap<>();
+    cumFreqs.put(0.0, 0.25);
+    cumFreqs.put(1.5, 0.75);
+    cumFreqs.put(2.0, 1.0);
+    return new ObjectScoreDistribution(objectId, numTerms, 100, cumFreqs);
+  }
+
+  @Test
+  public void testAppendAndResume() throws Exception {
+    final ObjectScoreDistribution fitted =
+        new ObjectScoreDistribution(
+            2,
+            1,
+            1000,
+            new ScoreDistributionModel(ScoreDistributionModel.Family.GEV, 1.0, 0.5, -0.1, 0.01));
+    try (ScoreDistributionCheckpoint checkpoint =
+        ScoreDistributionCheckpoint.open(file, options, false)) {
+      checkpoint.append(empirical(1, 1));
+      checkpoint.append(fitted);
+      // Duplicates are ignored.
+      checkpoint.append(empirical(1, 1));
+      assertEquals(2, checkpoint.size());
+    }
+
+    try (ScoreDistributionCheckpoint checkpoint =
+        ScoreDistributionCheckpoint.open(file, options, true)) {
+      assertEquals(2, checkpoint.size());
+      assertTrue(checkpoint.contains(1, 1));
+      assertFalse(checkpoint.contains(2, 1));
+      assertEquals(
+          empirical(1, 1).getCumulativeFrequencies(),
+          checkpoint.get(1, 1).getCumulativeFrequencies());
+      assertEquals(100, checkpoint.get(1, 1).getSampleSize());
+      assertEquals(fitted.toString(), checkpoint.get(1, 2).toString());
+
+      Map<Integer, ScoreDistribution> dists = checkpoint.toScoreDistributions();
+      assertEquals(1, dists.size());
+      assertEquals(2, dists.get(1).getObjectIds().size());
+    }
+
+    // Without resume, the file is overwritten.
+    try (ScoreDistributionCheckpoint checkpoint =
+        ScoreDistributionCheckpoint.open(file, options, false)) {
+      assertEquals(0, checkpoint.size());
+    }
+  }
+
+  @Test
+  public void testTornRecordIsDropped() throws Exception {
+    try (ScoreDistributionCheckpoint checkpoint =
+        ScoreDistributionCheckpoint.open(file, options, false)) {
+      checkpoint.append(empirical(1, 1));
+      checkpoint.append(empirical(1, 2));
+    }
+    final long complete = file.length();
+    // Simulate a crash while writing the second record.
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(complete - 5);
+    }
+
+    try (ScoreDistributionCheckpoint checkpoint =
+        ScoreDistributionCheckpoint.open(file, options, true)) {
+      assertEquals(1, checkpoint.size());
+      assertNull(checkpoint.get(1, 2));
+      checkpoint.append(empirical(1, 2));
+    }
+    assertEquals(complete, file.length());
+    try (ScoreDistributionCheckpoint checkpoint =
+        ScoreDistributionCheckpoint.open(file, options, true)) {
+      assertEquals(2, checkpoint.size());
+    }
+  }
+
+  @Test
+  public void testInvalidFile() throws Exception {
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write("not a checkpoint".getBytes("UTF-8"));
+    }
+    assertThrows(
+        SerializationException.class, () -> ScoreDistributionCheckpoint.open(file, options, true));
+  }
+
+  @Test
+  public void testResumeWithDifferentOptions() throws Exception {
+    try (ScoreDistributionCheckpoint checkpoint =
+        ScoreDistributionCheckpoint.open(file, options, false)) {
+      checkpoint.append(empirical(1, 1));
+    }
+    final ScoreSamplingOptions otherSeed = (ScoreSamplingOptions) options.clone();
+    otherSeed.setSeed(options.getSeed() + 1);
+    assertThrows(
+        SerializationException.class,
+        () -> ScoreDistributionCheckpoint.open(file, otherSeed, true));
+    final ScoreSamplingOptions otherTerms = (ScoreSamplingOptions) options.clone();
+    otherTerms.setMaxNumTerms(options.getMaxNumTerms() + 1);
+    assertThrows(
+        SerializationException.class,
+        () -> ScoreDistributionCheckpoint.open(file, otherTerms, true));
+
+    // The thread count and object range do not change the sampled distributions.
+    final ScoreSamplingOptions otherRange = (ScoreSamplingOptions) options.clone();
+    otherRange.setNumThreads(4);
+    otherRange.setMaxObjectId(10);
+    try (ScoreDistributionCheckpoint checkpoint =
+        ScoreDistributionCheckpoint.open(file, otherRange, true)) {
+      assertEquals(1, checkpoint.size());
+    }
+  }
+
+  @Test
+  public void testSyncedOnClose() throws Exception {
+    try (ScoreDistributionCheckpoint checkpoint =
+        ScoreDistributionCheckpoint.open(file, options, false)) {
+      for (int objectId = 1; objectId <= ScoreDistributionCheckpoint.SYNC_RECORDS + 1; ++objectId) {
+        checkpoint.append(empirical(1, objectId));
+      }
+    }
+    try (ScoreDistributionCheckpoint checkpoint =
+        ScoreDistributionCheckpoint.open(file, options, true)) {
+      assertEquals(ScoreDistributionCheckpoint.SYNC_RECORDS + 1, checkpoint.size());
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package org.monarchinitiative.phenol.ontology.scoredist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreDistributionModel.Family;
+
+public class ScoreDistributionFitterTest {
+
+  private static final int SAMPLE_SIZE = 50_000;
+
+  private static ObjectScoreDistribution empirical(ScoreHistogram histogram) {
+    return new ObjectScoreDistribution(
+        1, 5, SAMPLE_SIZE, histogram.toCumulativeRelFreq(SAMPLE_SIZE));
+  }
+
+  /** @return Empirical distribution of 1 + Gamma(shape 3, scale 0.5) samples. */
+  private static ObjectScoreDistribution gammaSample() {
+    final Random rng = new Random(42);
+    final ScoreHistogram histogram = new ScoreHistogram();
+    for (int i = 0; i < SAMPLE_SIZE; ++i) {
+      double value = 1.0;
+      for (int j = 0; j < 3; ++j) {
+        value -= 0.5 * Math.log(1 - rng.nextDouble());
+      }
+      histogram.add(value);
+    }
+    return empirical(histogram);
+  }
+
+  @Test
+  public void testFitGamma() {
+    final ObjectScoreDistribution dist = gammaSample();
+    final ObjectScoreDistribution fitted =
+        new ScoreDistributionFitter(Family.GAMMA, 0.02).fit(dist);
+    assertTrue(fitted.isFitted());
+    assertEquals(0, fitted.getScores().length);
+    assertEquals(SAMPLE_SIZE, fitted.getSampleSize());
+
+    final ScoreDistributionModel model = fitted.getModel();
+    assertEquals(3.0, model.getShape(), 0.3);
+    assertEquals(0.5, model.getScale(), 0.05);
+    assertEquals(1.0, model.getLocation(), 0.1);
+    assertTrue(model.getKsDistance() < 0.01);
+    assertTrue(ScoreDistributionFitter.tailRatio(model, dist) < 1.5);
+    for (double score = 1.5; score < 4.0; score += 0.25) {
+      assertEquals(dist.estimatePValue(score), fitted.estimatePValue(score), 0.01);
+    }
+    // The fitted tail extends beyond the largest sampled score.
+    assertTrue(fitted.estimatePValue(10.0) > 0.0);
+    assertEquals(1.0, fitted.estimatePValue(0.5), 1e-12);
+  }
+
+  @Test
+  public void testFitGumbel() {
+    final Random rng = new Random(42);
+    final ScoreHistogram histogram = new ScoreHistogram();
+    for (int i = 0; i < SAMPLE_SIZE; ++i) {
+      histogram.add(2.0 - 0.5 * Math.log(-Math.log(rng.nextDouble())));
+    }
+    final ObjectScoreDistribution dist = empirical(histogram);
+    final ObjectScoreDistribution fitted =
+        new ScoreDistributionFitter(Family.GEV, 0.02).fit(dist);
+    assertTrue(fitted.isFitted());
+
+    final ScoreDistributionModel model = fitted.getModel();
+    assertEquals(Family.GEV, model.getFamily());
+    assertEquals(0.0, model.getShape(), 0.05);
+    assertEquals(0.5, model.getScale(), 0.05);
+    assertEquals(2.0, model.getLocation(), 0.05);
+    for (double score = 1.5; score < 4.0; score += 0.25) {
+      assertEquals(dist.estimatePValue(score), fitted.estimatePValue(score), 0.01);
+    }
+  }
+
+  @Test
+  public void testFallbackToEmpirical() {
+    // Half of the scores are 0, no gamma or GEV fits this.
+    final Random rng = new Random(42);
+    final ScoreHistogram histogram = new ScoreHistogram();
+    for (int i = 0; i < SAMPLE_SIZE; ++i) {
+      histogram.add(rng.nextBoolean() ? 0.0 : 1 + rng.nextDouble());
+    }
+    final ObjectScoreDistribution dist = empirical(histogram);
+    for (Family family : Family.values()) {
+      final ScoreDistributionFitter fitter = new ScoreDistributionFitter(family, 0.02);
+      assertSame(dist, fitter.fit(dist));
+      assertFalse(fitter.fit(dist).isFitted());
+    }
+  }
+
+  @Test
+  public void testFallbackOnTailMismatch() {
+    // Log-normal samples: the GEV fits the bulk closely but underestimates the upper tail.
+    final Random rng = new Random(42);
+    final ScoreHistogram histogram = new ScoreHistogram();
+    for (int i = 0; i < SAMPLE_SIZE; ++i) {
+      histogram.add(1.0 + Math.exp(0.2 * rng.nextGaussian()));
+    }
+    final ObjectScoreDistribution dist = empirical(histogram);
+    final ScoreDistributionFitter fitter = new ScoreDistributionFitter(Family.GEV, 0.02);
+    final ScoreDistributionModel model = fitter.fitModel(dist);
+    assertTrue(model.getKsDistance() < 0.01);
+    assertTrue(ScoreDistributionFitter.tailRatio(model, dist) > 2.0);
+    assertSame(dist, fitter.fit(dist));
+    // accepted when ignoring the tail
+    assertTrue(
+        new ScoreDistributionFitter(Family.GEV, 0.02, Double.POSITIVE_INFINITY)
+            .fit(dist)
+            .isFitted());
+  }
+
+  @Test
+  public void testFitScoreDistribution() {
+    final ScoreDistribution dist =
+        new ScoreDistribution(5, Collections.singletonMap(1, gammaSample()));
+    final ScoreDistribution fitted = new ScoreDistributionFitter(Family.GAMMA, 0.02).fit(dist);
+    assertEquals(5, fitted.getNumTerms());
+    assertTrue(fitted.getObjectScoreDistribution(1).isFitted());
+  }
+}
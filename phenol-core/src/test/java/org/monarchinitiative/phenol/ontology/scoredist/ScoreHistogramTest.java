@@ -0,0 +1,57 @@
+package org.monarchinitiative.phenol.ontology.scoredist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+
+public class ScoreHistogramTest {
+
+  @Test
+  public void testCumulativeRelFreq() {
+    final ScoreHistogram histogram = new ScoreHistogram();
+    histogram.add(0.5);
+    histogram.add(0.5004);
+    histogram.add(1.25);
+    histogram.add(2000.0);
+    assertEquals(4, histogram.getTotal());
+
+    final TreeMap<Double, Double> expected = new TreeMap<>();
+    expected.put(0.0, 0.0);
+    expected.put(0.5, 0.5);
+    expected.put(1.25, 0.75);
+    expected.put(2000.0, 1.0);
+    assertEquals(expected, histogram.toCumulativeRelFreq(4));
+  }
+
+  @Test
+  public void testGrowDownwards() {
+    final ScoreHistogram histogram = new ScoreHistogram();
+    histogram.add(3000.0);
+    histogram.add(-1.0);
+    histogram.add(0.0);
+
+    final TreeMap<Double, Double> expected = new TreeMap<>();
+    expected.put(-1.0, 0.25);
+    expected.put(0.0, 0.5);
+    expected.put(3000.0, 0.75);
+    assertEquals(expected, histogram.toCumulativeRelFreq(4));
+  }
+
+  @Test
+  public void testScoreAtRank() {
+    final ScoreHistogram histogram = new ScoreHistogram();
+    histogram.add(3000.0);
+    histogram.add(-1.0);
+    histogram.add(0.5);
+    histogram.add(0.5);
+    assertEquals(-1.0, histogram.scoreAtRank(0), 1e-9);
+    assertEquals(0.5, histogram.scoreAtRank(1), 1e-9);
+    assertEquals(0.5, histogram.scoreAtRank(2), 1e-9);
+    assertEquals(3000.0, histogram.scoreAtRank(3), 1e-9);
+    assertThrows(PhenolRuntimeException.class, () -> histogram.scoreAtRank(4));
+  }
+}
@@ -13,7 +13,7 @@ public class ScoreSamplingOptionsTest {
     samplingOptions = new ScoreSamplingOptions();
 
     assertEquals(
-        "ScoreSamplingOptions [numThreads=1, minObjectId=null, maxObjectId=null, minNumTerms=1, maxNumTerms=20, numIterations=100000, seed=42]",
+        "ScoreSamplingOptions [numThreads=1, minObjectId=null, maxObjectId=null, minNumTerms=1, maxNumTerms=20, numIterations=100000, seed=42, nestedSampling=false, adaptivePrecision=0.0, tailProbability=0.01, batchSize=1000, fitFamily=null, maxKsDistance=0.02]",
         samplingOptions.toString());
   }
 
@@ -21,7 +21,21 @@ public class ScoreSamplingOptionsTest {
   public void testFullConstruction() {
     samplingOptions = new ScoreSamplingOptions(1, 1, 2, 3, 4, 5, 6);
     assertEquals(
-        "ScoreSamplingOptions [numThreads=1, minObjectId=1, maxObjectId=2, minNumTerms=3, maxNumTerms=4, numIterations=6, seed=5]",
+        "ScoreSamplingOptions [numThreads=1, minObjectId=1, maxObjectId=2, minNumTerms=3, maxNumTerms=4, numIterations=6, seed=5, nestedSampling=false, adaptivePrecision=0.0, tailProbability=0.01, batchSize=1000, fitFamily=null, maxKsDistance=0.02]",
         samplingOptions.toString());
   }
+
+  @Test
+  public void testCloneKeepsSettersValues() {
+    samplingOptions = new ScoreSamplingOptions();
+    samplingOptions.setNestedSampling(true);
+    samplingOptions.setAdaptivePrecision(0.05);
+    samplingOptions.setTailProbability(0.001);
+    samplingOptions.setBatchSize(500);
+    samplingOptions.setFitFamily(ScoreDistributionModel.Family.GEV);
+    samplingOptions.setMaxKsDistance(0.05);
+    assertEquals(
+        "ScoreSamplingOptions [numThreads=1, minObjectId=null, maxObjectId=null, minNumTerms=1, maxNumTerms=20, numIterations=100000, seed=42, nestedSampling=true, adaptivePrecision=0.05, tailProbability=0.001, batchSize=500, fitFamily=GEV, maxKsDistance=0.05]",
+        samplingOptions.clone().toString());
+  }
 }
@@ -0,0 +1,151 @@
+package org.monarchinitiative.phenol.ontology.scoredist;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ser.SerializationException;
+
+public class ScoreSamplingShardsTest {
+
+  private File file;
+
+  private Map<Integer, List<TermId>> labels;
+
+  private ScoreSamplingOptions options;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    file = File.createTempFile("phenol-shard", ".txt");
+
+    labels = new TreeMap<>();
+    for (int objectId = 1; objectId <= 20; ++objectId) {
+      final List<TermId> terms = new ArrayList<>();
+      for (int i = 0; i < objectId % 7 + 1; ++i) {
+        terms.add(TermId.of("HP:000000" + i));
+      }
+      labels.put(objectId, terms);
+    }
+    options = new ScoreSamplingOptions(1, null, null, 1, 3, 42, 100);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    file.delete();
+    ScoreSamplingShards.checksumFile(file).delete();
+  }
+
+  @Test
+  public void testEstimateCost() {
+    assertEquals(6 * 4 * 100, ScoreSamplingShards.estimateCost(4, options));
+    options.setNestedSampling(true);
+    assertEquals(3 * 4 * 100, ScoreSamplingShards.estimateCost(4, options));
+  }
+
+  @Test
+  public void testPlan() {
+    final List<ScoreSamplingShard> shards = ScoreSamplingShards.plan(labels, options, 3);
+    assertEquals(3, shards.size());
+
+    final Set<Integer> seen = new HashSet<>();
+    long minCost = Long.MAX_VALUE;
+    long maxCost = 0;
+    long maxObjectCost = 0;
+    for (int i = 0; i < shards.size(); ++i) {
+      final ScoreSamplingShard shard = shards.get(i);
+      assertEquals(i, shard.getIndex());
+      assertEquals(3, shard.getNumShards());
+      long cost = 0;
+      for (int objectId : shard.getObjectIds()) {
+        assertTrue(seen.add(objectId));
+        final long objectCost =
+            ScoreSamplingShards.estimateCost(labels.get(objectId).size(), options);
+        cost += objectCost;
+        maxObjectCost = Math.max(maxObjectCost, objectCost);
+      }
+      assertEquals(cost, shard.getEstimatedCost());
+      minCost = Math.min(minCost, cost);
+      maxCost = Math.max(maxCost, cost);
+    }
+    assertEquals(labels.keySet(), seen);
+    assertTrue(maxCost - minCost <= maxObjectCost);
+
+    // Deterministic
+    final List<ScoreSamplingShard> again = ScoreSamplingShards.plan(labels, options, 3);
+    for (int i = 0; i < shards.size(); ++i) {
+      assertArrayEquals(shards.get(i).getObjectIds(), again.get(i).getObjectIds());
+    }
+  }
+
+  @Test
+  public void testPlanRespectsObjectIdRange() {
+    options.setMinObjectId(5);
+    options.setMaxObjectId(8);
+    final Set<Integer> seen = new HashSet<>();
+    for (ScoreSamplingShard shard : ScoreSamplingShards.plan(labels, options, 2)) {
+      for (int objectId : shard.getObjectIds()) {
+        seen.add(objectId);
+      }
+    }
+    assertEquals(4, seen.size());
+    assertTrue(seen.containsAll(Arrays.asList(5, 6, 7, 8)));
+  }
+
+  @Test
+  public void testManifestRoundTrip() throws SerializationException {
+    final ScoreSamplingShard shard = ScoreSamplingShards.plan(labels, options, 4).get(2);
+    shard.write(file);
+    final ScoreSamplingShard read = ScoreSamplingShard.read(file);
+
+    assertEquals(2, read.getIndex());
+    assertEquals(4, read.getNumShards());
+    assertEquals(shard.getEstimatedCost(), read.getEstimatedCost());
+    assertEquals(options.getSamplingFingerprint(), read.getSamplingFingerprint());
+    assertArrayEquals(shard.getObjectIds(), read.getObjectIds());
+    assertEquals(shard, read);
+    assertEquals(shard.getObjectIds().length, read.select(labels).size());
+  }
+
+  @Test
+  public void testChecksum() throws IOException, SerializationException {
+    ScoreSamplingShards.plan(labels, options, 2).get(0).write(file);
+    ScoreSamplingShards.writeChecksum(file);
+    ScoreSamplingShards.verifyChecksum(file);
+
+    try (FileOutputStream out = new FileOutputStream(file, true)) {
+      out.write('x');
+    }
+    assertThrows(SerializationException.class, () -> ScoreSamplingShards.verifyChecksum(file));
+  }
+
+  @Test
+  public void testChecksumRecordsShard() throws IOException, SerializationException {
+    final ScoreSamplingShard shard = ScoreSamplingShards.plan(labels, options, 2).get(1);
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write("output of shard 1".getBytes("UTF-8"));
+    }
+    ScoreSamplingShards.writeChecksum(file, shard);
+    ScoreSamplingShards.verifyChecksum(file);
+    assertEquals(shard, ScoreSamplingShards.readShard(file));
+
+    // Without a recorded shard, the output cannot be matched to a manifest.
+    ScoreSamplingShards.writeChecksum(file);
+    assertThrows(SerializationException.class, () -> ScoreSamplingShards.readShard(file));
+  }
+}
@@ -1,15 +1,20 @@
 package org.monarchinitiative.phenol.ontology.scoredist;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.File;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
 import org.monarchinitiative.phenol.ontology.algo.InformationContentComputation;
 import org.monarchinitiative.phenol.ontology.data.TermAnnotations;
 import org.monarchinitiative.phenol.ontology.data.TermId;
@@ -21,6 +26,8 @@ import org.monarchinitiative.phenol.ontology.testdata.vegetables.VegetableRecipe
 
 public class SimilarityScoreSamplingTest extends VegetableOntologyTestBase {
 
+  private ResnikSimilarity resnikSimilarity;
+
   private SimilarityScoreSampling scoreSampling;
 
   @BeforeEach
@@ -29,7 +36,7 @@ public class SimilarityScoreSamplingTest extends VegetableOntologyTestBase {
     Map<TermId, Collection<TermId>> termLabels = TermAnnotations.constructTermAnnotationToLabelsMap(ontology, recipeAnnotations);
     Map<TermId, Double> informationContent = computation.computeInformationContent(termLabels);
     PairwiseResnikSimilarity pairwise = new PairwiseResnikSimilarity(ontology, informationContent);
-    ResnikSimilarity resnikSimilarity = new ResnikSimilarity(pairwise, true);
+    resnikSimilarity = new ResnikSimilarity(pairwise, true);
 
     ScoreSamplingOptions options = new ScoreSamplingOptions(1, null, null, 2, 2, 10_000, 42);
     scoreSampling = new SimilarityScoreSampling(ontology, resnikSimilarity, options);
@@ -37,6 +44,144 @@ public class SimilarityScoreSamplingTest extends VegetableOntologyTestBase {
 
   @Test
   public void test() {
+    Map<Integer, ScoreDistribution> samplingResult = scoreSampling.performSampling(labels());
+    assertEquals(1, samplingResult.size());
+    ScoreDistribution dist = samplingResult.get(2);
+    assertEquals(0.50, dist.getObjectScoreDistribution(1).estimatePValue(0.2), 0.3);
+    assertEquals(0.0, dist.getObjectScoreDistribution(1).estimatePValue(0.4), 0.01);
+    assertEquals(0.0, dist.getObjectScoreDistribution(1).estimatePValue(0.6), 0.01);
+    assertEquals(0.0, dist.getObjectScoreDistribution(1).estimatePValue(0.8), 0.01);
+    // All iterations are counted.
+    SortedMap<Double, Double> cumulative =
+        dist.getObjectScoreDistribution(1).getCumulativeFrequencies();
+    assertEquals(1.0, cumulative.get(cumulative.lastKey()), 1e-9);
+  }
+
+  @Test
+  public void testReproducible() {
+    Map<Integer, Set<TermId>> labels = labels();
+    ScoreDistribution first = scoreSampling.performSampling(labels).get(2);
+    ScoreDistribution second = scoreSampling.performSampling(labels).get(2);
+    for (int objectId : labels.keySet()) {
+      assertEquals(
+          first.getObjectScoreDistribution(objectId).getCumulativeFrequencies(),
+          second.getObjectScoreDistribution(objectId).getCumulativeFrequencies());
+    }
+  }
+
+  @Test
+  public void testNestedSampling() {
+    Map<Integer, Set<TermId>> labels = labels();
+    ScoreSamplingOptions options = new ScoreSamplingOptions(2, null, null, 1, 3, 10_000, 42);
+    options.setNestedSampling(true);
+    Map<Integer, ScoreDistribution> nested =
+        new SimilarityScoreSampling(ontology, resnikSimilarity, options).performSampling(labels);
+    assertEquals(3, nested.size());
+    for (int numTerms = 1; numTerms <= 3; ++numTerms) {
+      ScoreDistribution dist = nested.get(numTerms);
+      assertEquals(numTerms, dist.getNumTerms());
+      assertEquals(labels.keySet(), new HashSet<>(dist.getObjectIds()));
+      SortedMap<Double, Double> cumulative =
+          dist.getObjectScoreDistribution(1).getCumulativeFrequencies();
+      assertEquals(1.0, cumulative.get(cumulative.lastKey()), 1e-9);
+    }
+
+    // For the largest term count, the draws are the same as without nesting.
+    ScoreDistribution single = scoreSampling.performSampling(labels).get(2);
+    options = new ScoreSamplingOptions(1, null, null, 2, 2, 10_000, 42);
+    options.setNestedSampling(true);
+    ScoreDistribution nestedSingle =
+        new SimilarityScoreSampling(ontology, resnikSimilarity, options)
+            .performSampling(labels)
+            .get(2);
+    for (int objectId : labels.keySet()) {
+      assertEquals(
+          single.getObjectScoreDistribution(objectId).getCumulativeFrequencies(),
+          nestedSingle.getObjectScoreDistribution(objectId).getCumulativeFrequencies());
+    }
+  }
+
+  @Test
+  public void testAdaptiveSampling() {
+    Map<Integer, Set<TermId>> labels = labels();
+    ScoreSamplingOptions options = new ScoreSamplingOptions(1, null, null, 2, 2, 42, 10_000);
+    options.setAdaptivePrecision(0.01);
+    options.setBatchSize(100);
+    ScoreDistribution adaptive =
+        new SimilarityScoreSampling(ontology, resnikSimilarity, options)
+            .performSampling(labels)
+            .get(2);
+    for (int objectId : labels.keySet()) {
+      // The vegetable ontology has few distinct scores, such that the tail is known early.
+      ObjectScoreDistribution dist = adaptive.getObjectScoreDistribution(objectId);
+      assertTrue(dist.getSampleSize() < 10_000);
+      assertEquals(0, dist.getSampleSize() % 100);
+      SortedMap<Double, Double> cumulative = dist.getCumulativeFrequencies();
+      assertEquals(1.0, cumulative.get(cumulative.lastKey()), 1e-9);
+    }
+
+    // Without adaptive mode, all iterations are run.
+    options.setAdaptivePrecision(0.0);
+    ScoreDistribution full =
+        new SimilarityScoreSampling(ontology, resnikSimilarity, options)
+            .performSampling(labels)
+            .get(2);
+    for (int objectId : labels.keySet()) {
+      assertEquals(10_000, full.getObjectScoreDistribution(objectId).getSampleSize());
+    }
+  }
+
+  @Test
+  public void testResumeFromCheckpoint() throws Exception {
+    Map<Integer, Set<TermId>> labels = labels();
+    Map<Integer, ScoreDistribution> expected = scoreSampling.performSampling(labels);
+
+    File file = File.createTempFile("phenol-checkpoint", ".bin");
+    try {
+      // A first run that only completed object 1.
+      ScoreSamplingOptions options = new ScoreSamplingOptions(1, null, 1, 2, 2, 10_000, 42);
+      try (ScoreDistributionCheckpoint checkpoint =
+          ScoreDistributionCheckpoint.open(file, options, false)) {
+        new SimilarityScoreSampling(ontology, resnikSimilarity, options)
+            .performSampling(labels, checkpoint);
+        assertEquals(1, checkpoint.size());
+      }
+
+      try (ScoreDistributionCheckpoint checkpoint =
+          ScoreDistributionCheckpoint.open(file, options, true)) {
+        Map<Integer, ScoreDistribution> resumed =
+            scoreSampling.performSampling(labels, checkpoint);
+        assertEquals(labels.size(), checkpoint.size());
+        for (int objectId : labels.keySet()) {
+          assertEquals(
+              expected.get(2).getObjectScoreDistribution(objectId).getCumulativeFrequencies(),
+              resumed.get(2).getObjectScoreDistribution(objectId).getCumulativeFrequencies());
+        }
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testCheckpointFailure() throws Exception {
+    File file = File.createTempFile("phenol-checkpoint", ".bin");
+    try {
+      ScoreSamplingOptions options = new ScoreSamplingOptions(2, null, null, 2, 2, 10_000, 42);
+      ScoreDistributionCheckpoint checkpoint =
+          ScoreDistributionCheckpoint.open(file, options, false);
+      // Appending to a closed checkpoint fails, which must fail the whole run.
+      checkpoint.close();
+      SimilarityScoreSampling sampling =
+          new SimilarityScoreSampling(ontology, resnikSimilarity, options);
+      assertThrows(
+          PhenolRuntimeException.class, () -> sampling.performSampling(labels(), checkpoint));
+    } finally {
+      file.delete();
+    }
+  }
+
+  private Map<Integer, Set<TermId>> labels() {
     // TODO: this logic should be moved into the library
     Map<TermId, Integer> recipeToId = new HashMap<>();
     Map<Integer, Set<TermId>> labels = new HashMap<>();
@@ -52,13 +197,6 @@ public class SimilarityScoreSamplingTest extends VegetableOntologyTestBase {
       final Set<TermId> termIds = labels.get(recipeId);
       termIds.add(a.getTermId());
     }
-
-    Map<Integer, ScoreDistribution> samplingResult = scoreSampling.performSampling(labels);
-    assertEquals(1, samplingResult.size());
-    ScoreDistribution dist = samplingResult.get(2);
-    assertEquals(0.50, dist.getObjectScoreDistribution(1).estimatePValue(0.2), 0.3);
-    assertEquals(0.0, dist.getObjectScoreDistribution(1).estimatePValue(0.4), 0.01);
-    assertEquals(0.0, dist.getObjectScoreDistribution(1).estimatePValue(0.6), 0.01);
-    assertEquals(0.0, dist.getObjectScoreDistribution(1).estimatePValue(0.8), 0.01);
+    return labels;
   }
 }
@@ -0,0 +1,28 @@
+package org.monarchinitiative.phenol.ontology.scoredist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class SpecialFunctionsTest {
+
+  @Test
+  public void testGamma() {
+    assertEquals(24.0, SpecialFunctions.gamma(5.0), 1e-10);
+    assertEquals(Math.sqrt(Math.PI), SpecialFunctions.gamma(0.5), 1e-12);
+    assertEquals(Math.log(362880.0), SpecialFunctions.logGamma(10.0), 1e-12);
+  }
+
+  @Test
+  public void testRegularizedGamma() {
+    // For shape 1, the gamma distribution is exponential.
+    for (double x : new double[] {0.1, 1.0, 5.0, 30.0}) {
+      assertEquals(Math.exp(-x), SpecialFunctions.regularizedGammaQ(1.0, x), 1e-14);
+      assertEquals(-Math.expm1(-x), SpecialFunctions.regularizedGammaP(1.0, x), 1e-14);
+    }
+    // P(2, x) = 1 - (1 + x) exp(-x)
+    assertEquals(1 - 3 * Math.exp(-2), SpecialFunctions.regularizedGammaP(2.0, 2.0), 1e-14);
+    assertEquals(0.0, SpecialFunctions.regularizedGammaP(2.0, 0.0));
+    assertEquals(1.0, SpecialFunctions.regularizedGammaQ(2.0, -1.0));
+  }
+}
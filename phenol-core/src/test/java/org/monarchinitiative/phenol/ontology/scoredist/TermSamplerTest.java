@@ -0,0 +1,62 @@
+package org.monarchinitiative.phenol.ontology.scoredist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+public class TermSamplerTest {
+
+  private static List<TermId> terms(int n) {
+    final List<TermId> result = new ArrayList<>();
+    for (int i = 0; i < n; ++i) {
+      result.add(TermId.of("HP:" + String.format("%07d", i)));
+    }
+    return result;
+  }
+
+  @Test
+  public void testDistinctAndReproducible() {
+    final List<TermId> terms = terms(50);
+    final TermSampler lhs = new TermSampler(terms, 5);
+    final TermSampler rhs = new TermSampler(terms, 5);
+    final Random lhsRng = new Random(42);
+    final Random rhsRng = new Random(42);
+    for (int i = 0; i < 100; ++i) {
+      final List<TermId> sample = lhs.next(lhsRng);
+      assertEquals(5, sample.size());
+      assertEquals(5, new HashSet<>(sample).size());
+      assertTrue(terms.containsAll(sample));
+      assertEquals(new ArrayList<>(sample), new ArrayList<>(rhs.next(rhsRng)));
+    }
+  }
+
+  @Test
+  public void testUniform() {
+    final List<TermId> terms = terms(10);
+    final TermSampler sampler = new TermSampler(terms, 3);
+    final Random rng = new Random(1);
+    final int[] counts = new int[10];
+    for (int i = 0; i < 100_000; ++i) {
+      for (TermId termId : sampler.next(rng)) {
+        counts[terms.indexOf(termId)]++;
+      }
+    }
+    for (int count : counts) {
+      assertEquals(30_000, count, 1_000);
+    }
+  }
+
+  @Test
+  public void testCountExceedsTerms() {
+    final List<TermId> terms = terms(3);
+    final TermSampler sampler = new TermSampler(terms, 5);
+    assertEquals(terms, new ArrayList<>(sampler.next(new Random(1))));
+  }
+}
@@ -0,0 +1,113 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+import org.monarchinitiative.phenol.ontology.algo.InformationContentComputation;
+import org.monarchinitiative.phenol.ontology.data.TermAnnotations;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.testdata.vegetables.VegetableOntologyTestBase;
+
+public class CachingPairwiseSimilarityTest extends VegetableOntologyTestBase {
+
+  private PairwiseResnikSimilarity resnik;
+
+  @BeforeEach
+  public void setUp() {
+    InformationContentComputation computation = new InformationContentComputation(ontology);
+    Map<TermId, Collection<TermId>> termLabels =
+        TermAnnotations.constructTermAnnotationToLabelsMap(ontology, recipeAnnotations);
+    Map<TermId, Double> informationContent = computation.computeInformationContent(termLabels);
+    resnik = new PairwiseResnikSimilarity(ontology, informationContent);
+  }
+
+  @Test
+  public void testScoresAndStatistics() {
+    CachingPairwiseSimilarity similarity = new CachingPairwiseSimilarity(ontology, resnik, 1 << 16);
+    for (int round = 0; round < 2; ++round) {
+      for (TermId lhs : ontology.getNonObsoleteTermIds()) {
+        for (TermId rhs : ontology.getNonObsoleteTermIds()) {
+          assertEquals(resnik.computeScore(lhs, rhs), similarity.computeScore(lhs, rhs), 1e-9);
+        }
+      }
+    }
+    // 7 terms, 28 unordered pairs, all fit into the cache
+    assertEquals(28, similarity.getMissCount());
+    assertEquals(2 * 49 - 28, similarity.getHitCount());
+    assertEquals(0, similarity.getEvictionCount());
+  }
+
+  @Test
+  public void testAsymmetric() {
+    CachingPairwiseSimilarity similarity =
+        new CachingPairwiseSimilarity(ontology, resnik, 1 << 16, false);
+    assertEquals(0.405, similarity.computeScore(idBlueCarrot, idCarrot), 0.01);
+    assertEquals(0.405, similarity.computeScore(idCarrot, idBlueCarrot), 0.01);
+    assertEquals(2, similarity.getMissCount());
+    assertEquals(0, similarity.getHitCount());
+  }
+
+  @Test
+  public void testBoundedCapacity() {
+    CachingPairwiseSimilarity similarity =
+        new CachingPairwiseSimilarity(ontology, resnik, 4 * CachingPairwiseSimilarity.BYTES_PER_ENTRY);
+    assertEquals(CachingPairwiseSimilarity.WAYS, similarity.getCapacity());
+    for (int round = 0; round < 3; ++round) {
+      for (TermId lhs : ontology.getNonObsoleteTermIds()) {
+        for (TermId rhs : ontology.getNonObsoleteTermIds()) {
+          assertEquals(resnik.computeScore(lhs, rhs), similarity.computeScore(lhs, rhs), 1e-9);
+        }
+      }
+    }
+    assertEquals(3 * 49, similarity.getHitCount() + similarity.getMissCount());
+  }
+
+  @Test
+  public void testIndexedScoring() {
+    CachingPairwiseSimilarity similarity = new CachingPairwiseSimilarity(ontology, resnik, 1 << 16);
+    final int numTerms = similarity.getClosureIndex().countTerms();
+    final int[] targets = new int[numTerms];
+    for (int j = 0; j < numTerms; ++j) {
+      targets[j] = j;
+    }
+    final double[] row = new double[numTerms];
+    for (int query = 0; query < numTerms; ++query) {
+      similarity.computeScores(query, targets, row);
+      for (int j = 0; j < numTerms; ++j) {
+        assertEquals(resnik.computeScore(query, j), row[j], 1e-9);
+      }
+    }
+    assertEquals(numTerms * (numTerms + 1) / 2, similarity.getMissCount());
+    // best-match-average gathers rows from the cache
+    final List<TermId> query = ImmutableList.of(idBeet, idBlueCarrot, TermId.of("VO:9999999"));
+    final List<TermId> target = ImmutableList.of(idCarrot, idPumpkin);
+    for (boolean symmetric : new boolean[] {true, false}) {
+      assertEquals(
+          new ResnikSimilarity(resnik, symmetric).computeScore(query, target),
+          new ResnikSimilarity(similarity, symmetric).computeScore(query, target),
+          1e-9);
+    }
+  }
+
+  @Test
+  public void testUnknownTermBypassesCache() {
+    CachingPairwiseSimilarity similarity = new CachingPairwiseSimilarity(ontology, resnik, 1 << 16);
+    assertEquals(0.0, similarity.computeScore(idCarrot, TermId.of("VO:9999999")), 1e-9);
+    assertEquals(1, similarity.getBypassCount());
+    assertEquals(0, similarity.getMissCount());
+  }
+
+  @Test
+  public void testBudgetTooSmall() {
+    assertThrows(
+        PhenolRuntimeException.class, () -> new CachingPairwiseSimilarity(ontology, resnik, 10));
+  }
+}
@@ -0,0 +1,79 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.algo.InformationContentComputation;
+import org.monarchinitiative.phenol.ontology.data.TermAnnotations;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.testdata.vegetables.VegetableOntologyTestBase;
+
+public class CompiledTermSetTest extends VegetableOntologyTestBase {
+
+  private Map<TermId, Double> informationContent;
+
+  @BeforeEach
+  public void setUp() {
+    InformationContentComputation computation = new InformationContentComputation(ontology);
+    Map<TermId, Collection<TermId>> termLabels =
+        TermAnnotations.constructTermAnnotationToLabelsMap(ontology, recipeAnnotations);
+    informationContent = computation.computeInformationContent(termLabels);
+  }
+
+  @Test
+  public void testCompile() {
+    CompiledTermSet compiled =
+        CompiledTermSet.compile(
+            ontology,
+            Lists.newArrayList(idCarrot, idBlueCarrot, idCarrot, TermId.of("VO:9999999")),
+            false);
+    assertEquals(2, compiled.size());
+    assertEquals(
+        Lists.newArrayList(idBlueCarrot, idCarrot).stream().sorted().collect(toList()),
+        compiled.getTermIds().stream().sorted().collect(toList()));
+    final int root = ontology.getTermClosureIndex().getRootIndex();
+    assertTrue(compiled.getAncestors(true).contains(root));
+    assertFalse(compiled.getAncestors(false).contains(root));
+  }
+
+  @Test
+  public void testRemoveRedundant() {
+    CompiledTermSet compiled =
+        CompiledTermSet.compile(
+            ontology, Lists.newArrayList(idCarrot, idBlueCarrot, idRootVegetable), true);
+    assertEquals(Lists.newArrayList(idBlueCarrot), compiled.getTermIds());
+  }
+
+  @Test
+  public void testSameScores() {
+    PairwiseResnikSimilarity pairwise = new PairwiseResnikSimilarity(ontology, informationContent);
+    List<Similarity> similarities =
+        Lists.newArrayList(
+            new JaccardSimilarity(ontology),
+            new CosineSimilarity(ontology),
+            new TermOverlapSimilarity(ontology),
+            new SimpleFeatureVectorSimilarity(),
+            new ResnikSimilarity(pairwise, true),
+            new ResnikSimilarity(pairwise, false));
+    List<TermId> query = Lists.newArrayList(idBlueCarrot, idPumpkin);
+    List<TermId> target = Lists.newArrayList(idCarrot, idBeet, idLeafVegetable);
+    CompiledTermSet compiledQuery = CompiledTermSet.compile(ontology, query, false);
+    CompiledTermSet compiledTarget = CompiledTermSet.compile(ontology, target, false);
+    for (Similarity similarity : similarities) {
+      assertEquals(
+          similarity.computeScore(query, target),
+          similarity.computeScore(compiledQuery, compiledTarget),
+          1e-9,
+          similarity.getName());
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+import org.monarchinitiative.phenol.ontology.algo.InformationContentComputation;
+import org.monarchinitiative.phenol.ontology.data.TermAnnotations;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.testdata.vegetables.VegetableOntologyTestBase;
+import org.monarchinitiative.phenol.ser.SerializationException;
+
+public class MappedSimilarityMatrixTest extends VegetableOntologyTestBase {
+
+  private Map<TermId, Double> informationContent;
+
+  private PairwiseResnikSimilarity expected;
+
+  private File file;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    InformationContentComputation computation = new InformationContentComputation(ontology);
+    Map<TermId, Collection<TermId>> termLabels =
+        TermAnnotations.constructTermAnnotationToLabelsMap(ontology, recipeAnnotations);
+    informationContent = computation.computeInformationContent(termLabels);
+    expected = new PairwiseResnikSimilarity(ontology, informationContent);
+    file = File.createTempFile("phenol-similarity", ".bin");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void testAllPairs8Bit() throws Exception {
+    MappedSimilarityMatrix.write(file, ontology, informationContent, 8, 2);
+    try (MappedSimilarityMatrix matrix = MappedSimilarityMatrix.open(file)) {
+      assertEquals(8, matrix.getBitsPerCode());
+      assertEquals(ontology.getNonObsoleteTermIds().size(), matrix.countTerms());
+      for (TermId lhs : ontology.getNonObsoleteTermIds()) {
+        for (TermId rhs : ontology.getNonObsoleteTermIds()) {
+          assertEquals(
+              expected.computeScore(lhs, rhs), matrix.computeScore(lhs, rhs), 1e-9, lhs + " " + rhs);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRowGatherAndBestMatchAverage() throws Exception {
+    final List<List<TermId>> termSets =
+        ImmutableList.of(
+            ImmutableList.of(idBeet, idCarrot),
+            ImmutableList.of(idBlueCarrot),
+            ImmutableList.of(idPumpkin, idLeafVegetable, idCarrot),
+            ImmutableList.of(idBlueCarrot, TermId.of("VO:9999999")));
+    for (int bitsPerCode : new int[] {8, 16}) {
+      MappedSimilarityMatrix.write(file, ontology, informationContent, bitsPerCode, 1);
+      try (MappedSimilarityMatrix matrix = MappedSimilarityMatrix.open(file)) {
+        // gathered rows equal single lookups, for targets before and after the query
+        final int[] targets = new int[matrix.countTerms()];
+        for (int j = 0; j < targets.length; ++j) {
+          targets[j] = targets.length - 1 - j;
+        }
+        final double[] row = new double[targets.length];
+        for (int query = 0; query < matrix.countTerms(); ++query) {
+          matrix.computeScores(query, targets, row);
+          for (int j = 0; j < targets.length; ++j) {
+            assertEquals(matrix.getScore(query, targets[j]), row[j], 0.0001);
+          }
+        }
+        // best-match-average through the row gather equals the one on the pairwise similarity
+        for (boolean symmetric : new boolean[] {true, false}) {
+          final ResnikSimilarity onMatrix = new ResnikSimilarity(matrix, symmetric);
+          final ResnikSimilarity onPairwise = new ResnikSimilarity(expected, symmetric);
+          for (List<TermId> query : termSets) {
+            for (List<TermId> target : termSets) {
+              assertEquals(
+                  onPairwise.computeScore(query, target),
+                  onMatrix.computeScore(query, target),
+                  1e-9,
+                  query + " " + target);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testComputeSimilarities16Bit() throws Exception {
+    MappedSimilarityMatrix.write(file, ontology, informationContent, 16, 1);
+    try (MappedSimilarityMatrix matrix = MappedSimilarityMatrix.open(file)) {
+      assertEquals(0.0, matrix.computeScore(idBeet, idCarrot), 0.01);
+      assertEquals(0.405, matrix.computeScore(idBlueCarrot, idCarrot), 0.01);
+      assertEquals(0.405, matrix.computeScore(idCarrot, idBlueCarrot), 0.01);
+      assertEquals(0.0, matrix.computeScore(idPumpkin, idCarrot), 0.01);
+      assertEquals(0.0, matrix.computeScore(TermId.of("VO:9999999"), idCarrot), 0.01);
+    }
+  }
+
+  @Test
+  public void testMica() throws Exception {
+    MappedSimilarityMatrix.write(file, ontology, informationContent, 8, 2, true);
+    try (MappedSimilarityMatrix matrix = MappedSimilarityMatrix.open(file)) {
+      assertTrue(matrix.hasMica());
+      for (TermId lhs : ontology.getNonObsoleteTermIds()) {
+        for (TermId rhs : ontology.getNonObsoleteTermIds()) {
+          assertEquals(expected.getMica(lhs, rhs), matrix.getMica(lhs, rhs), lhs + " " + rhs);
+          assertEquals(
+              expected.computeScore(lhs, rhs), matrix.computeScore(lhs, rhs), 1e-9, lhs + " " + rhs);
+        }
+      }
+      assertEquals(idCarrot, matrix.getMica(idBlueCarrot, idCarrot));
+      assertNull(matrix.getMica(TermId.of("VO:9999999"), idCarrot));
+    }
+
+    MappedSimilarityMatrix.write(file, ontology, informationContent, 8, 1);
+    try (MappedSimilarityMatrix matrix = MappedSimilarityMatrix.open(file)) {
+      assertFalse(matrix.hasMica());
+      assertThrows(PhenolRuntimeException.class, () -> matrix.getMica(idBeet, idCarrot));
+    }
+  }
+
+  @Test
+  public void testQuantizationTable() {
+    final double[] table = MappedSimilarityMatrix.buildTable(new double[] {3.0, 1.0, 2.0, 1.0}, 4);
+    assertEquals(4, table.length);
+    assertEquals(0.0, table[0], 1e-9);
+    assertEquals(3.0, table[3], 1e-9);
+
+    final double[] reduced =
+        MappedSimilarityMatrix.buildTable(new double[] {1.0, 2.0, 3.0, 4.0, 5.0, 6.0}, 3);
+    assertEquals(3, reduced.length);
+    assertEquals(0.0, reduced[0], 1e-9);
+    assertEquals(6.0, reduced[2], 1e-9);
+    assertEquals(2, MappedSimilarityMatrix.closestCode(reduced, 5.5));
+    assertEquals(0, MappedSimilarityMatrix.closestCode(reduced, 0.5));
+  }
+
+  @Test
+  public void testInvalidFile() throws Exception {
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(new byte[64]);
+    }
+    assertThrows(SerializationException.class, () -> MappedSimilarityMatrix.open(file));
+  }
+}
@@ -0,0 +1,152 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.algo.InformationContent;
+import org.monarchinitiative.phenol.ontology.algo.InformationContentComputation;
+import org.monarchinitiative.phenol.ontology.data.TermAnnotations;
+import org.monarchinitiative.phenol.ontology.data.TermClosureIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.testdata.vegetables.VegetableOntologyTestBase;
+
+public class MicaEngineTest extends VegetableOntologyTestBase {
+
+  private InformationContent informationContent;
+
+  private MicaEngine onDemand;
+
+  private MicaEngine precomputed;
+
+  @BeforeEach
+  public void setUp() {
+    InformationContentComputation computation = new InformationContentComputation(ontology);
+    Map<TermId, Collection<TermId>> termLabels =
+        TermAnnotations.constructTermAnnotationToLabelsMap(ontology, recipeAnnotations);
+    informationContent = computation.computeInformationContentVector(termLabels);
+    onDemand = new MicaEngine(informationContent);
+    precomputed = new MicaEngine(informationContent, 2);
+  }
+
+  @Test
+  public void testPrecomputedSameAsOnDemand() {
+    assertTrue(precomputed.isPrecomputed());
+    final int n = onDemand.getClosureIndex().countTerms();
+    for (int i = 0; i < n; ++i) {
+      for (int j = 0; j < n; ++j) {
+        assertEquals(onDemand.getMica(i, j), precomputed.getMica(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testComputeScoresSameAsComputeScore() {
+    final int n = onDemand.getClosureIndex().countTerms();
+    final int[] targets = new int[n];
+    for (int j = 0; j < n; ++j) {
+      targets[j] = n - 1 - j;
+    }
+    final double[] row = new double[n];
+    for (MicaEngine engine : new MicaEngine[] {onDemand, precomputed}) {
+      for (MicaEngine.Measure measure : MicaEngine.Measure.values()) {
+        for (int i = 0; i < n; ++i) {
+          engine.pairwise(measure).computeScores(i, targets, row);
+          for (int j = 0; j < n; ++j) {
+            assertEquals(engine.computeScore(measure, i, targets[j]), row[j], 1e-12);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testResnikSameAsPairwiseResnik() {
+    PairwiseResnikSimilarity resnik = new PairwiseResnikSimilarity(ontology, informationContent);
+    PairwiseSimilarity fromEngine = precomputed.pairwise(MicaEngine.Measure.RESNIK);
+    for (TermId lhs : ontology.getNonObsoleteTermIds()) {
+      for (TermId rhs : ontology.getNonObsoleteTermIds()) {
+        assertEquals(resnik.computeScore(lhs, rhs), fromEngine.computeScore(lhs, rhs), 1e-12);
+      }
+    }
+  }
+
+  @Test
+  public void testMeasures() {
+    final TermClosureIndex closureIndex = onDemand.getClosureIndex();
+    final int carrot = closureIndex.getIndex(idCarrot);
+    final int blueCarrot = closureIndex.getIndex(idBlueCarrot);
+    final double icCarrot = informationContent.get(idCarrot);
+    final double icBlueCarrot = informationContent.get(idBlueCarrot);
+
+    assertEquals(carrot, onDemand.getMica(carrot, blueCarrot));
+    assertEquals(idCarrot, onDemand.getMica(idBlueCarrot, idCarrot));
+    assertEquals(
+        icCarrot, onDemand.computeScore(MicaEngine.Measure.RESNIK, carrot, blueCarrot), 1e-12);
+    final double lin = 2 * icCarrot / (icCarrot + icBlueCarrot);
+    assertEquals(lin, onDemand.computeScore(MicaEngine.Measure.LIN, carrot, blueCarrot), 1e-12);
+    assertEquals(
+        1.0 / (1.0 + icBlueCarrot - icCarrot),
+        onDemand.computeScore(MicaEngine.Measure.JIANG_CONRATH, carrot, blueCarrot),
+        1e-12);
+    assertEquals(
+        lin * (1 - Math.exp(-icCarrot)),
+        onDemand.computeScore(MicaEngine.Measure.RELEVANCE, carrot, blueCarrot),
+        1e-12);
+    assertEquals(
+        1.0, onDemand.computeScore(MicaEngine.Measure.JIANG_CONRATH, carrot, carrot), 1e-12);
+  }
+
+  @Test
+  public void testSetSimilarities() {
+    List<TermId> query = Lists.newArrayList(idBlueCarrot, idPumpkin);
+    List<TermId> target = Lists.newArrayList(idCarrot, idBeet);
+    Similarity lin = onDemand.similarity(MicaEngine.Measure.LIN, true);
+    assertEquals("Lin similarity", lin.getName());
+    assertEquals(
+        new ResnikSimilarity(onDemand.pairwise(MicaEngine.Measure.RESNIK), true)
+            .computeScore(query, target),
+        onDemand.similarity(MicaEngine.Measure.RESNIK, true).computeScore(query, target),
+        1e-12);
+
+    Similarity simGic = onDemand.simGic();
+    assertEquals(1.0, simGic.computeScore(query, query), 1e-12);
+    double score = simGic.computeScore(query, target);
+    assertTrue(score > 0.0 && score < 1.0);
+    assertEquals(
+        score,
+        simGic.computeScore(
+            CompiledTermSet.compile(ontology, query, false),
+            CompiledTermSet.compile(ontology, target, false)),
+        1e-12);
+  }
+
+  @Test
+  public void testSimilaritySerializable() throws Exception {
+    List<TermId> query = Lists.newArrayList(idBlueCarrot, idPumpkin);
+    List<TermId> target = Lists.newArrayList(idCarrot, idBeet);
+    for (MicaEngine engine : new MicaEngine[] {onDemand, precomputed}) {
+      Similarity lin = engine.similarity(MicaEngine.Measure.LIN, true);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+        out.writeObject(lin);
+      }
+      Similarity copy;
+      try (ObjectInputStream in =
+          new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+        copy = (Similarity) in.readObject();
+      }
+      assertEquals(lin.computeScore(query, target), copy.computeScore(query, target), 1e-12);
+    }
+  }
+}
@@ -34,4 +34,12 @@ public class PairwiseResnikSimilarityTest extends VegetableOntologyTestBase {
     assertEquals(0.0, similarity.computeScore(idPumpkin, idCarrot), 0.01);
     assertEquals(0.0, similarity.computeScore(idLeafVegetable, idCarrot), 0.01);
   }
+
+  @Test
+  public void testUnknownTerm() {
+    final TermId unknown = TermId.of("VO:9999999");
+    assertEquals(0.0, similarity.computeScore(unknown, idCarrot), 0.01);
+    assertEquals(0.0, similarity.computeScore(idCarrot, unknown), 0.01);
+    assertEquals(0.0, similarity.computeScore(unknown, unknown), 0.01);
+  }
 }
@@ -0,0 +1,176 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.algo.InformationContentComputation;
+import org.monarchinitiative.phenol.ontology.data.CompactOntology;
+import org.monarchinitiative.phenol.ontology.data.Relationship;
+import org.monarchinitiative.phenol.ontology.data.RelationshipType;
+import org.monarchinitiative.phenol.ontology.data.TermAnnotations;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.data.TestTermAnnotation;
+import org.monarchinitiative.phenol.ontology.testdata.vegetables.VegetableOntologyTestBase;
+
+public class PrunedResnikSearchTest extends VegetableOntologyTestBase {
+
+  private PairwiseResnikSimilarity pairwise;
+
+  private Map<TermId, Collection<TermId>> recipes;
+
+  @BeforeEach
+  public void setUp() {
+    InformationContentComputation computation = new InformationContentComputation(ontology);
+    Map<TermId, Collection<TermId>> termLabels =
+        TermAnnotations.constructTermAnnotationToLabelsMap(ontology, recipeAnnotations);
+    Map<TermId, Double> informationContent = computation.computeInformationContent(termLabels);
+    pairwise = new PairwiseResnikSimilarity(ontology, informationContent);
+    recipes = TermAnnotations.constructTermLabelToAnnotationsMap(ontology, recipeAnnotations);
+  }
+
+  @Test
+  public void testSameResultsAsSimilarityIndex() {
+    final List<TermId> terms = new ArrayList<>(ontology.getNonObsoleteTermIds());
+    for (boolean symmetric : new boolean[] {false, true}) {
+      SimilarityIndex index = new SimilarityIndex(pairwise, symmetric, recipes);
+      PrunedResnikSearch search =
+          new PrunedResnikSearch(pairwise.getIcOrderedAncestors(), symmetric, recipes);
+      for (TermId first : terms) {
+        for (TermId second : terms) {
+          List<TermId> query = Lists.newArrayList(first, second);
+          for (int k = 1; k <= recipes.size(); ++k) {
+            List<SimilarityIndex.ScoredProfile> expected = index.topK(query, k);
+            List<SimilarityIndex.ScoredProfile> actual = search.topK(query, k);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); ++i) {
+              assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-9);
+              assertEquals(expected.get(i).getProfileId(), actual.get(i).getProfileId());
+            }
+          }
+        }
+      }
+      assertTrue(search.getScoredCount() <= search.getQueryCount() * recipes.size());
+    }
+  }
+
+  @Test
+  public void testPruning() {
+    PrunedResnikSearch search =
+        new PrunedResnikSearch(pairwise.getIcOrderedAncestors(), false, recipes);
+    List<SimilarityIndex.ScoredProfile> top = search.topK(Lists.newArrayList(idBlueCarrot), 1);
+    assertEquals(1, top.size());
+    assertEquals(1, search.getQueryCount());
+    assertTrue(search.getScoredCount() < recipes.size());
+  }
+
+  /**
+   * On random profiles over a tree ontology, the number of exactly scored profiles per query grows
+   * less than linearly with the number of profiles.
+   */
+  @Test
+  public void testScoredProfilesGrowSublinearly() {
+    final Random rng = new Random(42);
+    // Tree of depth 4 with 6 children per inner term.
+    final List<TermId> termIds = new ArrayList<>();
+    final List<Relationship> relationships = new ArrayList<>();
+    final List<TermId> leaves = new ArrayList<>();
+    for (int i = 0; i < 1 + 6 + 36 + 216 + 1296; ++i) {
+      termIds.add(TermId.of("HP", String.format("%07d", i)));
+      if (i > 0) {
+        relationships.add(
+            new Relationship(
+                termIds.get(i), termIds.get((i - 1) / 6), i - 1, RelationshipType.IS_A));
+      }
+      if (i >= 1 + 6 + 36 + 216) {
+        leaves.add(termIds.get(i));
+      }
+    }
+    final CompactOntology tree =
+        new CompactOntology(
+            ImmutableSortedMap.of(),
+            termIds.get(0),
+            termIds,
+            ImmutableSet.of(),
+            ImmutableMap.of(),
+            relationships);
+
+    final int numQueries = 50;
+    final List<List<TermId>> queries = new ArrayList<>();
+    for (int i = 0; i < numQueries; ++i) {
+      queries.add(randomTerms(rng, leaves, 3));
+    }
+    final int small = 500;
+    final int large = 8000;
+    final Map<TermId, Collection<TermId>> profiles = new LinkedHashMap<>();
+    double smallScored = 0;
+    while (profiles.size() < large) {
+      profiles.put(TermId.of("OMIM", String.valueOf(profiles.size())), randomTerms(rng, leaves, 5));
+      if (profiles.size() != small && profiles.size() != large) {
+        continue;
+      }
+      final Map<TermId, Double> informationContent = new HashMap<>();
+      final Map<TermId, Collection<TermId>> termLabels =
+          TermAnnotations.constructTermAnnotationToLabelsMap(tree, profileAnnotations(profiles));
+      for (TermId termId : termIds) {
+        final int count = termLabels.containsKey(termId) ? termLabels.get(termId).size() : 0;
+        informationContent.put(termId, -Math.log(Math.max(1, count) / (double) profiles.size()));
+      }
+      final PairwiseResnikSimilarity treePairwise =
+          new PairwiseResnikSimilarity(tree, informationContent);
+      final PrunedResnikSearch search =
+          new PrunedResnikSearch(treePairwise.getIcOrderedAncestors(), false, profiles);
+      final SimilarityIndex index = new SimilarityIndex(treePairwise, false, profiles);
+      for (List<TermId> query : queries) {
+        List<SimilarityIndex.ScoredProfile> expected = index.topK(query, 10);
+        List<SimilarityIndex.ScoredProfile> actual = search.topK(query, 10);
+        for (int i = 0; i < expected.size(); ++i) {
+          assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-9);
+          assertEquals(expected.get(i).getProfileId(), actual.get(i).getProfileId());
+        }
+      }
+      final double scored = search.getScoredCount() / (double) numQueries;
+      if (profiles.size() == small) {
+        smallScored = scored;
+      } else {
+        assertTrue(scored < large, "scored " + scored + " of " + large);
+        assertTrue(
+            scored / smallScored < 0.5 * large / small,
+            "scored " + smallScored + " of " + small + " but " + scored + " of " + large);
+      }
+    }
+  }
+
+  /** @return {@code count} random terms from {@code terms}. */
+  private static List<TermId> randomTerms(Random rng, List<TermId> terms, int count) {
+    final List<TermId> result = new ArrayList<>();
+    for (int i = 0; i < count; ++i) {
+      result.add(terms.get(rng.nextInt(terms.size())));
+    }
+    return result;
+  }
+
+  /** @return Annotations of the profiles, for computing the IC. */
+  private static List<TestTermAnnotation> profileAnnotations(Map<TermId, Collection<TermId>> profiles) {
+    final List<TestTermAnnotation> result = new ArrayList<>();
+    for (Map.Entry<TermId, Collection<TermId>> entry : profiles.entrySet()) {
+      for (TermId termId : entry.getValue()) {
+        result.add(new TestTermAnnotation(termId, entry.getKey()));
+      }
+    }
+    return result;
+  }
+}
@@ -2,6 +2,7 @@ package org.monarchinitiative.phenol.ontology.similarity;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
 import org.monarchinitiative.phenol.ontology.algo.InformationContentComputation;
 import org.monarchinitiative.phenol.ontology.data.TermAnnotations;
 import org.monarchinitiative.phenol.ontology.data.TermId;
@@ -9,6 +10,7 @@ import org.monarchinitiative.phenol.ontology.testdata.vegetables.VegetableOntolo
 import com.google.common.collect.Lists;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,13 +19,15 @@ public class ResnikSimilarityTest extends VegetableOntologyTestBase {
 
   private ResnikSimilarity similarity;
 
+  private PairwiseResnikSimilarity pairwise;
+
   @BeforeEach
   public void setUp() {
     InformationContentComputation computation = new InformationContentComputation(ontology);
     Map<TermId, Collection<TermId>> termLabels =
         TermAnnotations.constructTermAnnotationToLabelsMap(ontology, recipeAnnotations);
     Map<TermId, Double> informationContent = computation.computeInformationContent(termLabels);
-    PairwiseResnikSimilarity pairwise = new PairwiseResnikSimilarity(ontology, informationContent);
+    pairwise = new PairwiseResnikSimilarity(ontology, informationContent);
 
     similarity = new ResnikSimilarity(pairwise, true);
   }
@@ -54,4 +58,85 @@ public class ResnikSimilarityTest extends VegetableOntologyTestBase {
         similarity.computeScore(Lists.newArrayList(idLeafVegetable), Lists.newArrayList(idCarrot)),
         0.01);
   }
+
+  @Test
+  public void testSinglePassSymmetricScore() {
+    // Hiding the symmetry of the pairwise similarity forces the two-pass computation.
+    PairwiseSimilarity twoPass = (t1, t2) -> pairwise.computeScore(t1, t2);
+    ResnikSimilarity reference = new ResnikSimilarity(twoPass, true);
+    List<TermId> terms = Lists.newArrayList(ontology.getNonObsoleteTermIds());
+    List<TermId> query = Lists.newArrayList(idBlueCarrot, idPumpkin, TermId.of("VO:9999999"));
+    for (int i = 0; i < terms.size(); ++i) {
+      List<TermId> target = terms.subList(i, terms.size());
+      assertEquals(
+          reference.computeScore(query, target), similarity.computeScore(query, target), 1e-9);
+    }
+  }
+
+  @Test
+  public void testComputeScoreOnTermIndices() {
+    int[] query = {pairwise.getClosureIndex().getIndex(idBlueCarrot)};
+    int[] target = {
+      pairwise.getClosureIndex().getIndex(idCarrot), pairwise.getClosureIndex().getIndex(idBeet)
+    };
+    assertEquals(
+        similarity.computeScore(
+            Lists.newArrayList(idBlueCarrot), Lists.newArrayList(idCarrot, idBeet)),
+        similarity.computeScore(query, target),
+        1e-9);
+  }
+
+  @Test
+  public void testExplain() {
+    List<TermMatch> matches =
+        similarity.explain(
+            Lists.newArrayList(idBlueCarrot, idPumpkin), Lists.newArrayList(idCarrot, idBeet));
+    assertEquals(4, matches.size());
+    assertEquals(new TermMatch(idBlueCarrot, idCarrot, idCarrot, 0.405), round(matches.get(0)));
+    assertEquals(idCarrot, matches.get(1).getTargetTermId());
+    assertEquals(idBlueCarrot, matches.get(1).getQueryTermId());
+
+    double sum = 0;
+    for (TermMatch match : matches) {
+      assertEquals(
+          pairwise.computeScore(match.getQueryTermId(), match.getTargetTermId()),
+          match.getScore(),
+          1e-9);
+      sum += match.getScore();
+    }
+    assertEquals(
+        similarity.computeScore(
+            Lists.newArrayList(idBlueCarrot, idPumpkin), Lists.newArrayList(idCarrot, idBeet)),
+        sum / 4,
+        1e-9);
+  }
+
+  @Test
+  public void testExplainPrecomputed() {
+    InformationContentComputation computation = new InformationContentComputation(ontology);
+    Map<TermId, Double> informationContent =
+        computation.computeInformationContent(
+            TermAnnotations.constructTermAnnotationToLabelsMap(ontology, recipeAnnotations));
+    ResnikSimilarity precomputed =
+        new ResnikSimilarity(
+            new PrecomputingPairwiseResnikSimilarity(ontology, informationContent, 1, true),
+            false);
+    List<TermMatch> matches =
+        precomputed.explain(Lists.newArrayList(idBlueCarrot), Lists.newArrayList(idCarrot, idBeet));
+    assertEquals(1, matches.size());
+    assertEquals(idCarrot, matches.get(0).getMicaTermId());
+
+    ResnikSimilarity withoutMica = new ResnikSimilarity(ontology, informationContent, false);
+    assertThrows(
+        PhenolRuntimeException.class,
+        () -> withoutMica.explain(Lists.newArrayList(idBeet), Lists.newArrayList(idCarrot)));
+  }
+
+  private static TermMatch round(TermMatch match) {
+    return new TermMatch(
+        match.getQueryTermId(),
+        match.getTargetTermId(),
+        match.getMicaTermId(),
+        Math.round(match.getScore() * 1000) / 1000.0);
+  }
 }
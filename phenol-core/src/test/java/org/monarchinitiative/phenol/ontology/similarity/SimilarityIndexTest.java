@@ -0,0 +1,72 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.algo.InformationContentComputation;
+import org.monarchinitiative.phenol.ontology.data.TermAnnotations;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.testdata.vegetables.VegetableOntologyTestBase;
+
+public class SimilarityIndexTest extends VegetableOntologyTestBase {
+
+  private PairwiseResnikSimilarity pairwise;
+
+  private Map<TermId, Collection<TermId>> recipes;
+
+  @BeforeEach
+  public void setUp() {
+    InformationContentComputation computation = new InformationContentComputation(ontology);
+    Map<TermId, Collection<TermId>> termLabels =
+        TermAnnotations.constructTermAnnotationToLabelsMap(ontology, recipeAnnotations);
+    Map<TermId, Double> informationContent = computation.computeInformationContent(termLabels);
+    pairwise = new PairwiseResnikSimilarity(ontology, informationContent);
+    recipes = TermAnnotations.constructTermLabelToAnnotationsMap(ontology, recipeAnnotations);
+  }
+
+  @Test
+  public void testScoreAllMatchesResnikSimilarity() {
+    for (boolean symmetric : new boolean[] {false, true}) {
+      SimilarityIndex index = new SimilarityIndex(pairwise, symmetric, recipes);
+      ResnikSimilarity resnik = new ResnikSimilarity(pairwise, symmetric);
+      List<TermId> query = Lists.newArrayList(idBlueCarrot, idPumpkin, TermId.of("VO:9999999"));
+      double[] scores = new double[index.countProfiles()];
+      index.scoreAll(query, scores);
+      for (int pos = 0; pos < index.countProfiles(); ++pos) {
+        assertEquals(
+            resnik.computeScore(query, recipes.get(index.getProfileId(pos))), scores[pos], 1e-9);
+      }
+    }
+  }
+
+  @Test
+  public void testTopK() {
+    SimilarityIndex index = new SimilarityIndex(pairwise, true, recipes);
+    List<TermId> query = Lists.newArrayList(idBlueCarrot);
+    List<SimilarityIndex.ScoredProfile> top = index.topK(query, 2);
+    assertEquals(Math.min(2, recipes.size()), top.size());
+
+    double[] scores = new double[index.countProfiles()];
+    index.scoreAll(query, scores);
+    double best = Double.NEGATIVE_INFINITY;
+    for (double score : scores) {
+      best = Math.max(best, score);
+    }
+    assertEquals(best, top.get(0).getScore(), 1e-9);
+    assertTrue(top.get(0).getScore() >= top.get(1).getScore());
+
+    List<SimilarityIndex.ScoredProfile> all = index.topK(query, 100);
+    assertEquals(recipes.size(), all.size());
+    for (int i = 1; i < all.size(); ++i) {
+      assertTrue(all.get(i - 1).getScore() >= all.get(i).getScore());
+    }
+    assertEquals(0, index.topK(query, 0).size());
+  }
+}
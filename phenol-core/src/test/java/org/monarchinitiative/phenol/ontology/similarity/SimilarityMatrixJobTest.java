@@ -0,0 +1,147 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.algo.InformationContentComputation;
+import org.monarchinitiative.phenol.ontology.data.TermAnnotations;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.testdata.vegetables.VegetableOntologyTestBase;
+
+public class SimilarityMatrixJobTest extends VegetableOntologyTestBase {
+
+  private PairwiseResnikSimilarity pairwise;
+
+  private ResnikSimilarity similarity;
+
+  private Map<TermId, Collection<TermId>> profiles;
+
+  @BeforeEach
+  public void setUp() {
+    InformationContentComputation computation = new InformationContentComputation(ontology);
+    Map<TermId, Collection<TermId>> termLabels =
+        TermAnnotations.constructTermAnnotationToLabelsMap(ontology, recipeAnnotations);
+    Map<TermId, Double> informationContent = computation.computeInformationContent(termLabels);
+    pairwise = new PairwiseResnikSimilarity(ontology, informationContent);
+    similarity = new ResnikSimilarity(pairwise, true);
+    profiles = TermAnnotations.constructTermLabelToAnnotationsMap(ontology, recipeAnnotations);
+  }
+
+  @Test
+  public void testAllTargets() throws IOException {
+    final CollectingSink sink = new CollectingSink();
+    final SimilarityMatrixJob job =
+        new SimilarityMatrixJob.Builder(similarity, ontology)
+            .queries(profiles)
+            .targets(profiles)
+            .tileSize(1, 1)
+            .numThreads(2)
+            .build();
+    job.run(sink);
+
+    assertEquals(profiles.size(), sink.rows.size());
+    final List<TermId> ids = job.getQueryIds();
+    for (int q = 0; q < ids.size(); ++q) {
+      final double[] row = sink.rows.get(q);
+      for (int t = 0; t < ids.size(); ++t) {
+        assertEquals(t, sink.positions.get(q)[t]);
+        assertEquals(
+            similarity.computeScore(profiles.get(ids.get(q)), profiles.get(ids.get(t))),
+            row[t],
+            1e-9);
+      }
+    }
+  }
+
+  @Test
+  public void testTopK() throws IOException {
+    final CollectingSink sink = new CollectingSink();
+    final SimilarityMatrixJob job =
+        new SimilarityMatrixJob.Builder(similarity, ontology)
+            .queries(profiles)
+            .targets(profiles)
+            .tileSize(2, 2)
+            .topK(2)
+            .build();
+    job.run(sink);
+
+    final List<TermId> ids = job.getTargetIds();
+    final SimilarityIndex index = new SimilarityIndex(pairwise, true, profiles);
+    for (int q = 0; q < ids.size(); ++q) {
+      final List<SimilarityIndex.ScoredProfile> expected =
+          index.topK(profiles.get(job.getQueryIds().get(q)), 2);
+      assertEquals(expected.size(), sink.rows.get(q).length);
+      for (int i = 0; i < expected.size(); ++i) {
+        assertEquals(expected.get(i).getProfileId(), ids.get(sink.positions.get(q)[i]));
+        assertEquals(expected.get(i).getScore(), sink.rows.get(q)[i], 1e-9);
+      }
+    }
+  }
+
+  @Test
+  public void testTsvAndBinarySinks() throws IOException {
+    final SimilarityMatrixJob job =
+        new SimilarityMatrixJob.Builder(similarity, ontology)
+            .queries(profiles)
+            .targets(profiles)
+            .topK(1)
+            .build();
+
+    final StringWriter writer = new StringWriter();
+    try (TsvSimilarityMatrixSink sink = new TsvSimilarityMatrixSink(writer)) {
+      job.run(sink);
+    }
+    final String[] lines = writer.toString().split("\n");
+    assertEquals("query\ttarget\trank\tscore", lines[0]);
+    assertEquals(1 + profiles.size(), lines.length);
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (BinarySimilarityMatrixSink sink = new BinarySimilarityMatrixSink(bytes)) {
+      job.run(sink);
+    }
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      final byte[] magic = new byte[8];
+      in.readFully(magic);
+      assertArrayEquals(BinarySimilarityMatrixSink.MAGIC_BYTES, magic);
+      assertEquals(BinarySimilarityMatrixSink.VERSION, in.readInt());
+      assertEquals(1, in.readInt());
+      assertEquals(profiles.size(), in.readInt());
+      assertEquals(profiles.size(), in.readInt());
+    }
+  }
+
+  /** Sink collecting all rows. */
+  private static final class CollectingSink implements SimilarityMatrixSink {
+    final List<int[]> positions = new ArrayList<>();
+    final List<double[]> rows = new ArrayList<>();
+
+    @Override
+    public void begin(List<TermId> queryIds, List<TermId> targetIds, int topK) {}
+
+    @Override
+    public void writeRow(int queryPos, int[] targetPositions, double[] scores, int count) {
+      assertEquals(rows.size(), queryPos);
+      final int[] p = new int[count];
+      final double[] s = new double[count];
+      System.arraycopy(targetPositions, 0, p, 0, count);
+      System.arraycopy(scores, 0, s, 0, count);
+      positions.add(p);
+      rows.add(s);
+    }
+
+    @Override
+    public void close() {}
+  }
+}
@@ -0,0 +1,98 @@
+package org.monarchinitiative.phenol.ontology.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+import org.monarchinitiative.phenol.formats.hpo.HpoAnnotation;
+import org.monarchinitiative.phenol.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.algo.InformationContentComputation;
+import org.monarchinitiative.phenol.ontology.data.TermAnnotations;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.testdata.vegetables.VegetableOntologyTestBase;
+
+public class WeightedResnikSimilarityTest extends VegetableOntologyTestBase {
+
+  private static final TermId PLAIN = TermId.of("OMIM:1");
+
+  private static final TermId WEIGHTED = TermId.of("OMIM:2");
+
+  private static final TermId NEGATED = TermId.of("OMIM:3");
+
+  private PairwiseResnikSimilarity pairwise;
+
+  private WeightedResnikSimilarity similarity;
+
+  @BeforeEach
+  public void setUp() {
+    InformationContentComputation computation = new InformationContentComputation(ontology);
+    Map<TermId, Collection<TermId>> termLabels =
+        TermAnnotations.constructTermAnnotationToLabelsMap(ontology, recipeAnnotations);
+    Map<TermId, Double> informationContent = computation.computeInformationContent(termLabels);
+    pairwise = new PairwiseResnikSimilarity(ontology, informationContent);
+
+    List<HpoDisease> diseases =
+        Lists.newArrayList(
+            disease(PLAIN, 1.0, ImmutableList.of()),
+            disease(WEIGHTED, 0.5, ImmutableList.of()),
+            disease(NEGATED, 1.0, ImmutableList.of(idCarrot)));
+    similarity = new WeightedResnikSimilarity(pairwise, diseases, 1.0);
+  }
+
+  private HpoDisease disease(TermId id, double carrotFrequency, List<TermId> negated) {
+    List<HpoAnnotation> annotations =
+        Lists.newArrayList(
+            HpoAnnotation.builder(idCarrot).frequency(carrotFrequency, "").build(),
+            HpoAnnotation.builder(idPumpkin).build());
+    return new HpoDisease(
+        id.getValue(),
+        id,
+        annotations,
+        ImmutableList.of(),
+        negated,
+        ImmutableList.of(),
+        ImmutableList.of());
+  }
+
+  @Test
+  public void testSameAsResnikWithoutWeights() {
+    ResnikSimilarity resnik = new ResnikSimilarity(pairwise, false);
+    List<TermId> query = Lists.newArrayList(idBlueCarrot, idBeet, TermId.of("VO:9999999"));
+    assertEquals(3, similarity.countDiseases());
+    assertEquals(
+        resnik.computeScore(query, Lists.newArrayList(idCarrot, idPumpkin)),
+        similarity.computeScore(query, PLAIN),
+        1e-9);
+  }
+
+  @Test
+  public void testFrequencyWeighting() {
+    List<TermId> query = Lists.newArrayList(idBlueCarrot);
+    assertEquals(0.405, similarity.computeScore(query, PLAIN), 0.01);
+    assertEquals(0.5 * 0.405, similarity.computeScore(query, WEIGHTED), 0.01);
+  }
+
+  @Test
+  public void testNegationPenalty() {
+    List<TermId> query = Lists.newArrayList(idBlueCarrot);
+    double ic = pairwise.computeScore(idCarrot, idCarrot);
+    assertEquals(
+        similarity.computeScore(query, PLAIN) - ic, similarity.computeScore(query, NEGATED), 1e-9);
+    // Beet is not below the negated carrot.
+    assertEquals(
+        similarity.computeScore(Lists.newArrayList(idBeet), PLAIN),
+        similarity.computeScore(Lists.newArrayList(idBeet), NEGATED),
+        1e-9);
+    assertThrows(
+        PhenolRuntimeException.class,
+        () -> similarity.computeScore(query, TermId.of("OMIM:4")));
+  }
+}
@@ -192,7 +192,7 @@ public class OboGraphDocumentAdaptor {
         return null;
       }
       String curieStr = curie.get();
-      TermId termId = TermId.of(curieStr);
+      TermId termId = TermIdPool.global().of(curieStr);
       // Note that GO has some Terms/Relations with RO and BFO that we want to skip
       String prefix = termId.getPrefix();
       if (wantedTermIdPrefixes.isEmpty() || wantedTermIdPrefixes.contains(prefix)) {
@@ -5,6 +5,7 @@ import org.monarchinitiative.phenol.base.PhenolException;
 import org.monarchinitiative.phenol.formats.hpo.*;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.data.TermIdPool;
 
 import java.util.List;
 
@@ -98,10 +99,10 @@ class HpoAnnotationLine {
     this.databaseId = fields[DATABASE_ID_IDX];
     this.DbObjectName = fields[DB_NAME_IDX];
     String phenoId = fields[PHENOTYPE_ID_IDX];
-    this.phenotypeId = TermId.of(phenoId);
+    this.phenotypeId = TermIdPool.global().of(phenoId);
     String onset = fields[ONSET_ID_IDX];
     if (onset != null && onset.startsWith("HP:")) {
-      onsetId = TermId.of(onset);
+      onsetId = TermIdPool.global().of(onset);
     }
     this.frequency = fields[FREQUENCY_IDX];
     this.sex = fields[SEX_IDX];
@@ -155,7 +156,7 @@ class HpoAnnotationLine {
       databaseId.startsWith("ORPHA") ||
       databaseId.startsWith("DECIPHER")
       )
-        return TermId.of(databaseId);
+        return TermIdPool.global().of(databaseId);
     // we should never get here
     throw new PhenolException("Invalid disease id (not OMIM/ORPHA/DECIPHER: "+databaseId);
   }
@@ -244,7 +245,7 @@ class HpoAnnotationLine {
     if (lst == null || lst.isEmpty()) return builder.build(); //return empty list
     String[] modifierTermStrings = lst.split(";");
     for (String mt : modifierTermStrings) {
-      TermId mtId = TermId.of(mt.trim());
+      TermId mtId = TermIdPool.global().of(mt.trim());
       builder.add(mtId);
     }
     return builder.build();
@@ -26,6 +26,10 @@ import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.exist
  * @author <a href="mailto:michael.gargano@jax.org">Michael Gargano</a>
  */
 public class HpoDiseaseAnnotationParser {
+  /** Root of the clinical modifier subontology. */
+  private static final TermId CLINICAL_MODIFIER_ROOT = TermIdPool.global().of("HP:0012823");
+  /** Root of the clinical course subontology. */
+  private static final TermId CLINICAL_COURSE = TermIdPool.global().of("HP:0031797");
   /** Path to the phenotype.hpoa annotation file. */
   private final String annotationFilePath;
   /** Reference to the HPO Ontology object. */
@@ -202,7 +206,6 @@ public class HpoDiseaseAnnotationParser {
    * @return true if tid is a clinical modifier term
    */
   private boolean isClinicalModifierTerm(TermId tid) {
-    final TermId CLINICAL_MODIFIER_ROOT = TermId.of("HP:0012823");
     return tid.equals(CLINICAL_MODIFIER_ROOT) || existsPath(this.ontology,tid,CLINICAL_MODIFIER_ROOT);
   }
 
@@ -216,7 +219,6 @@ public class HpoDiseaseAnnotationParser {
    * @return true if tid is a clinical course term
    */
   private boolean isClinicalCourse(TermId tid) {
-    final TermId CLINICAL_COURSE = TermId.of("HP:0031797");
     return tid.equals(CLINICAL_COURSE) || existsPath(this.ontology,tid,CLINICAL_COURSE);
   }
 }
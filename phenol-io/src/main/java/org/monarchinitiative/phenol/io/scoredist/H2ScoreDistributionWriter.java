@@ -163,6 +163,10 @@ public final class H2ScoreDistributionWriter implements ScoreDistributionWriter
    */
   private void writeObjectScoreDistribution(
       int numTerms, ObjectScoreDistribution dist, int resolution) throws PhenolException {
+    if (dist.isFitted()) {
+      throw new PhenolException(
+          "Fitted score distributions are not supported, use TextFileScoreDistributionWriter");
+    }
     final double scores[];
     final double pValues[];
 
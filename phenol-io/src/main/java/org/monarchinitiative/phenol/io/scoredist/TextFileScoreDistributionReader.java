@@ -10,8 +10,10 @@ import java.util.Map.Entry;
 import java.util.TreeMap;
 
 import org.monarchinitiative.phenol.base.PhenolException;
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
 import org.monarchinitiative.phenol.ontology.scoredist.ObjectScoreDistribution;
 import org.monarchinitiative.phenol.ontology.scoredist.ScoreDistribution;
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreDistributionModel;
 
 /**
  * Class for reading in {@link ScoreDistribution} objects from text files.
@@ -80,20 +82,28 @@ public class TextFileScoreDistributionReader implements ScoreDistributionReader
 
     while (nextLine != null) {
       final String[] arr = nextLine.trim().split("\t");
+      if (arr.length < 3) {
+        throw new PhenolException("Invalid score distribution line: " + nextLine);
+      }
       final int numTerms = Integer.parseInt(arr[0]);
       final int entrezId = Integer.parseInt(arr[1]);
       final int sampleSize = Integer.parseInt(arr[2]);
-      final String dist = arr[3];
-
-      final TreeMap<Double, Double> cumFreqs = new TreeMap<>();
-      for (String pairStr : dist.split(",")) {
-        final String[] pair = pairStr.split(":");
-        cumFreqs.put(Double.parseDouble(pair[0]), Double.parseDouble(pair[1]));
+      // The distribution column is empty (and its tab trimmed) if nothing was sampled.
+      final String dist = (arr.length > 3) ? arr[3] : "";
+
+      final ObjectScoreDistribution scoreDist;
+      if (dist.startsWith(TextFileScoreDistributionWriter.MODEL_PREFIX + ":")) {
+        scoreDist =
+            new ObjectScoreDistribution(entrezId, numTerms, sampleSize, parseModel(dist));
+      } else {
+        final TreeMap<Double, Double> cumFreqs = new TreeMap<>();
+        for (String pairStr : dist.isEmpty() ? new String[0] : dist.split(",")) {
+          final String[] pair = pairStr.split(":");
+          cumFreqs.put(Double.parseDouble(pair[0]), Double.parseDouble(pair[1]));
+        }
+        scoreDist = new ObjectScoreDistribution(entrezId, numTerms, sampleSize, cumFreqs);
       }
 
-      final ObjectScoreDistribution scoreDist =
-          new ObjectScoreDistribution(entrezId, numTerms, sampleSize, cumFreqs);
-
       if (!tmp.containsKey(numTerms)) {
         tmp.put(numTerms, new TreeMap<>());
       }
@@ -114,6 +124,30 @@ public class TextFileScoreDistributionReader implements ScoreDistributionReader
     return result;
   }
 
+  /**
+   * Parse fitted model from the distribution column.
+   *
+   * @param dist The distribution column, see {@link TextFileScoreDistributionWriter}.
+   * @return The parsed {@link ScoreDistributionModel}.
+   * @throws PhenolException If the model is malformed.
+   */
+  private static ScoreDistributionModel parseModel(String dist) throws PhenolException {
+    final String[] arr = dist.split(":");
+    if (arr.length != 6) {
+      throw new PhenolException("Invalid fitted distribution: " + dist);
+    }
+    try {
+      return new ScoreDistributionModel(
+          ScoreDistributionModel.Family.valueOf(arr[1]),
+          Double.parseDouble(arr[2]),
+          Double.parseDouble(arr[3]),
+          Double.parseDouble(arr[4]),
+          Double.parseDouble(arr[5]));
+    } catch (IllegalArgumentException | PhenolRuntimeException e) {
+      throw new PhenolException("Invalid fitted distribution: " + dist, e);
+    }
+  }
+
   @Override
   public ObjectScoreDistribution readForTermCountAndObject(int termCount, int objectId)
       throws PhenolException {
@@ -9,16 +9,23 @@ import java.util.Map.Entry;
 
 import org.monarchinitiative.phenol.ontology.scoredist.ObjectScoreDistribution;
 import org.monarchinitiative.phenol.ontology.scoredist.ScoreDistribution;
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreDistributionModel;
 import com.google.common.base.Joiner;
 
 /**
  * Class for writing out {@link ScoreDistribution} objects to text files.
  *
+ * <p>The distribution column holds comma-separated <code>score:value</code> points or, for fitted
+ * distributions, <code>model:FAMILY:location:scale:shape:ksDistance</code>.
+ *
  * @see TextFileScoreDistributionReader
  * @author <a href="mailto:manuel.holtgrewe@bihealth.de">Manuel Holtgrewe</a>
  */
 public class TextFileScoreDistributionWriter implements ScoreDistributionWriter {
 
+  /** Prefix of the distribution column for fitted distributions. */
+  static final String MODEL_PREFIX = "model";
+
   /** Path to the file to write to. */
   private final File outputFile;
 
@@ -43,7 +50,18 @@ public class TextFileScoreDistributionWriter implements ScoreDistributionWriter
       final ObjectScoreDistribution dist = scoreDistribution.getObjectScoreDistribution(objectId);
       final List<Double> scores = dist.observedScores();
       final ArrayList<String> points = new ArrayList<>();
-      if (resolution != 0) {
+      if (dist.isFitted()) {
+        final ScoreDistributionModel model = dist.getModel();
+        points.add(
+            Joiner.on(':')
+                .join(
+                    MODEL_PREFIX,
+                    model.getFamily(),
+                    model.getLocation(),
+                    model.getScale(),
+                    model.getShape(),
+                    model.getKsDistance()));
+      } else if (resolution != 0 && !scores.isEmpty()) {
         for (int i = 0; i <= resolution; ++i) {
           final double pos = (((double) scores.size() - 1) / resolution) * i;
           final int left = Math.max(0, (int) Math.floor(pos));
@@ -0,0 +1,101 @@
+package org.monarchinitiative.phenol.io.scoredist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.ImmutableSortedMap;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.base.PhenolException;
+import org.monarchinitiative.phenol.ontology.scoredist.ObjectScoreDistribution;
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreDistribution;
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreDistributionModel;
+import org.monarchinitiative.phenol.ontology.scoredist.ScoreDistributionModel.Family;
+
+/**
+ * Round-trip tests for {@link TextFileScoreDistributionWriter} and {@link
+ * TextFileScoreDistributionReader}.
+ */
+public class TextFileScoreDistributionTest {
+
+  private File file;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    file = File.createTempFile("phenol-scoredist", ".tsv");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    final ScoreDistributionModel model =
+        new ScoreDistributionModel(Family.GEV, 2.0, 0.5, 0.125, 0.0075);
+    final Map<Integer, ObjectScoreDistribution> objDists = new TreeMap<>();
+    objDists.put(1, new ObjectScoreDistribution(1, 3, 1000, model));
+    objDists.put(
+        2, new ObjectScoreDistribution(2, 3, 1000, ImmutableSortedMap.of(0.5, 0.25, 1.5, 1.0)));
+    objDists.put(3, new ObjectScoreDistribution(3, 3, 0, new double[0], new double[0]));
+    try (TextFileScoreDistributionWriter writer = new TextFileScoreDistributionWriter(file)) {
+      writer.write(3, new ScoreDistribution(3, objDists), 0);
+    }
+
+    final ScoreDistribution read;
+    try (TextFileScoreDistributionReader reader = new TextFileScoreDistributionReader(file)) {
+      read = reader.readForTermCount(3);
+    }
+    assertEquals(3, read.getNumTerms());
+    assertEquals(3, read.getObjectIds().size());
+
+    final ObjectScoreDistribution fitted = read.getObjectScoreDistribution(1);
+    assertTrue(fitted.isFitted());
+    assertEquals(1000, fitted.getSampleSize());
+    assertEquals(Family.GEV, fitted.getModel().getFamily());
+    assertEquals(2.0, fitted.getModel().getLocation(), 1e-12);
+    assertEquals(0.5, fitted.getModel().getScale(), 1e-12);
+    assertEquals(0.125, fitted.getModel().getShape(), 1e-12);
+    assertEquals(0.0075, fitted.getModel().getKsDistance(), 1e-12);
+    for (double score = 1.0; score < 5.0; score += 0.5) {
+      assertEquals(model.pValue(score), fitted.estimatePValue(score), 1e-12);
+    }
+
+    final ObjectScoreDistribution empirical = read.getObjectScoreDistribution(2);
+    assertFalse(empirical.isFitted());
+    assertEquals(objDists.get(2).getCumulativeFrequencies(), empirical.getCumulativeFrequencies());
+
+    final ObjectScoreDistribution empty = read.getObjectScoreDistribution(3);
+    assertFalse(empty.isFitted());
+    assertEquals(0, empty.getSampleSize());
+    assertEquals(0, empty.getScores().length);
+  }
+
+  @Test
+  public void testMalformedModel() throws Exception {
+    try (PrintStream out = new PrintStream(file)) {
+      out.println("#numTerms\tentrezId\tsampleSize\tdistribution");
+      out.println("3\t1\t1000\tmodel:GEV:2.0:0.5");
+    }
+    try (TextFileScoreDistributionReader reader = new TextFileScoreDistributionReader(file)) {
+      assertThrows(PhenolException.class, reader::readAll);
+    }
+    try (PrintStream out = new PrintStream(file)) {
+      out.println("#numTerms\tentrezId\tsampleSize\tdistribution");
+      out.println("3\t1\t1000\tmodel:WEIBULL:2.0:0.5:0.1:0.01");
+    }
+    try (TextFileScoreDistributionReader reader = new TextFileScoreDistributionReader(file)) {
+      assertThrows(PhenolException.class, reader::readAll);
+    }
+  }
+}